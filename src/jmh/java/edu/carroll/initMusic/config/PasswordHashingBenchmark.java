@@ -0,0 +1,66 @@
+package edu.carroll.initMusic.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures login throughput (checking a password against its stored hash) at several BCrypt
+ * cost settings, both inline on the calling thread and through {@link PooledPasswordEncoder}.
+ *
+ * <p>
+ * Eight caller threads stand in for request threads. With the pooled encoder only
+ * {@code poolSize} of them can be hashing at once, the rest wait in the queue.
+ * Run with {@code ./gradlew jmh}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class PasswordHashingBenchmark {
+
+    /** Password every login uses */
+    private static final String PASSWORD = "correct horse battery staple";
+
+    /** BCrypt cost factors to compare */
+    @Param({"8", "10", "12"})
+    public int strength;
+
+    /** Number of hashing threads the pooled encoder uses */
+    @Param({"4"})
+    public int poolSize;
+
+    /** Encoder hashing on the calling thread, like the old setup */
+    private BCryptPasswordEncoder inlineEncoder;
+
+    /** Encoder hashing on its own bounded pool */
+    private PooledPasswordEncoder pooledEncoder;
+
+    /** Stored hash of {@link #PASSWORD} */
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inlineEncoder = new BCryptPasswordEncoder(strength);
+        pooledEncoder = new PooledPasswordEncoder(strength, poolSize, 1024, 60_000, new SimpleMeterRegistry());
+        storedHash = inlineEncoder.encode(PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pooledEncoder.destroy();
+    }
+
+    @Benchmark
+    public boolean loginInline() {
+        return inlineEncoder.matches(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean loginPooled() {
+        return pooledEncoder.matches(PASSWORD, storedHash);
+    }
+}
@@ -0,0 +1,100 @@
+package edu.carroll.initMusic.jpa.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing the results of one cached query out of a million, stored packed with
+ * {@link PackedIds} against stored one row per song like the old {@code query_cache_song} join table.
+ *
+ * <p>
+ * Join rows are modelled as one {@code long[]} per cache holding a (cache id, song id) pair per result,
+ * and a read has to turn the song ids back into deezerIDs through a song id to deezerID lookup, like the
+ * old join back to {@code song}. On setup the benchmark prints how many bytes each layout takes for all
+ * the caches, before any row or index overhead the database adds per join row. Run with {@code ./gradlew jmh},
+ * it needs around 2GB of heap.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QueryCacheStorageBenchmark {
+
+    /** Number of cached queries */
+    @Param({"1000000"})
+    public int cachedQueries;
+
+    /** Number of songs each query found, Deezer returns up to 25 per page */
+    @Param({"25"})
+    public int resultsPerQuery;
+
+    /** Number of distinct songs the caches point to */
+    private static final int SONGS = 2_000_000;
+
+    /** Packed deezerIDs for each cache */
+    private byte[][] packed;
+
+    /** (cache id, song id) pairs for each cache, like the join table */
+    private long[][] joinRows;
+
+    /** DeezerID of each song, by song id */
+    private long[] deezerIdBySongId;
+
+    /** Random used to pick which cache to read, seeded so runs match */
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom setupRandom = new SplittableRandom(34);
+        deezerIdBySongId = new long[SONGS];
+        for (int i = 0; i < SONGS; i++) {
+            deezerIdBySongId[i] = setupRandom.nextLong(1, 4_000_000_000L);
+        }
+
+        packed = new byte[cachedQueries][];
+        joinRows = new long[cachedQueries][];
+        long packedBytes = 0;
+        for (int cache = 0; cache < cachedQueries; cache++) {
+            final long[] deezerIds = new long[resultsPerQuery];
+            final long[] rows = new long[resultsPerQuery * 2];
+            for (int i = 0; i < resultsPerQuery; i++) {
+                final int songId = setupRandom.nextInt(SONGS);
+                deezerIds[i] = deezerIdBySongId[songId];
+                rows[i * 2] = cache;
+                rows[i * 2 + 1] = songId;
+            }
+            packed[cache] = PackedIds.encode(deezerIds);
+            joinRows[cache] = rows;
+            packedBytes += packed[cache].length;
+        }
+        final long joinBytes = (long) cachedQueries * resultsPerQuery * 2 * Long.BYTES;
+        System.out.printf("%nPacked results: %,d bytes, join rows: %,d bytes (%.1fx smaller)%n",
+                packedBytes, joinBytes, (double) joinBytes / packedBytes);
+
+        random = new SplittableRandom(1);
+    }
+
+    @Benchmark
+    public void readPacked(Blackhole blackhole) {
+        blackhole.consume(PackedIds.decode(packed[random.nextInt(cachedQueries)]));
+    }
+
+    @Benchmark
+    public void readJoinRows(Blackhole blackhole) {
+        final long[] rows = joinRows[random.nextInt(cachedQueries)];
+        final long[] deezerIds = new long[rows.length / 2];
+        for (int i = 0; i < deezerIds.length; i++) {
+            deezerIds[i] = deezerIdBySongId[(int) rows[i * 2 + 1]];
+        }
+        blackhole.consume(deezerIds);
+    }
+
+    @Benchmark
+    public void writePacked(Blackhole blackhole) {
+        blackhole.consume(PackedIds.encode(PackedIds.decode(packed[random.nextInt(cachedQueries)])));
+    }
+}
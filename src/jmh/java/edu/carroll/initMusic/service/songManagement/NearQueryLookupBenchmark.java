@@ -0,0 +1,85 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up a search in a {@link TrigramIndex} of a million cached searches, which has to stay
+ * well under a millisecond since it's done on every cache miss. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NearQueryLookupBenchmark {
+
+    /** Number of searches indexed */
+    private static final int KEY_COUNT = 1_000_000;
+
+    /** Number of different searches looked up, a power of two */
+    private static final int QUERY_COUNT = 1024;
+
+    /** Put in front of every search, like the canonical form of a song search */
+    private static final String PREFIX = "song:";
+
+    /** Characters random names are made of */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    /** Index being measured */
+    private TrigramIndex<String> index;
+
+    /** Indexed searches with one character changed */
+    private String[] typoQueries;
+
+    /** Searches that aren't close to anything indexed */
+    private String[] unknownQueries;
+
+    /** Position of the next query */
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        index = new TrigramIndex<>();
+        final String[] keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = PREFIX + randomName(random);
+            index.add(keys[i], keys[i]);
+        }
+        typoQueries = new String[QUERY_COUNT];
+        unknownQueries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            final StringBuilder typo = new StringBuilder(keys[random.nextInt(KEY_COUNT)]);
+            final int position = PREFIX.length() + random.nextInt(typo.length() - PREFIX.length());
+            typo.setCharAt(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            typoQueries[i] = typo.toString();
+            unknownQueries[i] = PREFIX + randomName(random);
+        }
+    }
+
+    @Benchmark
+    public Object typo() {
+        return index.nearest(typoQueries[next++ & (QUERY_COUNT - 1)], 2);
+    }
+
+    @Benchmark
+    public Object unknown() {
+        return index.nearest(unknownQueries[next++ & (QUERY_COUNT - 1)], 2);
+    }
+
+    /**
+     * Makes a random name 10 to 29 characters long
+     *
+     * @param random Random to use
+     * @return Random name
+     */
+    private static String randomName(Random random) {
+        final int length = 10 + random.nextInt(20);
+        final StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+}
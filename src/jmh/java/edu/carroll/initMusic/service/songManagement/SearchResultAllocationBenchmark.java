@@ -0,0 +1,116 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import org.apache.commons.text.similarity.JaroWinklerDistance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares what one search allocates turning Deezer's tracks into ranked results, as {@link SongResult}s
+ * against as {@link Song} entities like searches used to. Deezer answers each search with two pages of tracks,
+ * strict and not, that mostly overlap. The entity path puts the songs in a {@link TreeSet} ranked on every
+ * comparison, ranks them again with their scores, and hashes them over six fields into the results. The result
+ * path keeps the first of each song in Deezer's order, ranks them once, and hashes them by deezerID.
+ * Allocation per search is reported by the gc profiler, as {@code gc.alloc.rate.norm}. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchResultAllocationBenchmark {
+
+    /** Number of tracks on each page Deezer returns */
+    private static final int TRACKS_PER_PAGE = 25;
+
+    /** Number of tracks on the strict page that are also on the other one */
+    private static final int OVERLAP = 20;
+
+    /** Song name searched for */
+    private static final String SONG_SEARCH = "bohemian rhapsody";
+
+    /** Fields of each track Deezer returned, strict page first, already parsed like they are from the JSON */
+    private Object[][] tracks;
+
+    /** Used to score songs, like the search does */
+    private final JaroWinklerDistance jaroWinkler = new JaroWinklerDistance();
+
+    /**
+     * Song entity with its score, like songs were ranked before results had their own type
+     *
+     * @param song  Song found
+     * @param score Score it was ranked by
+     */
+    private record ScoredEntity(Song song, double score) {
+    }
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(46);
+        final int distinct = TRACKS_PER_PAGE * 2 - OVERLAP;
+        final Object[][] songs = new Object[distinct][];
+        for (int i = 0; i < distinct; i++) {
+            final long deezerID = 1_000_000L + random.nextInt(1_000_000_000);
+            songs[i] = new Object[]{deezerID, SONG_SEARCH + " " + i, 120 + random.nextInt(240), "Artist " + i,
+                    (long) random.nextInt(1_000_000), "Album " + i, (long) random.nextInt(1_000_000),
+                    "https://e-cdns-images.dzcdn.net/images/cover/" + deezerID + "/250x250-000000-80-0-0.jpg",
+                    "https://cdns-preview-" + i + ".dzcdn.net/stream/c-" + Long.toHexString(deezerID) + "-8.mp3"};
+        }
+        tracks = new Object[TRACKS_PER_PAGE * 2][];
+        for (int i = 0; i < TRACKS_PER_PAGE; i++) {
+            tracks[i] = songs[i];
+            tracks[TRACKS_PER_PAGE + i] = songs[i < OVERLAP ? i : TRACKS_PER_PAGE + i - OVERLAP];
+        }
+    }
+
+    @Benchmark
+    public Set<SongResult> results() {
+        final Set<SongResult> found = new LinkedHashSet<>();
+        for (Object[] track : tracks) {
+            found.add(new SongResult((Long) track[0], (String) track[1], (Integer) track[2], (String) track[3],
+                    (Long) track[4], (String) track[5], (Long) track[6], (String) track[7], (String) track[8]));
+        }
+
+        final List<ScoredSong> ranked = new ArrayList<>(found.size());
+        for (SongResult song : found) {
+            ranked.add(new ScoredSong(song, jaroWinkler.apply(song.getSongName(), SONG_SEARCH)));
+        }
+        ranked.sort(Comparator.comparingDouble(ScoredSong::score).thenComparingLong(scoredSong -> scoredSong.song().getDeezerID()));
+
+        final Set<SongResult> results = new LinkedHashSet<>(ranked.size() * 2);
+        for (ScoredSong scoredSong : ranked) {
+            results.add(scoredSong.song());
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Set<Song> entities() {
+        final SortedSet<Song> found = new TreeSet<>((s1, s2) -> {
+            final int distanceComparison = Double.compare(jaroWinkler.apply(s1.getSongName(), SONG_SEARCH), jaroWinkler.apply(s2.getSongName(), SONG_SEARCH));
+            if (distanceComparison != 0) {
+                return distanceComparison;
+            }
+            return s1.getDeezerID().compareTo(s2.getDeezerID());
+        });
+        for (Object[] track : tracks) {
+            final Song song = new Song((Long) track[0], (String) track[1], (Integer) track[2], (String) track[3],
+                    (Long) track[4], (String) track[5], (Long) track[6]);
+            song.setSongImg((String) track[7]);
+            song.setSongPreview((String) track[8]);
+            found.add(song);
+        }
+
+        final List<ScoredEntity> ranked = new ArrayList<>(found.size());
+        for (Song song : found) {
+            ranked.add(new ScoredEntity(song, jaroWinkler.apply(song.getSongName(), SONG_SEARCH)));
+        }
+        ranked.sort(Comparator.comparingDouble(ScoredEntity::score).thenComparing(scoredEntity -> scoredEntity.song().getDeezerID()));
+
+        final Set<Song> results = new LinkedHashSet<>();
+        for (ScoredEntity scoredEntity : ranked) {
+            results.add(scoredEntity.song());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,110 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up a song's id by deezerID among ten million songs in the {@link LongLongHashMap} the
+ * {@link SongIdIndex} keeps them in, against a {@code HashMap<Long, Long>}, for songs that are saved and
+ * songs that aren't. Allocation per lookup is reported by the gc profiler, as {@code gc.alloc.rate.norm},
+ * which boxing each deezerID shows up in. On setup the benchmark prints how many bytes each map takes, measured
+ * as the heap used after building it. Run with {@code ./gradlew jmh}, it needs around 6GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SongIdLookupBenchmark {
+
+    /** Number of saved songs */
+    @Param({"10000000"})
+    public int songs;
+
+    /** Number of different deezerIDs looked up, a power of two */
+    private static final int LOOKUPS = 1 << 16;
+
+    /** Song ids by deezerID, like the index keeps them */
+    private LongLongHashMap primitive;
+
+    /** Song ids by deezerID, boxed */
+    private Map<Long, Long> boxed;
+
+    /** DeezerIDs of saved songs, in a random order */
+    private long[] savedDeezerIDs;
+
+    /** DeezerIDs of songs that aren't saved */
+    private long[] unknownDeezerIDs;
+
+    /** Position of the next lookup */
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(48);
+        final long[] deezerIDs = new long[songs];
+        for (int i = 0; i < songs; i++) {
+            //Deezer's ids are spread out over a few billion
+            deezerIDs[i] = random.nextLong(1, 4_000_000_000L);
+        }
+
+        final long beforePrimitive = usedHeap();
+        primitive = new LongLongHashMap(songs);
+        for (int i = 0; i < songs; i++) {
+            primitive.put(deezerIDs[i], i + 1L);
+        }
+        final long primitiveBytes = usedHeap() - beforePrimitive;
+
+        final long beforeBoxed = usedHeap();
+        boxed = new HashMap<>(songs * 2);
+        for (int i = 0; i < songs; i++) {
+            boxed.put(deezerIDs[i], i + 1L);
+        }
+        final long boxedBytes = usedHeap() - beforeBoxed;
+        System.out.printf("%n%d songs: LongLongHashMap %d MB, HashMap<Long, Long> %d MB%n",
+                songs, primitiveBytes >> 20, boxedBytes >> 20);
+
+        savedDeezerIDs = new long[LOOKUPS];
+        unknownDeezerIDs = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            savedDeezerIDs[i] = deezerIDs[random.nextInt(songs)];
+            unknownDeezerIDs[i] = random.nextLong(4_000_000_000L, Long.MAX_VALUE);
+        }
+    }
+
+    @Benchmark
+    public long primitiveSaved() {
+        return primitive.get(savedDeezerIDs[next++ & (LOOKUPS - 1)], SongIdIndex.MISSING);
+    }
+
+    @Benchmark
+    public long primitiveUnknown() {
+        return primitive.get(unknownDeezerIDs[next++ & (LOOKUPS - 1)], SongIdIndex.MISSING);
+    }
+
+    @Benchmark
+    public long boxedSaved() {
+        final Long songID = boxed.get(savedDeezerIDs[next++ & (LOOKUPS - 1)]);
+        return songID == null ? SongIdIndex.MISSING : songID;
+    }
+
+    @Benchmark
+    public long boxedUnknown() {
+        final Long songID = boxed.get(unknownDeezerIDs[next++ & (LOOKUPS - 1)]);
+        return songID == null ? SongIdIndex.MISSING : songID;
+    }
+
+    /**
+     * Gets the heap in use after a full collection
+     *
+     * @return Bytes of heap in use
+     */
+    private static long usedHeap() {
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,79 @@
+package edu.carroll.initMusic.service.userManagement;
+
+import edu.carroll.initMusic.MethodOutcome;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link EmailValidator} with the regex plus split checks uniqueEmail used to do,
+ * on a mix of valid, invalid and too long emails. Run with {@code ./gradlew jmh}, adding
+ * {@code -prof gc} shows the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailValidationBenchmark {
+
+    /** Regex uniqueEmail used to use */
+    private static final Pattern OLD_PATTERN = Pattern.compile("^[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+
+    /** Emails to validate */
+    private final String[] emails = {
+            "email@email.com",
+            "first.last+tag@sub.domain.example.org",
+            "not an email",
+            "missing-at-sign.com",
+            "a@b.c",
+            "a".repeat(65) + "@email.com",
+            "user@" + "b".repeat(64) + ".com",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa@aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.a1",
+    };
+
+    /** Validator being measured */
+    private final EmailValidator emailValidator = new EmailValidator();
+
+    @Benchmark
+    public void singlePassValidator(Blackhole blackhole) {
+        for (String email : emails) {
+            blackhole.consume(emailValidator.validate(email));
+        }
+    }
+
+    @Benchmark
+    public void regexAndSplit(Blackhole blackhole) {
+        for (String email : emails) {
+            blackhole.consume(oldValidate(email));
+        }
+    }
+
+    /**
+     * The checks uniqueEmail used to do before the database lookup
+     *
+     * @param email Email to check
+     * @return Outcome of checks
+     */
+    private static MethodOutcome oldValidate(String email) {
+        if (email == null || email.trim().isEmpty() || !OLD_PATTERN.matcher(email).matches()) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        if (email.length() > 254) {
+            return MethodOutcome.EMAIL_TOO_LONG;
+        }
+        final String[] parts = email.split("@");
+        if (parts.length != 2) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        if (parts[0].length() > 64) {
+            return MethodOutcome.EMAIL_LOCAL_PART_TOO_LONG;
+        }
+        for (String label : parts[1].split("\\.")) {
+            if (label.length() > 63) {
+                return MethodOutcome.EMAIL_DOMAIN_LABEL_TOO_LONG;
+            }
+        }
+        return MethodOutcome.SUCCESS;
+    }
+}
@@ -3,6 +3,7 @@ package edu.carroll.initMusic;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -10,11 +11,13 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  * <p>
  * This class configures and starts the Spring Boot application. It enables JPA auditing
  * and transaction management, which are used for handling database operations and ensuring
- * proper transactional behavior within the application.
+ * proper transactional behavior within the application, and scheduling, which is used to
+ * clean up expired query caches in the background.
  */
 @SpringBootApplication
 @EnableJpaAuditing
 @EnableTransactionManagement
+@EnableScheduling
 public class InitMusicApplication {
 
     /**
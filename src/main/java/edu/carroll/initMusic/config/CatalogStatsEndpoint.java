@@ -0,0 +1,38 @@
+package edu.carroll.initMusic.config;
+
+import edu.carroll.initMusic.service.songManagement.CatalogStats;
+import edu.carroll.initMusic.service.songManagement.CatalogStatsService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at {@code /actuator/catalogstats} that shows how many songs, artists, albums, playlists,
+ * users and cached searches there are, and how fast each is growing. Only admins can use it.
+ */
+@Component
+@Endpoint(id = "catalogstats")
+public class CatalogStatsEndpoint {
+
+    /** Where the catalog numbers come from */
+    private final CatalogStatsService catalogStatsService;
+
+    /**
+     * Injects dependencies
+     *
+     * @param catalogStatsService Catalog statistics service needed
+     */
+    public CatalogStatsEndpoint(CatalogStatsService catalogStatsService) {
+        this.catalogStatsService = catalogStatsService;
+    }
+
+    /**
+     * Gets the catalog statistics
+     *
+     * @return Size and growth of each table
+     */
+    @ReadOperation
+    public CatalogStats stats() {
+        return catalogStatsService.getStats();
+    }
+}
@@ -2,26 +2,67 @@ package edu.carroll.initMusic.config;
 
 import edu.carroll.initMusic.jpa.model.User;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
 /**
  * Defines our custom user details object, used to store information for a user,
- * such as their username, hashed password, user object, and keeps track of if the account
+ * such as their id, username, hashed password, email and account creation date, and keeps track of if the account
  * is not expired, locked, has valid credentials, and is enabled.
+ *
+ * <p>
+ * This is stored in the security context (and so in the http session) for as long as the user is logged in,
+ * so it only holds a few immutable values instead of the {@link User} entity. Anything else a page needs
+ * should be loaded through a service using {@link #getUserID()}.
+ * </p>
+ *
+ * @param userID              User's id
+ * @param username            User's username
+ * @param hashedPassword      User's hashed password
+ * @param email               User's email
+ * @param accountCreationDate Date the user's account was created
+ * @param admin               If the user is an admin, who can use the actuator endpoints
  */
-public record CustomUserDetails(User user) implements UserDetails {
+public record CustomUserDetails(Long userID, String username, String hashedPassword, String email,
+                                LocalDateTime accountCreationDate, boolean admin) implements UserDetails {
+
+    /** Role admins have, the only role there is */
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    /**
+     * Creates a new CustomUserDetails object from the given user, who isn't an admin
+     *
+     * @param user User to copy information from
+     * @return CustomUserDetails object with the users information
+     */
+    public static CustomUserDetails from(User user) {
+        return from(user, false);
+    }
+
+    /**
+     * Creates a new CustomUserDetails object from the given user
+     *
+     * @param user  User to copy information from
+     * @param admin If the user is an admin
+     * @return CustomUserDetails object with the users information
+     */
+    public static CustomUserDetails from(User user, boolean admin) {
+        return new CustomUserDetails(user.getuserID(), user.getUsername(), user.getHashedPassword(),
+                user.getEmail(), user.getAccountCreationDate(), admin);
+    }
+
     /**
-     * Gets the users authorities. We don't use roles in our application, so
-     * it just returns a empty list.
+     * Gets the users authorities. Admins have the admin role, everyone else has none.
      *
-     * @return Empty list, because we don't use roles
+     * @return The admin role if the user is an admin, empty list otherwise
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of();
+        return admin ? List.of(new SimpleGrantedAuthority("ROLE_" + ADMIN_ROLE)) : List.of();
     }
 
     /**
@@ -31,7 +72,7 @@ public record CustomUserDetails(User user) implements UserDetails {
      */
     @Override
     public String getPassword() {
-        return user.getHashedPassword();
+        return hashedPassword;
     }
 
     /**
@@ -41,16 +82,34 @@ public record CustomUserDetails(User user) implements UserDetails {
      */
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
+    }
+
+    /**
+     * Gets the users id
+     *
+     * @return User's id
+     */
+    public Long getUserID() {
+        return userID;
+    }
+
+    /**
+     * Gets the users email
+     *
+     * @return User's email
+     */
+    public String getEmail() {
+        return email;
     }
 
     /**
-     * Gets the user object
+     * Gets the date the users account was created
      *
-     * @return User object
+     * @return Date the user's account was created
      */
-    public User getUser() {
-        return user;
+    public LocalDateTime getAccountCreationDate() {
+        return accountCreationDate;
     }
 
     /**
@@ -100,6 +159,6 @@ public record CustomUserDetails(User user) implements UserDetails {
      */
     @Override
     public String toString() {
-        return "User id#" + user.getuserID();
+        return "User id#" + userID;
     }
 }
@@ -0,0 +1,44 @@
+package edu.carroll.initMusic.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Authentication provider that checks passwords with a {@link PooledPasswordEncoder}, and turns the encoder
+ * being too busy into a failed login.
+ *
+ * <p>
+ * When the hashing pool is full the encoder throws {@link RejectedExecutionException}, and when a hash takes
+ * too long it throws {@link IllegalStateException}. Neither is an {@link AuthenticationException}, so without
+ * this they'd escape the login filter and the user would get an error page. Here they're thrown as an
+ * {@link InternalAuthenticationServiceException} instead, so the user is sent back to the login page to try again.
+ * </p>
+ */
+public class PasswordHashingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingAuthenticationProvider.class);
+
+    /**
+     * Authenticates the given login, failing it if the password couldn't be checked in time
+     *
+     * @param authentication Login to authenticate
+     * @return Authenticated user
+     * @throws AuthenticationException If the login failed, including when the password couldn't be checked
+     */
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        try {
+            return super.authenticate(authentication);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            log.warn("authenticate: Couldn't check password for username={}: {}", authentication.getName(), e.getMessage());
+            throw new InternalAuthenticationServiceException("Password couldn't be checked, try again later", e);
+        }
+    }
+}
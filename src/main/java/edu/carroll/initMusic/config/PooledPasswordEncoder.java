@@ -0,0 +1,201 @@
+package edu.carroll.initMusic.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password encoder that runs BCrypt hashing on its own bounded thread pool instead of on the
+ * request thread that asked for it.
+ *
+ * <p>
+ * BCrypt is slow on purpose, so a spike of logins or registrations can keep every Tomcat thread busy hashing.
+ * Here at most {@code poolSize} hashes run at once and at most {@code queueCapacity} more wait for a thread.
+ * Anything past that is rejected right away instead of piling up, and logins that hit that fail through
+ * {@link PasswordHashingAuthenticationProvider}. The queue depth, number of active
+ * hashing threads, time spent hashing and number of rejections are all published as metrics.
+ * </p>
+ *
+ * <p>
+ * {@link #upgradeEncoding(String)} returns true whenever a stored hash was made with a different cost
+ * than the configured one, so when the cost is changed, users are rehashed the next time they log in.
+ * </p>
+ */
+public class PooledPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(PooledPasswordEncoder.class);
+
+    /** Matches the cost factor in a BCrypt hash, like the {@code 10} in {@code $2a$10$...} */
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    /** Encoder that does the actual hashing */
+    private final BCryptPasswordEncoder delegate;
+
+    /** BCrypt cost factor (log rounds) new hashes are made with */
+    private final int strength;
+
+    /** Executor all hashing runs on */
+    private final ThreadPoolExecutor executor;
+
+    /** How long a caller waits for its hash before giving up, in milliseconds */
+    private final long timeoutMillis;
+
+    /** Times how long each hash takes, including time spent waiting in the queue */
+    private final Timer hashTimer;
+
+    /** Counts hashes rejected because the pool and queue were full */
+    private final Counter rejectedCounter;
+
+    /**
+     * Creates a new encoder with its own thread pool and registers its metrics
+     *
+     * @param strength      BCrypt cost factor, between 4 and 31
+     * @param poolSize      Number of threads hashing can run on
+     * @param queueCapacity Number of hashes that can wait for a free thread
+     * @param timeoutMillis How long a caller waits for its hash, in milliseconds
+     * @param meterRegistry Registry to publish metrics to
+     */
+    public PooledPasswordEncoder(int strength, int poolSize, int queueCapacity, long timeoutMillis, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.timeoutMillis = timeoutMillis;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("initmusic.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Number of password hashes waiting for a free thread")
+                .register(meterRegistry);
+        Gauge.builder("initmusic.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Number of password hashes currently running")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("initmusic.password.hashing.duration")
+                .description("Time taken to hash or check a password, including time spent queued")
+                .tag("strength", String.valueOf(strength))
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("initmusic.password.hashing.rejected")
+                .description("Number of password hashes rejected because the hashing pool was full")
+                .register(meterRegistry);
+
+        log.info("PooledPasswordEncoder: Created with strength {}, {} threads and a queue of {}", strength, poolSize, queueCapacity);
+    }
+
+    /**
+     * Hashes the given raw password on the hashing pool
+     *
+     * @param rawPassword Password to hash
+     * @return Hashed password
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return runOnPool(() -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Checks if the given raw password matches the given hash, on the hashing pool
+     *
+     * @param rawPassword     Password to check
+     * @param encodedPassword Stored hash to check against
+     * @return {@code true} if the password matches, {@code false} otherwise
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return runOnPool(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Returns if the given hash should be rehashed, which is whenever it was made
+     * with a different cost factor than the one currently configured.
+     *
+     * @param encodedPassword Stored hash to check
+     * @return {@code true} if the hash should be rehashed, {@code false} otherwise
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        final Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        if (!matcher.find()) {
+            log.warn("upgradeEncoding: Stored password doesn't look like a BCrypt hash");
+            return false;
+        }
+        return Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    /**
+     * Gets the configured cost factor
+     *
+     * @return BCrypt cost factor new hashes are made with
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Runs the given task on the hashing pool and waits for its result
+     *
+     * @param task Task to run
+     * @param <T>  Type of result
+     * @return Result of task
+     * @throws RejectedExecutionException If the pool and its queue are full
+     * @throws IllegalStateException      If the task failed, timed out, or the caller was interrupted
+     */
+    private <T> T runOnPool(Callable<T> task) {
+        final long start = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("runOnPool: Password hashing pool is full, rejecting request");
+            throw e;
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("runOnPool: Password hashing took longer than {}ms", timeoutMillis);
+            throw new IllegalStateException("Password hashing timed out", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the hashing pool when the application shuts down
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
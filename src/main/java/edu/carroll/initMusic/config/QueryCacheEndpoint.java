@@ -0,0 +1,40 @@
+package edu.carroll.initMusic.config;
+
+import edu.carroll.initMusic.service.songManagement.QueryCacheMetrics;
+import edu.carroll.initMusic.service.songManagement.QueryShape;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint at {@code /actuator/querycache} that shows the query cache hit rate for each query shape.
+ * Only admins can use it.
+ */
+@Component
+@Endpoint(id = "querycache")
+public class QueryCacheEndpoint {
+
+    /** Where the cache numbers come from */
+    private final QueryCacheMetrics queryCacheMetrics;
+
+    /**
+     * Injects dependencies
+     *
+     * @param queryCacheMetrics Query cache metrics needed
+     */
+    public QueryCacheEndpoint(QueryCacheMetrics queryCacheMetrics) {
+        this.queryCacheMetrics = queryCacheMetrics;
+    }
+
+    /**
+     * Gets the hit rate report
+     *
+     * @return Hits, misses and hit rate for each query shape
+     */
+    @ReadOperation
+    public Map<QueryShape, QueryCacheMetrics.ShapeReport> report() {
+        return queryCacheMetrics.report();
+    }
+}
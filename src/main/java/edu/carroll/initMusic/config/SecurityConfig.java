@@ -1,6 +1,9 @@
 package edu.carroll.initMusic.config;
 
 import edu.carroll.initMusic.service.userManagement.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,7 +11,7 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
@@ -35,13 +38,24 @@ public class SecurityConfig {
     }
 
     /**
-     * Bean for password encoding using BCrypt.
+     * Bean for password encoding using BCrypt. Hashing runs on its own bounded thread pool
+     * so it can't take up every request thread during a spike of logins.
      *
-     * @return a BCryptPasswordEncoder instance for encoding passwords.
+     * @param strength      BCrypt cost factor new hashes are made with
+     * @param poolSize      Number of threads hashing can run on
+     * @param queueCapacity Number of hashes that can wait for a free thread
+     * @param timeoutMillis How long a caller waits for its hash, in milliseconds
+     * @param meterRegistry Registry to publish hashing metrics to
+     * @return a PooledPasswordEncoder instance for encoding passwords.
+     * @see PooledPasswordEncoder
      */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${initmusic.security.bcrypt-strength:10}") int strength,
+                                           @Value("${initmusic.security.hashing.pool-size:4}") int poolSize,
+                                           @Value("${initmusic.security.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${initmusic.security.hashing.timeout-ms:5000}") long timeoutMillis,
+                                           MeterRegistry meterRegistry) {
+        return new PooledPasswordEncoder(strength, poolSize, queueCapacity, timeoutMillis, meterRegistry);
     }
 
     /**
@@ -68,6 +82,8 @@ public class SecurityConfig {
                         "/passSecurity",
                         "/images/**").permitAll()
                 .requestMatchers("/submitSecurityQuestions").authenticated()
+                //Actuator endpoints show and refresh internals, and anyone can register
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole(CustomUserDetails.ADMIN_ROLE)
                 .anyRequest().authenticated());
         //Set login page to our own
         http.formLogin(formLogin ->
@@ -90,23 +106,29 @@ public class SecurityConfig {
     }
 
     /**
-     * Configures a AuthenticationManager with our own userDetailsService and password encoder
+     * Configures a AuthenticationManager with our own userDetailsService and password encoder.
+     * The userDetailsService is also used to rehash a user's password when they log in, if it
+     * was hashed with a different cost than the one configured. If the password can't be checked because
+     * the hashing pool is full or too slow, the login fails instead of erroring.
      *
-     * @param http HttpSecurity object to get AuthenticationManagerBuilder class from
+     * @param http            HttpSecurity object to get AuthenticationManagerBuilder class from
+     * @param passwordEncoder Password encoder to check passwords with
      * @return New AuthenticationManager object with our custom compnonents
      * @throws Exception Any Exception that might occur
      * @see AuthenticationManager
      * @see HttpSecurity
      * @see CustomUserDetailsService
+     * @see PasswordHashingAuthenticationProvider
      */
     @Bean
-    public AuthenticationManager authManager(HttpSecurity http) throws Exception {
+    public AuthenticationManager authManager(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
         final AuthenticationManagerBuilder authenticationManagerBuilder =
                 http.getSharedObject(AuthenticationManagerBuilder.class);
 
-        final DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
+        final DaoAuthenticationProvider authenticationProvider = new PasswordHashingAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userDetailsService);
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        authenticationProvider.setUserDetailsPasswordService(userDetailsService);
         authenticationManagerBuilder.authenticationProvider(authenticationProvider);
 
         return authenticationManagerBuilder.build();
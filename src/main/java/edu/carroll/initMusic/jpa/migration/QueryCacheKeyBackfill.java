@@ -0,0 +1,81 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.service.songManagement.QueryKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rewrites query caches saved in the old {@code Song:{songName}+Artist:{artistName}} format to the canonical
+ * {@link QueryKey} form and fills in their query hash. Runs on startup, before any requests are taken, and does
+ * nothing once every cache has a hash.
+ *
+ * <p>
+ * A cache is deleted instead if its query can't be parsed, or if another cache already has the same key
+ * (two old queries can normalize to the same one). It'll just be searched for and cached again. Its rows in the
+ * old {@code query_cache_song} join table are deleted first, if the table is still there, since its foreign key
+ * to the cache is left behind by the schema update. Runs after {@link QueryCacheResultPacking}, which normally
+ * deletes them already.
+ * </p>
+ */
+@Component
+@Order(4)
+public class QueryCacheKeyBackfill implements SchemaMigration {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(QueryCacheKeyBackfill.class);
+
+    /** QueryCache repository */
+    private final QueryCacheRepository queryCacheRepository;
+
+    /** Used to check if the old join table is still there */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Injects dependencies
+     *
+     * @param queryCacheRepository QueryCache repository needed
+     * @param jdbcTemplate         JdbcTemplate needed
+     */
+    public QueryCacheKeyBackfill(QueryCacheRepository queryCacheRepository, JdbcTemplate jdbcTemplate) {
+        this.queryCacheRepository = queryCacheRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Rekeys every query cache missing a query hash
+     */
+    @Override
+    public void migrate() {
+        final List<QueryCache> caches = queryCacheRepository.findByQueryHashIsNull();
+        if (caches.isEmpty()) {
+            return;
+        }
+
+        log.info("migrate: Rekeying {} query caches", caches.size());
+        final boolean joinTable = SchemaProbe.hasColumns(jdbcTemplate, "query_cache_song");
+        int deleted = 0;
+        for (QueryCache cache : caches) {
+            final QueryKey queryKey = QueryKey.fromLegacy(cache.getQuery());
+            if (queryKey == null || queryCacheRepository.existsByQueryHash(queryKey.hash())) {
+                deleted++;
+                log.info("migrate: Deleting query cache id#{} with query '{}', it can't be rekeyed", cache.getQueryCacheID(), cache.getQuery());
+                if (joinTable) {
+                    queryCacheRepository.deleteLegacyResults(List.of(cache.getQueryCacheID()));
+                }
+                queryCacheRepository.delete(cache);
+                continue;
+            }
+            cache.setQuery(queryKey.canonical());
+            cache.setQueryHash(queryKey.hash());
+            queryCacheRepository.save(cache);
+        }
+        log.info("migrate: Rekeyed {} query caches, deleted {}", caches.size() - deleted, deleted);
+    }
+}
@@ -0,0 +1,111 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.repo.LegacyCachedResult;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Moves cached results from the old {@code query_cache_song} join table into each cache's packed
+ * {@code result_ids} column, 500 caches at a time, then deletes the join rows it moved. Runs on startup, before
+ * any requests are taken, and does nothing once every cache has packed results. New databases never have anything to move.
+ *
+ * <p>
+ * Results saved before they were ranked can't be put back in order, so they're dropped. That includes every
+ * result of a database that never had the {@code result_order} column, which are dropped without being read.
+ * A cache left without results counts as a miss, so it's searched for and ranked again the next time it's used.
+ * Scores weren't kept in the join table either, so packed caches start without them.
+ * </p>
+ */
+@Component
+@Order(3)
+public class QueryCacheResultPacking implements SchemaMigration {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(QueryCacheResultPacking.class);
+
+    /** QueryCache repository */
+    private final QueryCacheRepository queryCacheRepository;
+
+    /** Used to check which columns the old join table has */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Injects dependencies
+     *
+     * @param queryCacheRepository QueryCache repository needed
+     * @param jdbcTemplate         JdbcTemplate needed
+     */
+    public QueryCacheResultPacking(QueryCacheRepository queryCacheRepository, JdbcTemplate jdbcTemplate) {
+        this.queryCacheRepository = queryCacheRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Packs the results of every cache that doesn't have packed results yet
+     */
+    @Override
+    public void migrate() {
+        List<QueryCache> caches = queryCacheRepository.findTop500ByResultIdsIsNull();
+        if (caches.isEmpty()) {
+            return;
+        }
+
+        final boolean joinTable = SchemaProbe.hasColumns(jdbcTemplate, "query_cache_song");
+        final boolean ordered = joinTable && SchemaProbe.hasColumns(jdbcTemplate, "query_cache_song", "result_order");
+        if (joinTable && !ordered) {
+            log.info("migrate: query_cache_song has no result_order column, its unordered results will be dropped");
+        }
+
+        int packed = 0;
+        while (!caches.isEmpty()) {
+            packBatch(caches, joinTable, ordered);
+            packed += caches.size();
+            log.info("migrate: Packed results for {} query caches so far", packed);
+            caches = queryCacheRepository.findTop500ByResultIdsIsNull();
+        }
+        log.info("migrate: Finished packing results for {} query caches", packed);
+    }
+
+    /**
+     * Packs the results of the given caches, saves them, and deletes their old join rows
+     *
+     * @param caches    Caches to pack
+     * @param joinTable If the old join table is still there
+     * @param ordered   If the join table has the result_order column, if not none of its results are read
+     */
+    private void packBatch(List<QueryCache> caches, boolean joinTable, boolean ordered) {
+        final List<Long> cacheIDs = new ArrayList<>(caches.size());
+        for (QueryCache cache : caches) {
+            cacheIDs.add(cache.getQueryCacheID());
+        }
+
+        //Group deezerIDs by cache, the query returns them in ranked order
+        final Map<Long, List<Long>> resultsByCache = new HashMap<>();
+        if (ordered) {
+            for (LegacyCachedResult result : queryCacheRepository.findLegacyResults(cacheIDs)) {
+                resultsByCache.computeIfAbsent(result.getQueryCacheID(), id -> new ArrayList<>()).add(result.getDeezerID());
+            }
+        }
+
+        for (QueryCache cache : caches) {
+            final List<Long> deezerIDs = resultsByCache.getOrDefault(cache.getQueryCacheID(), List.of());
+            final long[] resultIds = new long[deezerIDs.size()];
+            for (int i = 0; i < resultIds.length; i++) {
+                resultIds[i] = deezerIDs.get(i);
+            }
+            cache.setResultIds(resultIds);
+            cache.setScores(null);
+        }
+        queryCacheRepository.saveAll(caches);
+        if (joinTable) {
+            queryCacheRepository.deleteLegacyResults(cacheIDs);
+        }
+    }
+}
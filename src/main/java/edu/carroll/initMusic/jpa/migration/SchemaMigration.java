@@ -0,0 +1,14 @@
+package edu.carroll.initMusic.jpa.migration;
+
+/**
+ * A change to data saved by an older version of the application, run by {@link SchemaMigrations} before the
+ * application takes any requests. Migrations run in the order of their {@link org.springframework.core.annotation.Order},
+ * and each one has to do nothing once its change is made, since they all run on every startup.
+ */
+interface SchemaMigration {
+
+    /**
+     * Makes the change, if it isn't made yet
+     */
+    void migrate();
+}
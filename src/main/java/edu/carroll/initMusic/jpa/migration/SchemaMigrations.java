@@ -0,0 +1,43 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs every {@link SchemaMigration}, in order, once every bean is made but before the web server starts taking
+ * requests or scheduled tasks start. A request served while a migration was still running could see old rows as
+ * missing, or save new rows the old schema doesn't accept, so nothing is served until they're all done.
+ */
+@Component
+public class SchemaMigrations implements SmartInitializingSingleton {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    /** Migrations to run, in the order of their {@code @Order} */
+    private final List<SchemaMigration> migrations;
+
+    /**
+     * Injects dependencies
+     *
+     * @param migrations Migrations to run, sorted by their {@code @Order}
+     */
+    public SchemaMigrations(List<SchemaMigration> migrations) {
+        this.migrations = migrations;
+    }
+
+    /**
+     * Runs every migration, before the web server starts
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (SchemaMigration migration : migrations) {
+            log.info("afterSingletonsInstantiated: Running {}", migration.getClass().getSimpleName());
+            migration.migrate();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Checks which tables and columns a database has, for migrations that depend on how old it is.
+ * Must not be called in a transaction, a failed probe can roll it back on some databases.
+ */
+final class SchemaProbe {
+
+    /**
+     * Not made, only has static methods
+     */
+    private SchemaProbe() {
+    }
+
+    /**
+     * Checks if the given table exists and has every given column, without reading any rows
+     *
+     * @param jdbcTemplate Used to run the probe
+     * @param table        Table to look for
+     * @param columns      Columns it should have, none to only check the table exists
+     * @return {@code true} if the table has every column, {@code false} otherwise
+     */
+    static boolean hasColumns(JdbcTemplate jdbcTemplate, String table, String... columns) {
+        final String selected = columns.length == 0 ? "1" : String.join(", ", columns);
+        try {
+            jdbcTemplate.queryForList("SELECT " + selected + " FROM " + table + " WHERE 1 = 0");
+            return true;
+        } catch (BadSqlGrammarException e) {
+            return false;
+        }
+    }
+}
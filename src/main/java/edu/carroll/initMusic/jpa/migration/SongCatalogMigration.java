@@ -0,0 +1,79 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves artist and album names out of the old {@code artist_name} and {@code album_name} columns of every
+ * song into the {@code artist} and {@code album} tables, one row per Deezer ID, then drops the old columns.
+ * Runs on startup, before any requests are taken, so no song is saved without the old columns while they're still
+ * there. Does nothing once the columns are gone. New databases never have them.
+ *
+ * <p>
+ * Songs already store their artist and album's Deezer IDs in the columns they're joined on now, so only the
+ * names have to move. If songs with the same artist or album were saved with different names, the first name
+ * alphabetically is kept. The schema update can't add the foreign keys to the new tables until they have a row
+ * for every song, so they're added the next time the application starts.
+ * </p>
+ *
+ * <p>
+ * This doesn't run in a transaction, MySQL commits on every {@code ALTER TABLE} anyway. Instead each column is
+ * checked for, moved and dropped on its own, and names already moved are skipped, so if startup stops partway
+ * the next one finishes whichever column is left.
+ * </p>
+ */
+@Component
+@Order(2)
+public class SongCatalogMigration implements SchemaMigration {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SongCatalogMigration.class);
+
+    /** Used to run the migration's statements, the old columns aren't mapped anymore */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Injects dependencies
+     *
+     * @param jdbcTemplate JdbcTemplate needed
+     */
+    public SongCatalogMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Moves the artist and album names of every song, for whichever old columns are still there
+     */
+    @Override
+    public void migrate() {
+        moveNames("artist", "artist_name", "artist_deezer_id");
+        moveNames("album", "album_name", "album_deezer_id");
+    }
+
+    /**
+     * Moves the names in the given old column of the song table into the given table, then drops the column.
+     * New songs don't write the old column, so it has to go before any are saved.
+     *
+     * @param table      Table the names are moved to
+     * @param nameColumn Old column of the song table the names are in
+     * @param idColumn   Column of the song table with the Deezer IDs the names belong to
+     */
+    private void moveNames(String table, String nameColumn, String idColumn) {
+        if (!SchemaProbe.hasColumns(jdbcTemplate, "song", nameColumn)) {
+            //Old column is gone, nothing to move
+            return;
+        }
+
+        final int moved = jdbcTemplate.update("INSERT INTO " + table + " (deezer_id, name) " +
+                "SELECT s." + idColumn + ", MIN(s." + nameColumn + ") FROM song s " +
+                "WHERE NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t.deezer_id = s." + idColumn + ") " +
+                "GROUP BY s." + idColumn);
+        log.info("moveNames: Moved {} names out of the song table into {}", moved, table);
+
+        jdbcTemplate.execute("ALTER TABLE song DROP COLUMN " + nameColumn);
+        log.info("moveNames: Dropped the old {} column from the song table", nameColumn);
+    }
+}
@@ -0,0 +1,64 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills in the normalized username and email columns for users that were saved before those columns existed.
+ * Runs on startup, before any requests are taken, and does nothing once every user has them.
+ *
+ * <p>
+ * If two older users have usernames or emails that only differ by case, the second one can't be given
+ * its normalized value because of the unique index. That user is logged and skipped so it can be fixed by hand.
+ * </p>
+ */
+@Component
+@Order(1)
+public class UserNormalizationBackfill implements SchemaMigration {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(UserNormalizationBackfill.class);
+
+    /** User repository */
+    private final UserRepository userRepository;
+
+    /**
+     * Injects dependencies
+     *
+     * @param userRepository User repository needed
+     */
+    public UserNormalizationBackfill(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Normalizes the username and email of every user missing them
+     */
+    @Override
+    public void migrate() {
+        final List<User> users = userRepository.findByUsernameNormalizedIsNullOrEmailNormalizedIsNull();
+        if (users.isEmpty()) {
+            return;
+        }
+
+        log.info("migrate: Normalizing username and email for {} users", users.size());
+        int skipped = 0;
+        for (User user : users) {
+            user.normalizeLoginFields();
+            try {
+                userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                skipped++;
+                log.error("migrate: User id#{} has a username or email that only differs by case from another user, skipping", user.getuserID());
+            }
+        }
+        log.info("migrate: Normalized {} users, skipped {}", users.size() - skipped, skipped);
+    }
+}
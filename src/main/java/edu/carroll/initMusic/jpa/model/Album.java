@@ -0,0 +1,105 @@
+package edu.carroll.initMusic.jpa.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * An album songs are in, keyed by its Deezer ID, so its name is stored once instead of in every song row.
+ * Never changed once saved, so it's kept in the second-level cache read-only, and one copy of it
+ * can be shared by every search result with it.
+ */
+@Entity
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "album")
+@BatchSize(size = 100)
+@Table(name = "album")
+public class Album implements Serializable {
+    /** Serial version ID, albums are kept in search results in the session */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Deezer ID of album, given by the deezer api */
+    @Id
+    @Column(name = "deezer_id")
+    private Long deezerID;
+
+    /** Name of album */
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    /**
+     * JPA needs this default constructor to instantiate entities when retrieving data from the database.
+     */
+    public Album() {
+        //Default Constructor
+    }
+
+    /**
+     * Creates an album
+     *
+     * @param deezerID Deezer ID of album
+     * @param name     Name of album
+     */
+    public Album(Long deezerID, String name) {
+        this.deezerID = deezerID;
+        this.name = name;
+    }
+
+    /**
+     * Gets the album's Deezer ID
+     *
+     * @return Deezer ID of album
+     */
+    public Long getDeezerID() {
+        return deezerID;
+    }
+
+    /**
+     * Gets the album's name
+     *
+     * @return Name of album
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks if the given object is the same album, by Deezer ID
+     *
+     * @param o Object to compare
+     * @return {@code true} if it's an album with the same Deezer ID, {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Album album)) return false;
+        return deezerID != null && deezerID.equals(album.getDeezerID());
+    }
+
+    /**
+     * Converts object to hash code
+     *
+     * @return Object in hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(deezerID);
+    }
+
+    /**
+     * Converts Album object to string
+     *
+     * @return String version of Album
+     */
+    @Override
+    public String toString() {
+        return "Album{" + "deezerID=" + deezerID + ", name='" + name + '\'' + '}';
+    }
+}
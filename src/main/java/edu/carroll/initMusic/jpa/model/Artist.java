@@ -0,0 +1,105 @@
+package edu.carroll.initMusic.jpa.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * An artist songs are by, keyed by its Deezer ID, so its name is stored once instead of in every song row.
+ * Never changed once saved, so it's kept in the second-level cache read-only, and one copy of it
+ * can be shared by every search result with it.
+ */
+@Entity
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "artist")
+@BatchSize(size = 100)
+@Table(name = "artist")
+public class Artist implements Serializable {
+    /** Serial version ID, artists are kept in search results in the session */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Deezer ID of artist, given by the deezer api */
+    @Id
+    @Column(name = "deezer_id")
+    private Long deezerID;
+
+    /** Name of artist */
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    /**
+     * JPA needs this default constructor to instantiate entities when retrieving data from the database.
+     */
+    public Artist() {
+        //Default Constructor
+    }
+
+    /**
+     * Creates an artist
+     *
+     * @param deezerID Deezer ID of artist
+     * @param name     Name of artist
+     */
+    public Artist(Long deezerID, String name) {
+        this.deezerID = deezerID;
+        this.name = name;
+    }
+
+    /**
+     * Gets the artist's Deezer ID
+     *
+     * @return Deezer ID of artist
+     */
+    public Long getDeezerID() {
+        return deezerID;
+    }
+
+    /**
+     * Gets the artist's name
+     *
+     * @return Name of artist
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks if the given object is the same artist, by Deezer ID
+     *
+     * @param o Object to compare
+     * @return {@code true} if it's an artist with the same Deezer ID, {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Artist artist)) return false;
+        return deezerID != null && deezerID.equals(artist.getDeezerID());
+    }
+
+    /**
+     * Converts object to hash code
+     *
+     * @return Object in hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(deezerID);
+    }
+
+    /**
+     * Converts Artist object to string
+     *
+     * @return String version of Artist
+     */
+    @Override
+    public String toString() {
+        return "Artist{" + "deezerID=" + deezerID + ", name='" + name + '\'' + '}';
+    }
+}
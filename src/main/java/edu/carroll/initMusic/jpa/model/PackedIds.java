@@ -0,0 +1,113 @@
+package edu.carroll.initMusic.jpa.model;
+
+/**
+ * Packs lists of ids into bytes and back, so a whole list can be stored in a single column.
+ *
+ * <p>
+ * Each id is written as a varint: 7 bits per byte, lowest bits first, with the high bit set on every
+ * byte except the last. A Deezer id fits in 4 or 5 bytes this way instead of 8, and the order of the
+ * ids is kept. Negative ids still round trip, they just take 10 bytes.
+ * </p>
+ */
+public final class PackedIds {
+
+    /** Most bytes a single varint can take */
+    private static final int MAX_VARINT_BYTES = 10;
+
+    /** Utility class, not meant to be created */
+    private PackedIds() {
+    }
+
+    /**
+     * Packs the given ids
+     *
+     * @param ids Ids to pack, in the order they should be kept
+     * @return Packed ids, empty if there were none
+     */
+    public static byte[] encode(long[] ids) {
+        int size = 0;
+        for (long id : ids) {
+            size += encodedLength(id);
+        }
+        final byte[] bytes = new byte[size];
+        int position = 0;
+        for (long id : ids) {
+            long value = id;
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+        return bytes;
+    }
+
+    /**
+     * Unpacks ids packed by {@link #encode(long[])}
+     *
+     * @param bytes Packed ids, can be null
+     * @return Ids in the order they were packed, empty if bytes was null or empty
+     * @throws IllegalArgumentException If the bytes end in the middle of an id
+     */
+    public static long[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new long[0];
+        }
+        final long[] ids = new long[count(bytes)];
+        int index = 0;
+        long value = 0;
+        int shift = 0;
+        for (byte b : bytes) {
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                ids[index++] = value;
+                value = 0;
+                shift = 0;
+            } else {
+                shift += 7;
+                if (shift >= MAX_VARINT_BYTES * 7) {
+                    throw new IllegalArgumentException("Packed id is longer than " + MAX_VARINT_BYTES + " bytes");
+                }
+            }
+        }
+        if (shift != 0) {
+            throw new IllegalArgumentException("Packed ids end in the middle of an id");
+        }
+        return ids;
+    }
+
+    /**
+     * Counts the ids in packed bytes without unpacking them
+     *
+     * @param bytes Packed ids, can be null
+     * @return Number of ids packed
+     */
+    public static int count(byte[] bytes) {
+        if (bytes == null) {
+            return 0;
+        }
+        int count = 0;
+        for (byte b : bytes) {
+            if ((b & 0x80) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes the given id takes once packed
+     *
+     * @param id Id to check
+     * @return Number of bytes, between 1 and 10
+     */
+    private static int encodedLength(long id) {
+        int length = 1;
+        long value = id >>> 7;
+        while (value != 0) {
+            length++;
+            value >>>= 7;
+        }
+        return length;
+    }
+}
@@ -1,6 +1,8 @@
 package edu.carroll.initMusic.jpa.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -12,14 +14,17 @@ import java.util.Set;
 /**
  * This class is used to represent Playlist objects, and maps to our database table.
  * A playlist is a collection of songs created by a user.
+ * Playlists and the ids of their songs are kept in the second-level cache.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "playlist")
 @EntityListeners(AuditingEntityListener.class)
 @Table(name = "playlist")
 public class Playlist {
     /** Serial version ID */
     private static final long serialVersionID = 2L;
     /** Set of songs each playlist contains, many-to-many relationship */
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "playlist.songs")
     @ManyToMany(cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinTable(
             name = "playlist_song",
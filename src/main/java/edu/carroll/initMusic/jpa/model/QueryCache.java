@@ -1,41 +1,81 @@
 package edu.carroll.initMusic.jpa.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * QueryCache JPA model, used to store queries and their results. If a user searches for a query,
  * and it's in our database, it will be displayed much faster than using a API to search
+ *
+ * <p>
+ * Updates only write the columns that changed, so refreshing a cache whose results didn't change
+ * only writes its {@link #lastUpdated} time.
+ * </p>
  */
 @Entity
+@DynamicUpdate
 @Table(name = "queryCache")
 public class QueryCache {
-    /** Number of days that can pass before a cache is considered expired */
+    /** Number of days that can pass before a cache saved without its own time to live is considered expired */
     private static final int EXPIRATION_DURATION_DAYS = 7;
-    /** Songs found related to query, many-to-many relationship with Songs */
-    @ManyToMany(cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
-    @JoinTable(
-            name = "query_cache_song",
-            joinColumns = {@JoinColumn(name = "QueryCacheID")},
-            inverseJoinColumns = {@JoinColumn(name = "SongId")}
-
-    )
-    private final Set<Song> results = new HashSet<>();
     /** ID of QueryCache, generated by JPA */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long QueryCacheID;
-    /** Query that user searched for */
-    @Column(name = "query", nullable = false, unique = true)
+    /**
+     * Normalized query that user searched for. Not unique or length limited, since caches are
+     * looked up by {@link #queryHash} instead.
+     */
+    @Column(name = "query", nullable = false, columnDefinition = "TEXT")
     private String query;
+    /**
+     * Hex SHA-256 hash of the query, always 64 characters. Null only for caches saved before
+     * the hash existed, until they are backfilled on startup.
+     */
+    @Column(name = "query_hash", length = 64, unique = true)
+    private String queryHash;
     /** Keeps track of when the cache was last updated */
     @Column(name = "last_updated", nullable = false)
     private LocalDateTime lastUpdated;
+    /**
+     * If the query returned no songs. Negative caches expire much sooner than normal ones,
+     * so {@link #isExpired()} doesn't apply to them.
+     */
+    @Column(name = "negative", nullable = false)
+    private boolean negative;
+    /**
+     * Deezer IDs of the songs found related to query, packed with {@link PackedIds} in ranked order,
+     * best match first, so they can be shown without being sorted again. Keeping them in one column
+     * means a cache is saved and loaded as a single row. Null only for caches saved before this
+     * column existed, until they are packed on startup.
+     */
+    @Column(name = "result_ids", columnDefinition = "BLOB")
+    private byte[] resultIds;
+    /**
+     * Score each result was ranked by, packed as 4 byte floats in the same order as {@link #resultIds}.
+     * Null for caches saved before scores were kept.
+     */
+    @Column(name = "result_scores", columnDefinition = "BLOB")
+    private byte[] resultScores;
+    /**
+     * How much the results changed the last time this cache was refreshed, from 0 (same songs)
+     * to 1 (no songs in common). See {@link #churn(long[], long[])}.
+     */
+    @Column(name = "last_churn", nullable = false)
+    private double lastChurn;
+    /**
+     * How many minutes after {@link #lastUpdated} this cache expires. Worked out for each cache from how
+     * much its songs change and how often it's hit. 0 for caches saved before this column existed,
+     * which expire after {@link #EXPIRATION_DURATION_DAYS} instead.
+     */
+    @Column(name = "ttl_minutes", nullable = false)
+    private long ttlMinutes;
 
     /** Default Constructor */
     public QueryCache() {
@@ -51,13 +91,47 @@ public class QueryCache {
     }
 
     /**
-     * Returns if a cache is expired or not. A cache is considered expired if it has been more than
-     * a week (7 days) since it's last been updated.
+     * Returns if a cache is expired or not. A cache is considered expired once its time to live has
+     * passed since it was last updated. Caches without a time to live are considered expired if it
+     * has been more than a week (7 days) since they were last updated.
      *
      * @return {@code true} if cache is expired, {@code false} if not
      */
     public boolean isExpired() {
-        return lastUpdated == null || ChronoUnit.DAYS.between(lastUpdated, LocalDateTime.now()) > EXPIRATION_DURATION_DAYS;
+        if (lastUpdated == null) {
+            return true;
+        }
+        if (ttlMinutes <= 0) {
+            return ChronoUnit.DAYS.between(lastUpdated, LocalDateTime.now()) > EXPIRATION_DURATION_DAYS;
+        }
+        return !LocalDateTime.now().isBefore(lastUpdated.plusMinutes(ttlMinutes));
+    }
+
+    /**
+     * Gets how many minutes after it was last updated this cache expires
+     *
+     * @return Time to live in minutes, 0 if the cache doesn't have its own
+     */
+    public long getTtlMinutes() {
+        return ttlMinutes;
+    }
+
+    /**
+     * Sets how many minutes after it was last updated this cache expires
+     *
+     * @param ttlMinutes Time to live in minutes
+     */
+    public void setTtlMinutes(long ttlMinutes) {
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * Gets the time the cache was last updated
+     *
+     * @return Time cache was last updated
+     */
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
     }
 
     /**
@@ -106,22 +180,155 @@ public class QueryCache {
     }
 
     /**
-     * Gets the results, which is a set of Songs
+     * Gets the hash of the query
      *
-     * @return Set of songs related to query
+     * @return The query hash
      */
-    public Set<Song> getResults() {
-        return results;
+    public String getQueryHash() {
+        return queryHash;
     }
 
     /**
-     * Sets the results, which is a set of Songs
+     * Sets the hash of the query
      *
-     * @param results Set of songs related to query to set
+     * @param queryHash The query hash to set
      */
-    public void setResults(Set<Song> results) {
-        this.results.clear();
-        this.results.addAll(results);
+    public void setQueryHash(String queryHash) {
+        this.queryHash = queryHash;
+    }
+
+    /**
+     * Returns if the query returned no songs
+     *
+     * @return {@code true} if this is a negative cache, {@code false} otherwise
+     */
+    public boolean isNegative() {
+        return negative;
+    }
+
+    /**
+     * Sets if the query returned no songs
+     *
+     * @param negative If this is a negative cache
+     */
+    public void setNegative(boolean negative) {
+        this.negative = negative;
+    }
+
+    /**
+     * Gets the Deezer IDs of the results, in ranked order
+     *
+     * @return Deezer IDs of songs related to query, best match first, empty if there are none
+     */
+    public long[] getResultIds() {
+        return PackedIds.decode(resultIds);
+    }
+
+    /**
+     * Sets the Deezer IDs of the results, in ranked order
+     *
+     * @param resultIds Deezer IDs of songs related to query, in the order they should be shown
+     */
+    public void setResultIds(long[] resultIds) {
+        this.resultIds = resultIds == null ? null : PackedIds.encode(resultIds);
+    }
+
+    /**
+     * Gets the number of results, without unpacking them
+     *
+     * @return Number of songs related to query
+     */
+    public int getResultCount() {
+        return PackedIds.count(resultIds);
+    }
+
+    /**
+     * Returns if the results have been saved in the packed format yet
+     *
+     * @return {@code true} if the results are packed, {@code false} if this cache was saved before they were
+     */
+    public boolean hasPackedResults() {
+        return resultIds != null;
+    }
+
+    /**
+     * Gets the score each result was ranked by
+     *
+     * @return Scores in the same order as the results, empty if none were saved
+     */
+    public float[] getScores() {
+        if (resultScores == null) {
+            return new float[0];
+        }
+        final float[] scores = new float[resultScores.length / Float.BYTES];
+        ByteBuffer.wrap(resultScores).asFloatBuffer().get(scores);
+        return scores;
+    }
+
+    /**
+     * Sets the score each result was ranked by
+     *
+     * @param scores Scores in the same order as the results
+     */
+    public void setScores(float[] scores) {
+        if (scores == null) {
+            this.resultScores = null;
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(scores.length * Float.BYTES);
+        buffer.asFloatBuffer().put(scores);
+        this.resultScores = buffer.array();
+    }
+
+    /**
+     * Gets how much the results changed the last time this cache was refreshed
+     *
+     * @return Churn of the last refresh, 0 if it was never refreshed
+     */
+    public double getLastChurn() {
+        return lastChurn;
+    }
+
+    /**
+     * Sets how much the results changed the last time this cache was refreshed
+     *
+     * @param lastChurn Churn of the last refresh
+     */
+    public void setLastChurn(double lastChurn) {
+        this.lastChurn = lastChurn;
+    }
+
+    /**
+     * Gets how much two sets of results differ: the number of deezerIDs in only one of them, divided
+     * by the number in either. Only which songs were found counts, not the order they were ranked in.
+     *
+     * @param oldResultIds Deezer IDs that were cached
+     * @param newResultIds Deezer IDs found now
+     * @return 0 if both have the same songs, 1 if they have none in common
+     */
+    public static double churn(long[] oldResultIds, long[] newResultIds) {
+        final long[] oldSorted = oldResultIds.clone();
+        final long[] newSorted = newResultIds.clone();
+        Arrays.sort(oldSorted);
+        Arrays.sort(newSorted);
+
+        //Count the ids in both by walking the two sorted arrays together
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < oldSorted.length && j < newSorted.length) {
+            if (oldSorted[i] == newSorted[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (oldSorted[i] < newSorted[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        final int union = oldSorted.length + newSorted.length - shared;
+        return union == 0 ? 0.0 : (double) (union - shared) / union;
     }
 
     /**
@@ -135,7 +342,7 @@ public class QueryCache {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         QueryCache that = (QueryCache) o;
-        return Objects.equals(query, that.query) && Objects.equals(results, that.results);
+        return Objects.equals(query, that.query) && Arrays.equals(resultIds, that.resultIds);
     }
 
     /**
@@ -157,7 +364,7 @@ public class QueryCache {
     public String toString() {
         String sb = "QueryCache{" + "QueryCacheID=" + QueryCacheID +
                 ", query='" + query + '\'' +
-                ", number of songs=" + results.size() +
+                ", number of songs=" + getResultCount() +
                 '}';
         return sb;
     }
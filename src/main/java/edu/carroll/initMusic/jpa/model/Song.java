@@ -1,7 +1,14 @@
 package edu.carroll.initMusic.jpa.model;
 
 import jakarta.persistence.*;
-
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyGroup;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -9,13 +16,28 @@ import java.util.Set;
 /**
  * This class is used to represent songs, and
  * stores several attributes about each song.
+ * Songs are kept in the second-level cache, by id and by deezerID.
+ * Artist and album names are stored once, in their own tables.
+ * The cover art and preview links are only shown on pages, so they're lazy and loaded
+ * together when either is read, or up front with the {@value #MEDIA_GRAPH} graph.
  */
 @Entity
-@Table(name = "song")
+@NamedEntityGraph(name = Song.MEDIA_GRAPH, attributeNodes = {
+        @NamedAttributeNode("songImg"),
+        @NamedAttributeNode("songPreview")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "song")
+@NaturalIdCache(region = "song.deezer_id")
+@Table(name = "song", indexes = {
+        @Index(name = "idx_song_deezer_id", columnList = "deezerID")
+})
 public class Song {
     /** Serial version ID */
     private static final long serialVersionID = 1L;
 
+    /** Name of the entity graph that loads a song's cover art and preview links with it */
+    public static final String MEDIA_GRAPH = "Song.media";
+
     /**
      * Each song id is generated when the song is inserted
      * into our database and all are unique.
@@ -27,8 +49,11 @@ public class Song {
     /**
      * Stores the songs deezerID, which is given to the song
      * using the deezer api. Helpful when keeping track of songs
-     * in our database and preventing duplicates
+     * in our database and preventing duplicates. Indexed, since
+     * cached search results are stored as deezerIDs. Its natural id, so looking a song
+     * up by it can be answered by the second-level cache.
      */
+    @NaturalId(mutable = true)
     private Long deezerID;
 
     /**
@@ -38,9 +63,6 @@ public class Song {
     @ManyToMany(mappedBy = "songs", cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     private Set<Playlist> playlists = new HashSet<>();
 
-    @ManyToMany(mappedBy = "results", cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
-    private Set<QueryCache> queryCaches = new HashSet<>();
-
     /** Name of song */
     @Column(name = "name", nullable = false)
     private String songName;
@@ -49,31 +71,42 @@ public class Song {
     @Column(name = "length", nullable = false)
     private int length;
 
-    /** Name of artist who produced the song */
-    @Column(name = "artist_name", nullable = false)
-    private String artistName;
-
-    /** Deezer ID of artist */
-    @Column(name = "artist_deezer_id", nullable = false)
-    private Long artistDeezerID;
-
-    /** Name of album this song is in */
-    @Column(name = "album_name", nullable = false)
-    private String albumName;
+    /**
+     * Artist who produced the song, stored by its Deezer ID. Artists aren't saved with their songs,
+     * so they have to be saved before a song by a new artist is.
+     */
+    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "artist_deezer_id", nullable = false)
+    private Artist artist;
 
-    /** Deezer ID of album */
-    @Column(name = "album_deezer_id", nullable = false)
-    private Long albumDeezerID;
+    /**
+     * Album this song is in, stored by its Deezer ID. Albums aren't saved with their songs,
+     * so they have to be saved before a song in a new album is.
+     */
+    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "album_deezer_id", nullable = false)
+    private Album album;
 
-    /** Link to songs cover art */
+    /** Link to songs cover art, only loaded when it or the preview is read */
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("media")
     @Column(name = "song_img")
     private String songImg;
 
 
-    /** Link to a preview of song, approx 30 sec long */
+    /** Link to a preview of song, approx 30 sec long, only loaded when it or the cover art is read */
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("media")
     @Column(name = "song_preview", columnDefinition = "TEXT") // Change to TEXT
     private String songPreview;
 
+    /**
+     * Last time a query cache was saved with this song in its results, kept to within a day. Null if
+     * it was never cached. Caches only keep deezerIDs, so this is how songs no cache still needs are found.
+     */
+    @Column(name = "last_cached")
+    private LocalDateTime lastCached;
+
     /**
      * JPA needs this default constructor to instantiate entities when retrieving data from the database.
      */
@@ -91,13 +124,22 @@ public class Song {
      * @param albumDeezerID  Deezer id of album
      */
     public Song(Long songID, String songName, int length, String artistName, long artistDeezerID, String albumName, long albumDeezerID) {
+        this(songID, songName, length, new Artist(artistDeezerID, artistName), new Album(albumDeezerID, albumName));
+    }
+
+    /**
+     * @param songID   Song's Deezer id
+     * @param songName Name of song
+     * @param length   Length of song in seconds
+     * @param artist   Artist who made song
+     * @param album    Album song is in
+     */
+    public Song(Long songID, String songName, int length, Artist artist, Album album) {
         this.deezerID = songID;
         this.songName = songName;
         this.length = length;
-        this.artistName = artistName;
-        this.artistDeezerID = artistDeezerID;
-        this.albumName = albumName;
-        this.albumDeezerID = albumDeezerID;
+        this.artist = artist;
+        this.album = album;
     }
 
     /**
@@ -137,7 +179,9 @@ public class Song {
     }
 
     /**
-     * Add playlist song is in
+     * Add playlist song is in. This only updates the inverse side in memory, the join row is written
+     * through {@link Playlist#addSong(Song)}, so write paths don't call this and avoid loading every playlist
+     * the song is in.
      *
      * @param playlist Playlist to add
      */
@@ -172,6 +216,16 @@ public class Song {
         return length;
     }
 
+    /**
+     * Gets length of song formatted as minutes and seconds, like {@code 3:07}
+     *
+     * @return Formatted length of song
+     */
+    public String getFormattedLength() {
+        final int seconds = length % 60;
+        return (length / 60) + (seconds < 10 ? ":0" : ":") + seconds;
+    }
+
     /**
      * Sets the length of the song
      *
@@ -217,22 +271,76 @@ public class Song {
         this.songPreview = songPreview;
     }
 
+    /**
+     * Gets the last time a query cache was saved with this song
+     *
+     * @return Last time song was cached, null if it never was
+     */
+    public LocalDateTime getLastCached() {
+        return lastCached;
+    }
+
+    /**
+     * Sets the last time a query cache was saved with this song
+     *
+     * @param lastCached Last time song was cached
+     */
+    public void setLastCached(LocalDateTime lastCached) {
+        this.lastCached = lastCached;
+    }
+
+    /**
+     * Gets artist who made song
+     *
+     * @return Artist who made song
+     */
+    public Artist getArtist() {
+        return artist;
+    }
+
+    /**
+     * Sets artist who made song
+     *
+     * @param artist Artist to set
+     */
+    public void setArtist(Artist artist) {
+        this.artist = artist;
+    }
+
+    /**
+     * Gets album song is in
+     *
+     * @return Album song is in
+     */
+    public Album getAlbum() {
+        return album;
+    }
+
+    /**
+     * Sets album song is in
+     *
+     * @param album Album to set
+     */
+    public void setAlbum(Album album) {
+        this.album = album;
+    }
+
     /**
      * Gets name of artist who made song
      *
      * @return Name of artist who made song
      */
     public String getArtistName() {
-        return artistName;
+        return artist == null ? null : artist.getName();
     }
 
     /**
-     * Sets name of artist that made song
+     * Sets name of artist that made song. Artists are never changed, so the song is given a new artist with the same id.
      *
      * @param artistName Name to set
      */
     public void setArtistName(String artistName) {
-        this.artistName = artistName;
+        this.artist = new Artist(getArtistDeezerID(), artistName);
     }
 
     /**
@@ -241,16 +349,16 @@ public class Song {
      * @return Deezer id of artist
      */
     public Long getArtistDeezerID() {
-        return artistDeezerID;
+        return artist == null ? null : artist.getDeezerID();
     }
 
     /**
-     * Sets id of artist
+     * Sets id of artist. Artists are never changed, so the song is given a new artist with the same name.
      *
      * @param artistDeezerID Id to set
      */
     public void setArtistDeezerID(Long artistDeezerID) {
-        this.artistDeezerID = artistDeezerID;
+        this.artist = new Artist(artistDeezerID, getArtistName());
     }
 
     /**
@@ -259,16 +367,16 @@ public class Song {
      * @return Name of album
      */
     public String getAlbumName() {
-        return albumName;
+        return album == null ? null : album.getName();
     }
 
     /**
-     * Sets name of songs' album
+     * Sets name of songs' album. Albums are never changed, so the song is given a new album with the same id.
      *
      * @param albumName Name to set
      */
     public void setAlbumName(String albumName) {
-        this.albumName = albumName;
+        this.album = new Album(getAlbumDeezerID(), albumName);
     }
 
     /**
@@ -277,65 +385,30 @@ public class Song {
      * @return ID of album
      */
     public Long getAlbumDeezerID() {
-        return albumDeezerID;
+        return album == null ? null : album.getDeezerID();
     }
 
     /**
-     * Sets Deezer ID of songs' album
+     * Sets Deezer ID of songs' album. Albums are never changed, so the song is given a new album with the same name.
      *
      * @param albumDeezerID ID to set
      */
     public void setAlbumDeezerID(Long albumDeezerID) {
-        this.albumDeezerID = albumDeezerID;
-    }
-
-    /**
-     * Gets query cache set
-     *
-     * @return Set of queryCaches song is in
-     */
-    public Set<QueryCache> getQueryCaches() {
-        return queryCaches;
-    }
-
-    /**
-     * Sets query cache set
-     *
-     * @param queryCaches New set of queryCaches song to set
-     */
-    public void setQueryCaches(Set<QueryCache> queryCaches) {
-        this.queryCaches = queryCaches;
-    }
-
-    /**
-     * Adds a queryCache to this song
-     *
-     * @param queryCache queryCache to add
-     */
-    public void addQueryCache(QueryCache queryCache) {
-        this.queryCaches.add(queryCache);
+        this.album = new Album(albumDeezerID, getAlbumName());
     }
 
     /**
-     * Compares Song object to another Song object
+     * Checks if the given object is the same song, by Deezer ID. Cover art and preview links are
+     * lazily loaded, so they're left out and comparing songs never loads them.
      *
-     * @param o Object to compare to
-     * @return If two objects are equal or not
+     * @param o Object to compare
+     * @return {@code true} if it's a song with the same Deezer ID, {@code false} otherwise
      */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        final Song song = (Song) o;
-        return length == song.length &&
-                Objects.equals(artistDeezerID, song.artistDeezerID) &&
-                Objects.equals(albumDeezerID, song.albumDeezerID) &&
-                Objects.equals(deezerID, song.deezerID) &&
-                Objects.equals(songName, song.songName) &&
-                Objects.equals(artistName, song.artistName) &&
-                Objects.equals(albumName, song.albumName) &&
-                Objects.equals(songImg, song.songImg) &&
-                Objects.equals(songPreview, song.songPreview);
+        if (!(o instanceof Song song)) return false;
+        return deezerID != null && deezerID.equals(song.getDeezerID());
     }
 
     /**
@@ -345,11 +418,12 @@ public class Song {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(songName, length, deezerID, artistName, artistDeezerID, albumDeezerID);
+        return Objects.hashCode(deezerID);
     }
 
     /**
-     * Converts Song object to string
+     * Converts Song object to string. Media links that weren't loaded are shown as not loaded,
+     * so logging a song never loads them.
      *
      * @return String version of Song
      */
@@ -357,13 +431,13 @@ public class Song {
     public String toString() {
         return "Song{" + "songName='" + songName + '\'' +
                 ", deezerID=" + deezerID +
-                ", artistName='" + artistName + '\'' +
-                ", artistDeezerID=" + artistDeezerID +
-                ", albumName='" + albumName + '\'' +
-                ", albumDeezerID=" + albumDeezerID +
+                ", artistName='" + getArtistName() + '\'' +
+                ", artistDeezerID=" + getArtistDeezerID() +
+                ", albumName='" + getAlbumName() + '\'' +
+                ", albumDeezerID=" + getAlbumDeezerID() +
                 ", length=" + length +
-                ", songImg='" + songImg + '\'' +
-                ", songPreview='" + songPreview + '\'' +
+                ", songImg='" + (Hibernate.isPropertyInitialized(this, "songImg") ? songImg : "<not loaded>") + '\'' +
+                ", songPreview='" + (Hibernate.isPropertyInitialized(this, "songPreview") ? songPreview : "<not loaded>") + '\'' +
                 '}';
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 
@@ -51,6 +52,17 @@ public class User {
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    /**
+     * User's username in lower case. Lookups and uniqueness checks use this column
+     * so they can use its index, instead of doing a case-insensitive compare on every row.
+     */
+    @Column(name = "username_normalized", unique = true)
+    private String usernameNormalized;
+
+    /** User's email in lower case, see {@link #usernameNormalized} */
+    @Column(name = "email_normalized", unique = true)
+    private String emailNormalized;
+
     /* User's Security Question1 */
     @Column(name = "question1")
     private String question1;
@@ -94,11 +106,11 @@ public class User {
      */
     public User(String username, String hashedPassword, String firstName, String lastName, String email,
                 String question1, String question2, String answer1, String answer2) {
-        this.username = username;
+        setUsername(username);
         this.hashedPassword = hashedPassword;
         this.firstName = firstName;
         this.lastName = lastName;
-        this.email = email;
+        setEmail(email);
         this.question1 = question1;
         this.question2 = question2;
         this.answer1 = answer1;
@@ -181,6 +193,16 @@ public class User {
      */
     public void setUsername(String username) {
         this.username = username;
+        this.usernameNormalized = normalize(username);
+    }
+
+    /**
+     * Gets user's username in lower case
+     *
+     * @return Normalized username
+     */
+    public String getUsernameNormalized() {
+        return usernameNormalized;
     }
 
     /**
@@ -253,6 +275,38 @@ public class User {
      */
     public void setEmail(String email) {
         this.email = email;
+        this.emailNormalized = normalize(email);
+    }
+
+    /**
+     * Gets user's email in lower case
+     *
+     * @return Normalized email
+     */
+    public String getEmailNormalized() {
+        return emailNormalized;
+    }
+
+    /**
+     * Called before the entity is persisted or updated, makes sure the normalized
+     * username and email always match the username and email.
+     */
+    @PrePersist
+    @PreUpdate
+    public void normalizeLoginFields() {
+        usernameNormalized = normalize(username);
+        emailNormalized = normalize(email);
+    }
+
+    /**
+     * Normalizes the given username or email by putting it in lower case. Whitespace is left alone,
+     * since usernames and emails are already stripped before they're saved.
+     *
+     * @param value Username or email to normalize
+     * @return Normalized value, null if value is null
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -0,0 +1,10 @@
+package edu.carroll.initMusic.jpa.repo;
+
+import edu.carroll.initMusic.jpa.model.Album;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository used for retrieving Album Entities, by their Deezer ID
+ */
+public interface AlbumRepository extends JpaRepository<Album, Long> {
+}
@@ -0,0 +1,10 @@
+package edu.carroll.initMusic.jpa.repo;
+
+import edu.carroll.initMusic.jpa.model.Artist;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository used for retrieving Artist Entities, by their Deezer ID
+ */
+public interface ArtistRepository extends JpaRepository<Artist, Long> {
+}
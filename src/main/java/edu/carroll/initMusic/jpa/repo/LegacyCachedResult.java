@@ -0,0 +1,21 @@
+package edu.carroll.initMusic.jpa.repo;
+
+/**
+ * A single cached result from the old {@code query_cache_song} join table, used when packing
+ * them into {@link edu.carroll.initMusic.jpa.model.QueryCache#getResultIds()}
+ */
+public interface LegacyCachedResult {
+    /**
+     * Gets the ID of the cache the result belongs to
+     *
+     * @return QueryCache ID
+     */
+    Long getQueryCacheID();
+
+    /**
+     * Gets the deezerID of the song
+     *
+     * @return Song's deezerID
+     */
+    Long getDeezerID();
+}
@@ -1,18 +1,90 @@
 package edu.carroll.initMusic.jpa.repo;
 
 import edu.carroll.initMusic.jpa.model.Playlist;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repository used for managing and retrieving the Playlist Entity
  */
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
+    /** Table linking playlists to their songs, the only table the song link deletes touch */
+    String PLAYLIST_SONG_SPACE = "playlist_song";
+
     /**
      * Finds playlist by its id
      * @param id ID to check for
      * @return List of all playlists found with given id (Should only be 1)
      */
     List<Playlist> findByPlaylistIDEquals(Long id);
+
+    /**
+     * Finds the ids of the given user's playlists, lowest first, without loading the playlists
+     *
+     * @param userID   ID of the playlists' author
+     * @param pageable How many ids to find at most
+     * @return IDs of the user's playlists
+     */
+    @Query("SELECT p.playlistID FROM Playlist p WHERE p.author.userID = :userID ORDER BY p.playlistID")
+    List<Long> findIdsByAuthor(@Param("userID") Long userID, Pageable pageable);
+
+    /**
+     * Removes every song from the given playlists in a single statement, without loading them. Only the
+     * songs in playlists cache is evicted, the playlists' song counts and lengths are left as they are.
+     *
+     * @param playlistIDs IDs of playlists to empty
+     * @return Number of songs removed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM playlist_song WHERE playlistid IN (:playlistIDs)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = PLAYLIST_SONG_SPACE))
+    int deleteSongLinks(@Param("playlistIDs") Collection<Long> playlistIDs);
+
+    /**
+     * Deletes the given playlists in a single statement, without loading them.
+     * Their songs must have been removed first, see {@link #deleteSongLinks(Collection)}.
+     *
+     * @param playlistIDs IDs of playlists to delete
+     * @return Number of playlists deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Playlist p WHERE p.playlistID IN :playlistIDs")
+    int deleteByPlaylistIDs(@Param("playlistIDs") Collection<Long> playlistIDs);
+
+    /**
+     * Removes every song from every playlist of the given user in a single statement, without loading them
+     *
+     * @param userID ID of the playlists' author
+     * @return Number of songs removed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM playlist_song WHERE playlistid IN " +
+            "(SELECT playlistid FROM playlist WHERE user_id = :userID)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = PLAYLIST_SONG_SPACE))
+    int deleteSongLinksByAuthor(@Param("userID") Long userID);
+
+    /**
+     * Deletes every playlist of the given user in a single statement, without loading them.
+     * Their songs must have been removed first, see {@link #deleteSongLinksByAuthor(Long)}.
+     *
+     * @param userID ID of the playlists' author
+     * @return Number of playlists deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Playlist p WHERE p.author.userID = :userID")
+    int deleteByAuthor(@Param("userID") Long userID);
 }
@@ -1,8 +1,18 @@
 package edu.carroll.initMusic.jpa.repo;
 
 import edu.carroll.initMusic.jpa.model.QueryCache;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -10,10 +20,83 @@ import java.util.List;
  */
 public interface QueryCacheRepository extends JpaRepository<QueryCache, Long> {
     /**
-     * Finds QueryCaches by query string, which is unique among all query caches
+     * Finds QueryCaches by query hash, which is unique among all query caches
      *
-     * @param query Query String to search with
+     * @param queryHash Hash of the normalized query to search with
      * @return List of QueryCaches found
      */
-    List<QueryCache> findQueryCacheByQueryIgnoreCase(String query);
+    List<QueryCache> findByQueryHash(String queryHash);
+
+    /**
+     * Checks if there is a QueryCache with the given query hash
+     *
+     * @param queryHash Hash of the normalized query to check
+     * @return {@code true} if there is one, {@code false} otherwise
+     */
+    boolean existsByQueryHash(String queryHash);
+
+    /**
+     * Finds every QueryCache saved before query hashes existed
+     *
+     * @return List of QueryCaches without a query hash
+     */
+    List<QueryCache> findByQueryHashIsNull();
+
+    /**
+     * Finds the IDs of caches that expired long enough ago to be deleted: caches last updated before the given
+     * time, and negative caches last updated before their own, shorter, cutoff
+     *
+     * @param updatedBefore         Caches updated before this are deleted
+     * @param negativeUpdatedBefore Negative caches updated before this are deleted
+     * @param pageable              How many IDs to find at most
+     * @return IDs of expired caches
+     */
+    @Query("SELECT c.QueryCacheID FROM QueryCache c WHERE c.lastUpdated < :updatedBefore " +
+            "OR (c.negative = true AND c.lastUpdated < :negativeUpdatedBefore) ORDER BY c.QueryCacheID")
+    List<Long> findExpiredIds(@Param("updatedBefore") LocalDateTime updatedBefore,
+                              @Param("negativeUpdatedBefore") LocalDateTime negativeUpdatedBefore, Pageable pageable);
+
+    /**
+     * Deletes the given caches in a single statement, without loading them
+     *
+     * @param queryCacheIDs IDs of caches to delete
+     * @return Number of caches deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM QueryCache c WHERE c.QueryCacheID IN :queryCacheIDs")
+    int deleteByQueryCacheIDs(@Param("queryCacheIDs") Collection<Long> queryCacheIDs);
+
+    /**
+     * Finds up to 500 QueryCaches whose results haven't been packed yet
+     *
+     * @return List of QueryCaches without packed results
+     */
+    List<QueryCache> findTop500ByResultIdsIsNull();
+
+    /**
+     * Finds the results saved for the given caches in the old {@code query_cache_song} join table,
+     * in ranked order. Results saved before they were ranked are left out.
+     *
+     * @param queryCacheIDs IDs of the caches to find results for
+     * @return Cached results, grouped by cache and in ranked order within each cache
+     */
+    @Query(value = "SELECT qcs.query_cacheid AS queryCacheID, s.deezerid AS deezerID " +
+            "FROM query_cache_song qcs JOIN song s ON s.id = qcs.song_id " +
+            "WHERE qcs.query_cacheid IN (:queryCacheIDs) AND qcs.result_order IS NOT NULL " +
+            "ORDER BY qcs.query_cacheid, qcs.result_order", nativeQuery = true)
+    List<LegacyCachedResult> findLegacyResults(@Param("queryCacheIDs") Collection<Long> queryCacheIDs);
+
+    /**
+     * Deletes the results saved for the given caches in the old {@code query_cache_song} join table.
+     * Says which table it writes to, otherwise Hibernate would empty the whole second-level cache.
+     *
+     * @param queryCacheIDs IDs of the caches to delete results for
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM query_cache_song WHERE query_cacheid IN (:queryCacheIDs)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "query_cache_song"))
+    int deleteLegacyResults(@Param("queryCacheIDs") Collection<Long> queryCacheIDs);
 }
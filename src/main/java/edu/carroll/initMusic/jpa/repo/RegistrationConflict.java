@@ -0,0 +1,24 @@
+package edu.carroll.initMusic.jpa.repo;
+
+/**
+ * Projection of a user that already has a username or email someone is trying to register with.
+ * Only holds the normalized username and email, so checking for conflicts doesn't load full user rows.
+ *
+ * @see UserRepository#findRegistrationConflicts(String, String)
+ */
+public interface RegistrationConflict {
+
+    /**
+     * Gets the normalized username of the conflicting user
+     *
+     * @return Normalized username
+     */
+    String getUsernameNormalized();
+
+    /**
+     * Gets the normalized email of the conflicting user
+     *
+     * @return Normalized email
+     */
+    String getEmailNormalized();
+}
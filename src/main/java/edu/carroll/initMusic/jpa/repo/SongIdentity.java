@@ -0,0 +1,21 @@
+package edu.carroll.initMusic.jpa.repo;
+
+/**
+ * The id and deezerID of a saved song, without the rest of it, used to keep
+ * {@link edu.carroll.initMusic.service.songManagement.SongIdIndex} up to date
+ */
+public interface SongIdentity {
+    /**
+     * Gets the song's id
+     *
+     * @return Song's id
+     */
+    Long getSongID();
+
+    /**
+     * Gets the deezerID of the song
+     *
+     * @return Song's deezerID
+     */
+    Long getDeezerID();
+}
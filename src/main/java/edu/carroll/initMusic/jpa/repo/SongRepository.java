@@ -1,14 +1,25 @@
 package edu.carroll.initMusic.jpa.repo;
 
 import edu.carroll.initMusic.jpa.model.Song;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repository used for retrieving Song Entities
  */
-public interface SongRepository extends JpaRepository<Song, Long> {
+public interface SongRepository extends JpaRepository<Song, Long>, SongRepositoryCustom {
     /**
      * Finds song objects by id
      *
@@ -16,4 +27,102 @@ public interface SongRepository extends JpaRepository<Song, Long> {
      * @return List of Song objects found with given id (Should only be one, since each ID is unique)
      */
     List<Song> findByDeezerID(Long id);
+
+    /**
+     * Finds every song with one of the given deezerIDs, in a single query
+     *
+     * @param deezerIDs DeezerIDs to search for
+     * @return List of Song objects found, in no particular order
+     */
+    List<Song> findByDeezerIDIn(Collection<Long> deezerIDs);
+
+    /**
+     * Finds the ids and deezerIDs of the songs saved after the song with the given id, in id order.
+     * Used to load every song's id a page at a time, without loading the songs.
+     *
+     * @param afterID  Songs with this id or lower are left out
+     * @param pageable How many songs to find at most
+     * @return Ids and deezerIDs of songs found
+     */
+    @Query("SELECT s.ID AS songID, s.deezerID AS deezerID FROM Song s WHERE s.ID > :afterID ORDER BY s.ID")
+    List<SongIdentity> findIdentitiesAfter(@Param("afterID") Long afterID, Pageable pageable);
+
+    /**
+     * Finds the ids of the songs with the given deezerIDs, in a single query, without loading the songs
+     *
+     * @param deezerIDs DeezerIDs to search for
+     * @return Ids and deezerIDs of songs found, in no particular order
+     */
+    @Query("SELECT s.ID AS songID, s.deezerID AS deezerID FROM Song s WHERE s.deezerID IN :deezerIDs")
+    List<SongIdentity> findIdentitiesByDeezerIDIn(@Param("deezerIDs") Collection<Long> deezerIDs);
+
+    /**
+     * Finds every song with one of the given deezerIDs, with their cover art and preview links,
+     * in a single query. Used when the songs are shown, since the links are lazy otherwise.
+     *
+     * @param deezerIDs DeezerIDs to search for
+     * @return List of Song objects found with their media loaded, in no particular order
+     */
+    @EntityGraph(value = Song.MEDIA_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    List<Song> findWithMediaByDeezerIDIn(Collection<Long> deezerIDs);
+
+    /**
+     * Finds the songs in the playlist with the given id, with their cover art and preview links,
+     * in a single query. Loaded before the playlist's songs, so they're shown without a query each.
+     *
+     * @param playlistID ID of the playlist
+     * @return Songs in the playlist with their media loaded
+     */
+    @EntityGraph(value = Song.MEDIA_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    @Query("SELECT s FROM Song s JOIN s.playlists p WHERE p.playlistID = :playlistID")
+    List<Song> findWithMediaByPlaylistID(@Param("playlistID") Long playlistID);
+
+    /**
+     * Space {@link #markCached} says it writes to, which no entity is in. An update through JPQL would evict every
+     * song from the second-level cache, but the last cached time is only ever read by queries, which always get
+     * it from the database, and songs are never saved again once created, so cached songs can keep an old one.
+     */
+    String SONG_LAST_CACHED_SPACE = "song_last_cached";
+
+    /**
+     * Sets the last time the songs with the given deezerIDs were cached, in a single update. Only songs last
+     * cached before staleBefore, or never, are written, so they don't have to be loaded to check first.
+     *
+     * @param deezerIDs   DeezerIDs of songs that were cached
+     * @param lastCached  Time they were cached
+     * @param staleBefore Songs last cached at or after this time are left alone
+     * @return Number of songs updated
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE song SET last_cached = :lastCached WHERE deezerid IN (:deezerIDs) " +
+            "AND (last_cached IS NULL OR last_cached < :staleBefore)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = SONG_LAST_CACHED_SPACE))
+    int markCached(@Param("deezerIDs") Collection<Long> deezerIDs, @Param("lastCached") LocalDateTime lastCached,
+                   @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Finds the deezerIDs of songs that aren't in any playlist and weren't cached since the given time
+     *
+     * @param cachedBefore Songs cached at or after this time are kept
+     * @param pageable     How many deezerIDs to find at most
+     * @return DeezerIDs of orphaned songs
+     */
+    @Query("SELECT s.deezerID FROM Song s WHERE s.playlists IS EMPTY " +
+            "AND (s.lastCached IS NULL OR s.lastCached < :cachedBefore) ORDER BY s.ID")
+    List<Long> findOrphanedDeezerIDs(@Param("cachedBefore") LocalDateTime cachedBefore, Pageable pageable);
+
+    /**
+     * Deletes the songs with the given deezerIDs, as long as they are still orphaned. Songs added to a playlist
+     * or cached since they were found are left alone.
+     *
+     * @param deezerIDs    DeezerIDs of songs to delete
+     * @param cachedBefore Songs cached at or after this time are kept
+     * @return Number of songs deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Song s WHERE s.deezerID IN :deezerIDs AND s.playlists IS EMPTY " +
+            "AND (s.lastCached IS NULL OR s.lastCached < :cachedBefore)")
+    int deleteOrphaned(@Param("deezerIDs") Collection<Long> deezerIDs, @Param("cachedBefore") LocalDateTime cachedBefore);
 }
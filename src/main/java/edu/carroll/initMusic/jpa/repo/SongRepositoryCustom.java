@@ -0,0 +1,17 @@
+package edu.carroll.initMusic.jpa.repo;
+
+import edu.carroll.initMusic.jpa.model.Song;
+
+/**
+ * Song lookups that can't be written as Spring Data queries, implemented in {@link SongRepositoryCustomImpl}
+ */
+public interface SongRepositoryCustom {
+    /**
+     * Finds the song with the given deezerID through its natural id, so a song looked up
+     * before is answered by the second-level cache instead of the database
+     *
+     * @param deezerID DeezerID to look for
+     * @return Song found, null if there is none
+     */
+    Song findByNaturalDeezerID(Long deezerID);
+}
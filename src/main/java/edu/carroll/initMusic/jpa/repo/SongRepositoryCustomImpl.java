@@ -0,0 +1,30 @@
+package edu.carroll.initMusic.jpa.repo;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+/**
+ * Implements the song lookups in {@link SongRepositoryCustom} with Hibernate's natural id API
+ */
+public class SongRepositoryCustomImpl implements SongRepositoryCustom {
+    /** Entity manager of the current transaction, or of a single call outside one */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Finds the song with the given deezerID through its natural id, so a song looked up
+     * before is answered by the second-level cache instead of the database
+     *
+     * @param deezerID DeezerID to look for
+     * @return Song found, null if there is none
+     */
+    @Override
+    public Song findByNaturalDeezerID(Long deezerID) {
+        if (deezerID == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Song.class).load(deezerID);
+    }
+}
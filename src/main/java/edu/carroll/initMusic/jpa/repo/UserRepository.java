@@ -1,9 +1,14 @@
 package edu.carroll.initMusic.jpa.repo;
 
 import edu.carroll.initMusic.jpa.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -12,22 +17,58 @@ import java.util.List;
  */
 public interface UserRepository extends JpaRepository<User, Long> {
     /**
-     * Searches for a user by username
+     * Searches for a user by normalized username
      *
-     * @param username Username to search for
+     * @param usernameNormalized Username to search for, already normalized with {@link User#normalize(String)}
      * @return Username, JPA throws an exception if we attempt to return a
      * single object that doesn't exist, so return a list even though we only expect
      * either an empty list or a single element.
      */
-    List<User> findByUsernameIgnoreCase(String username);
+    List<User> findByUsernameNormalized(String usernameNormalized);
 
     /**
-     * Searches for a user by email (case-insensitive)
+     * Searches for a user by normalized email
      *
-     * @param email Email to search for
+     * @param emailNormalized Email to search for, already normalized with {@link User#normalize(String)}
      * @return List<User>, which is empty if no user is found
      */
-    List<User> findByEmailIgnoreCase(String email);
+    List<User> findByEmailNormalized(String emailNormalized);
+
+    /**
+     * Checks if a user with the given normalized username exists
+     *
+     * @param usernameNormalized Username to check for, already normalized with {@link User#normalize(String)}
+     * @return {@code true} if a user has the username, {@code false} if not
+     */
+    boolean existsByUsernameNormalized(String usernameNormalized);
+
+    /**
+     * Checks if a user with the given normalized email exists
+     *
+     * @param emailNormalized Email to check for, already normalized with {@link User#normalize(String)}
+     * @return {@code true} if a user has the email, {@code false} if not
+     */
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    /**
+     * Finds any users that already have the given username or email, in a single query.
+     * Only the normalized username and email of those users are loaded.
+     *
+     * @param usernameNormalized Username to check for, already normalized
+     * @param emailNormalized    Email to check for, already normalized
+     * @return Conflicting users, empty if neither is taken. Has at most two elements.
+     */
+    @Query("SELECT u.usernameNormalized AS usernameNormalized, u.emailNormalized AS emailNormalized FROM User u " +
+            "WHERE u.usernameNormalized = :username OR u.emailNormalized = :email")
+    List<RegistrationConflict> findRegistrationConflicts(@Param("username") String usernameNormalized,
+                                                         @Param("email") String emailNormalized);
+
+    /**
+     * Finds users saved before the normalized username and email columns were added
+     *
+     * @return Users with a missing normalized username or email
+     */
+    List<User> findByUsernameNormalizedIsNullOrEmailNormalizedIsNull();
 
     /**
      * This query retrieves a User entity by its userID and eagerly fetches its associated playlists.
@@ -39,11 +80,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     User findByIdWithPlaylists(@Param("id") Long id);
 
     /**
-     * Deletes a user based on their email address.
+     * Retrieves a User entity by its userID with its playlists, for pages that only read them. Runs in
+     * a read-only transaction, which never flushes, and loads the user and playlists read-only, so Hibernate
+     * keeps no snapshots of them to dirty check. The entities found must not be changed.
+     *
+     * @param id User id to search for
+     * @return User found with their playlists, null if there is none
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.playlists WHERE u.userID = :id")
+    User findByIdWithPlaylistsReadOnly(@Param("id") Long id);
+
+    /**
+     * Deletes a user based on their normalized email address.
+     *
+     * @param emailNormalized The email address of the user to delete, already normalized.
+     */
+    void deleteByEmailNormalized(String emailNormalized);
+
+    /**
+     * Deletes a user in a single statement, without loading them or cascading to their playlists,
+     * so their playlists must have been deleted first.
      *
-     * @param email The email address of the user to delete.
+     * @param userID ID of user to delete
+     * @return Number of users deleted, 0 or 1
      */
-    void deleteByEmail(String email);
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM User u WHERE u.userID = :userID")
+    int deleteWithoutCascade(@Param("userID") Long userID);
 
     /**
      * Deletes all users from the database.
@@ -0,0 +1,207 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.Album;
+import edu.carroll.initMusic.jpa.model.Artist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.AlbumRepository;
+import edu.carroll.initMusic.jpa.repo.ArtistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Keeps one shared, in memory copy of each recently seen artist and album, least recently used first out, so
+ * search results for the same artist or album share one object and its name instead of each having their own.
+ * Also saves the artists and albums of new songs, since songs only store their Deezer IDs.
+ *
+ * <p>
+ * The shared copies are never managed by Hibernate, and artists and albums are never changed once saved,
+ * so they can be read from any thread.
+ * </p>
+ */
+@Component
+public class CatalogCache {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(CatalogCache.class);
+
+    /** Artist repository */
+    private final ArtistRepository artistRepository;
+
+    /** Album repository */
+    private final AlbumRepository albumRepository;
+
+    /** Shared artists by deezerID, in access order so the least recently used artist is removed first */
+    private final Map<Long, Artist> artists;
+
+    /** Shared albums by deezerID, in access order so the least recently used album is removed first */
+    private final Map<Long, Album> albums;
+
+    /**
+     * Injects dependencies
+     *
+     * @param artistRepository Artist repository needed
+     * @param albumRepository  Album repository needed
+     * @param maxEntries       Maximum number of artists, and of albums, to keep in memory
+     */
+    public CatalogCache(ArtistRepository artistRepository, AlbumRepository albumRepository,
+                        @Value("${initmusic.search.catalog-cache.max-entries:20000}") int maxEntries) {
+        this.artistRepository = artistRepository;
+        this.albumRepository = albumRepository;
+        this.artists = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Artist> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.albums = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Album> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the shared artist with the given deezerID. If there isn't one yet, or Deezer now gives it
+     * a different name, a new one is shared from now on.
+     *
+     * @param deezerID Deezer ID of artist
+     * @param name     Name of artist
+     * @return Shared artist
+     */
+    public Artist artist(long deezerID, String name) {
+        synchronized (artists) {
+            final Artist cached = artists.get(deezerID);
+            if (cached != null && Objects.equals(cached.getName(), name)) {
+                return cached;
+            }
+            final Artist artist = new Artist(deezerID, name);
+            artists.put(deezerID, artist);
+            return artist;
+        }
+    }
+
+    /**
+     * Gets the shared album with the given deezerID. If there isn't one yet, or Deezer now gives it
+     * a different name, a new one is shared from now on.
+     *
+     * @param deezerID Deezer ID of album
+     * @param name     Name of album
+     * @return Shared album
+     */
+    public Album album(long deezerID, String name) {
+        synchronized (albums) {
+            final Album cached = albums.get(deezerID);
+            if (cached != null && Objects.equals(cached.getName(), name)) {
+                return cached;
+            }
+            final Album album = new Album(deezerID, name);
+            albums.put(deezerID, album);
+            return album;
+        }
+    }
+
+    /**
+     * Gets the shared copy of the given artist, like one loaded with a song
+     *
+     * @param artist Artist to get the shared copy of, has to be loaded
+     * @return Shared artist, null if artist is null
+     */
+    public Artist intern(Artist artist) {
+        return artist == null ? null : artist(artist.getDeezerID(), artist.getName());
+    }
+
+    /**
+     * Gets the shared copy of the given album, like one loaded with a song
+     *
+     * @param album Album to get the shared copy of, has to be loaded
+     * @return Shared album, null if album is null
+     */
+    public Album intern(Album album) {
+        return album == null ? null : album(album.getDeezerID(), album.getName());
+    }
+
+    /**
+     * Saves the artists and albums of the given songs that aren't saved yet, in one query each to find them,
+     * and points the songs at the saved ones. Has to be called before the songs are saved. Two searches saving
+     * the same new artist at once will fail the second one on the primary key, and it can be tried again.
+     *
+     * @param songs Songs about to be saved
+     */
+    @Transactional
+    public void saveArtistsAndAlbums(Collection<Song> songs) {
+        final Map<Long, Artist> songArtists = new HashMap<>();
+        final Map<Long, Album> songAlbums = new HashMap<>();
+        for (Song song : songs) {
+            if (song.getArtist() != null) {
+                songArtists.putIfAbsent(song.getArtistDeezerID(), song.getArtist());
+            }
+            if (song.getAlbum() != null) {
+                songAlbums.putIfAbsent(song.getAlbumDeezerID(), song.getAlbum());
+            }
+        }
+
+        final Map<Long, Artist> savedArtists = new HashMap<>();
+        for (Artist artist : artistRepository.findAllById(songArtists.keySet())) {
+            savedArtists.put(artist.getDeezerID(), artist);
+        }
+        final List<Artist> newArtists = new ArrayList<>();
+        for (Artist artist : songArtists.values()) {
+            if (!savedArtists.containsKey(artist.getDeezerID())) {
+                newArtists.add(new Artist(artist.getDeezerID(), artist.getName()));
+            }
+        }
+
+        final Map<Long, Album> savedAlbums = new HashMap<>();
+        for (Album album : albumRepository.findAllById(songAlbums.keySet())) {
+            savedAlbums.put(album.getDeezerID(), album);
+        }
+        final List<Album> newAlbums = new ArrayList<>();
+        for (Album album : songAlbums.values()) {
+            if (!savedAlbums.containsKey(album.getDeezerID())) {
+                newAlbums.add(new Album(album.getDeezerID(), album.getName()));
+            }
+        }
+
+        //Songs are inserted as soon as they're saved, so new artists and albums have to be written first
+        if (!newArtists.isEmpty() || !newAlbums.isEmpty()) {
+            for (Artist artist : artistRepository.saveAll(newArtists)) {
+                savedArtists.put(artist.getDeezerID(), artist);
+            }
+            for (Album album : albumRepository.saveAll(newAlbums)) {
+                savedAlbums.put(album.getDeezerID(), album);
+            }
+            albumRepository.flush();
+            log.info("saveArtistsAndAlbums: Saved {} new artists and {} new albums", newArtists.size(), newAlbums.size());
+        }
+
+        for (Song song : songs) {
+            if (song.getArtist() != null) {
+                song.setArtist(savedArtists.get(song.getArtistDeezerID()));
+            }
+            if (song.getAlbum() != null) {
+                song.setAlbum(savedAlbums.get(song.getAlbumDeezerID()));
+            }
+        }
+    }
+
+    /**
+     * Deletes every artist and album, and every shared copy of them, used when every song is deleted from the database
+     */
+    @Transactional
+    public void deleteAll() {
+        albumRepository.deleteAllInBatch();
+        artistRepository.deleteAllInBatch();
+        synchronized (artists) {
+            artists.clear();
+        }
+        synchronized (albums) {
+            albums.clear();
+        }
+    }
+}
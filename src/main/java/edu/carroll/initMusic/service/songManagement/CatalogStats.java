@@ -0,0 +1,25 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * How big the catalog is, table by table, and how fast each table is growing
+ *
+ * @param tables       Size and growth of each table
+ * @param indexedSongs Number of songs whose ids are kept in memory by the {@link SongIdIndex}
+ * @param countedAt    When the tables were last counted, null if they never were
+ */
+public record CatalogStats(Map<CatalogTable, TableStats> tables, int indexedSongs, LocalDateTime countedAt) {
+
+    /**
+     * Size and growth of a single table
+     *
+     * @param rows          Rows counted, plus rows inserted and minus rows deleted since
+     * @param counted       Rows counted at the last count
+     * @param growth        Rows counted at the last count minus rows counted at the count before, 0 after the first
+     * @param growthPerHour Growth over the time between the last two counts, in rows per hour
+     */
+    public record TableStats(long rows, long counted, long growth, double growthPerHour) {
+    }
+}
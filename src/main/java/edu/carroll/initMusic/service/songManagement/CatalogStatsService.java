@@ -0,0 +1,37 @@
+package edu.carroll.initMusic.service.songManagement;
+
+/**
+ * Defines methods for finding out how big the catalog is without loading any of it. Tables are counted
+ * with {@code COUNT} queries on a schedule, and rows saved or deleted in between are counted as they're committed.
+ */
+public interface CatalogStatsService {
+
+    /**
+     * Gets the size and growth of every table, without going to the database unless nothing was counted yet
+     *
+     * @return Catalog statistics
+     */
+    CatalogStats getStats();
+
+    /**
+     * Gets the number of rows in the given table, without going to the database unless nothing was counted yet
+     *
+     * @param table Table to get the size of
+     * @return Rows counted, plus rows inserted and minus rows deleted since
+     */
+    long getRows(CatalogTable table);
+
+    /**
+     * Counts every table again
+     */
+    void refresh();
+
+    /**
+     * Takes rows deleted by a single query off their table, since those skip the events rows are counted with.
+     * If a transaction is running, they're only taken off once it commits.
+     *
+     * @param table Table rows were deleted from
+     * @param rows  Number of rows deleted
+     */
+    void recordDeleted(CatalogTable table, long rows);
+}
@@ -0,0 +1,267 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.repo.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of rows in each {@link CatalogTable}, so how big the catalog is can be asked for as
+ * often as needed without loading anything or running a query.
+ *
+ * <p>
+ * Every table is counted with a {@code COUNT} query on startup and then on the configured schedule. In between,
+ * rows are added and taken off as their inserts and deletes are committed, through Hibernate's events.
+ * Rows deleted by a single query, like the sweeper's and account deletion's, skip those events, so they're
+ * passed to {@link #recordDeleted(CatalogTable, long)} instead. Rows committed while a table is being counted
+ * can be counted twice, and are only right again after the next count.
+ * Each table's size is published as the {@code initmusic.catalog.rows} metric tagged with {@code table}.
+ * </p>
+ */
+@Service
+public class CatalogStatsServiceImpl implements CatalogStatsService {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(CatalogStatsServiceImpl.class);
+
+    /** Name of the metric table sizes are published under */
+    public static final String METRIC_NAME = "initmusic.catalog.rows";
+
+    /** Repository each table is counted with */
+    private final Map<CatalogTable, JpaRepository<?, Long>> repositories = new EnumMap<>(CatalogTable.class);
+
+    /** Rows inserted minus rows deleted in each table since it was last counted */
+    private final Map<CatalogTable, LongAdder> changes = new EnumMap<>(CatalogTable.class);
+
+    /** Used to know how many songs' ids are kept in memory */
+    private final SongIdIndex songIdIndex;
+
+    /** Last two counts, null until the tables are first counted */
+    private volatile Counts counts;
+
+    /**
+     * Rows in each table at a single point in time, and at the count before it
+     *
+     * @param rows         Rows counted in each table
+     * @param countedAt    When they were counted
+     * @param previousRows Rows counted in each table at the count before, null if there wasn't one
+     * @param previousAt   When the count before was, null if there wasn't one
+     */
+    private record Counts(Map<CatalogTable, Long> rows, LocalDateTime countedAt,
+                          Map<CatalogTable, Long> previousRows, LocalDateTime previousAt) {
+    }
+
+    /**
+     * Injects dependencies, listens for rows being committed and registers the metrics
+     *
+     * @param songRepository       Song repository
+     * @param artistRepository     Artist repository
+     * @param albumRepository      Album repository
+     * @param playlistRepository   Playlist repository
+     * @param userRepository       User repository
+     * @param queryCacheRepository QueryCache repository
+     * @param songIdIndex          Index that knows how many songs' ids it keeps
+     * @param entityManagerFactory Factory whose commits are listened to
+     * @param meterRegistry        Registry to publish metrics to
+     */
+    public CatalogStatsServiceImpl(SongRepository songRepository, ArtistRepository artistRepository,
+                                   AlbumRepository albumRepository, PlaylistRepository playlistRepository,
+                                   UserRepository userRepository, QueryCacheRepository queryCacheRepository,
+                                   SongIdIndex songIdIndex, EntityManagerFactory entityManagerFactory,
+                                   MeterRegistry meterRegistry) {
+        repositories.put(CatalogTable.SONG, songRepository);
+        repositories.put(CatalogTable.ARTIST, artistRepository);
+        repositories.put(CatalogTable.ALBUM, albumRepository);
+        repositories.put(CatalogTable.PLAYLIST, playlistRepository);
+        repositories.put(CatalogTable.USER, userRepository);
+        repositories.put(CatalogTable.QUERY_CACHE, queryCacheRepository);
+        this.songIdIndex = songIdIndex;
+
+        for (CatalogTable table : CatalogTable.values()) {
+            changes.put(table, new LongAdder());
+            Gauge.builder(METRIC_NAME, this, service -> service.getRows(table))
+                    .description("Number of rows in the table, counted on a schedule and kept up to date in between")
+                    .tag("table", table.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+
+        final RowCountListener listener = new RowCountListener();
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    /**
+     * Gets the size and growth of every table
+     *
+     * @return Catalog statistics
+     */
+    @Override
+    public CatalogStats getStats() {
+        final Counts current = current();
+        final Map<CatalogTable, CatalogStats.TableStats> tables = new EnumMap<>(CatalogTable.class);
+        final double hours = current.previousAt() == null ? 0
+                : Duration.between(current.previousAt(), current.countedAt()).toMillis() / 3_600_000.0;
+        for (CatalogTable table : CatalogTable.values()) {
+            final long counted = current.rows().get(table);
+            final long growth = current.previousRows() == null ? 0 : counted - current.previousRows().get(table);
+            tables.put(table, new CatalogStats.TableStats(counted + changes.get(table).sum(), counted, growth,
+                    hours > 0 ? growth / hours : 0));
+        }
+        return new CatalogStats(tables, songIdIndex.size(), current.countedAt());
+    }
+
+    /**
+     * Gets the number of rows in the given table
+     *
+     * @param table Table to get the size of
+     * @return Rows counted, plus rows inserted and minus rows deleted since
+     */
+    @Override
+    public long getRows(CatalogTable table) {
+        return current().rows().get(table) + changes.get(table).sum();
+    }
+
+    /**
+     * Counts every table again, on startup and then on the configured schedule. A table's changes are
+     * reset just before it's counted, so none are lost, though some can be counted twice.
+     */
+    @Override
+    @Scheduled(initialDelayString = "${initmusic.catalog-stats.initial-delay-ms:0}", fixedDelayString = "${initmusic.catalog-stats.refresh-ms:300000}")
+    public synchronized void refresh() {
+        final Map<CatalogTable, Long> rows = new EnumMap<>(CatalogTable.class);
+        for (CatalogTable table : CatalogTable.values()) {
+            changes.get(table).reset();
+            rows.put(table, repositories.get(table).count());
+        }
+        final Counts previous = counts;
+        counts = previous == null ? new Counts(rows, LocalDateTime.now(), null, null)
+                : new Counts(rows, LocalDateTime.now(), previous.rows(), previous.countedAt());
+        log.info("refresh: Counted {}", rows);
+    }
+
+    /**
+     * Takes rows deleted by a single query off their table, once the transaction deleting them commits
+     *
+     * @param table Table rows were deleted from
+     * @param rows  Number of rows deleted
+     */
+    @Override
+    public void recordDeleted(CatalogTable table, long rows) {
+        if (rows <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changes.get(table).add(-rows);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changes.get(table).add(-rows);
+            }
+        });
+    }
+
+    /**
+     * Gets the last count, counting the tables first if they never were
+     *
+     * @return Last count
+     */
+    private Counts current() {
+        Counts current = counts;
+        if (current == null) {
+            refresh();
+            current = counts;
+        }
+        return current;
+    }
+
+    /**
+     * Adds rows to and takes rows off their table as their inserts and deletes are committed
+     */
+    private class RowCountListener implements PostCommitInsertEventListener, PostCommitDeleteEventListener {
+
+        /**
+         * Adds the inserted row
+         *
+         * @param event Insert that was committed
+         */
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            change(event.getPersister(), 1);
+        }
+
+        /**
+         * Does nothing, a row whose insert failed was never added
+         *
+         * @param event Insert that failed
+         */
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            //Nothing was added
+        }
+
+        /**
+         * Takes off the deleted row
+         *
+         * @param event Delete that was committed
+         */
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            change(event.getPersister(), -1);
+        }
+
+        /**
+         * Does nothing, a row whose delete failed is still saved
+         *
+         * @param event Delete that failed
+         */
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            //Nothing was taken off
+        }
+
+        /**
+         * Only the catalog's tables need their commits handled
+         *
+         * @param persister Persister of the entity inserted or deleted
+         * @return {@code true} if its table is kept track of, {@code false} otherwise
+         */
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return CatalogTable.of(persister.getMappedClass()) != null;
+        }
+
+        /**
+         * Changes the number of rows in the table the given entity is saved in
+         *
+         * @param persister Persister of the entity
+         * @param rows      Rows to add, negative to take off
+         */
+        private void change(EntityPersister persister, int rows) {
+            final CatalogTable table = CatalogTable.of(persister.getMappedClass());
+            if (table != null) {
+                changes.get(table).add(rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.*;
+
+/**
+ * Tables whose size is kept track of by the {@link CatalogStatsService}, each with the entity saved in it
+ */
+public enum CatalogTable {
+    /** Saved songs */
+    SONG(Song.class),
+    /** Artists of saved songs */
+    ARTIST(Artist.class),
+    /** Albums of saved songs */
+    ALBUM(Album.class),
+    /** Users' playlists */
+    PLAYLIST(Playlist.class),
+    /** Registered users */
+    USER(User.class),
+    /** Cached searches */
+    QUERY_CACHE(QueryCache.class);
+
+    /** Entity saved in the table */
+    private final Class<?> entityClass;
+
+    /**
+     * Creates a table for the given entity
+     *
+     * @param entityClass Entity saved in the table
+     */
+    CatalogTable(Class<?> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Gets the table the given entity is saved in
+     *
+     * @param entityClass Class of entity
+     * @return Table the entity is saved in, null if it isn't kept track of
+     */
+    public static CatalogTable of(Class<?> entityClass) {
+        for (CatalogTable table : values()) {
+            if (table.entityClass.equals(entityClass)) {
+                return table;
+            }
+        }
+        return null;
+    }
+}
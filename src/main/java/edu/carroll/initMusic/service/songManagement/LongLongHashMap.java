@@ -0,0 +1,281 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import java.util.Arrays;
+
+/**
+ * Map of {@code long} keys to {@code long} values, kept in one {@code long[]} of key and value pairs with open
+ * addressing and linear probing, so nothing is boxed and looking a key up never allocates. Takes 16 bytes a slot,
+ * with at least a quarter of the slots empty, so 21 to 43 bytes an entry, where a {@code HashMap<Long, Long>}
+ * takes around 70.
+ *
+ * <p>
+ * Removed keys are filled in by shifting the keys after them back, so there are no tombstones and lookups don't
+ * slow down as keys are removed. The key {@code 0} marks an empty slot, so it's kept on its own. Not thread safe.
+ * </p>
+ */
+final class LongLongHashMap {
+
+    /** Key of empty slots */
+    private static final long EMPTY = 0L;
+
+    /** Most entries a table can have for its size, as a fraction of its slots */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Most slots a table can have, so its array of keys and values fits in an array */
+    private static final int MAX_SLOTS = 1 << 29;
+
+    /** Keys and values, each key followed by its value */
+    private long[] table;
+
+    /** Number of slots minus one, the number of slots is a power of two */
+    private int mask;
+
+    /** Number of entries that make the table grow */
+    private int resizeAt;
+
+    /** Number of entries, not counting the key 0 */
+    private int size;
+
+    /** If the key 0 is in the map */
+    private boolean hasZeroKey;
+
+    /** Value of the key 0 */
+    private long zeroValue;
+
+    /**
+     * Creates a map sized for the given number of entries
+     *
+     * @param expectedSize Number of entries expected, the map grows past it if needed
+     */
+    LongLongHashMap(int expectedSize) {
+        allocate(slotsFor(expectedSize));
+    }
+
+    /**
+     * Gets the value of the given key
+     *
+     * @param key          Key to look up
+     * @param defaultValue Value returned if the key isn't in the map
+     * @return Value of the key, defaultValue if there is none
+     */
+    long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        final long[] slots = table;
+        int slot = slot(key);
+        while (true) {
+            final long found = slots[slot << 1];
+            if (found == key) {
+                return slots[(slot << 1) + 1];
+            }
+            if (found == EMPTY) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Checks if the given key is in the map
+     *
+     * @param key Key to look for
+     * @return {@code true} if it's in the map, {@code false} otherwise
+     */
+    boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        int slot = slot(key);
+        while (true) {
+            final long found = table[slot << 1];
+            if (found == key) {
+                return true;
+            }
+            if (found == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Puts the given value for the given key, replacing its old value
+     *
+     * @param key   Key to put
+     * @param value Value of the key
+     */
+    void put(long key, long value) {
+        if (key == EMPTY) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        while (true) {
+            final long found = table[slot << 1];
+            if (found == key) {
+                table[(slot << 1) + 1] = value;
+                return;
+            }
+            if (found == EMPTY) {
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = value;
+                if (++size > resizeAt) {
+                    if (mask + 1 == MAX_SLOTS) {
+                        throw new IllegalStateException("Too many entries for a single table: " + size);
+                    }
+                    allocate((mask + 1) << 1);
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes the given key, shifting back the keys after it that would have been in its slot
+     *
+     * @param key Key to remove
+     * @return {@code true} if it was in the map, {@code false} otherwise
+     */
+    boolean remove(long key) {
+        if (key == EMPTY) {
+            final boolean had = hasZeroKey;
+            hasZeroKey = false;
+            return had;
+        }
+        int slot = slot(key);
+        while (true) {
+            final long found = table[slot << 1];
+            if (found == EMPTY) {
+                return false;
+            }
+            if (found == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        //Move each following key whose home slot isn't between the gap and it into the gap
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (true) {
+            final long moving = table[next << 1];
+            if (moving == EMPTY) {
+                break;
+            }
+            final int home = slot(moving);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap << 1] = moving;
+                table[(gap << 1) + 1] = table[(next << 1) + 1];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap << 1] = EMPTY;
+        table[(gap << 1) + 1] = 0L;
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets the number of entries
+     *
+     * @return Number of entries
+     */
+    int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    /**
+     * Passes every entry to the given action, in no particular order
+     *
+     * @param action Action run with each key and its value
+     */
+    void forEach(EntryAction action) {
+        if (hasZeroKey) {
+            action.accept(0L, zeroValue);
+        }
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != EMPTY) {
+                action.accept(table[i], table[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, keeping the table's size
+     */
+    void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Gets the slot a key is looked for in first. Keys are mixed first, since Deezer's IDs are mostly sequential.
+     *
+     * @param key Key to find the slot of
+     * @return Home slot of key
+     */
+    private int slot(long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    /**
+     * Gets the number of slots needed for the given number of entries
+     *
+     * @param entries Number of entries
+     * @return Number of slots, a power of two
+     */
+    private static int slotsFor(int entries) {
+        final long needed = Math.max(16L, (long) Math.ceil(entries / (double) LOAD_FACTOR));
+        if (needed > MAX_SLOTS) {
+            throw new IllegalArgumentException("Too many entries for a single table: " + entries);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * Replaces the table with one with the given number of slots, putting every entry back in it
+     *
+     * @param slots Number of slots, a power of two
+     */
+    private void allocate(int slots) {
+        final long[] old = table;
+        table = new long[slots << 1];
+        mask = slots - 1;
+        resizeAt = (int) (slots * LOAD_FACTOR);
+        if (old == null) {
+            return;
+        }
+        for (int i = 0; i < old.length; i += 2) {
+            final long key = old[i];
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (table[slot << 1] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = old[i + 1];
+            }
+        }
+    }
+
+    /**
+     * Action run with an entry's key and value, so neither is boxed
+     */
+    @FunctionalInterface
+    interface EntryAction {
+
+        /**
+         * Runs the action with an entry
+         *
+         * @param key   Entry's key
+         * @param value Entry's value
+         */
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,137 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an in memory index of recently cached searches, so a search with no cache of its own can be
+ * answered by a cached search only a typo or two away from it.
+ *
+ * <p>
+ * Searches are compared by the edit distance between their canonical forms. How many edits are allowed grows
+ * with the length of the names searched for, one for every {@value #CHARS_PER_EDIT} characters, up to the
+ * configured maximum, so short searches that are a typo apart but mean different things aren't mixed up.
+ * A search is only ever answered by a search of the same {@link QueryShape}.
+ * </p>
+ *
+ * <p>
+ * The index is split into two generations of half the maximum entries each. Searches are added to the newest
+ * one, and once it's full the oldest is dropped whole, so removing old searches costs nothing. Looking a search
+ * up takes well under a millisecond with a million searches indexed, and is published as the
+ * {@code initmusic.search.cache.near.lookup} timer.
+ * </p>
+ *
+ * @see TrigramIndex
+ */
+@Component
+public class NearQueryCache {
+
+    /** Name of the timer lookups are published under */
+    public static final String LOOKUP_METRIC_NAME = "initmusic.search.cache.near.lookup";
+
+    /** Characters in the names searched for needed for each edit allowed */
+    private static final int CHARS_PER_EDIT = 6;
+
+    /** Most edits a search can be from the cached search that answers it */
+    private final int maxDistance;
+
+    /** Most searches in a single generation */
+    private final int generationSize;
+
+    /** Times every lookup */
+    private final Timer lookupTimer;
+
+    /** Generation searches are added to */
+    private TrigramIndex<QueryKey> current = new TrigramIndex<>();
+
+    /** Generation before the current one, dropped once the current one is full */
+    private TrigramIndex<QueryKey> previous = new TrigramIndex<>();
+
+    /**
+     * Creates the cache with the configured limits and registers its timer
+     *
+     * @param maxDistance   Most edits a search can be from the cached search that answers it
+     * @param maxEntries    Maximum number of searches to keep in memory
+     * @param meterRegistry Registry to publish the timer to
+     */
+    public NearQueryCache(@Value("${initmusic.search.near-cache.max-distance:2}") int maxDistance,
+                          @Value("${initmusic.search.near-cache.max-entries:200000}") int maxEntries,
+                          MeterRegistry meterRegistry) {
+        this.maxDistance = maxDistance;
+        this.generationSize = Math.max(1, maxEntries / 2);
+        this.lookupTimer = Timer.builder(LOOKUP_METRIC_NAME)
+                .description("Time taken to look for a cached search a few edits away from a search")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds a search that has a cache with songs, or moves it to the newest generation if it's already there
+     *
+     * @param queryKey Key of the cached search
+     */
+    public synchronized void add(QueryKey queryKey) {
+        if (queryKey == null) {
+            return;
+        }
+        if (current.size() >= generationSize) {
+            previous = current;
+            current = new TrigramIndex<>();
+        }
+        current.add(queryKey.canonical(), queryKey);
+    }
+
+    /**
+     * Finds the closest other search to the given one, within the edits its length allows
+     *
+     * @param queryKey Key of the search to look for
+     * @return Key of the closest cached search, null if there is none close enough or it has another shape
+     */
+    public QueryKey findNear(QueryKey queryKey) {
+        if (queryKey == null) {
+            return null;
+        }
+        final int allowed = allowedDistance(queryKey);
+        if (allowed == 0) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        final TrigramIndex.Match<QueryKey> match;
+        synchronized (this) {
+            final TrigramIndex.Match<QueryKey> currentMatch = current.nearest(queryKey.canonical(), allowed);
+            final TrigramIndex.Match<QueryKey> previousMatch = previous.nearest(queryKey.canonical(), allowed);
+            if (previousMatch == null || (currentMatch != null && currentMatch.distance() <= previousMatch.distance())) {
+                match = currentMatch;
+            } else {
+                match = previousMatch;
+            }
+        }
+        lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (match == null || match.value().shape() != queryKey.shape()) {
+            return null;
+        }
+        return match.value();
+    }
+
+    /**
+     * Gets how many edits the given search can be from a cached search that answers it
+     *
+     * @param queryKey Key of the search
+     * @return Edits allowed, 0 if the search is too short for any
+     */
+    public int allowedDistance(QueryKey queryKey) {
+        final int nameLength = queryKey.songName().length() + queryKey.artistName().length();
+        return Math.min(maxDistance, nameLength / CHARS_PER_EDIT);
+    }
+
+    /**
+     * Removes every search
+     */
+    public synchronized void clear() {
+        current = new TrigramIndex<>();
+        previous = new TrigramIndex<>();
+    }
+}
@@ -0,0 +1,121 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps an in memory, least recently used set of searches that returned no songs, so repeating a
+ * typo or junk search doesn't reach the database or the external API until the entry expires.
+ *
+ * <p>
+ * Entries use a much shorter time to live than normal query caches, since a search with no results
+ * today could have results once the external catalog changes. The same time to live is used for
+ * the negative caches saved in the database, see {@link #isExpired(LocalDateTime)}.
+ * </p>
+ */
+@Component
+public class NegativeQueryCache {
+
+    /** How long a search with no results stays cached */
+    private final Duration ttl;
+
+    /** When each cached search expires, by query hash, in access order so the least recently used is removed first */
+    private final Map<String, LocalDateTime> expirations;
+
+    /**
+     * Creates the cache with the configured limits
+     *
+     * @param ttlMinutes How many minutes a search with no results stays cached
+     * @param maxEntries Maximum number of searches to keep in memory
+     */
+    public NegativeQueryCache(@Value("${initmusic.search.negative-cache.ttl-minutes:30}") long ttlMinutes,
+                              @Value("${initmusic.search.negative-cache.max-entries:1000}") int maxEntries) {
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.expirations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns if the search with the given hash is cached as having no results, and hasn't expired
+     *
+     * @param queryHash Hash of the search
+     * @return {@code true} if the search is known to have no results, {@code false} otherwise
+     */
+    public boolean contains(String queryHash) {
+        synchronized (expirations) {
+            final LocalDateTime expiresAt = expirations.get(queryHash);
+            if (expiresAt == null) {
+                return false;
+            }
+            if (!LocalDateTime.now().isBefore(expiresAt)) {
+                expirations.remove(queryHash);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Caches the search with the given hash as having no results. It expires
+     * {@link #getTtl()} after the given time, not after now.
+     *
+     * @param queryHash Hash of the search
+     * @param storedAt  When the search was found to have no results
+     */
+    public void put(String queryHash, LocalDateTime storedAt) {
+        if (queryHash == null || storedAt == null) {
+            return;
+        }
+        synchronized (expirations) {
+            expirations.put(queryHash, storedAt.plus(ttl));
+        }
+    }
+
+    /**
+     * Removes the search with the given hash, used when it's found to have results
+     *
+     * @param queryHash Hash of the search
+     */
+    public void evict(String queryHash) {
+        synchronized (expirations) {
+            expirations.remove(queryHash);
+        }
+    }
+
+    /**
+     * Removes every cached search
+     */
+    public void clear() {
+        synchronized (expirations) {
+            expirations.clear();
+        }
+    }
+
+    /**
+     * Returns if a search with no results that was stored at the given time has expired
+     *
+     * @param storedAt When the search was found to have no results
+     * @return {@code true} if it has expired, {@code false} if not
+     */
+    public boolean isExpired(LocalDateTime storedAt) {
+        return storedAt == null || !LocalDateTime.now().isBefore(storedAt.plus(ttl));
+    }
+
+    /**
+     * Gets how long a search with no results stays cached
+     *
+     * @return Time to live of negative caches
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+}
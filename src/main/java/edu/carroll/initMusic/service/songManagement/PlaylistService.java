@@ -36,6 +36,14 @@ public interface PlaylistService{
      */
     Playlist getPlaylist(Long playlistID);
 
+    /**
+     * Gets a playlist by playlist ID, with its songs loaded, read-only since it's only used to show it
+     *
+     * @param playlistID Playlist ID to search by
+     * @return The playlist object found with its songs and their media links, null if none was found. Must not be changed.
+     */
+    Playlist getPlaylistWithSongs(Long playlistID);
+
     /**
      * Renames the given playlist with the new given name
      *
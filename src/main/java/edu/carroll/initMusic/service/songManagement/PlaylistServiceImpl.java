@@ -7,13 +7,15 @@ import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
 import edu.carroll.initMusic.jpa.repo.SongRepository;
 import edu.carroll.initMusic.jpa.repo.UserRepository;
+import edu.carroll.initMusic.service.userManagement.UserSummaryService;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 /**
  * Service class which interacts with playlists. Handles functions like
@@ -40,17 +42,34 @@ public class PlaylistServiceImpl implements PlaylistService {
     /** User repository */
     private final UserRepository userRepository;
 
+    /** Cached user summaries, evicted whenever one of a user's playlists changes */
+    private final UserSummaryService userSummaryService;
+
+    /** Saves the artists and albums of new songs */
+    private final CatalogCache catalogCache;
+
+    /** Ids of saved songs by deezerID */
+    private final SongIdIndex songIdIndex;
+
     /**
      * Injects dependencies
      *
      * @param songRepository     Song Repository needed
      * @param playlistRepository Playlist Repository needed
      * @param userRepository     User Repository needed
+     * @param userSummaryService User summary service needed
+     * @param catalogCache       Catalog cache needed
+     * @param songIdIndex        Song id index needed
      */
-    public PlaylistServiceImpl(final SongRepository songRepository, final PlaylistRepository playlistRepository, final UserRepository userRepository) {
+    public PlaylistServiceImpl(final SongRepository songRepository, final PlaylistRepository playlistRepository,
+                               final UserRepository userRepository, final UserSummaryService userSummaryService,
+                               final CatalogCache catalogCache, final SongIdIndex songIdIndex) {
         this.songRepository = songRepository;
         this.playlistRepository = playlistRepository;
         this.userRepository = userRepository;
+        this.userSummaryService = userSummaryService;
+        this.catalogCache = catalogCache;
+        this.songIdIndex = songIdIndex;
     }
 
     /**
@@ -98,6 +117,7 @@ public class PlaylistServiceImpl implements PlaylistService {
         final Playlist newPlaylist = new Playlist(user, name);
         playlistRepository.save(newPlaylist);
         user.addPlaylist(newPlaylist);
+        userSummaryService.evict(user.getuserID());
 
         log.info("createPlaylist: Playlist '{}' created for user '{}'", name, user.getuserID());
 
@@ -113,7 +133,7 @@ public class PlaylistServiceImpl implements PlaylistService {
      * @return MethodOutcome Enum which corresponds to outcome of function
      */
     public MethodOutcome renamePlaylist(String newName, Long playlistID, User user){
-        if (playlistRepository.findByPlaylistIDEquals(playlistID).isEmpty()) {
+        if (playlistRepository.findById(playlistID).isEmpty()) {
             log.warn("renamePlaylist: Attempted to rename playlist, but playlist ID {} doesn't exist", playlistID);
             return MethodOutcome.PLAYLIST_NOT_FOUND;
         }
@@ -150,6 +170,7 @@ public class PlaylistServiceImpl implements PlaylistService {
             if (Objects.equals(playlist.getPlaylistID(), playlistID)) {
                 playlist.setPlaylistName(newName);
                 playlistRepository.save(playlist);
+                userSummaryService.evict(user.getuserID());
                 log.info("renamePlaylist: Playlist with id '{}' renamed to '{}'", playlistID, newName);
                 return MethodOutcome.SUCCESS;
             }
@@ -185,6 +206,7 @@ public class PlaylistServiceImpl implements PlaylistService {
         user.removePlaylist(user.getPlaylist(playlistName));
         log.info("deletePlaylist: Playlist '{}' deleted for user id#{}", playlistName, user.getuserID());
         userRepository.save(user);
+        userSummaryService.evict(user.getuserID());
         return MethodOutcome.SUCCESS;
     }
 
@@ -195,14 +217,63 @@ public class PlaylistServiceImpl implements PlaylistService {
      * @return The playlist object found, if any
      */
     public Playlist getPlaylist(Long playlistID) {
-        final List<Playlist> playlistsFound = playlistRepository.findByPlaylistIDEquals(playlistID);
+        final Playlist playlist = playlistID == null ? null : playlistRepository.findById(playlistID).orElse(null);
 
-        if(playlistsFound.size() != 1){
+        if (playlist == null) {
             log.warn("getPlaylist: Attempted to get playlist, but playlist wasn't found.");
             return null;
         }
-        log.info("getPlaylist: Retrieved playlist {}", playlistsFound.getFirst());
-        return playlistsFound.getFirst();
+        log.info("getPlaylist: Retrieved playlist {}", playlist);
+        return playlist;
+    }
+
+    /**
+     * Gets the playlist object with the given id, with its songs loaded before the transaction ends.
+     * A playlist loaded before is answered by the second-level cache, songs included. Only used to show
+     * playlists, so the transaction is read-only. It never flushes, and Hibernate loads the playlist, its
+     * author and songs read-only, without keeping snapshots of them to dirty check. Songs' cover art and
+     * preview links are lazy, so they're loaded first in one query, with the media, to be shown.
+     *
+     * @param playlistID ID to search by
+     * @return The playlist object found with its songs, null if none was found. Must not be changed.
+     */
+    @Transactional(readOnly = true)
+    public Playlist getPlaylistWithSongs(Long playlistID) {
+        //Songs are shown with their lazy media links, so they're loaded with them first, in one query
+        if (playlistID != null) {
+            songRepository.findWithMediaByPlaylistID(playlistID);
+        }
+        final Playlist playlist = findWithSongs(playlistID);
+        if (playlist == null) {
+            log.warn("getPlaylistWithSongs: Attempted to get playlist, but playlist wasn't found.");
+            return null;
+        }
+        //Songs already loaded without their media in this session get it now, before it closes. Reading one link loads both.
+        for (Song song : playlist.getSongs()) {
+            if (!Hibernate.isPropertyInitialized(song, "songImg")) {
+                song.getSongImg();
+            }
+        }
+        log.info("getPlaylistWithSongs: Retrieved playlist {}", playlist);
+        return playlist;
+    }
+
+    /**
+     * Finds the playlist with the given id by its key and loads its songs, so both can come from the
+     * second-level cache. Has to be called in a transaction.
+     *
+     * @param playlistID ID to search by
+     * @return The playlist found with its songs, null if none was found
+     */
+    private Playlist findWithSongs(Long playlistID) {
+        if (playlistID == null) {
+            return null;
+        }
+        final Playlist playlist = playlistRepository.findById(playlistID).orElse(null);
+        if (playlist != null) {
+            Hibernate.initialize(playlist.getSongs());
+        }
+        return playlist;
     }
 
     /**
@@ -212,6 +283,7 @@ public class PlaylistServiceImpl implements PlaylistService {
      * @param songID     ID of song
      * @return MethodOutcome Enum which corresponds to outcome of function
      */
+    @Transactional
     public MethodOutcome removeSongFromPlaylist(Long playlistID, Long songID){
         if (playlistID == null){
             log.warn("removeSongFromPlaylist: Attempted to remove a song from a playlist, but playlist id was null");
@@ -223,16 +295,13 @@ public class PlaylistServiceImpl implements PlaylistService {
             return MethodOutcome.INVALID_SONG;
         }
 
-        final List<Playlist> playlistsFound = playlistRepository.findByPlaylistIDEquals(playlistID);
-
-        //If there was 0 or more than 1 playlist found
-        if (playlistsFound.size() != 1) {
+        //Songs are loaded with the playlist, since they're looked through to find the one to remove
+        final Playlist playlist = findWithSongs(playlistID);
+        if (playlist == null) {
             log.warn("removeSongFromPlaylist: Playlist id#{} not found", playlistID);
             return MethodOutcome.PLAYLIST_NOT_FOUND;
         }
 
-        final Playlist playlist = playlistsFound.getFirst();
-
         final boolean songRemoved = playlist.removeSong(songID);
 
         //If song wasn't removed
@@ -242,6 +311,7 @@ public class PlaylistServiceImpl implements PlaylistService {
         }
 
         playlistRepository.save(playlist);
+        evictAuthor(playlist);
 
         log.info("removeSongFromPlaylist: Song id#{} successfully removed from playlist id#{}", songID, playlistID);
 
@@ -249,26 +319,31 @@ public class PlaylistServiceImpl implements PlaylistService {
     }
 
     /**
-     * Adds a song to the given playlist. This first searches for the playlist by id. It
-     * should always find a playlist, because when used, it takes the playlist id directly from
-     * a playlist object that has already been created.
+     * Adds a song to the given playlist. This first searches for the playlist by id, with its songs, and
+     * adds the song to the playlist found, since the given one could have been loaded elsewhere without its songs.
+     * It should always find a playlist, because when used, it takes the playlist id directly from
+     * a playlist object that has already been created. The playlist and song are both looked up by key,
+     * so they are usually answered by the second-level cache, and the write invalidates the cached songs
+     * of the playlist when it commits.
      *
-     * @param playlist playlist to add song to
-     * @param song     Song to add to playlist
+     * @param selectedPlaylist playlist to add song to
+     * @param song             Song to add to playlist
      * @return MethodOutcome, the outcome of the method
      */
-    public MethodOutcome addSongToPlaylist(Playlist playlist, Song song) {
+    @Transactional
+    public MethodOutcome addSongToPlaylist(Playlist selectedPlaylist, Song song) {
         if (song == null) {
             log.warn("addSongToPlaylist: Song was null.");
             return MethodOutcome.INVALID_SONG;
         }
-        if (playlist == null) {
+        if (selectedPlaylist == null) {
             log.warn("addSongToPlaylist: Playlist was null.");
             return MethodOutcome.PLAYLIST_NOT_FOUND;
         }
 
-        if (playlistRepository.findByPlaylistIDEquals(playlist.getPlaylistID()).isEmpty()) {
-            log.warn("addSongToPlaylist: Playlist id#{} does not exist", playlist.getPlaylistID());
+        final Playlist playlist = findWithSongs(selectedPlaylist.getPlaylistID());
+        if (playlist == null) {
+            log.warn("addSongToPlaylist: Playlist id#{} does not exist", selectedPlaylist.getPlaylistID());
             return MethodOutcome.PLAYLIST_NOT_FOUND; // Playlist does not exist
         }
 
@@ -278,21 +353,23 @@ public class PlaylistServiceImpl implements PlaylistService {
             return MethodOutcome.PLAYLIST_ALREADY_CONTAINS_SONG; //Song is already in the playlist
         }
 
-        //Attempt to find the song in the repository
-        final Optional<Song> songFound = songRepository.findById(song.getDeezerID());
-        if (songFound.isPresent()) {
-            log.warn("addSongToPlaylist: Playlist id#{} by user id#{} already contains song#{}", playlist.getPlaylistID(), playlist.getAuthor().getuserID(), song.getDeezerID());            //Add the managed song to the playlist
-            playlist.addSong(songFound.get());
-            songFound.get().addPlaylist(playlist);
+        //Attempt to find the song by deezerID, the song id index knows its primary key
+        final Song songFound = songIdIndex.findSong(song.getDeezerID());
+        final Song songToAdd;
+        if (songFound != null) {
+            log.info("addSongToPlaylist: Adding saved song#{} to playlist id#{}", song.getDeezerID(), playlist.getPlaylistID());
+            songToAdd = songFound;
         } else {
             log.info("addSongToPlaylist: Saving new song#{} to the database and adding it to playlist id#{}", song.getDeezerID(), playlist.getPlaylistID());
-            //If the song does not exist, save it
-            songRepository.save(song);
-            playlist.addSong(song);
-            song.addPlaylist(playlist);
+            //If the song does not exist, save it, after its artist and album if they're new too
+            catalogCache.saveArtistsAndAlbums(List.of(song));
+            songToAdd = songRepository.save(song);
         }
-        //Save only the playlist, which will cascade the updates
+        //Only the playlist owns the relationship, so only its side is updated. Adding to the song's
+        //playlists would load every playlist the song is already in just to write one join row.
+        playlist.addSong(songToAdd);
         playlistRepository.save(playlist);
+        evictAuthor(playlist);
 
         log.info("addSongToPlaylist: Song id#{} added to playlist id#{} by user id#{}", song.getDeezerID(), playlist.getPlaylistID(), playlist.getAuthor().getuserID());
         return MethodOutcome.SUCCESS;
@@ -314,6 +391,19 @@ public class PlaylistServiceImpl implements PlaylistService {
      */
     public void clearRepo() {
         playlistRepository.deleteAll();
+        userSummaryService.evictAll();
         log.info("clearRepo: All playlists have been cleared from the repository");
     }
+
+    /**
+     * Evicts the cached summary of the given playlist's author, since the
+     * number of songs shown for the playlist has changed.
+     *
+     * @param playlist Playlist that was changed
+     */
+    private void evictAuthor(Playlist playlist) {
+        if (playlist.getAuthor() != null) {
+            userSummaryService.evict(playlist.getAuthor().getuserID());
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts query cache hits, negative hits, subsumed hits, near hits, misses and expired caches for each {@link QueryShape}, and publishes
+ * them as the {@code initmusic.search.cache.requests} metric tagged with {@code shape} and {@code result}.
+ * How much results change when a cache is refreshed is published as {@code initmusic.search.cache.churn},
+ * tagged with {@code shape}.
+ */
+@Component
+public class QueryCacheMetrics {
+
+    /** Name of the metric the counters are published under */
+    public static final String METRIC_NAME = "initmusic.search.cache.requests";
+
+    /** Name of the metric refresh churn is published under */
+    public static final String CHURN_METRIC_NAME = "initmusic.search.cache.churn";
+
+    /** Hit counter for each shape */
+    private final Map<QueryShape, Counter> hits = new EnumMap<>(QueryShape.class);
+
+    /** Negative hit counter for each shape, when the search was already known to have no results */
+    private final Map<QueryShape, Counter> negativeHits = new EnumMap<>(QueryShape.class);
+
+    /** Subsumed hit counter for each shape, when a broader search's cache was filtered to answer the search */
+    private final Map<QueryShape, Counter> subsumedHits = new EnumMap<>(QueryShape.class);
+
+    /** Near hit counter for each shape, when the cache of a search a few edits away answered the search */
+    private final Map<QueryShape, Counter> nearHits = new EnumMap<>(QueryShape.class);
+
+    /** Miss counter for each shape, a miss is when no cache was found */
+    private final Map<QueryShape, Counter> misses = new EnumMap<>(QueryShape.class);
+
+    /** Expired counter for each shape, when a cache was found but was too old to use */
+    private final Map<QueryShape, Counter> expired = new EnumMap<>(QueryShape.class);
+
+    /** Churn of every refresh for each shape, from 0 (same songs) to 1 (no songs in common) */
+    private final Map<QueryShape, DistributionSummary> churn = new EnumMap<>(QueryShape.class);
+
+    /**
+     * Registers a counter for every shape and result
+     *
+     * @param meterRegistry Registry to publish the counters to
+     */
+    public QueryCacheMetrics(MeterRegistry meterRegistry) {
+        for (QueryShape shape : QueryShape.values()) {
+            hits.put(shape, counter(meterRegistry, shape, "hit"));
+            negativeHits.put(shape, counter(meterRegistry, shape, "negative_hit"));
+            subsumedHits.put(shape, counter(meterRegistry, shape, "subsumed_hit"));
+            nearHits.put(shape, counter(meterRegistry, shape, "near_hit"));
+            misses.put(shape, counter(meterRegistry, shape, "miss"));
+            expired.put(shape, counter(meterRegistry, shape, "expired"));
+            churn.put(shape, DistributionSummary.builder(CHURN_METRIC_NAME)
+                    .description("How much the songs found changed when a cached search was refreshed")
+                    .tag("shape", shape.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records a search that was answered from the cache
+     *
+     * @param shape Shape of the search
+     */
+    public void recordHit(QueryShape shape) {
+        hits.get(shape).increment();
+    }
+
+    /**
+     * Records a search that was answered by a negative cache, so no songs and no external search
+     *
+     * @param shape Shape of the search
+     */
+    public void recordNegativeHit(QueryShape shape) {
+        negativeHits.get(shape).increment();
+    }
+
+    /**
+     * Records a search that had no cache of its own, but was answered by filtering a broader search's cache
+     *
+     * @param shape Shape of the search
+     */
+    public void recordSubsumedHit(QueryShape shape) {
+        subsumedHits.get(shape).increment();
+    }
+
+    /**
+     * Records a search that had no cache of its own, but was answered by the cache of a search a few edits away
+     *
+     * @param shape Shape of the search
+     */
+    public void recordNearHit(QueryShape shape) {
+        nearHits.get(shape).increment();
+    }
+
+    /**
+     * Records a search that had no cache
+     *
+     * @param shape Shape of the search
+     */
+    public void recordMiss(QueryShape shape) {
+        misses.get(shape).increment();
+    }
+
+    /**
+     * Records a search whose cache was found but expired
+     *
+     * @param shape Shape of the search
+     */
+    public void recordExpired(QueryShape shape) {
+        expired.get(shape).increment();
+    }
+
+    /**
+     * Records how much the songs found changed when a cache was refreshed
+     *
+     * @param shape      Shape of the search
+     * @param churnValue Churn of the refresh, from 0 to 1
+     */
+    public void recordChurn(QueryShape shape, double churnValue) {
+        churn.get(shape).record(churnValue);
+    }
+
+    /**
+     * Builds a report of hits, misses and hit rate for each shape since the application started.
+     * Negative, subsumed and near hits count towards the hit rate, since they also save an external search.
+     *
+     * @return Report for every shape, in the order the shapes are declared
+     */
+    public Map<QueryShape, ShapeReport> report() {
+        final Map<QueryShape, ShapeReport> report = new EnumMap<>(QueryShape.class);
+        for (QueryShape shape : QueryShape.values()) {
+            final long hitCount = (long) hits.get(shape).count();
+            final long negativeHitCount = (long) negativeHits.get(shape).count();
+            final long subsumedHitCount = (long) subsumedHits.get(shape).count();
+            final long nearHitCount = (long) nearHits.get(shape).count();
+            final long missCount = (long) misses.get(shape).count();
+            final long expiredCount = (long) expired.get(shape).count();
+            final long total = hitCount + negativeHitCount + subsumedHitCount + nearHitCount + missCount + expiredCount;
+            final double hitRate = total == 0 ? 0.0 : (double) (hitCount + negativeHitCount + subsumedHitCount + nearHitCount) / total;
+            report.put(shape, new ShapeReport(hitCount, negativeHitCount, subsumedHitCount, nearHitCount, missCount, expiredCount, hitRate));
+        }
+        return report;
+    }
+
+    /**
+     * Creates and registers a single counter
+     *
+     * @param meterRegistry Registry to register with
+     * @param shape         Shape tag
+     * @param result        Result tag
+     * @return Registered counter
+     */
+    private static Counter counter(MeterRegistry meterRegistry, QueryShape shape, String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Number of song searches checked against the query cache")
+                .tag("shape", shape.name())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cache numbers for a single shape
+     *
+     * @param hits         Searches answered from the cache
+     * @param negativeHits Searches answered by a negative cache
+     * @param subsumedHits Searches answered by filtering a broader search's cache
+     * @param nearHits     Searches answered by the cache of a search a few edits away
+     * @param misses       Searches that had no cache
+     * @param expired      Searches whose cache was too old to use
+     * @param hitRate      Hits, negative, subsumed and near hits divided by all searches, 0 if there were none
+     */
+    public record ShapeReport(long hits, long negativeHits, long subsumedHits, long nearHits, long misses, long expired, double hitRate) {
+    }
+}
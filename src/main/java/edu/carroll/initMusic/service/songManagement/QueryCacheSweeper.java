@@ -0,0 +1,244 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.jpa.repo.SongIdentity;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Periodically deletes query caches that expired long ago and songs nothing uses anymore, since expired
+ * caches are otherwise only rewritten when someone searches for them again.
+ *
+ * <p>
+ * Caches are deleted once they are older than the longest time to live any cache can have, so they are expired
+ * whatever their own time to live was. Negative caches are deleted once older than their own, shorter, time to live.
+ * After that, songs that aren't in any playlist and weren't cached within the longest time to live are deleted.
+ * </p>
+ *
+ * <p>
+ * Everything is deleted in batches of at most {@code batchSize} rows, each in its own short transaction,
+ * with a pause between batches and a limit on batches per run, so a sweep never holds locks for long or
+ * starves searches of the database. Deleted rows are published as the {@code initmusic.sweeper.reclaimed}
+ * metric tagged with {@code table}.
+ * </p>
+ */
+@Component
+public class QueryCacheSweeper {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(QueryCacheSweeper.class);
+
+    /** Name of the metric deleted rows are published under */
+    public static final String METRIC_NAME = "initmusic.sweeper.reclaimed";
+
+    /** QueryCache repository */
+    private final QueryCacheRepository queryCacheRepository;
+
+    /** Song repository */
+    private final SongRepository songRepository;
+
+    /** Used to know the longest time to live a cache can have */
+    private final QueryCacheTtlPolicy queryCacheTtlPolicy;
+
+    /** Used to know how long negative caches live */
+    private final NegativeQueryCache negativeQueryCache;
+
+    /** Deleted songs are removed from here too */
+    private final SongMetadataCache songMetadataCache;
+
+    /** Deleted songs are removed from here too, songs are deleted by a query it doesn't hear about */
+    private final SongIdIndex songIdIndex;
+
+    /** Told how many caches and songs are deleted, for the same reason */
+    private final CatalogStatsService catalogStatsService;
+
+    /** If scheduled sweeps run */
+    private final boolean enabled;
+
+    /** Most rows deleted in a single batch */
+    private final int batchSize;
+
+    /** Most batches of each kind deleted in a single sweep */
+    private final int maxBatches;
+
+    /** How long to wait between batches, in milliseconds */
+    private final long pauseMillis;
+
+    /** Counts deleted query caches */
+    private final Counter cachesReclaimed;
+
+    /** Counts deleted songs */
+    private final Counter songsReclaimed;
+
+    /**
+     * Creates the sweeper with the configured limits and registers its metrics
+     *
+     * @param queryCacheRepository QueryCache repository
+     * @param songRepository       Song repository
+     * @param queryCacheTtlPolicy  Policy that knows the longest time to live
+     * @param negativeQueryCache   Cache that knows how long negative caches live
+     * @param songMetadataCache    Cache to remove deleted songs from
+     * @param songIdIndex          Index to remove deleted songs from
+     * @param catalogStatsService  Service told how many rows are deleted
+     * @param meterRegistry        Registry to publish metrics to
+     * @param enabled              If scheduled sweeps run
+     * @param batchSize            Most rows deleted in a single batch
+     * @param maxBatches           Most batches of each kind deleted in a single sweep
+     * @param pauseMillis          How long to wait between batches, in milliseconds
+     */
+    public QueryCacheSweeper(QueryCacheRepository queryCacheRepository, SongRepository songRepository,
+                             QueryCacheTtlPolicy queryCacheTtlPolicy, NegativeQueryCache negativeQueryCache,
+                             SongMetadataCache songMetadataCache, SongIdIndex songIdIndex,
+                             CatalogStatsService catalogStatsService, MeterRegistry meterRegistry,
+                             @Value("${initmusic.sweeper.enabled:true}") boolean enabled,
+                             @Value("${initmusic.sweeper.batch-size:500}") int batchSize,
+                             @Value("${initmusic.sweeper.max-batches:100}") int maxBatches,
+                             @Value("${initmusic.sweeper.pause-ms:200}") long pauseMillis) {
+        this.queryCacheRepository = queryCacheRepository;
+        this.songRepository = songRepository;
+        this.queryCacheTtlPolicy = queryCacheTtlPolicy;
+        this.negativeQueryCache = negativeQueryCache;
+        this.songMetadataCache = songMetadataCache;
+        this.songIdIndex = songIdIndex;
+        this.catalogStatsService = catalogStatsService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pauseMillis = pauseMillis;
+        this.cachesReclaimed = counter(meterRegistry, "query_cache");
+        this.songsReclaimed = counter(meterRegistry, "song");
+    }
+
+    /**
+     * Deletes expired caches and then orphaned songs, on the configured schedule
+     */
+    @Scheduled(initialDelayString = "${initmusic.sweeper.initial-delay-ms:600000}", fixedDelayString = "${initmusic.sweeper.interval-ms:3600000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        final LocalDateTime now = LocalDateTime.now();
+        final int caches = sweepExpiredCaches(now);
+        final int songs = sweepOrphanedSongs(now);
+        log.info("sweep: Deleted {} expired query caches and {} orphaned songs", caches, songs);
+    }
+
+    /**
+     * Deletes caches that are expired at the given time, in batches
+     *
+     * @param now Time to check expiration against
+     * @return Number of caches deleted
+     */
+    public int sweepExpiredCaches(LocalDateTime now) {
+        final LocalDateTime updatedBefore = now.minus(queryCacheTtlPolicy.getMaxTtl());
+        final LocalDateTime negativeUpdatedBefore = now.minus(negativeQueryCache.getTtl());
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            final List<Long> ids = queryCacheRepository.findExpiredIds(updatedBefore, negativeUpdatedBefore, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            final int cachesDeleted = queryCacheRepository.deleteByQueryCacheIDs(ids);
+            catalogStatsService.recordDeleted(CatalogTable.QUERY_CACHE, cachesDeleted);
+            cachesReclaimed.increment(cachesDeleted);
+            deleted += cachesDeleted;
+            if (ids.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes songs that aren't in any playlist and weren't cached within the longest time to live, in batches
+     *
+     * @param now Time to check against
+     * @return Number of songs deleted
+     */
+    public int sweepOrphanedSongs(LocalDateTime now) {
+        //Songs' last cached time can be behind by up to a day, so they get that much longer
+        final LocalDateTime cachedBefore = now.minus(queryCacheTtlPolicy.getMaxTtl()).minus(SongServiceImpl.LAST_CACHED_INTERVAL);
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            final List<Long> deezerIDs = songRepository.findOrphanedDeezerIDs(cachedBefore, PageRequest.of(0, batchSize));
+            if (deezerIDs.isEmpty()) {
+                break;
+            }
+            final int songsDeleted = songRepository.deleteOrphaned(deezerIDs, cachedBefore);
+            songMetadataCache.evictAll(deezerIDs);
+            songIdIndex.removeAll(deletedOnly(deezerIDs, songsDeleted));
+            catalogStatsService.recordDeleted(CatalogTable.SONG, songsDeleted);
+            songsReclaimed.increment(songsDeleted);
+            deleted += songsDeleted;
+            //Some found songs could have been kept, if they were added to a playlist in between
+            if (deezerIDs.size() < batchSize || songsDeleted == 0 || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Gets which of the given songs were deleted. If fewer were deleted than were found, the ones kept are looked up.
+     *
+     * @param deezerIDs    DeezerIDs of songs that were meant to be deleted
+     * @param songsDeleted Number of songs actually deleted
+     * @return DeezerIDs of songs deleted
+     */
+    private Collection<Long> deletedOnly(List<Long> deezerIDs, int songsDeleted) {
+        if (songsDeleted >= deezerIDs.size()) {
+            return deezerIDs;
+        }
+        final Set<Long> deleted = new HashSet<>(deezerIDs);
+        for (SongIdentity kept : songRepository.findIdentitiesByDeezerIDIn(deezerIDs)) {
+            deleted.remove(kept.getDeezerID());
+        }
+        return deleted;
+    }
+
+    /**
+     * Waits between batches, so other queries can get to the tables
+     *
+     * @return {@code true} if the sweep should go on, {@code false} if the thread was interrupted
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("pause: Sweep interrupted, stopping early");
+            return false;
+        }
+    }
+
+    /**
+     * Creates and registers the counter for a single table
+     *
+     * @param meterRegistry Registry to register with
+     * @param table         Table tag
+     * @return Registered counter
+     */
+    private static Counter counter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder(METRIC_NAME)
+                .description("Number of rows deleted by the query cache sweeper")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
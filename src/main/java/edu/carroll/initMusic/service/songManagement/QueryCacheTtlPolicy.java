@@ -0,0 +1,155 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides how long each query cache stays fresh, based on how much its songs changed when it was
+ * last refreshed and how often it was hit since.
+ *
+ * <p>
+ * New caches start at the initial time to live. Each refresh that found (nearly) the same songs doubles it,
+ * so catalogue searches that never change are searched externally less and less. A refresh that found
+ * different songs shortens it by how much they changed, and shortens it more the more the cache was hit,
+ * since more people saw it out of date. The result always stays between the configured minimum and maximum.
+ * </p>
+ *
+ * <p>
+ * Hits are counted in memory, in a least recently used map, instead of being written to the cache's row on every hit.
+ * </p>
+ */
+@Component
+public class QueryCacheTtlPolicy {
+
+    /** Churn at or below which a refresh counts as having found the same songs */
+    private static final double STABLE_CHURN = 0.05;
+
+    /** Smallest factor a single refresh can shorten the time to live by */
+    private static final double MIN_SHRINK_FACTOR = 0.25;
+
+    /** Shortest time to live a cache can have */
+    private final Duration minTtl;
+
+    /** Longest time to live a cache can have */
+    private final Duration maxTtl;
+
+    /** Time to live of a new cache */
+    private final Duration initialTtl;
+
+    /** Hits since the last refresh, by query hash, in access order so the least recently used is removed first */
+    private final Map<String, Integer> hits;
+
+    /**
+     * Creates the policy with the configured limits
+     *
+     * @param minMinutes     Shortest time to live, in minutes
+     * @param maxMinutes     Longest time to live, in minutes
+     * @param initialMinutes Time to live of a new cache, in minutes
+     * @param maxEntries     Maximum number of queries to count hits for
+     */
+    public QueryCacheTtlPolicy(@Value("${initmusic.search.cache.ttl.min-minutes:60}") long minMinutes,
+                               @Value("${initmusic.search.cache.ttl.max-minutes:43200}") long maxMinutes,
+                               @Value("${initmusic.search.cache.ttl.initial-minutes:10080}") long initialMinutes,
+                               @Value("${initmusic.search.cache.ttl.max-entries:10000}") int maxEntries) {
+        this.minTtl = Duration.ofMinutes(minMinutes);
+        this.maxTtl = Duration.ofMinutes(maxMinutes);
+        this.initialTtl = clamp(initialMinutes);
+        this.hits = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Counts a hit on the cache with the given hash
+     *
+     * @param queryHash Hash of the query that was hit
+     */
+    public void recordHit(String queryHash) {
+        synchronized (hits) {
+            hits.merge(queryHash, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Gets the hits on the cache with the given hash since it was last refreshed, and starts counting again
+     *
+     * @param queryHash Hash of the query being refreshed
+     * @return Number of hits since the last refresh
+     */
+    public int takeHits(String queryHash) {
+        synchronized (hits) {
+            final Integer count = hits.remove(queryHash);
+            return count == null ? 0 : count;
+        }
+    }
+
+    /**
+     * Works out the time to live of a cache that was just refreshed
+     *
+     * @param previousTtl Time to live the cache had
+     * @param churn       How much its songs changed, from 0 to 1
+     * @param hitCount    Number of hits since it was last refreshed
+     * @return New time to live, between the minimum and maximum
+     */
+    public Duration nextTtl(Duration previousTtl, double churn, int hitCount) {
+        double minutes = previousTtl.toMinutes();
+        if (churn <= STABLE_CHURN) {
+            minutes *= 2;
+        } else {
+            minutes *= Math.max(MIN_SHRINK_FACTOR, 1 - churn);
+            minutes /= 1 + Math.log10(1 + hitCount);
+        }
+        return clamp((long) minutes);
+    }
+
+    /**
+     * Gets the time to live of a new cache
+     *
+     * @return Initial time to live
+     */
+    public Duration getInitialTtl() {
+        return initialTtl;
+    }
+
+    /**
+     * Gets the longest time to live a cache can have, every cache is expired once this long after it was updated
+     *
+     * @return Maximum time to live
+     */
+    public Duration getMaxTtl() {
+        return maxTtl;
+    }
+
+    /**
+     * Removes every hit count
+     */
+    public void clear() {
+        synchronized (hits) {
+            hits.clear();
+        }
+    }
+
+    /**
+     * Keeps the given time to live between the minimum and maximum
+     *
+     * @param minutes Time to live, in minutes
+     * @return Time to live between the minimum and maximum
+     */
+    private Duration clamp(long minutes) {
+        final Duration ttl = Duration.ofMinutes(minutes);
+        if (ttl.compareTo(minTtl) < 0) {
+            return minTtl;
+        }
+        if (ttl.compareTo(maxTtl) > 0) {
+            return maxTtl;
+        }
+        return ttl;
+    }
+}
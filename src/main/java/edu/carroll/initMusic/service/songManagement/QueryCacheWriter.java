@@ -0,0 +1,328 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves query caches behind the searches that made them, so a search returns its songs as soon as the
+ * external search is over instead of after its cache and songs are written.
+ *
+ * <p>
+ * Writes wait in a bounded queue, keyed by the hash of the search they cache. A write for a search that is still
+ * waiting replaces the waiting one, so repeated searches are only written once, with the newest songs. A single
+ * background thread takes up to {@code batchSize} writes at a time, as soon as that many are waiting or
+ * {@code flushIntervalMillis} after the first one was, and runs them all in one transaction. If that transaction
+ * fails, each write in the batch is retried in its own, so one bad write doesn't lose the others. Writes only
+ * update in memory caches once their transaction commits, so a rolled back batch leaves nothing behind in them.
+ * </p>
+ *
+ * <p>
+ * When the queue is full, the write is run on the caller's thread instead, which slows searches down to the
+ * speed the database can keep up with rather than dropping caches or using up memory. The queue depth and
+ * the number of writes queued, coalesced, run by callers, written and failed are published as the
+ * {@code initmusic.search.cache.write.*} metrics, with a timer for each batch.
+ * </p>
+ *
+ * <p>
+ * On shutdown, no more writes are queued and everything waiting is written before the transaction manager
+ * goes away. When write behind is disabled, every write runs right away on the caller's thread, joining its
+ * transaction if it has one.
+ * </p>
+ */
+@Component
+public class QueryCacheWriter implements DisposableBean {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(QueryCacheWriter.class);
+
+    /** Prefix of the names every metric is published under */
+    public static final String METRIC_PREFIX = "initmusic.search.cache.write";
+
+    /** If writes are queued, if not they run on the caller's thread */
+    private final boolean enabled;
+
+    /** Most writes that can wait at once */
+    private final int capacity;
+
+    /** Most writes run in a single transaction */
+    private final int batchSize;
+
+    /** Longest a write waits for a batch to fill up, in nanoseconds */
+    private final long flushIntervalNanos;
+
+    /** Longest shutdown waits for waiting writes to be written, in milliseconds */
+    private final long shutdownTimeoutMillis;
+
+    /** Runs each batch, or each write on its own, in a transaction */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Writes waiting, by the hash of the search they cache, in the order they were first queued. Also the lock. */
+    private final Map<String, Runnable> pending = new LinkedHashMap<>();
+
+    /** Thread writing batches, null if write behind is disabled */
+    private final Thread worker;
+
+    /** If shutdown has started, after which nothing more is queued */
+    private boolean stopped;
+
+    /** Counts writes added to the queue */
+    private final Counter queuedCounter;
+
+    /** Counts writes that replaced a write already waiting for the same search */
+    private final Counter coalescedCounter;
+
+    /** Counts writes run on the caller's thread because the queue was full */
+    private final Counter callerRunsCounter;
+
+    /** Counts writes saved */
+    private final Counter writtenCounter;
+
+    /** Counts writes that failed even on their own */
+    private final Counter failedCounter;
+
+    /** Times each batch */
+    private final Timer batchTimer;
+
+    /**
+     * Creates the writer, registers its metrics and starts its thread if write behind is enabled
+     *
+     * @param transactionManager    Transaction manager batches are run with
+     * @param meterRegistry         Registry to publish metrics to
+     * @param enabled               If writes are queued, if not they run on the caller's thread
+     * @param capacity              Most writes that can wait at once
+     * @param batchSize             Most writes run in a single transaction
+     * @param flushIntervalMillis   Longest a write waits for a batch to fill up, in milliseconds
+     * @param shutdownTimeoutMillis Longest shutdown waits for waiting writes to be written, in milliseconds
+     */
+    public QueryCacheWriter(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${initmusic.search.write-behind.enabled:true}") boolean enabled,
+                            @Value("${initmusic.search.write-behind.capacity:1000}") int capacity,
+                            @Value("${initmusic.search.write-behind.batch-size:50}") int batchSize,
+                            @Value("${initmusic.search.write-behind.flush-interval-ms:100}") long flushIntervalMillis,
+                            @Value("${initmusic.search.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", this, QueryCacheWriter::getQueueDepth)
+                .description("Number of query cache writes waiting to be saved")
+                .register(meterRegistry);
+        this.queuedCounter = counter(meterRegistry, "queued");
+        this.coalescedCounter = counter(meterRegistry, "coalesced");
+        this.callerRunsCounter = counter(meterRegistry, "caller_runs");
+        this.writtenCounter = counter(meterRegistry, "written");
+        this.failedCounter = counter(meterRegistry, "failed");
+        this.batchTimer = Timer.builder(METRIC_PREFIX + ".batch")
+                .description("Time taken to save a batch of query cache writes")
+                .register(meterRegistry);
+
+        if (enabled) {
+            worker = new Thread(this::drain, "query-cache-writer");
+            worker.setDaemon(true);
+            worker.start();
+            log.info("QueryCacheWriter: Writing behind with a queue of {} and batches of {}", this.capacity, this.batchSize);
+        } else {
+            worker = null;
+        }
+    }
+
+    /**
+     * Queues a write for the given search, replacing any write still waiting for it. Runs the write right away on
+     * this thread if write behind is disabled, the queue is full or shutdown has started.
+     *
+     * @param queryHash Hash of the search the write caches
+     * @param write     Write to run, in a transaction
+     */
+    public void submit(String queryHash, Runnable write) {
+        if (enabled) {
+            synchronized (pending) {
+                if (!stopped) {
+                    if (pending.containsKey(queryHash)) {
+                        //Replacing a key keeps its place in the queue
+                        pending.put(queryHash, write);
+                        coalescedCounter.increment();
+                        return;
+                    }
+                    if (pending.size() < capacity) {
+                        pending.put(queryHash, write);
+                        queuedCounter.increment();
+                        if (pending.size() >= batchSize) {
+                            pending.notifyAll();
+                        }
+                        return;
+                    }
+                }
+            }
+            callerRunsCounter.increment();
+            log.warn("submit: Write queue is full or stopped, writing cache for {} on the searching thread", queryHash);
+        }
+        runAlone(write);
+    }
+
+    /**
+     * Gets the number of writes waiting
+     *
+     * @return Queue depth
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes every write waiting on this thread, in batches, without waiting for the background thread
+     */
+    public void flush() {
+        List<Runnable> batch = takeBatch();
+        while (!batch.isEmpty()) {
+            writeBatch(batch);
+            batch = takeBatch();
+        }
+    }
+
+    /**
+     * Stops queueing writes and waits for the background thread to write everything still waiting.
+     * Anything it hasn't written by the timeout is written on this thread.
+     */
+    @Override
+    public void destroy() {
+        if (worker == null) {
+            return;
+        }
+        final int waiting;
+        synchronized (pending) {
+            stopped = true;
+            waiting = pending.size();
+            pending.notifyAll();
+        }
+        log.info("destroy: Flushing {} query cache writes before shutdown", waiting);
+        try {
+            worker.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("destroy: Writer didn't finish within {}ms, flushing the rest on the shutdown thread", shutdownTimeoutMillis);
+            flush();
+        }
+    }
+
+    /**
+     * Loop of the background thread. Waits for a full batch or the flush interval, then writes a batch,
+     * until shutdown has started and nothing is left waiting.
+     */
+    private void drain() {
+        while (true) {
+            final List<Runnable> batch;
+            synchronized (pending) {
+                try {
+                    while (pending.isEmpty() && !stopped) {
+                        pending.wait();
+                    }
+                    final long deadline = System.nanoTime() + flushIntervalNanos;
+                    long remaining = flushIntervalNanos;
+                    while (pending.size() < batchSize && !stopped && remaining > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                } catch (InterruptedException e) {
+                    //Only happens if something else interrupts the thread, so act as if shutdown started
+                    log.warn("drain: Writer interrupted, writing what's left and stopping");
+                    stopped = true;
+                }
+                if (pending.isEmpty() && stopped) {
+                    return;
+                }
+                batch = takeBatch();
+            }
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Takes up to a batch of the oldest waiting writes off the queue
+     *
+     * @return Writes taken, empty if none were waiting
+     */
+    private List<Runnable> takeBatch() {
+        synchronized (pending) {
+            final List<Runnable> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            final Iterator<Runnable> writes = pending.values().iterator();
+            while (writes.hasNext() && batch.size() < batchSize) {
+                batch.add(writes.next());
+                writes.remove();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Runs the given writes in one transaction, or each in its own if that fails
+     *
+     * @param batch Writes to run
+     */
+    private void writeBatch(List<Runnable> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(Runnable::run));
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("writeBatch: Batch of {} writes failed, retrying each on its own | {}", batch.size(), e.getMessage());
+            batch.forEach(this::runAlone);
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs a single write in its own transaction, or the caller's if it has one
+     *
+     * @param write Write to run
+     */
+    private void runAlone(Runnable write) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write.run());
+            writtenCounter.increment();
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.error("runAlone: Query cache write failed | {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates and registers the counter for a single outcome
+     *
+     * @param meterRegistry Registry to register with
+     * @param outcome       Outcome tag
+     * @return Registered counter
+     */
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(METRIC_PREFIX)
+                .description("Number of query cache writes, by what happened to them")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
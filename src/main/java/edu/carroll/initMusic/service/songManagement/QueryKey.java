@@ -0,0 +1,182 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Key a search is cached under.
+ *
+ * <p>
+ * The canonical form is built from the normalized song and artist names, so searches that only differ by case,
+ * extra whitespace or Unicode form share a cache. It looks like {@code song:{songName}}, {@code artist:{artistName}}
+ * or {@code song:{songName}\tartist:{artistName}}. Since every whitespace run inside a name is turned into a single
+ * space, the tab can't appear in a name, which keeps a song-only search from ever matching a combined one.
+ * </p>
+ *
+ * <p>
+ * Caches are looked up by the SHA-256 hash of the canonical form, which is always 64 characters no matter
+ * how long the search was. That lets the hash column have a unique index without any limit on query length.
+ * </p>
+ *
+ * @param canonical Normalized form of the search, stored with the cache so it's readable
+ * @param hash      Hex SHA-256 hash of the canonical form
+ * @param shape     Which fields the search used
+ */
+public record QueryKey(String canonical, String hash, QueryShape shape) {
+
+    /** Length of the hex hash, also the width of the hash column */
+    public static final int HASH_LENGTH = 64;
+
+    /** Put in front of the song name in the canonical form */
+    private static final String SONG_PREFIX = "song:";
+
+    /** Put in front of the artist name in the canonical form */
+    private static final String ARTIST_PREFIX = "artist:";
+
+    /** Separates the song and artist in the canonical form */
+    private static final char SEPARATOR = '\t';
+
+    /** Separated the song and artist in keys saved before the canonical form existed */
+    private static final String LEGACY_ARTIST_SEPARATOR = "+artist:";
+
+    /**
+     * Creates the key for the given song name and artist name
+     *
+     * @param songName   Song name searched for, can be null or empty
+     * @param artistName Artist name searched for, can be null or empty
+     * @return Key for the search, null if both names are empty
+     */
+    public static QueryKey of(String songName, String artistName) {
+        final String song = normalize(songName);
+        final String artist = normalize(artistName);
+
+        final String canonical;
+        final QueryShape shape;
+        if (!song.isEmpty() && !artist.isEmpty()) {
+            canonical = SONG_PREFIX + song + SEPARATOR + ARTIST_PREFIX + artist;
+            shape = QueryShape.SONG_AND_ARTIST;
+        } else if (!song.isEmpty()) {
+            canonical = SONG_PREFIX + song;
+            shape = QueryShape.SONG;
+        } else if (!artist.isEmpty()) {
+            canonical = ARTIST_PREFIX + artist;
+            shape = QueryShape.ARTIST;
+        } else {
+            return null;
+        }
+        return new QueryKey(canonical, sha256Hex(canonical), shape);
+    }
+
+    /**
+     * Creates the key for a query saved in the old {@code Song:{songName}+Artist:{artistName}} format
+     *
+     * @param legacyQuery Query in the old format
+     * @return Key for the same search, null if the query isn't in the old format
+     */
+    public static QueryKey fromLegacy(String legacyQuery) {
+        if (legacyQuery == null) {
+            return null;
+        }
+        final String query = legacyQuery.strip().toLowerCase(Locale.ROOT);
+        if (query.startsWith(SONG_PREFIX)) {
+            final int artistIndex = query.indexOf(LEGACY_ARTIST_SEPARATOR);
+            if (artistIndex < 0) {
+                return of(query.substring(SONG_PREFIX.length()), "");
+            }
+            return of(query.substring(SONG_PREFIX.length(), artistIndex), query.substring(artistIndex + LEGACY_ARTIST_SEPARATOR.length()));
+        }
+        if (query.startsWith(ARTIST_PREFIX)) {
+            return of("", query.substring(ARTIST_PREFIX.length()));
+        }
+        return null;
+    }
+
+    /**
+     * Gets the normalized song name this key was made from
+     *
+     * @return Song name, empty if this is an artist only search
+     */
+    public String songName() {
+        return switch (shape) {
+            case SONG -> canonical.substring(SONG_PREFIX.length());
+            case SONG_AND_ARTIST -> canonical.substring(SONG_PREFIX.length(), canonical.indexOf(SEPARATOR));
+            case ARTIST -> "";
+        };
+    }
+
+    /**
+     * Gets the normalized artist name this key was made from
+     *
+     * @return Artist name, empty if this is a song only search
+     */
+    public String artistName() {
+        return switch (shape) {
+            case ARTIST -> canonical.substring(ARTIST_PREFIX.length());
+            case SONG_AND_ARTIST -> canonical.substring(canonical.indexOf(SEPARATOR) + 1 + ARTIST_PREFIX.length());
+            case SONG -> "";
+        };
+    }
+
+    /**
+     * Gets the keys of the broader searches whose results cover this one: the song only and the artist only
+     * search, in that order, for a song and artist search
+     *
+     * @return Broader keys, empty if this search only used one field
+     */
+    public List<QueryKey> broaderKeys() {
+        if (shape != QueryShape.SONG_AND_ARTIST) {
+            return List.of();
+        }
+        return List.of(of(songName(), ""), of("", artistName()));
+    }
+
+    /**
+     * Normalizes a single name: NFKC form, whitespace runs turned into single spaces,
+     * then stripped and lower-cased
+     *
+     * @param name Name to normalize, can be null
+     * @return Normalized name, empty if name was null or blank
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        final String normalized = Normalizer.normalize(name, Normalizer.Form.NFKC);
+        final StringBuilder builder = new StringBuilder(normalized.length());
+        boolean lastWasSpace = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            final char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (!lastWasSpace) {
+                    builder.append(' ');
+                }
+                lastWasSpace = true;
+            } else {
+                builder.append(c);
+                lastWasSpace = false;
+            }
+        }
+        return builder.toString().strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Hashes the given string with SHA-256
+     *
+     * @param value String to hash
+     * @return Lower case hex form of the hash
+     */
+    private static String sha256Hex(String value) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package edu.carroll.initMusic.service.songManagement;
+
+/**
+ * Which of the search fields a query used. Cache hits and misses are reported per shape,
+ * so it's easy to see how well each kind of search is being cached.
+ */
+public enum QueryShape {
+    /** Only a song name was given */
+    SONG,
+    /** Only an artist name was given */
+    ARTIST,
+    /** Both a song name and an artist name were given */
+    SONG_AND_ARTIST
+}
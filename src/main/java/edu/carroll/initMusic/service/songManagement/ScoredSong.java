@@ -0,0 +1,10 @@
+package edu.carroll.initMusic.service.songManagement;
+
+/**
+ * A song found by a search, with the score it was ranked by
+ *
+ * @param song  Song found
+ * @param score JaroWinkler distance of the song (or artist) name from the name searched for, lower is better
+ */
+public record ScoredSong(SongResult song, double score) {
+}
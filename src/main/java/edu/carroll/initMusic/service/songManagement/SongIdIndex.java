@@ -0,0 +1,427 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.SongIdentity;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps the id of every saved song by its deezerID in memory, in a {@link LongLongHashMap}, so finding out if a
+ * Deezer track is saved, and which song it is, doesn't box a {@code Long} or go to the database.
+ *
+ * <p>
+ * Every song's id is loaded a page at a time on startup. From then on, songs inserted in a transaction are kept
+ * with that transaction, so a batch of writes in it knows about the songs saved earlier in it, and they're only
+ * added to the index once it commits. Other threads never see a song that could still be rolled back.
+ * Songs are removed once their delete is committed. Both go through Hibernate's events,
+ * so songs saved or deleted any way through Hibernate are kept track of, including ones saved with their playlist.
+ * Deletes run as a single query skip those events, so they have to be passed to {@link #removeAll(Collection)}.
+ * </p>
+ *
+ * <p>
+ * Once every song is loaded, and as long as the index never got to {@code maxEntries}, it's complete, and a
+ * deezerID that isn't in it isn't saved. Until then, or if it ever fills up, only the songs in it are known
+ * and the rest have to be looked up. A song found here could still be uncommitted, or have been deleted by a query
+ * that didn't say so, so the id is only used to load the song, and it's looked up by deezerID if that finds nothing.
+ * </p>
+ */
+@Component
+public class SongIdIndex implements ApplicationRunner {
+
+    /** Returned as the id of a song that isn't in the index */
+    public static final long MISSING = -1L;
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SongIdIndex.class);
+
+    /** Song repository */
+    private final SongRepository songRepository;
+
+    /** Most songs kept, about 43 bytes each at most */
+    private final int maxEntries;
+
+    /** Number of songs loaded in each page on startup */
+    private final int loadBatchSize;
+
+    /** Guards ids, lookups share it and changes take it alone */
+    private final StampedLock lock = new StampedLock();
+
+    /** Song ids by deezerID */
+    private final LongLongHashMap ids;
+
+    /** If every saved song is in the index */
+    private volatile boolean complete;
+
+    /** If a song was left out since the index had maxEntries songs, guarded by lock */
+    private boolean full;
+
+    /**
+     * Injects dependencies, and listens for songs being saved and deleted
+     *
+     * @param songRepository       Song repository needed
+     * @param entityManagerFactory Factory whose commits are listened to
+     * @param maxEntries           Most songs to keep in memory
+     * @param loadBatchSize        Number of songs loaded in each page on startup
+     */
+    public SongIdIndex(SongRepository songRepository, EntityManagerFactory entityManagerFactory,
+                       @Value("${initmusic.search.song-id-index.max-entries:2000000}") int maxEntries,
+                       @Value("${initmusic.search.song-id-index.load-batch-size:10000}") int loadBatchSize) {
+        this.songRepository = songRepository;
+        this.maxEntries = maxEntries;
+        this.loadBatchSize = loadBatchSize;
+        this.ids = new LongLongHashMap(Math.min(maxEntries, 1 << 16));
+
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, new SongInsertListener());
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, new SongDeleteListener());
+    }
+
+    /**
+     * Loads the id of every saved song, a page at a time, on startup
+     *
+     * @param args Application arguments, not used
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        load();
+    }
+
+    /**
+     * Loads the id of every saved song, a page at a time, and marks the index complete if they all fit.
+     * Songs saved or deleted while loading are added or removed as they're committed.
+     */
+    public void load() {
+        long afterID = 0L;
+        int loaded = 0;
+        List<SongIdentity> page = songRepository.findIdentitiesAfter(afterID, PageRequest.of(0, loadBatchSize));
+        boolean filled = false;
+        while (!page.isEmpty() && !filled) {
+            final long stamp = lock.writeLock();
+            try {
+                for (SongIdentity song : page) {
+                    putLocked(song.getDeezerID(), song.getSongID());
+                }
+                filled = full;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            loaded += page.size();
+            if (page.size() < loadBatchSize) {
+                break;
+            }
+            afterID = page.getLast().getSongID();
+            page = songRepository.findIdentitiesAfter(afterID, PageRequest.of(0, loadBatchSize));
+        }
+        final long stamp = lock.writeLock();
+        try {
+            complete = !full;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("load: Loaded the ids of {} songs, index is {}", loaded, complete ? "complete" : "partial");
+    }
+
+    /**
+     * Gets the id of the saved song with the given deezerID, including songs inserted in the
+     * current transaction that aren't committed yet
+     *
+     * @param deezerID DeezerID of the song
+     * @return Song's id, {@link #MISSING} if it isn't in the index
+     */
+    public long songID(long deezerID) {
+        final LongLongHashMap pending = (LongLongHashMap) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            final long songID = pending.get(deezerID, MISSING);
+            if (songID != MISSING) {
+                return songID;
+            }
+        }
+        final long stamp = lock.readLock();
+        try {
+            return ids.get(deezerID, MISSING);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the saved song with the given deezerID. A song in the index is loaded by id, which the second-level
+     * cache can answer, and a song that isn't in a complete index isn't saved, so it's never looked for.
+     *
+     * @param deezerID DeezerID of the song
+     * @return Saved song, null if there is none
+     */
+    public Song findSong(Long deezerID) {
+        if (deezerID == null) {
+            return null;
+        }
+        final long songID = songID(deezerID);
+        if (songID != MISSING) {
+            final Song song = songRepository.findById(songID).orElse(null);
+            if (song != null && deezerID.equals(song.getDeezerID())) {
+                return song;
+            }
+            //Deleted by a query that didn't say so, so it's looked up like it wasn't known
+        } else if (complete) {
+            return null;
+        }
+        return songRepository.findByNaturalDeezerID(deezerID);
+    }
+
+    /**
+     * Checks if every saved song is in the index, so a song that isn't in it isn't saved
+     *
+     * @return {@code true} if the index is complete, {@code false} if songs not in it have to be looked up
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Adds the given songs, found by looking them up. They're only added if the index has room.
+     *
+     * @param songs Ids and deezerIDs of saved songs
+     */
+    public void putAll(Collection<SongIdentity> songs) {
+        final long stamp = lock.writeLock();
+        try {
+            for (SongIdentity song : songs) {
+                putLocked(song.getDeezerID(), song.getSongID());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the songs with the given deezerIDs, used when they're deleted by a single query. If a transaction
+     * is running, they're only removed once it commits.
+     *
+     * @param deezerIDs DeezerIDs of deleted songs
+     */
+    public void removeAll(Collection<Long> deezerIDs) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            removeNow(deezerIDs);
+            return;
+        }
+        final List<Long> deleted = new ArrayList<>(deezerIDs);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                removeNow(deleted);
+            }
+        });
+    }
+
+    /**
+     * Removes every song, used when every song is deleted from the database
+     */
+    public void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            ids.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of songs in the index
+     *
+     * @return Number of songs
+     */
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return ids.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the songs with the given deezerIDs right away
+     *
+     * @param deezerIDs DeezerIDs of deleted songs
+     */
+    private void removeNow(Collection<Long> deezerIDs) {
+        final long stamp = lock.writeLock();
+        try {
+            for (Long deezerID : deezerIDs) {
+                ids.remove(deezerID);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds the given songs once their inserts are committed
+     *
+     * @param inserted Ids of committed songs by deezerID
+     */
+    private void putCommitted(LongLongHashMap inserted) {
+        final long stamp = lock.writeLock();
+        try {
+            inserted.forEach(this::putLocked);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the songs inserted in the current transaction, keeping them with it until it completes.
+     * They're added to the index if it commits, and dropped otherwise.
+     *
+     * @return Ids of the transaction's inserted songs by deezerID
+     */
+    private LongLongHashMap pendingInserts() {
+        final LongLongHashMap bound = (LongLongHashMap) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+        final LongLongHashMap pending = new LongLongHashMap(16);
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(SongIdIndex.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(SongIdIndex.this, pending);
+            }
+
+            @Override
+            public void afterCommit() {
+                putCommitted(pending);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SongIdIndex.this);
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Adds a song, unless the index already has maxEntries songs, in which case it isn't complete anymore.
+     * Must be called holding the write lock.
+     *
+     * @param deezerID DeezerID of song
+     * @param songID   Song's id
+     */
+    private void putLocked(long deezerID, long songID) {
+        if (ids.size() >= maxEntries && !ids.containsKey(deezerID)) {
+            if (!full) {
+                log.warn("putLocked: Song id index is full at {} songs, songs not in it will be looked up", maxEntries);
+            }
+            full = true;
+            complete = false;
+            return;
+        }
+        ids.put(deezerID, songID);
+    }
+
+    /**
+     * Keeps songs with their transaction as they're inserted, so later writes in it know they're saved,
+     * and adds them to the index once it commits
+     */
+    private class SongInsertListener implements PostInsertEventListener {
+
+        /**
+         * Keeps the inserted song with its transaction, or adds it right away if there's no transaction
+         *
+         * @param event Insert that was run
+         */
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (!(event.getEntity() instanceof Song song) || song.getDeezerID() == null) {
+                return;
+            }
+            final long deezerID = song.getDeezerID();
+            final long songID = (Long) event.getId();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                pendingInserts().put(deezerID, songID);
+                return;
+            }
+            final long stamp = lock.writeLock();
+            try {
+                putLocked(deezerID, songID);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Inserts are handled as they're run, and their transaction adds them once it commits
+         *
+         * @param persister Persister of the entity inserted
+         * @return {@code false}
+         */
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes songs once their delete is committed
+     */
+    private class SongDeleteListener implements PostCommitDeleteEventListener {
+
+        /**
+         * Removes the deleted song
+         *
+         * @param event Delete that was committed
+         */
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Song song && song.getDeezerID() != null) {
+                removeNow(List.of(song.getDeezerID()));
+            }
+        }
+
+        /**
+         * Does nothing, a song whose delete failed is still saved
+         *
+         * @param event Delete that failed
+         */
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            //Nothing was removed
+        }
+
+        /**
+         * Only songs need their deletes handled
+         *
+         * @param persister Persister of the entity deleted
+         * @return {@code true} if it's a song, {@code false} otherwise
+         */
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return Song.class.equals(persister.getMappedClass());
+        }
+    }
+}
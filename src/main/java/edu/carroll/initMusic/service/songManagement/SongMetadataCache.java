@@ -0,0 +1,139 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keeps an in memory, least recently used cache of songs by deezerID. Cached search results only store
+ * deezerIDs, so this is how they are turned back into songs without loading every song row on every hit.
+ *
+ * <p>
+ * Songs are only ever added, never changed, once they're saved from a search, so cached songs don't go stale.
+ * They're kept as {@link SongResult}s, copied from songs loaded with their cover art and preview links,
+ * which are lazy otherwise, so no entities are held on to. Their artists and albums are the ones shared
+ * by {@link CatalogCache}, so a cache of many songs by a few artists holds each artist's name once.
+ * </p>
+ */
+@Component
+public class SongMetadataCache {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SongMetadataCache.class);
+
+    /** Song repository */
+    private final SongRepository songRepository;
+
+    /** Shares one artist and album between every cached song with them */
+    private final CatalogCache catalogCache;
+
+    /** Cached songs by deezerID, in access order so the least recently used song is removed first */
+    private final Map<Long, SongResult> songs;
+
+    /**
+     * Injects dependencies
+     *
+     * @param songRepository Song repository needed
+     * @param catalogCache   Catalog cache needed
+     * @param maxEntries     Maximum number of songs to keep in memory
+     */
+    public SongMetadataCache(SongRepository songRepository, CatalogCache catalogCache,
+                             @Value("${initmusic.search.song-cache.max-entries:10000}") int maxEntries) {
+        this.songRepository = songRepository;
+        this.catalogCache = catalogCache;
+        this.songs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SongResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the songs with the given deezerIDs, in the same order. Songs that aren't cached
+     * are all loaded in one query and then cached.
+     *
+     * @param deezerIDs DeezerIDs of songs to get
+     * @return Songs found, in the order of deezerIDs. Songs no longer in the database are left out.
+     */
+    public List<SongResult> resolve(long[] deezerIDs) {
+        final Map<Long, SongResult> found = new HashMap<>(deezerIDs.length * 2);
+        final List<Long> missing = new ArrayList<>();
+        synchronized (songs) {
+            for (long deezerID : deezerIDs) {
+                final SongResult song = songs.get(deezerID);
+                if (song != null) {
+                    found.put(deezerID, song);
+                } else {
+                    missing.add(deezerID);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            //Songs are shown once resolved, so their lazy media links are loaded with them
+            final List<Song> loaded = songRepository.findWithMediaByDeezerIDIn(missing);
+            synchronized (songs) {
+                for (Song song : loaded) {
+                    final SongResult result = new SongResult(song.getDeezerID(), song.getSongName(), song.getLength(),
+                            catalogCache.intern(song.getArtist()), catalogCache.intern(song.getAlbum()),
+                            song.getSongImg(), song.getSongPreview());
+                    found.put(result.getDeezerID(), result);
+                    songs.put(result.getDeezerID(), result);
+                }
+            }
+            if (loaded.size() < missing.size()) {
+                log.warn("resolve: {} of {} songs were not found in the database", missing.size() - loaded.size(), missing.size());
+            }
+        }
+
+        final List<SongResult> resolved = new ArrayList<>(deezerIDs.length);
+        for (long deezerID : deezerIDs) {
+            final SongResult song = found.get(deezerID);
+            if (song != null) {
+                resolved.add(song);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Caches the given songs, used right after they're saved so the next hit doesn't load them again
+     *
+     * @param songsToCache Songs to cache
+     */
+    public void putAll(Collection<SongResult> songsToCache) {
+        synchronized (songs) {
+            for (SongResult song : songsToCache) {
+                songs.put(song.getDeezerID(), song);
+            }
+        }
+    }
+
+    /**
+     * Removes the songs with the given deezerIDs, used when they are deleted from the database
+     *
+     * @param deezerIDs DeezerIDs of songs to remove
+     */
+    public void evictAll(Collection<Long> deezerIDs) {
+        synchronized (songs) {
+            for (Long deezerID : deezerIDs) {
+                songs.remove(deezerID);
+            }
+        }
+    }
+
+    /**
+     * Removes every cached song, used when songs are deleted from the database
+     */
+    public void clear() {
+        synchronized (songs) {
+            songs.clear();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import edu.carroll.initMusic.jpa.model.Album;
+import edu.carroll.initMusic.jpa.model.Artist;
+import edu.carroll.initMusic.jpa.model.Song;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * A song found by a search. Searches, their caches and the results kept in the session all use these
+ * instead of {@link Song} entities, which carry playlists and are hashed over most of their fields.
+ * Immutable, and identified by deezerID only, since Deezer never gives two songs the same one, so
+ * its hash is worked out once. Turned into a {@link Song} only when it's saved. Results for the same artist
+ * or album share one {@link Artist} or {@link Album}, see {@link CatalogCache}.
+ */
+public final class SongResult implements Serializable {
+    /** Serial version ID, results are kept in the session */
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    /** Deezer ID of song */
+    private final long deezerID;
+
+    /** Name of song */
+    private final String songName;
+
+    /** Length of song in seconds */
+    private final int length;
+
+    /** Artist who produced the song */
+    private final Artist artist;
+
+    /** Album this song is in */
+    private final Album album;
+
+    /** Link to songs cover art */
+    private final String songImg;
+
+    /** Link to a preview of song, approx 30 sec long */
+    private final String songPreview;
+
+    /** Hash of the deezerID, worked out once since results are hashed in sets */
+    private final int hash;
+
+    /**
+     * Creates a song found by a search, with its own artist and album
+     *
+     * @param deezerID       Deezer ID of song
+     * @param songName       Name of song
+     * @param length         Length of song in seconds
+     * @param artistName     Name of artist
+     * @param artistDeezerID Deezer ID of artist
+     * @param albumName      Name of album
+     * @param albumDeezerID  Deezer ID of album
+     * @param songImg        Link to cover art, can be null
+     * @param songPreview    Link to preview, can be null
+     */
+    public SongResult(long deezerID, String songName, int length, String artistName, long artistDeezerID,
+                      String albumName, long albumDeezerID, String songImg, String songPreview) {
+        this(deezerID, songName, length, new Artist(artistDeezerID, artistName), new Album(albumDeezerID, albumName),
+                songImg, songPreview);
+    }
+
+    /**
+     * Creates a song found by a search
+     *
+     * @param deezerID    Deezer ID of song
+     * @param songName    Name of song
+     * @param length      Length of song in seconds
+     * @param artist      Artist who produced the song, usually shared with other results
+     * @param album       Album song is in, usually shared with other results
+     * @param songImg     Link to cover art, can be null
+     * @param songPreview Link to preview, can be null
+     */
+    public SongResult(long deezerID, String songName, int length, Artist artist, Album album,
+                      String songImg, String songPreview) {
+        this.deezerID = deezerID;
+        this.songName = songName;
+        this.length = length;
+        this.artist = artist;
+        this.album = album;
+        this.songImg = songImg;
+        this.songPreview = songPreview;
+        this.hash = Long.hashCode(deezerID);
+    }
+
+    /**
+     * Copies a saved song, with its own copy of its artist and album. Its media links are read, so it should
+     * have been loaded with them.
+     *
+     * @param song Song to copy
+     * @return Result with the song's fields
+     */
+    public static SongResult from(Song song) {
+        return new SongResult(song.getDeezerID(), song.getSongName(), song.getLength(), song.getArtistName(),
+                song.getArtistDeezerID(), song.getAlbumName(), song.getAlbumDeezerID(), song.getSongImg(), song.getSongPreview());
+    }
+
+    /**
+     * Creates a new, unsaved song with the same fields, used when the result is saved. Its artist and album
+     * have to be saved first, see {@link CatalogCache#saveArtistsAndAlbums}.
+     *
+     * @return New song
+     */
+    public Song toSong() {
+        final Song song = new Song(deezerID, songName, length, artist, album);
+        song.setSongImg(songImg);
+        song.setSongPreview(songPreview);
+        return song;
+    }
+
+    /**
+     * Gets the songs deezerID
+     *
+     * @return Song's deezerID
+     */
+    public long getDeezerID() {
+        return deezerID;
+    }
+
+    /**
+     * Gets name of song
+     *
+     * @return Name of song
+     */
+    public String getSongName() {
+        return songName;
+    }
+
+    /**
+     * Gets length of song
+     *
+     * @return Length of song in seconds
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets length of song formatted as minutes and seconds, like {@code 3:07}
+     *
+     * @return Formatted length of song
+     */
+    public String getFormattedLength() {
+        final int seconds = length % 60;
+        return (length / 60) + (seconds < 10 ? ":0" : ":") + seconds;
+    }
+
+    /**
+     * Gets artist who produced the song
+     *
+     * @return Artist of song
+     */
+    public Artist getArtist() {
+        return artist;
+    }
+
+    /**
+     * Gets album song is in
+     *
+     * @return Album of song
+     */
+    public Album getAlbum() {
+        return album;
+    }
+
+    /**
+     * Gets name of artist
+     *
+     * @return Name of artist
+     */
+    public String getArtistName() {
+        return artist.getName();
+    }
+
+    /**
+     * Gets artist's deezerID
+     *
+     * @return Artist's deezerID
+     */
+    public long getArtistDeezerID() {
+        return artist.getDeezerID();
+    }
+
+    /**
+     * Gets name of album
+     *
+     * @return Name of album
+     */
+    public String getAlbumName() {
+        return album.getName();
+    }
+
+    /**
+     * Gets album's deezerID
+     *
+     * @return Album's deezerID
+     */
+    public long getAlbumDeezerID() {
+        return album.getDeezerID();
+    }
+
+    /**
+     * Gets the cover art for the song
+     *
+     * @return The songs cover art url
+     */
+    public String getSongImg() {
+        return songImg;
+    }
+
+    /**
+     * Gets the url for the songs preview
+     *
+     * @return The url for the songs preview
+     */
+    public String getSongPreview() {
+        return songPreview;
+    }
+
+    /**
+     * Checks if the given object is a result for the same song, by deezerID
+     *
+     * @param o Object to compare
+     * @return {@code true} if it's a result with the same deezerID, {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SongResult other)) return false;
+        return deezerID == other.deezerID;
+    }
+
+    /**
+     * Gets the hash of the deezerID, worked out when the result was created
+     *
+     * @return Hash code
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Converts result to string
+     *
+     * @return String version of result
+     */
+    @Override
+    public String toString() {
+        return "SongResult{" + "songName='" + songName + '\'' +
+                ", deezerID=" + deezerID +
+                ", artistName='" + artist.getName() + '\'' +
+                ", albumName='" + album.getName() + '\'' +
+                ", length=" + length +
+                '}';
+    }
+}
@@ -1,15 +1,12 @@
 package edu.carroll.initMusic.service.songManagement;
 
-import edu.carroll.initMusic.jpa.model.Song;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.similarity.JaroWinklerDistance;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.net.URI;
@@ -19,9 +16,8 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Implementation of the SongSearchService Interface that uses the Deezer API
@@ -40,35 +36,42 @@ public class SongSearchDeezerImpl implements SongSearchService {
     /** Logger object used for logging */
     private static final Logger log = LoggerFactory.getLogger(SongSearchDeezerImpl.class);
 
+    /** Shares one artist and album between every result with them */
+    private final CatalogCache catalogCache;
+
     /**
-     * JaroWinklerDistance object for calculating differences between strings. Used
-     * when sorting songs so the songs are sorted by closest match to given parameters.
+     * Injects dependencies
+     *
+     * @param catalogCache Catalog cache needed
      */
-    private final JaroWinklerDistance jaroWinkler = new JaroWinklerDistance();
+    public SongSearchDeezerImpl(CatalogCache catalogCache) {
+        this.catalogCache = catalogCache;
+    }
 
     /**
      * Searches for songs related to given query. Using the Deezer API, this
      * searches for anything related to the query on Deezer. The API returns a
-     * HttpResponse, and this function takes the body of it, and parses the data into song objects,
+     * HttpResponse, and this function takes the body of it, and parses the data into song results,
      * and returns a set of songs found related to the query. The method takes two parameters, the name
      * of the song and the name of the artist. At least one of them needs to be a non-empty string for the
      * search to be executed.
      *
      * <p>
-     * If songs are found related to the given params, they are put into a tree set, which is a sorted
-     * set. The set is sorted by the JaroWinklerDistance the song name or artist name is from the target song name or artist name.
-     * If the distance is the same, it compares the Deezer ID of each song, which is always unique.
+     * Songs are returned in the order Deezer found them. They're ranked once, by
+     * {@link SongServiceImpl#searchForSongs(String, String)}, instead of on every comparison in a sorted set.
+     * </p>
+     *
+     * <p>
+     * Only calls the API and doesn't touch the database, so it must never run inside a transaction,
+     * or a pooled connection would be held for as long as Deezer takes to answer.
      * </p>
      *
      * @param songSearch   Name of song to search for (Target song name)
      * @param artistSearch Name of artist to search for (Target artist name)
-     * @return Set of songs related to query, sorted either by song name or artist name. If a song name
-     * was passed, sorted by song name. If just an artist name was passed, sorted by artist
-     * @see TreeSet
-     * @see JaroWinklerDistance
+     * @return Set of songs related to query, in the order Deezer found them, not saved. Null if Deezer couldn't be
+     * reached or didn't answer with results, which isn't the same as finding no songs.
      */
-    @Transactional
-    public Set<Song> externalSearchForSongs(String songSearch, String artistSearch) {
+    public Set<SongResult> externalSearchForSongs(String songSearch, String artistSearch) {
         //Make sure there is text in query
         if ((!isValidQuery(songSearch) && !isValidQuery(artistSearch)) && (!StringUtils.isAlphanumeric(songSearch) || !StringUtils.isAlphanumeric(artistSearch))) {
             log.warn("externalSearchForSongs: Invalid query: Song:{} | Artist:{}", songSearch, artistSearch);
@@ -129,47 +132,15 @@ public class SongSearchDeezerImpl implements SongSearchService {
 
         final HttpResponse<String> responseNoStrict;
 
-        final SortedSet<Song> songsFound;
-
-        //If at least a song name was given, sort by song name
-        if (!songSearch.isEmpty()) {
-            /*
-            Creates a new tree set, which is a sorted set, and make a custom comparator that
-            compares the song names and how different they are from the target name (songSearch)
-            If they are the same, they are compared by deezerID, which should always be different
-             */
-            songsFound = new TreeSet<>((s1, s2) -> {
-                int distanceComparison = Double.compare(jaroWinkler.apply(s1.getSongName(), songSearch), jaroWinkler.apply(s2.getSongName(), songSearch));
-                if (distanceComparison != 0) {
-                    return distanceComparison;
-                }
-                // If distances are the same, compare by deezer id (always unique)
-                return s1.getDeezerID().compareTo(s2.getDeezerID());
-            });
-            log.info("externalSearchForSongs: Sorting songs for query Song: {} | Artist: {} by Song name", songSearch, artistSearch);
-            //If just an artist name was given, sort by artist name
-        } else if (!artistSearch.isEmpty()) {
-            /*
-            Creates a new tree set, which is a sorted set, and make a custom comparator that
-            compares the artist names and how different they are from the target name (artistSearch)
-            If they are the same, they are compared by deezerID, which should always be different
-             */
-            songsFound = new TreeSet<>((s1, s2) -> {
-                int distanceComparison = Double.compare(jaroWinkler.apply(s1.getArtistName(), artistSearch), jaroWinkler.apply(s2.getArtistName(), artistSearch));
-                if (distanceComparison != 0) {
-                    return distanceComparison;
-                }
-                // If distances are the same, compare by deezer id (always unique)
-                return s1.getDeezerID().compareTo(s2.getDeezerID());
-            });
-            log.info("externalSearchForSongs: Sorting songs for query Song: {} | Artist: {} by Artist name", songSearch, artistSearch);
-            //If somehow no names were given (Should never happen here, but just in case) return
-            //an empty set
-        } else {
+        //Nothing to search for (Should never happen here, but just in case) return an empty set
+        if (songSearch.isEmpty() && artistSearch.isEmpty()) {
             log.error("externalSearchForSongs: No query was given to me and somehow that got passed the initial checks :( I don't work without a query...");
             return new HashSet<>();
         }
 
+        //Results are kept in the order Deezer gave them, a song found by both requests is only kept once
+        final Set<SongResult> songsFound = new LinkedHashSet<>();
+
         try {
             // Send the HTTP request and get the response
             response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
@@ -185,11 +156,11 @@ public class SongSearchDeezerImpl implements SongSearchService {
                 //Add the secondary response data
                 dataArray.putAll(jsonResponseNoStrict.getJSONArray("data"));
 
-                //Take each object in the data array and convert it to a song object
+                //Take each object in the data array and convert it to a song result
                 for (int i = 0; i < dataArray.length(); i++) {
                     JSONObject track = dataArray.getJSONObject(i);
 
-                    final Long id = track.getLong("id");
+                    final long id = track.getLong("id");
                     final String title = track.getString("title");
                     final int duration = track.getInt("duration");
 
@@ -202,19 +173,25 @@ public class SongSearchDeezerImpl implements SongSearchService {
                     final String songImg = track.getJSONObject("album").getString("cover");
                     final String songPreview = track.getString("preview");
 
-                    final Song newSong = new Song(id, title, duration, artistName, artistID, albumName, albumID);
-                    newSong.setSongImg(songImg);
-                    newSong.setSongPreview(songPreview);
-                    songsFound.add(newSong);
+                    //Results by the same artist or in the same album share one copy of it, across searches too
+                    songsFound.add(new SongResult(id, title, duration, catalogCache.artist(artistID, artistName),
+                            catalogCache.album(albumID, albumName), songImg, songPreview));
                 }
             } else {
-                log.error("externalSearchForSongs: Error response from Deezer API: Status Code {}", response.statusCode());
+                log.error("externalSearchForSongs: Error response from Deezer API: Status Code {} | {}", response.statusCode(), responseNoStrict.statusCode());
+                return null;
             }
 
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             log.error("externalSearchForSongs: Network error occurred during search with query {}", query, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("externalSearchForSongs: Interrupted during search with query {}", query, e);
+            return null;
         } catch (JSONException e) {
             log.error("externalSearchForSongs: JSON parsing error occurred with query {}", query, e);
+            return null;
         }
 
         log.info("externalSearchForSongs: Found {} songs for query '{}'", songsFound.size(), query);
@@ -1,7 +1,5 @@
 package edu.carroll.initMusic.service.songManagement;
 
-import edu.carroll.initMusic.jpa.model.Song;
-
 import java.util.Set;
 
 /**
@@ -22,9 +20,9 @@ public interface SongSearchService {
      *
      * @param songName   Name of song to search for
      * @param artistName Name of artist to search for
-     * @return Set of songs related to query
+     * @return Set of songs related to query, not saved, null if the search failed
      */
-    Set<Song> externalSearchForSongs(String songName, String artistName);
+    Set<SongResult> externalSearchForSongs(String songName, String artistName);
 
     /**
      * Gets the link to the preview of the song with the given id. Deezer makes some links secure, and makes
@@ -1,7 +1,5 @@
 package edu.carroll.initMusic.service.songManagement;
 
-import edu.carroll.initMusic.jpa.model.Song;
-
 import java.util.Set;
 
 /**
@@ -13,9 +11,9 @@ public interface SongService {
      *
      * @param songName   Name of song to look for
      * @param artistName Name of artist to look for
-     * @return Set of songs related to the query, empty set if no songs found
+     * @return Set of songs related to the query, empty set if no songs found, null if the search failed
      */
-    Set<Song> searchForSongs(String songName, String artistName);
+    Set<SongResult> searchForSongs(String songName, String artistName);
 
     /**
      * Checks if the given query is valid according to given standards
@@ -32,7 +30,7 @@ public interface SongService {
     long getRepoSize();
 
     /**
-     * Clears all songs from the repository.
+     * Clears all songs, and their artists and albums, from the repository.
      * This is primarily useful for testing or resetting data.
      */
     void clearRepo();
@@ -4,12 +4,17 @@ import edu.carroll.initMusic.MethodOutcome;
 import edu.carroll.initMusic.jpa.model.QueryCache;
 import edu.carroll.initMusic.jpa.model.Song;
 import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.jpa.repo.SongIdentity;
 import edu.carroll.initMusic.jpa.repo.SongRepository;
 import org.apache.commons.text.similarity.JaroWinklerDistance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -24,6 +29,12 @@ public class SongServiceImpl implements SongService {
     /** Minimum length a query can be */
     private static final int MIN_QUERY_LENGTH = 3;
 
+    /**
+     * How old a song's last cached time can get before saving a cache with it updates it. Keeps refreshes
+     * from writing to every song they found, at the cost of the time being up to this far behind.
+     */
+    static final Duration LAST_CACHED_INTERVAL = Duration.ofDays(1);
+
     /** Logger object used for logging */
     private static final Logger log = LoggerFactory.getLogger(SongServiceImpl.class);
     /** QueryCache repository */
@@ -32,48 +43,50 @@ public class SongServiceImpl implements SongService {
     private final SongRepository songRepository;
     /** Service used to search externally for songs */
     private final SongSearchService songSearchService;
+    /** Counts cache hits and misses for each query shape */
+    private final QueryCacheMetrics queryCacheMetrics;
+    /** Searches recently found to have no results */
+    private final NegativeQueryCache negativeQueryCache;
+    /** Songs by deezerID, used to turn cached results back into songs */
+    private final SongMetadataCache songMetadataCache;
+    /** Decides how long each cache stays fresh */
+    private final QueryCacheTtlPolicy queryCacheTtlPolicy;
+    /** Recently cached searches, used to answer searches a typo or two away from them */
+    private final NearQueryCache nearQueryCache;
+    /** Fewest songs that have to be left after filtering a broader search's cache for it to answer a search */
+    private final int subsumptionMinResults;
+    /** Saves new caches and their songs behind the searches that made them */
+    private final QueryCacheWriter queryCacheWriter;
+    /** Saves the artists and albums of new songs */
+    private final CatalogCache catalogCache;
+    /** Ids of saved songs by deezerID, used to know which songs are saved without looking them up */
+    private final SongIdIndex songIdIndex;
     /**
      * JaroWinklerDistance object for calculating differences between strings. Used
-     * when sorting songs returned from the database so they maintain a order.
+     * to score songs when a cache is created, so the cache can keep them in ranked order.
      */
     private final JaroWinklerDistance jaroWinkler = new JaroWinklerDistance();
 
     /**
      * Constructor
      */
-    public SongServiceImpl(QueryCacheRepository queryCacheRepository, SongRepository songRepository, SongSearchService songSearchService) {
+    public SongServiceImpl(QueryCacheRepository queryCacheRepository, SongRepository songRepository, SongSearchService songSearchService,
+                           QueryCacheMetrics queryCacheMetrics, NegativeQueryCache negativeQueryCache, SongMetadataCache songMetadataCache,
+                           QueryCacheTtlPolicy queryCacheTtlPolicy, NearQueryCache nearQueryCache, QueryCacheWriter queryCacheWriter,
+                           CatalogCache catalogCache, SongIdIndex songIdIndex,
+                           @Value("${initmusic.search.subsumption.min-results:3}") int subsumptionMinResults) {
         this.queryCacheRepository = queryCacheRepository;
         this.songRepository = songRepository;
         this.songSearchService = songSearchService;
-    }
-
-    /**
-     * Formats the given song name and artist name into a format like {@code Song:{songName}+Artist:{artistName}}.
-     * If there is only a songName, it will look like {@code Song:{SongName}}. If there is only a artistName, it will
-     * look like {@code Artist:{artistName}}
-     *
-     * @param songName   Song name
-     * @param artistName Artist name
-     * @return Formatted String
-     */
-    public static String getQueryString(String songName, String artistName) {
-        String query = "";
-        songName = songName.trim();
-        artistName = artistName.trim();
-        /*
-        'Song' or 'Artist' is added before the strings so if a user searches for a song named 'song'
-        it'll have a different cache than if a user searched for a artist named 'song'.
-         */
-        if (!songName.isEmpty() && !artistName.isEmpty()) {
-            query = "Song:" + songName + "+" + "Artist:" + artistName;
-            //Add song in front of song name
-        } else if (!songName.isEmpty()) {
-            query = "Song:" + songName;
-            //Add artist in front of artist name
-        } else if (!artistName.isEmpty()) {
-            query = "Artist:" + artistName;
-        }
-        return query;
+        this.queryCacheMetrics = queryCacheMetrics;
+        this.negativeQueryCache = negativeQueryCache;
+        this.songMetadataCache = songMetadataCache;
+        this.queryCacheTtlPolicy = queryCacheTtlPolicy;
+        this.nearQueryCache = nearQueryCache;
+        this.subsumptionMinResults = subsumptionMinResults;
+        this.queryCacheWriter = queryCacheWriter;
+        this.catalogCache = catalogCache;
+        this.songIdIndex = songIdIndex;
     }
 
     /**
@@ -82,182 +95,436 @@ public class SongServiceImpl implements SongService {
      * to search externally for songs using an API.
      *
      * <p>
-     * If a cache is found, its set of songs gets converted to a tree set so it can be sorted. The set is sorted by the JaroWinklerDistance the song name or artist name is from the target song name or artist name.
-     * If the distance is the same, it compares the Deezer ID of each song, which is always unique. Same sorting
-     * logic as in {@link SongSearchDeezerImpl#externalSearchForSongs(String, String)}.
+     * Caches are keyed by {@link QueryKey}, so searches that only differ by case or whitespace share a cache,
+     * and combined or long searches are cached the same as short ones. A combined search without a cache of its
+     * own can be answered by filtering the cache of the song only or artist only search, and any search without one can be
+     * answered by the cache of a search a typo or two away, see {@link NearQueryCache}. Searches that returned no songs
+     * are negatively cached, in memory and in the database, for a shorter time so they aren't searched externally again.
+     * A search that failed, like when Deezer is down, isn't cached at all, so it's searched again next time.
+     * </p>
+     *
+     * <p>
+     * Songs are ranked once, when the cache is created, by the JaroWinklerDistance the song name or artist name is from
+     * the target song name or artist name. If the distance is the same, it compares the Deezer ID of each song, which is
+     * always unique. The cache keeps the songs' deezerIDs in that order, so a cache hit is returned as is without being
+     * sorted again.
+     * </p>
+     *
+     * <p>
+     * Songs are passed around as {@link SongResult}s, and only turned into {@link Song} entities when they're saved.
+     * </p>
+     *
+     * <p>
+     * Nothing here runs in a transaction until the external search is over. Cache lookups use short reads,
+     * so a slow external search never holds one of the pool's connections. The new songs and cache are then handed
+     * to the {@link QueryCacheWriter}, which saves them in the background, batched with other searches' caches,
+     * and the songs are returned right away. The same search made again before its cache is saved is searched
+     * externally again, and its write replaces the waiting one.
      * </p>
      *
      * @param songName   Name of song to look for
      * @param artistName Name of artist to look for
-     * @return Set of songs related to the query, empty set if no songs were found
+     * @return Set of songs related to the query in ranked order, empty set if no songs were found, null if the
+     * external search failed
      * @see SongSearchService
      */
-    public Set<Song> searchForSongs(String songName, String artistName) {
+    public Set<SongResult> searchForSongs(String songName, String artistName) {
         if (!isValidQuery(songName) && !isValidQuery(artistName)) {
             return new HashSet<>();
         }
 
-        //Create query string, used for logging and caching queries
-        final String query = getQueryString(songName, artistName);
-        log.info("searchForSongs: User searched for query: {}", query);
+        //Create query key, used for logging and caching queries
+        final QueryKey queryKey = QueryKey.of(songName, artistName);
+        if (queryKey == null) {
+            return new HashSet<>();
+        }
+        log.info("searchForSongs: User searched for query: {}", queryKey.canonical());
+
+        //Searches recently found to have no results can be answered without the database
+        if (negativeQueryCache.contains(queryKey.hash())) {
+            log.info("searchForSongs: Query '{}' is negatively cached in memory", queryKey.canonical());
+            queryCacheMetrics.recordNegativeHit(queryKey.shape());
+            return new HashSet<>();
+        }
+
+        //Check for local cache, its songs are already in ranked order
+        final List<SongResult> cachedSongs = getLocalCache(queryKey);
+        if (cachedSongs != null) {
+            return new LinkedHashSet<>(cachedSongs);
+        }
 
-        //Check for local cache
-        Set<Song> songsFound = getLocalCache(query);
-        //if there was no cache found, search externally
-        if (songsFound == null || songsFound.isEmpty()) {
-            songsFound = songSearchService.externalSearchForSongs(songName, artistName);
-            final MethodOutcome cacheCreated = createCache(query, songsFound);
+        //if there was no cache found, search externally, outside any transaction so no connection is held meanwhile
+        final Set<SongResult> songsFound = songSearchService.externalSearchForSongs(songName, artistName);
+        if (songsFound == null) {
+            //Nothing is cached, the query might have results once the search works again
+            log.error("searchForSongs: External search for query '{}' failed", queryKey.canonical());
+            return null;
+        }
+        final List<ScoredSong> rankedSongs = rankSongs(songsFound, songName, artistName);
+        queryCacheWriter.submit(queryKey.hash(), () -> {
+            final MethodOutcome cacheCreated = createCache(queryKey, rankedSongs);
             if (cacheCreated.failed()) {
-                log.error("searchForSongs: An error occurred when trying to create cache with query '{}' | {}", query, cacheCreated.getMessage());
-            }
-            return songsFound;
-        } else {
-            //If at least a song name was given, sort by song name
-            if (!songName.isEmpty()) {
-                /*
-                Creates a new tree set, which is a sorted set, and make a custom comparator that
-                compares the song names and how different they are from the target name (songSearch)
-                If they are the same, they are compared by deezerID, which should always be different
-                 */
-                final Set<Song> sortedSongsFound = new TreeSet<>((s1, s2) -> {
-                    int distanceComparison = Double.compare(jaroWinkler.apply(s1.getSongName(), songName), jaroWinkler.apply(s2.getSongName(), songName));
-                    if (distanceComparison != 0) {
-                        return distanceComparison;
-                    }
-                    // If distances are the same, compare by song name
-                    return s1.getDeezerID().compareTo(s2.getDeezerID());
-                });
-                sortedSongsFound.addAll(songsFound);
-                return sortedSongsFound;
-                //If a artist name was given, sort by artist name
-            } else if (!artistName.isEmpty()) {
-                /*
-                Creates a new tree set, which is a sorted set, and make a custom comparator that
-                compares the artist names and how different they are from the target name (artistSearch)
-                If they are the same, they are compared by deezerID, which should always be different
-                 */
-                final Set<Song> sortedSongsFound = new TreeSet<>((s1, s2) -> {
-                    int distanceComparison = Double.compare(jaroWinkler.apply(s1.getArtistName(), artistName), jaroWinkler.apply(s2.getArtistName(), artistName));
-                    if (distanceComparison != 0) {
-                        return distanceComparison;
-                    }
-                    // If distances are the same, compare by deezer id (always unique)
-                    return s1.getDeezerID().compareTo(s2.getDeezerID());
-                });
-                sortedSongsFound.addAll(songsFound);
-                return sortedSongsFound;
-                //If both queries are empty, return a empty set
-            } else {
-                return new HashSet<>();
+                log.error("searchForSongs: An error occurred when trying to create cache with query '{}' | {}", queryKey.canonical(), cacheCreated.getMessage());
             }
+        });
+
+        final Set<SongResult> rankedSongsFound = new LinkedHashSet<>(rankedSongs.size() * 2);
+        for (ScoredSong scoredSong : rankedSongs) {
+            rankedSongsFound.add(scoredSong.song());
         }
+        return rankedSongsFound;
     }
 
     /**
-     * Gets the local cache with the given query, if there is one
+     * Scores and sorts the given songs. If a song name was given, songs are scored by how different their song name
+     * is from it, otherwise by how different their artist name is from the artist name. Ties are broken by deezerID,
+     * which should always be different.
      *
-     * <p>
-     * For this to return the correct cache, the passed query needs to be in the same format the
-     * {@link #getQueryString(String, String)} would put it in.
-     * </p>
+     * @param songs      Songs to rank
+     * @param songName   Name of song searched for
+     * @param artistName Name of artist searched for
+     * @return Songs with their scores, best match (lowest distance) first
+     */
+    private List<ScoredSong> rankSongs(Collection<SongResult> songs, String songName, String artistName) {
+        final boolean bySongName = songName != null && !songName.isEmpty();
+        final String target = bySongName ? songName : artistName;
+
+        //Each song is scored once, instead of in every comparison like a TreeSet comparator would
+        final List<ScoredSong> rankedSongs = new ArrayList<>(songs.size());
+        for (SongResult song : songs) {
+            final String name = bySongName ? song.getSongName() : song.getArtistName();
+            rankedSongs.add(new ScoredSong(song, jaroWinkler.apply(name, target)));
+        }
+        rankedSongs.sort(Comparator.comparingDouble(ScoredSong::score)
+                .thenComparingLong(scoredSong -> scoredSong.song().getDeezerID()));
+        return rankedSongs;
+    }
+
+    /**
+     * Gets the local cache with the given key, if there is one, and records whether it was a hit or miss
      *
-     * @param query Query to search for
-     * @return Set of songs related to given query, null if cache wasn't found
+     * @param queryKey Key of the query to search for
+     * @return List of songs related to given query in ranked order, empty list if the query is negatively cached,
+     * null if cache wasn't found, was expired or is an older cache that had no songs
      * @see QueryCache
      */
-    public Set<Song> getLocalCache(String query) {
-        if (query == null || query.trim().isEmpty() || query.length() < MIN_QUERY_LENGTH || query.length() > MAX_QUERY_LENGTH) {
+    public List<SongResult> getLocalCache(QueryKey queryKey) {
+        if (queryKey == null) {
             return null;
         }
-        query = query.strip().toLowerCase();
         //Search for cache
-        final List<QueryCache> queryCacheList = queryCacheRepository.findQueryCacheByQueryIgnoreCase(query);
+        final List<QueryCache> queryCacheList = queryCacheRepository.findByQueryHash(queryKey.hash());
         if (queryCacheList != null && !queryCacheList.isEmpty()) {
-            log.info("getLocalCache: Found query cache for {} with {} songs found", query, queryCacheList.getFirst().getResults().size());
+            final QueryCache foundCache = queryCacheList.getFirst();
+            log.info("getLocalCache: Found query cache for {} with {} songs found", queryKey.canonical(), foundCache.getResultCount());
+
+            //Negative caches have their own shorter expiration, and are remembered in memory until then
+            if (foundCache.isNegative()) {
+                if (negativeQueryCache.isExpired(foundCache.getLastUpdated())) {
+                    log.info("getLocalCache: Negative cache for query '{}' is expired", foundCache.getQuery());
+                    queryCacheMetrics.recordExpired(queryKey.shape());
+                    return null;
+                }
+                negativeQueryCache.put(queryKey.hash(), foundCache.getLastUpdated());
+                queryCacheMetrics.recordNegativeHit(queryKey.shape());
+                return new ArrayList<>();
+            }
 
-            //If the cache is expired (has been more then a week since last queried, return null
+            //If the cache is expired (its time to live has passed since it was last updated), return null
             //So the cache data is rewritten/updated
-            final QueryCache foundCache = queryCacheList.getFirst();
             if (foundCache.isExpired()) {
-                log.info("getLocalCache: Query cache for query '{}' is expired", queryCacheList.getFirst().getQuery());
+                log.info("getLocalCache: Query cache for query '{}' is expired", foundCache.getQuery());
+                queryCacheMetrics.recordExpired(queryKey.shape());
+                return null;
+            }
+
+            //A cache without songs saved before negative caches existed gets searched for again, so it counts as a miss
+            if (foundCache.getResultCount() == 0) {
+                queryCacheMetrics.recordMiss(queryKey.shape());
                 return null;
             }
 
-            return foundCache.getResults();
+            //Turn the cached deezerIDs back into songs, if some were deleted search again
+            final List<SongResult> cachedSongs = songMetadataCache.resolve(foundCache.getResultIds());
+            if (cachedSongs.size() < foundCache.getResultCount()) {
+                log.info("getLocalCache: Some songs cached for query '{}' no longer exist", foundCache.getQuery());
+                queryCacheMetrics.recordMiss(queryKey.shape());
+                return null;
+            }
+
+            queryCacheMetrics.recordHit(queryKey.shape());
+            queryCacheTtlPolicy.recordHit(queryKey.hash());
+            nearQueryCache.add(queryKey);
+            return cachedSongs;
+        }
+
+        //No cache of its own, but a broader search's cache could cover it
+        final List<SongResult> subsumedSongs = getSubsumingCache(queryKey);
+        if (subsumedSongs != null) {
+            queryCacheMetrics.recordSubsumedHit(queryKey.shape());
+            return subsumedSongs;
+        }
+
+        //Or the cache of a search only a typo or two away
+        final QueryKey nearKey = nearQueryCache.findNear(queryKey);
+        if (nearKey != null) {
+            final List<SongResult> nearSongs = getFreshSongs(nearKey);
+            if (nearSongs != null) {
+                log.info("getLocalCache: Answered query '{}' with {} songs from cache for '{}'", queryKey.canonical(), nearSongs.size(), nearKey.canonical());
+                queryCacheMetrics.recordNearHit(queryKey.shape());
+                queryCacheTtlPolicy.recordHit(nearKey.hash());
+                return nearSongs;
+            }
         }
 
+        queryCacheMetrics.recordMiss(queryKey.shape());
         return null;
     }
 
     /**
-     * Creates a new QueryCache with the given query and songs
+     * Answers a song and artist search from the fresh cache of the song only search, filtered by artist name,
+     * or else the artist only search, filtered by song name. The broader search is only used if at least
+     * {@link #subsumptionMinResults} songs are left, since it could be missing songs the narrower search would find.
      *
-     * @param query Query that was searched for
-     * @param songs Songs found related to query
+     * @param queryKey Key of the song and artist search
+     * @return Filtered songs in ranked order, null if no broader cache covers the search
+     * @see QueryKey#broaderKeys()
+     */
+    private List<SongResult> getSubsumingCache(QueryKey queryKey) {
+        for (QueryKey broaderKey : queryKey.broaderKeys()) {
+            final List<SongResult> broaderSongs = getFreshSongs(broaderKey);
+            if (broaderSongs == null) {
+                continue;
+            }
+
+            //Filter by whichever name the broader search didn't use
+            final boolean byArtist = broaderKey.shape() == QueryShape.SONG;
+            final String target = byArtist ? queryKey.artistName() : queryKey.songName();
+            final List<SongResult> filtered = new ArrayList<>();
+            for (SongResult song : broaderSongs) {
+                final String name = byArtist ? song.getArtistName() : song.getSongName();
+                if (QueryKey.normalize(name).contains(target)) {
+                    filtered.add(song);
+                }
+            }
+
+            if (filtered.size() >= subsumptionMinResults) {
+                log.info("getSubsumingCache: Answered query '{}' with {} songs from cache for '{}'", queryKey.canonical(), filtered.size(), broaderKey.canonical());
+                queryCacheTtlPolicy.recordHit(broaderKey.hash());
+                //Artist search results are ranked by artist name, so rank them again by song name
+                final List<SongResult> rankedSongs = new ArrayList<>(filtered.size());
+                for (ScoredSong scoredSong : rankSongs(filtered, queryKey.songName(), queryKey.artistName())) {
+                    rankedSongs.add(scoredSong.song());
+                }
+                return rankedSongs;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the songs of the cache with the given key, without recording anything, if it's fresh and has songs
+     *
+     * @param queryKey Key of the cache to get
+     * @return Songs in ranked order, null if there is no fresh cache with songs or some of them no longer exist
+     */
+    private List<SongResult> getFreshSongs(QueryKey queryKey) {
+        final List<QueryCache> queryCacheList = queryCacheRepository.findByQueryHash(queryKey.hash());
+        if (queryCacheList.isEmpty()) {
+            return null;
+        }
+        final QueryCache cache = queryCacheList.getFirst();
+        if (cache.isNegative() || cache.isExpired() || cache.getResultCount() == 0) {
+            return null;
+        }
+        final List<SongResult> songs = songMetadataCache.resolve(cache.getResultIds());
+        return songs.size() < cache.getResultCount() ? null : songs;
+    }
+
+    /**
+     * Creates a new QueryCache with the given query key and ranked songs. The songs and their scores
+     * are saved in the given order. If there are no songs, the cache is saved as a negative cache
+     * and also remembered in memory. When an existing cache is refreshed, how much its songs changed
+     * is recorded, its results are only rewritten if they changed, and its time to live is adapted to it.
+     * The in memory caches are only told about the new cache and songs once the transaction saving them commits,
+     * so a batch that's rolled back and retried leaves nothing behind in them.
+     *
+     * @param queryKey    Key of the query that was searched for
+     * @param rankedSongs Songs found related to query with their scores, best match first
      * @return A MethodOutcome enum, which represents the outcome of the method
      * @see QueryCache
      */
-    public MethodOutcome createCache(String query, Set<Song> songs) {
-        if (query == null || query.isEmpty() || songs == null) {
+    public MethodOutcome createCache(QueryKey queryKey, List<ScoredSong> rankedSongs) {
+        if (queryKey == null || rankedSongs == null) {
             return MethodOutcome.QUERY_EMPTY;
         }
 
         final QueryCache newCache;
+        //Results cached before this refresh, null if the cache is new
+        final long[] oldResultIds;
 
         //Check if there is already a cache with the given query, if so, rewrite its data
-        final List<QueryCache> queryCacheList = queryCacheRepository.findQueryCacheByQueryIgnoreCase(query);
+        final List<QueryCache> queryCacheList = queryCacheRepository.findByQueryHash(queryKey.hash());
         if (queryCacheList.size() == 1) {
             //cache found
-            log.info("createCache: Editing found query cache for {} with {} songs found", query, queryCacheList.getFirst().getResults().size());
+            log.info("createCache: Editing found query cache for {} with {} songs found", queryKey.canonical(), queryCacheList.getFirst().getResultCount());
             newCache = queryCacheList.getFirst();
+            oldResultIds = newCache.getResultIds();
         } else {
             //No cache found
-            log.info("createCache: Creating new cache object for query {}", query);
+            log.info("createCache: Creating new cache object for query {}", queryKey.canonical());
             newCache = new QueryCache();
+            oldResultIds = null;
         }
 
-        query = query.strip().toLowerCase();
-        newCache.setQuery(query);
-
-        // Separate new and existing songs
-        final Set<Song> newSongs = new HashSet<>();
-        final Set<Song> allSongsForCache = new HashSet<>();
-
-        //Go through each song and check if its in repository yet
-        for (Song song : songs) {
-            final List<Song> songFound = songRepository.findByDeezerID(song.getDeezerID());
+        newCache.setQuery(queryKey.canonical());
+        newCache.setQueryHash(queryKey.hash());
+        newCache.setNegative(rankedSongs.isEmpty());
+
+        //Nothing to link for a negative cache, so save it once and remember it in memory
+        if (newCache.isNegative()) {
+            recordChurn(queryKey, newCache, oldResultIds, new long[0]);
+            newCache.setResultIds(new long[0]);
+            newCache.setScores(null);
+            newCache.setLastUpdated(LocalDateTime.now());
+            queryCacheRepository.save(newCache);
+            final LocalDateTime storedAt = newCache.getLastUpdated();
+            afterCommit(() -> negativeQueryCache.put(queryKey.hash(), storedAt));
+            log.info("createCache: Saved negative cache for query {}", queryKey.canonical());
+            return MethodOutcome.SUCCESS;
+        }
 
-            if (songFound == null || songFound.isEmpty()) {  //Song is new
-                newSongs.add(song);
-                song.addQueryCache(newCache);  //Link new song to new cache
-            } else {  //Song exists in DB
-                final Song existingSong = songFound.getFirst();
-                existingSong.addQueryCache(newCache);  //Link existing song to new cache
-                allSongsForCache.add(existingSong);  //Add existing song to final set for cache
+        //Find which songs are already saved through the song id index, only looking up the ones it can't answer for
+        final LocalDateTime now = LocalDateTime.now();
+        final Set<Long> savedDeezerIDs = new HashSet<>();
+        final List<Long> unknownDeezerIDs = new ArrayList<>();
+        for (ScoredSong scoredSong : rankedSongs) {
+            final long deezerID = scoredSong.song().getDeezerID();
+            if (songIdIndex.songID(deezerID) != SongIdIndex.MISSING) {
+                savedDeezerIDs.add(deezerID);
+            } else {
+                unknownDeezerIDs.add(deezerID);
             }
         }
+        if (!songIdIndex.isComplete() && !unknownDeezerIDs.isEmpty()) {
+            final List<SongIdentity> found = songRepository.findIdentitiesByDeezerIDIn(unknownDeezerIDs);
+            for (SongIdentity savedSong : found) {
+                savedDeezerIDs.add(savedSong.getDeezerID());
+            }
+            songIdIndex.putAll(found);
+        }
+        //Saved songs whose last cached time is too old are updated, so the sweeper doesn't think they're orphaned
+        if (!savedDeezerIDs.isEmpty()) {
+            songRepository.markCached(savedDeezerIDs, now, now.minus(LAST_CACHED_INTERVAL));
+        }
 
-        //Update the time the query was last updated
-        newCache.setLastUpdated(LocalDateTime.now());
-
-        //Save the new cache, have to do this here as well
-        //as below so each song doesn't try to save a new queryCache with the same data
-        queryCacheRepository.save(newCache);
-
-        //Persist only new songs
+        //Persist only new songs, the results are only turned into entities here
+        final List<Song> newSongs = new ArrayList<>();
+        final List<SongResult> newResults = new ArrayList<>();
+        for (ScoredSong scoredSong : rankedSongs) {
+            if (!savedDeezerIDs.contains(scoredSong.song().getDeezerID())) {
+                final Song newSong = scoredSong.song().toSong();
+                newSong.setLastCached(now);
+                newSongs.add(newSong);
+                newResults.add(scoredSong.song());
+            }
+        }
         if (!newSongs.isEmpty()) {
+            //Songs only store their artist and album's deezerIDs, so new artists and albums are saved first
+            catalogCache.saveArtistsAndAlbums(newSongs);
             songRepository.saveAll(newSongs);
+            afterCommit(() -> songMetadataCache.putAll(newResults));
         }
 
-        //Add both new and old songs to the cache results
-        allSongsForCache.addAll(newSongs);  //Combine new and existing songs for cache
-        newCache.setResults(allSongsForCache);
+        //The cache only keeps the deezerIDs and scores, in ranked order, so it's saved as a single row
+        final long[] resultIds = new long[rankedSongs.size()];
+        final float[] scores = new float[rankedSongs.size()];
+        for (int i = 0; i < rankedSongs.size(); i++) {
+            resultIds[i] = rankedSongs.get(i).song().getDeezerID();
+            scores[i] = (float) rankedSongs.get(i).score();
+        }
+        recordChurn(queryKey, newCache, oldResultIds, resultIds);
+
+        //Only rewrite the results if they changed, otherwise the refresh just updates the time
+        if (oldResultIds != null && Arrays.equals(oldResultIds, resultIds) && Arrays.equals(newCache.getScores(), scores)) {
+            log.info("createCache: Results for query {} are unchanged", queryKey.canonical());
+        } else {
+            newCache.setResultIds(resultIds);
+            newCache.setScores(scores);
+        }
+        updateTtl(queryKey, newCache, oldResultIds != null);
+
+        //Update the time the query was last updated
+        newCache.setLastUpdated(now);
         queryCacheRepository.save(newCache);
+        afterCommit(() -> {
+            negativeQueryCache.evict(queryKey.hash());
+            nearQueryCache.add(queryKey);
+        });
 
         log.info("createCache: Saved new cache {}", newCache);
         return MethodOutcome.SUCCESS;
     }
 
+    /**
+     * Works out how much the results changed when an existing cache is refreshed, records it as a metric
+     * and saves it on the cache. Nothing is recorded for a new cache.
+     *
+     * @param queryKey     Key of the query being refreshed
+     * @param cache        Cache being refreshed
+     * @param oldResultIds Results cached before the refresh, null if the cache is new
+     * @param newResultIds Results found now
+     */
+    private void recordChurn(QueryKey queryKey, QueryCache cache, long[] oldResultIds, long[] newResultIds) {
+        if (oldResultIds == null) {
+            return;
+        }
+        final double churn = QueryCache.churn(oldResultIds, newResultIds);
+        cache.setLastChurn(churn);
+        queryCacheMetrics.recordChurn(queryKey.shape(), churn);
+        log.info("recordChurn: Results for query {} changed by {}", queryKey.canonical(), churn);
+    }
+
+    /**
+     * Sets how long the given cache stays fresh. A new cache, or one that had no time to live, gets the initial
+     * time to live, a refreshed one gets a time to live adapted to its churn and how often it was hit.
+     *
+     * @param queryKey  Key of the query the cache is for
+     * @param cache     Cache to set the time to live of
+     * @param refreshed If the cache already existed
+     * @see QueryCacheTtlPolicy
+     */
+    private void updateTtl(QueryKey queryKey, QueryCache cache, boolean refreshed) {
+        final int hits = queryCacheTtlPolicy.takeHits(queryKey.hash());
+        final Duration ttl;
+        if (refreshed && cache.getTtlMinutes() > 0) {
+            ttl = queryCacheTtlPolicy.nextTtl(Duration.ofMinutes(cache.getTtlMinutes()), cache.getLastChurn(), hits);
+        } else {
+            ttl = queryCacheTtlPolicy.getInitialTtl();
+        }
+        cache.setTtlMinutes(ttl.toMinutes());
+        log.info("updateTtl: Query {} now expires {} minutes after it's updated", queryKey.canonical(), ttl.toMinutes());
+    }
+
+    /**
+     * Runs the given update of an in memory cache once the transaction saving what it describes commits,
+     * or right away if there is no transaction
+     *
+     * @param update Update to run
+     */
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
     /**
      * Checks if the given query is valid.
      * <p>
@@ -282,31 +549,40 @@ public class SongServiceImpl implements SongService {
     }
 
     /**
-     * Retrieves the number of songs currently stored in the repository.
+     * Retrieves the number of songs currently stored in the repository, counted by the database
+     * without loading them. {@link CatalogStatsService} knows it without a query, if it needn't be exact.
      * @return the size of the song repository.
      */
     public long getRepoSize() {
-        long size = songRepository.findAll().size();  // Or use any other method that correctly counts all songs in the repository
+        final long size = songRepository.count();
         log.info("getRepoSize: Song repository size is {}", size);
         return size;
     }
 
     /**
-     * Clears all songs from the repository.
+     * Clears all songs, and their artists and albums, from the repository.
      * This is primarily useful for testing or resetting data.
      */
     public void clearRepo() {
         songRepository.deleteAll();
+        songMetadataCache.clear();
+        songIdIndex.clear();
+        catalogCache.deleteAll();
         log.info("clearRepo: All songs have been cleared from the repository");
     }
 
+    /**
+     * Finds the saved song with the same deezerID as the given one. Its id comes from the {@link SongIdIndex},
+     * so a song found before is answered by the second-level cache, and a song that isn't saved isn't looked for.
+     *
+     * @param song Song to find
+     * @return Saved song, null if there is none
+     */
     public Song findSong(Song song) {
-        final List<Song> songFound = songRepository.findByDeezerID(song.getDeezerID());
-        // Check if the list contains any song
-        if (!songFound.isEmpty()) {
-            log.info("Song found {}", songFound.getFirst());
-            // Return the first song in the list (assuming DeezerID is unique)
-            return songFound.getFirst();
+        final Song songFound = songIdIndex.findSong(song.getDeezerID());
+        if (songFound != null) {
+            log.info("Song found {}", songFound);
+            return songFound;
         } else {
             log.info("No song found for {}", song);
             return null;
@@ -0,0 +1,398 @@
+package edu.carroll.initMusic.service.songManagement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of strings that finds the closest other string to a given one within a small edit (Levenshtein)
+ * distance, fast enough to check on every cache miss with a million strings in it.
+ *
+ * <p>
+ * Every string is split into trigrams, padded at both ends, and each trigram keeps a list of the strings that have it,
+ * one list per string length. A single edit can only break the trigrams it overlaps, so two strings within k edits
+ * share all but at most 3k of their distinct trigrams. That means any match has to be in the list of at least one
+ * of the query's 3k + 1 rarest trigrams, and only the lists for lengths within k of the query need to be read.
+ * Each candidate is then checked against a mask of the characters it has, since an edit changes at most two bits
+ * of it, and only then is the distance worked out, along the diagonal band that can still be within k.
+ * </p>
+ *
+ * <p>
+ * Matches are only guaranteed for queries with more than 3k distinct trigrams, which is any query more than
+ * 3k - 2 characters long. Strings can't be removed. Not thread safe.
+ * </p>
+ *
+ * @param <T> Type of value kept with each string
+ */
+final class TrigramIndex<T> {
+
+    /** Number of characters in a gram */
+    private static final int GRAM_LENGTH = 3;
+
+    /** Pads the start and end of a string, so its first and last characters are in as many grams as the others */
+    private static final char PAD = '\u0000';
+
+    /** Bits a string's length takes up in a list key, below the gram's characters */
+    private static final int LENGTH_BITS = 16;
+
+    /** Indexed strings, by id */
+    private String[] texts = new String[16];
+
+    /** Value kept with each string, by id */
+    private Object[] values = new Object[16];
+
+    /** Mask of the characters each string has, by id */
+    private long[] charMasks = new long[16];
+
+    /** Number of the last search that read each string, by id, so strings in several lists are only checked once */
+    private int[] seenBy = new int[16];
+
+    /** Number of strings indexed */
+    private int size;
+
+    /** Id of each string, so adding a string again only replaces its value */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** Open addressing table of list keys (gram and length) */
+    private long[] slotKeys = new long[1024];
+
+    /** Index of the list for each key in {@link #slotKeys}, plus one so 0 means empty */
+    private int[] slotLists = new int[1024];
+
+    /** Number of keys in the table */
+    private int slotCount;
+
+    /** Ids of the strings with each gram and length, in the order they were added */
+    private int[][] lists = new int[256][];
+
+    /** Number of ids in each list */
+    private int[] listSizes = new int[256];
+
+    /** Number of lists */
+    private int listCount;
+
+    /** Number of the current search */
+    private int searchNumber;
+
+    /** Rows reused when working out distances */
+    private int[] previousRow = new int[64];
+
+    /** Rows reused when working out distances */
+    private int[] currentRow = new int[64];
+
+    /**
+     * Adds the given string, or replaces its value if it's already indexed
+     *
+     * @param text  String to index
+     * @param value Value to keep with it
+     */
+    void add(String text, T value) {
+        final Integer existing = ids.get(text);
+        if (existing != null) {
+            values[existing] = value;
+            return;
+        }
+        if (size == texts.length) {
+            final int capacity = size * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            values = Arrays.copyOf(values, capacity);
+            charMasks = Arrays.copyOf(charMasks, capacity);
+            seenBy = Arrays.copyOf(seenBy, capacity);
+        }
+        final int id = size++;
+        texts[id] = text;
+        values[id] = value;
+        charMasks[id] = charMask(text);
+        ids.put(text, id);
+
+        final int gramCount = text.length() + GRAM_LENGTH - 1;
+        for (int i = 0; i < gramCount; i++) {
+            final int list = listFor(listKey(gram(text, i), text.length()));
+            final int listSize = listSizes[list];
+            //Ids are added in order, so if this string already has this gram, it's the last id in the list
+            if (listSize > 0 && lists[list][listSize - 1] == id) {
+                continue;
+            }
+            if (listSize == lists[list].length) {
+                lists[list] = Arrays.copyOf(lists[list], listSize * 2);
+            }
+            lists[list][listSize] = id;
+            listSizes[list] = listSize + 1;
+        }
+    }
+
+    /**
+     * Finds the closest indexed string to the given one, not counting the string itself
+     *
+     * @param query       String to look for
+     * @param maxDistance Most edits the match can be from the query
+     * @return Closest match and how far it is, null if there is none within maxDistance
+     */
+    @SuppressWarnings("unchecked")
+    Match<T> nearest(String query, int maxDistance) {
+        if (size == 0 || maxDistance <= 0) {
+            return null;
+        }
+        if (++searchNumber == Integer.MAX_VALUE) {
+            Arrays.fill(seenBy, 0);
+            searchNumber = 1;
+        }
+        final int minLength = Math.max(0, query.length() - maxDistance);
+        final int maxLength = query.length() + maxDistance;
+
+        //Distinct grams of the query, and how many strings of a close enough length have each
+        final int gramCount = query.length() + GRAM_LENGTH - 1;
+        final long[] grams = new long[gramCount];
+        final int[] listTotals = new int[gramCount];
+        int distinct = 0;
+        next:
+        for (int i = 0; i < gramCount; i++) {
+            final long gram = gram(query, i);
+            for (int j = 0; j < distinct; j++) {
+                if (grams[j] == gram) {
+                    continue next;
+                }
+            }
+            int total = 0;
+            for (int length = minLength; length <= maxLength; length++) {
+                final int list = findList(listKey(gram, length));
+                if (list >= 0) {
+                    total += listSizes[list];
+                }
+            }
+            grams[distinct] = gram;
+            listTotals[distinct++] = total;
+        }
+
+        final long queryMask = charMask(query);
+        int bestId = -1;
+        int bestDistance = maxDistance + 1;
+        //Any match has at least one of the 3k + 1 rarest grams, so only their lists are read
+        final int probes = Math.min(distinct, GRAM_LENGTH * maxDistance + 1);
+        for (int probe = 0; probe < probes && bestDistance > 1; probe++) {
+            int rarest = -1;
+            for (int j = 0; j < distinct; j++) {
+                if (listTotals[j] >= 0 && (rarest < 0 || listTotals[j] < listTotals[rarest])) {
+                    rarest = j;
+                }
+            }
+            final long gram = grams[rarest];
+            listTotals[rarest] = -1;
+
+            for (int length = minLength; length <= maxLength; length++) {
+                final int list = findList(listKey(gram, length));
+                if (list < 0) {
+                    continue;
+                }
+                final int[] listIds = lists[list];
+                final int listSize = listSizes[list];
+                for (int i = 0; i < listSize; i++) {
+                    final int id = listIds[i];
+                    if (seenBy[id] == searchNumber) {
+                        continue;
+                    }
+                    seenBy[id] = searchNumber;
+                    //Only strings strictly closer than the best so far are worth checking
+                    final int limit = bestDistance - 1;
+                    if (Long.bitCount(queryMask ^ charMasks[id]) > 2 * limit) {
+                        continue;
+                    }
+                    final String text = texts[id];
+                    if (text.equals(query)) {
+                        continue;
+                    }
+                    final int distance = boundedDistance(query, text, limit);
+                    if (distance <= limit) {
+                        bestDistance = distance;
+                        bestId = id;
+                    }
+                }
+            }
+        }
+        return bestId < 0 ? null : new Match<>((T) values[bestId], bestDistance);
+    }
+
+    /**
+     * Gets the number of strings indexed
+     *
+     * @return Number of strings
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Works out the edit distance between two strings, but only up to the given limit
+     *
+     * @param a     First string
+     * @param b     Second string
+     * @param limit Largest distance that matters
+     * @return Edit distance, or limit + 1 if it's more than limit
+     */
+    private int boundedDistance(String a, String b, int limit) {
+        final int aLength = a.length();
+        final int bLength = b.length();
+        final int outside = limit + 1;
+        if (Math.abs(aLength - bLength) > limit) {
+            return outside;
+        }
+        if (previousRow.length < bLength + 1) {
+            previousRow = new int[bLength + 1];
+            currentRow = new int[bLength + 1];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= bLength; j++) {
+            previous[j] = Math.min(j, outside);
+        }
+
+        for (int i = 1; i <= aLength; i++) {
+            //Only cells within limit of the diagonal can end up within limit
+            final int from = Math.max(1, i - limit);
+            final int to = Math.min(bLength, i + limit);
+            current[0] = Math.min(i, outside);
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = from == 1 ? current[0] : outside;
+            final char c = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                cost = Math.min(cost, current[j - 1] + 1);
+                cost = Math.min(cost, previous[j] + 1);
+                current[j] = Math.min(cost, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < bLength) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > limit) {
+                return outside;
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[bLength];
+    }
+
+    /**
+     * Gets the list for the given key, creating it if there isn't one
+     *
+     * @param key Gram and length
+     * @return Index of the list
+     */
+    private int listFor(long key) {
+        int slot = findSlot(key);
+        if (slotLists[slot] != 0) {
+            return slotLists[slot] - 1;
+        }
+        if ((slotCount + 1) * 2 > slotKeys.length) {
+            growSlots();
+            slot = findSlot(key);
+        }
+        if (listCount == lists.length) {
+            lists = Arrays.copyOf(lists, listCount * 2);
+            listSizes = Arrays.copyOf(listSizes, listCount * 2);
+        }
+        lists[listCount] = new int[2];
+        slotKeys[slot] = key;
+        slotLists[slot] = ++listCount;
+        slotCount++;
+        return listCount - 1;
+    }
+
+    /**
+     * Gets the list for the given key
+     *
+     * @param key Gram and length
+     * @return Index of the list, -1 if there isn't one
+     */
+    private int findList(long key) {
+        return slotLists[findSlot(key)] - 1;
+    }
+
+    /**
+     * Finds the slot the given key is in, or the empty slot it would go in
+     *
+     * @param key Gram and length
+     * @return Index of slot
+     */
+    private int findSlot(long key) {
+        final int mask = slotKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (slotLists[slot] != 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the size of the slot table and puts every key back in
+     */
+    private void growSlots() {
+        final long[] oldKeys = slotKeys;
+        final int[] oldLists = slotLists;
+        slotKeys = new long[oldKeys.length * 2];
+        slotLists = new int[oldLists.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldLists[i] != 0) {
+                final int slot = findSlot(oldKeys[i]);
+                slotKeys[slot] = oldKeys[i];
+                slotLists[slot] = oldLists[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the gram starting at the given position of the padded string, packed into a long
+     *
+     * @param text     String to get gram from
+     * @param position Position in the string padded at the start with two characters
+     * @return Three characters of the gram, 16 bits each
+     */
+    private static long gram(String text, int position) {
+        long gram = 0;
+        for (int i = 0; i < GRAM_LENGTH; i++) {
+            final int index = position + i - (GRAM_LENGTH - 1);
+            final char c = index < 0 || index >= text.length() ? PAD : text.charAt(index);
+            gram = (gram << Character.SIZE) | c;
+        }
+        return gram;
+    }
+
+    /**
+     * Combines a gram and a string length into a list key
+     *
+     * @param gram   Packed gram
+     * @param length Length of the strings in the list
+     * @return List key
+     */
+    private static long listKey(long gram, int length) {
+        return (gram << LENGTH_BITS) | (length & ((1 << LENGTH_BITS) - 1));
+    }
+
+    /**
+     * Gets a mask of which characters the given string has, each character setting one of 64 bits
+     *
+     * @param text String to get mask of
+     * @return Character mask
+     */
+    private static long charMask(String text) {
+        long mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            mask |= 1L << (text.charAt(i) & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * Closest match found for a query
+     *
+     * @param value    Value kept with the matching string
+     * @param distance Number of edits between the query and the match
+     * @param <T>      Type of value
+     */
+    record Match<T>(T value, int distance) {
+    }
+}
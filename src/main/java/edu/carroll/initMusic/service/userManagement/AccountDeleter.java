@@ -0,0 +1,173 @@
+package edu.carroll.initMusic.service.userManagement;
+
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogStatsService;
+import edu.carroll.initMusic.service.songManagement.CatalogTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes a user and everything they own with set-based deletes, instead of loading the user and letting
+ * {@code CascadeType.REMOVE} delete each playlist, and each playlist's songs, one statement at a time.
+ *
+ * <p>
+ * The user's playlists are deleted in chunks of at most {@code batchSize}, each in its own short transaction:
+ * first the chunk's rows in {@code playlist_song}, then the playlists themselves. The last transaction deletes
+ * whatever playlists were made in between and then the user, so the account is only gone once everything it
+ * owned is. If a chunk fails, the user is left, and deleting them again picks up where it stopped.
+ * </p>
+ *
+ * <p>
+ * If {@code async} is set, {@link #delete(Long)} only queues the user, and they're deleted on a single
+ * background thread, so the request deleting the account doesn't wait on it.
+ * </p>
+ */
+@Component
+public class AccountDeleter implements DisposableBean {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(AccountDeleter.class);
+
+    /** User repository */
+    private final UserRepository userRepository;
+
+    /** Playlist repository */
+    private final PlaylistRepository playlistRepository;
+
+    /** Deleted users' summaries are evicted from here */
+    private final UserSummaryService userSummaryService;
+
+    /** Told how many users and playlists are deleted, the deletes skip the events it counts rows with */
+    private final CatalogStatsService catalogStatsService;
+
+    /** Runs each chunk in its own transaction */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Most playlists deleted in a single transaction */
+    private final int batchSize;
+
+    /** Thread users are deleted on, null if they're deleted on the caller's thread */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Injects dependencies, and starts the deletion thread if deletes are asynchronous
+     *
+     * @param userRepository     User repository needed
+     * @param playlistRepository Playlist repository needed
+     * @param userSummaryService Service deleted users' summaries are evicted from
+     * @param catalogStatsService Service told how many rows are deleted
+     * @param transactionManager Transaction manager chunks are run with
+     * @param batchSize          Most playlists deleted in a single transaction
+     * @param async              If users are deleted on a background thread
+     */
+    public AccountDeleter(UserRepository userRepository, PlaylistRepository playlistRepository,
+                          UserSummaryService userSummaryService, CatalogStatsService catalogStatsService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${initmusic.account-deletion.batch-size:500}") int batchSize,
+                          @Value("${initmusic.account-deletion.async:false}") boolean async) {
+        this.userRepository = userRepository;
+        this.playlistRepository = playlistRepository;
+        this.userSummaryService = userSummaryService;
+        this.catalogStatsService = catalogStatsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = async ? new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "account-deletion");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : null;
+    }
+
+    /**
+     * Deletes the given user, or queues them to be deleted if deletes are asynchronous
+     *
+     * @param userID ID of user to delete
+     * @return {@code true} if the user was deleted or queued, {@code false} if there was no such user
+     */
+    public boolean delete(Long userID) {
+        if (executor == null) {
+            return deleteNow(userID);
+        }
+        executor.execute(() -> {
+            try {
+                deleteNow(userID);
+            } catch (RuntimeException e) {
+                log.error("delete: Failed to delete user {}, they can be deleted again", userID, e);
+            }
+        });
+        log.info("delete: User {} queued to be deleted", userID);
+        return true;
+    }
+
+    /**
+     * Deletes the given user and their playlists on this thread, their playlists a chunk at a time
+     *
+     * @param userID ID of user to delete
+     * @return {@code true} if the user was deleted, {@code false} if there was no such user
+     */
+    public boolean deleteNow(Long userID) {
+        int playlists = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> deletePlaylistChunk(userID));
+            playlists += chunk;
+        } while (chunk == batchSize);
+
+        final int users = transactionTemplate.execute(status -> {
+            //Playlists made while the chunks were deleted
+            playlistRepository.deleteSongLinksByAuthor(userID);
+            catalogStatsService.recordDeleted(CatalogTable.PLAYLIST, playlistRepository.deleteByAuthor(userID));
+            final int deleted = userRepository.deleteWithoutCascade(userID);
+            catalogStatsService.recordDeleted(CatalogTable.USER, deleted);
+            return deleted;
+        });
+        userSummaryService.evict(userID);
+        log.info("deleteNow: Deleted user {} with {} playlists", userID, playlists);
+        return users > 0;
+    }
+
+    /**
+     * Deletes the next chunk of the user's playlists, their songs first
+     *
+     * @param userID ID of playlists' author
+     * @return Number of playlists deleted
+     */
+    private int deletePlaylistChunk(Long userID) {
+        final List<Long> playlistIDs = playlistRepository.findIdsByAuthor(userID, PageRequest.of(0, batchSize));
+        if (!playlistIDs.isEmpty()) {
+            playlistRepository.deleteSongLinks(playlistIDs);
+            catalogStatsService.recordDeleted(CatalogTable.PLAYLIST, playlistRepository.deleteByPlaylistIDs(playlistIDs));
+        }
+        return playlistIDs.size();
+    }
+
+    /**
+     * Stops the deletion thread, waiting a little for queued users. Users not deleted by then are left as they were.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("destroy: {} queued users weren't deleted before shutdown", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -5,34 +5,51 @@ import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.jpa.repo.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Creates our own implementation of UserDetailsService, so spring security knows
- * how to get/load a user's information.
+ * how to get/load a user's information. Also implements UserDetailsPasswordService so
+ * spring security can rehash a user's password when they log in, if the configured BCrypt cost changed.
+ * Users whose username is in {@code initmusic.security.admin-usernames} are given the admin role.
  *
  * @see UserDetailsService
+ * @see UserDetailsPasswordService
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     /** Logger for logging */
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     /** User repository for looking up user */
     private final UserRepository userRepository;
 
+    /** Normalized usernames of admins */
+    private final Set<String> adminUsernames = new HashSet<>();
+
     /**
      * Injects dependencies
      *
      * @param userRepository User repository to inject
+     * @param adminUsernames Comma separated usernames of admins, empty if there are none
      */
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${initmusic.security.admin-usernames:}") String adminUsernames) {
         this.userRepository = userRepository;
+        for (String adminUsername : adminUsernames.split(",")) {
+            if (!adminUsername.isBlank()) {
+                this.adminUsernames.add(User.normalize(adminUsername.strip()));
+            }
+        }
     }
 
     /**
@@ -48,11 +65,43 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("Username cannot be empty");
         }
         username = username.strip();
-        final List<User> user = userRepository.findByUsernameIgnoreCase(username);
+        final List<User> user = userRepository.findByUsernameNormalized(User.normalize(username));
         if(user.size() != 1) {
             log.warn("loadUserByUsername: username={} not found", username);
             throw new UsernameNotFoundException("User not found");
         }
-        return new CustomUserDetails(user.getFirst());
+        return CustomUserDetails.from(user.getFirst(), isAdmin(user.getFirst()));
+    }
+
+    /**
+     * Saves a rehashed password for the given user. Spring security calls this after a successful
+     * login when the stored hash was made with a different cost than the one configured.
+     *
+     * @param userDetails User whose password was rehashed
+     * @param newPassword New hashed password
+     * @return UserDetails object with the new hashed password
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        final List<User> user = userRepository.findByUsernameNormalized(User.normalize(userDetails.getUsername()));
+        if (user.size() != 1) {
+            log.warn("updatePassword: username={} not found when rehashing password", userDetails.getUsername());
+            return userDetails;
+        }
+        final User foundUser = user.getFirst();
+        foundUser.setHashedPassword(newPassword);
+        userRepository.save(foundUser);
+        log.info("updatePassword: Rehashed password for user id#{}", foundUser.getuserID());
+        return CustomUserDetails.from(foundUser, isAdmin(foundUser));
+    }
+
+    /**
+     * Checks if the given user is one of the configured admins
+     *
+     * @param user User to check
+     * @return {@code true} if the user is an admin, {@code false} otherwise
+     */
+    private boolean isAdmin(User user) {
+        return adminUsernames.contains(User.normalize(user.getUsername()));
     }
 }
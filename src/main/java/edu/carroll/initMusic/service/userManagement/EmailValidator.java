@@ -0,0 +1,151 @@
+package edu.carroll.initMusic.service.userManagement;
+
+import edu.carroll.initMusic.MethodOutcome;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks that an email is in a valid format and within the RFC length limits: 254 characters total,
+ * 64 before the @, and 63 for each domain label.
+ *
+ * <p>
+ * This accepts exactly the same emails the old regex did,
+ * {@code ^[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$}, and returns the same outcome the old
+ * regex plus {@code split} checks returned. It does so in a single pass over the email without creating any
+ * objects, so it's cheap enough to run on every form submission and again when the user is saved.
+ * </p>
+ *
+ * <p>
+ * Problems are reported in this order: invalid format, email too long, local part too long, domain label too long.
+ * </p>
+ */
+@Component
+public class EmailValidator {
+
+    /** Maximum length of a whole email */
+    public static final int MAX_EMAIL_LENGTH = 254;
+
+    /** Maximum length of the local part of an email (before the @) */
+    public static final int MAX_LOCAL_PART_LENGTH = 64;
+
+    /** Maximum length of a single domain label (between dots, after the @) */
+    public static final int MAX_DOMAIN_LABEL_LENGTH = 63;
+
+    /** Minimum length of the top level domain (after the last dot) */
+    private static final int MIN_TLD_LENGTH = 2;
+
+    /**
+     * Validates the given email
+     *
+     * @param email Email to validate
+     * @return {@link MethodOutcome#SUCCESS} if the email is valid, otherwise the outcome describing the first problem found
+     */
+    public MethodOutcome validate(String email) {
+        if (email == null) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+
+        final int length = email.length();
+        //Index of the @, -1 until one is found
+        int atIndex = -1;
+        //Index of the last dot after the @, -1 until one is found
+        int lastDotIndex = -1;
+        //If every character after the last dot is a letter
+        boolean tldAllLetters = false;
+        //Length of the domain label being scanned, and the longest one so far
+        int labelLength = 0;
+        int longestLabel = 0;
+
+        for (int i = 0; i < length; i++) {
+            final char c = email.charAt(i);
+            if (c == '@') {
+                //Only one @ is allowed
+                if (atIndex >= 0) {
+                    return MethodOutcome.EMAIL_INVALID_FORMAT;
+                }
+                atIndex = i;
+            } else if (atIndex < 0) {
+                if (!isLocalPartChar(c)) {
+                    return MethodOutcome.EMAIL_INVALID_FORMAT;
+                }
+            } else if (c == '.') {
+                lastDotIndex = i;
+                tldAllLetters = true;
+                longestLabel = Math.max(longestLabel, labelLength);
+                labelLength = 0;
+            } else {
+                if (!isDomainChar(c)) {
+                    return MethodOutcome.EMAIL_INVALID_FORMAT;
+                }
+                tldAllLetters &= isLetter(c);
+                labelLength++;
+            }
+        }
+        longestLabel = Math.max(longestLabel, labelLength);
+
+        //Needs something before the @, and a dot after it with something between them
+        if (atIndex < 1 || lastDotIndex < atIndex + 2) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        //Everything after the last dot has to be letters, at least two of them
+        if (!tldAllLetters || length - lastDotIndex - 1 < MIN_TLD_LENGTH) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+
+        if (length > MAX_EMAIL_LENGTH) {
+            return MethodOutcome.EMAIL_TOO_LONG;
+        }
+        if (atIndex > MAX_LOCAL_PART_LENGTH) {
+            return MethodOutcome.EMAIL_LOCAL_PART_TOO_LONG;
+        }
+        if (longestLabel > MAX_DOMAIN_LABEL_LENGTH) {
+            return MethodOutcome.EMAIL_DOMAIN_LABEL_TOO_LONG;
+        }
+        return MethodOutcome.SUCCESS;
+    }
+
+    /**
+     * Returns if the given character is an ASCII letter
+     *
+     * @param c Character to check
+     * @return {@code true} if c is a letter, {@code false} otherwise
+     */
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Returns if the given character is an ASCII letter or digit
+     *
+     * @param c Character to check
+     * @return {@code true} if c is a letter or digit, {@code false} otherwise
+     */
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Returns if the given character is allowed in the local part of an email (before the @)
+     *
+     * @param c Character to check
+     * @return {@code true} if c is allowed, {@code false} otherwise
+     */
+    private static boolean isLocalPartChar(char c) {
+        if (isLetterOrDigit(c)) {
+            return true;
+        }
+        return switch (c) {
+            case '!', '#', '$', '%', '&', '\'', '*', '+', '/', '=', '?', '^', '_', '`', '{', '|', '}', '~', '.', '-' -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns if the given character is allowed in the domain of an email (after the @), not counting dots
+     *
+     * @param c Character to check
+     * @return {@code true} if c is allowed, {@code false} otherwise
+     */
+    private static boolean isDomainChar(char c) {
+        return isLetterOrDigit(c) || c == '-';
+    }
+}
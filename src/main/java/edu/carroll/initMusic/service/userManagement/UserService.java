@@ -26,6 +26,16 @@ public interface UserService {
      */
     MethodOutcome uniqueEmail(String email);
 
+    /**
+     * Checks that both the given username and email are valid and not already taken,
+     * using a single database query.
+     *
+     * @param username Username to check
+     * @param email    Email to check
+     * @return MethodOutcome Enum that tells outcome of method.
+     */
+    MethodOutcome checkRegistration(String username, String email);
+
     /**
      * Saves a user and their information to the database
      *
@@ -34,7 +44,7 @@ public interface UserService {
      * @param email     Email of user
      * @param firstName First name of user
      * @param lastName  Last name of user
-     * @return User object, which contains all the users information
+     * @return User object, which contains all the users information, null if the user couldn't be saved
      */
     User saveUser(String username, String password, String email, String firstName, String lastName);
 
@@ -77,6 +87,14 @@ public interface UserService {
      */
     User findByIdWithPlaylists(Long userId);
 
+    /**
+     * Gets a user object by user id, without loading their playlists.
+     *
+     * @param userId User id to search by
+     * @return User object found, null if not found
+     */
+    User findById(Long userId);
+
     /**
      * Gets user by username
      *
@@ -2,15 +2,15 @@ package edu.carroll.initMusic.service.userManagement;
 
 import edu.carroll.initMusic.MethodOutcome;
 import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.RegistrationConflict;
 import edu.carroll.initMusic.jpa.repo.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service class for handling user-related operations.
@@ -27,46 +27,51 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
 
     /** BCrypt password encoder used for hashing passwords. */
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
 
-    /** Define a regular expression for a valid email format */
-    private final String emailRegex = "^[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
+    /** Cached user summaries, evicted whenever a user changes */
+    private final UserSummaryService userSummaryService;
 
-    //Compile the regex pattern
-    private final Pattern pattern = Pattern.compile(emailRegex);
+    /** Validates the format and length of emails */
+    private final EmailValidator emailValidator;
+
+    /** Deletes users and their playlists with set-based deletes */
+    private final AccountDeleter accountDeleter;
 
     /**
      * Constructor to initialize the UserService with the required dependencies.
      *
      * @param userRepository  the repository for interacting with the user data
      * @param passwordEncoder the encoder used to hash passwords
+     * @param userSummaryService the service caching user summaries
+     * @param emailValidator  the validator used to check emails
+     * @param accountDeleter  the deleter used to delete users and their playlists
      */
-    public UserServiceImpl(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           UserSummaryService userSummaryService, EmailValidator emailValidator,
+                           AccountDeleter accountDeleter) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userSummaryService = userSummaryService;
+        this.emailValidator = emailValidator;
+        this.accountDeleter = accountDeleter;
     }
 
     /**
      * Checks whether the provided username is unique (i.e., not already present in the database).
+     * The username is validated before the database is checked.
      *
      * @param username the username to check for uniqueness
      * @return MethodOutcome Enum that tells outcome of method.
      */
     public MethodOutcome uniqueUserName(String username) {
         log.info("uniqueUserName: Checking if username '{}' is unique", username);
-        List<User> usersByName = userRepository.findByUsernameIgnoreCase(username);
-
-        if (username == null || username.length() < 5 || username.isBlank()) {
-            return MethodOutcome.USER_TOO_SHORT;
-        }
-        if (username.length() >= 50) {
-            return MethodOutcome.USER_TOO_LONG;
-        }
-        if (username.contains(" ")) {
-            return MethodOutcome.USER_HAS_SPACES;
+        final MethodOutcome usernameValid = validateUsername(username);
+        if (usernameValid.failed()) {
+            return usernameValid;
         }
 
-        if (!usersByName.isEmpty()) {
+        if (userRepository.existsByUsernameNormalized(User.normalize(username))) {
             log.info("uniqueUserName: Username '{}' already exists", username);
             return MethodOutcome.USER_ALREADY_EXISTS;
         } else {
@@ -77,65 +82,105 @@ public class UserServiceImpl implements UserService {
 
     /**
      * Checks whether the provided email is unique (i.e., not already present in the database).
+     * The email is validated before the database is checked.
      *
      * @param email the email to check for uniqueness
      * @return MethodOutcome Enum that tells outcome of method.
      */
     public MethodOutcome uniqueEmail(String email) {
         log.info("uniqueEmail: Checking if email '{}' is unique", email);
-
-        // Check for null or empty email
-        if (email == null || email.trim().isEmpty()) {
-            log.warn("uniqueEmail: Email is null or empty");
-            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        final MethodOutcome emailValid = validateEmail(email);
+        if (emailValid.failed()) {
+            return emailValid;
         }
 
-        // Check if the email matches the regex
-        if (!pattern.matcher(email).matches()) {
-            log.warn("uniqueEmail: Email '{}' is not a valid format", email);
-            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        //Check if email is already in database
+        if (userRepository.existsByEmailNormalized(User.normalize(email))) {
+            log.info("uniqueEmail: Email '{}' already exists", email);
+            return MethodOutcome.EMAIL_ALREADY_EXISTS;
+        } else {
+            log.info("uniqueEmail: Email '{}' is available", email);
+            return MethodOutcome.SUCCESS;
         }
+    }
 
-        // Check for length restrictions
-        if (email.length() > 254) {
-            log.warn("uniqueEmail: Email '{}' exceeds maximum length of 254 characters", email);
-            return MethodOutcome.EMAIL_TOO_LONG;
+    /**
+     * Checks that both the given username and email are valid and not taken, using a single query.
+     * Problems with the email are returned before problems with the username, and a taken email is
+     * returned before a taken username.
+     *
+     * @param username Username to check
+     * @param email    Email to check
+     * @return MethodOutcome Enum that tells outcome of method.
+     */
+    public MethodOutcome checkRegistration(String username, String email) {
+        log.info("checkRegistration: Checking if username '{}' and email '{}' are unique", username, email);
+        final MethodOutcome emailValid = validateEmail(email);
+        if (emailValid.failed()) {
+            return emailValid;
         }
-
-        //Check if email split into two parts using @ sign
-        String[] parts = email.split("@");
-        if (parts.length != 2) {
-            log.warn("uniqueEmail: Email '{}' is not in a valid format", email);
-            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        final String emailNormalized = User.normalize(email);
+        final MethodOutcome usernameValid = validateUsername(username);
+        if (usernameValid.failed()) {
+            //A taken email is still reported first, so only the email needs to be checked
+            if (userRepository.existsByEmailNormalized(emailNormalized)) {
+                log.info("checkRegistration: Email '{}' already exists", email);
+                return MethodOutcome.EMAIL_ALREADY_EXISTS;
+            }
+            return usernameValid;
         }
 
-        final String localPart = parts[0];
-        final String domainPart = parts[1];
+        final String usernameNormalized = User.normalize(username);
+        final List<RegistrationConflict> conflicts = userRepository.findRegistrationConflicts(usernameNormalized, emailNormalized);
 
-        //Local part (Before @) has to be less than 64 characters
-        if (localPart.length() > 64) {
-            log.warn("uniqueEmail: Local part of email '{}' exceeds maximum length of 64 characters", email);
-            return MethodOutcome.EMAIL_LOCAL_PART_TOO_LONG;
+        boolean usernameTaken = false;
+        for (RegistrationConflict conflict : conflicts) {
+            if (emailNormalized.equals(conflict.getEmailNormalized())) {
+                log.info("checkRegistration: Email '{}' already exists", email);
+                return MethodOutcome.EMAIL_ALREADY_EXISTS;
+            }
+            usernameTaken |= usernameNormalized.equals(conflict.getUsernameNormalized());
+        }
+        if (usernameTaken) {
+            log.info("checkRegistration: Username '{}' already exists", username);
+            return MethodOutcome.USER_ALREADY_EXISTS;
         }
 
-        // Check if the domain part (After @) has any labels exceeding 63 characters
-        final String[] domainLabels = domainPart.split("\\.");
-        for (String label : domainLabels) {
-            if (label.length() > 63) {
-                log.warn("uniqueEmail: Domain label '{}' exceeds maximum length of 63 characters", label);
-                return MethodOutcome.EMAIL_DOMAIN_LABEL_TOO_LONG;
-            }
+        log.info("checkRegistration: Username '{}' and email '{}' are available", username, email);
+        return MethodOutcome.SUCCESS;
+    }
+
+    /**
+     * Checks that the given username is valid, without checking the database.
+     *
+     * @param username Username to validate
+     * @return MethodOutcome Enum that tells outcome of method.
+     */
+    private MethodOutcome validateUsername(String username) {
+        if (username == null || username.length() < 5 || username.isBlank()) {
+            return MethodOutcome.USER_TOO_SHORT;
         }
+        if (username.length() >= 50) {
+            return MethodOutcome.USER_TOO_LONG;
+        }
+        if (username.contains(" ")) {
+            return MethodOutcome.USER_HAS_SPACES;
+        }
+        return MethodOutcome.SUCCESS;
+    }
 
-        //Find email to see if It's already in database
-        final List<User> usersByEmail = userRepository.findByEmailIgnoreCase(email);
-        if (!usersByEmail.isEmpty()) {
-            log.info("uniqueEmail: Email '{}' already exists", email);
-            return MethodOutcome.EMAIL_ALREADY_EXISTS;
-        } else {
-            log.info("uniqueEmail: Email '{}' is available", email);
-            return MethodOutcome.SUCCESS;
+    /**
+     * Checks that the given email is valid, without checking the database.
+     *
+     * @param email Email to validate
+     * @return MethodOutcome Enum that tells outcome of method.
+     */
+    private MethodOutcome validateEmail(String email) {
+        final MethodOutcome emailValid = emailValidator.validate(email);
+        if (emailValid.failed()) {
+            log.warn("validateEmail: Email '{}' is not valid: {}", email, emailValid.getMessage());
         }
+        return emailValid;
     }
 
     /**
@@ -146,7 +191,8 @@ public class UserServiceImpl implements UserService {
      * @param email     Email of user
      * @param firstName First name of user
      * @param lastName  Last name of user
-     * @return The saved {@link User} object, null if user was not saved
+     * @return The saved {@link User} object, null if user was not saved, including when their password
+     * couldn't be hashed because the hashing pool was too busy
      */
     public User saveUser(String username, String password, String email, String firstName, String lastName) {
         log.info("saveUser: Saving new user with username '{}'", username);
@@ -170,16 +216,22 @@ public class UserServiceImpl implements UserService {
             return null;
         }
 
-        //Make sure email and username are unique
-        if (uniqueEmail(email).failed() || uniqueUserName(username).failed()) {
+        //Make sure email and username are valid and unique
+        if (checkRegistration(username, email).failed()) {
             return null;
         }
 
         final User newUser = new User();  // Create a new User object inside the method
         newUser.setUsername(username);
         newUser.setEmail(email);
-        // Validate that password is not null
-        final String hashedPassword = passwordEncoder.encode(password);
+        //The encoder hashes on a bounded pool, which can be too busy to take it
+        final String hashedPassword;
+        try {
+            hashedPassword = passwordEncoder.encode(password);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            log.warn("saveUser: Couldn't hash password for user '{}', try again later | {}", username, e.getMessage());
+            return null;
+        }
         newUser.setHashedPassword(hashedPassword);
         log.info("saveUser: Password for user '{}' has been hashed", newUser.getUsername());
 
@@ -215,6 +267,7 @@ public class UserServiceImpl implements UserService {
         user.setQuestion2(question2);
         user.setAnswer2(answer2);
         userRepository.save(user); // Save the user with updated security questions to the database
+        userSummaryService.evict(user.getuserID());
         log.info("updateUserSecurityQuestions: Security questions updated for user id#{}", user.getuserID());
         return true;
     }
@@ -227,7 +280,7 @@ public class UserServiceImpl implements UserService {
      */
     public User findByEmail(String email) {
         log.info("findByEmail: Finding user by email '{}'", email);
-        final List<User> users = userRepository.findByEmailIgnoreCase(email);
+        final List<User> users = userRepository.findByEmailNormalized(User.normalize(email));
         final User foundUser = users.isEmpty() ? null : users.getFirst();  // Return the first user or null if none found
 
         if (foundUser != null) {
@@ -243,14 +296,24 @@ public class UserServiceImpl implements UserService {
      *
      * @param user        the user whose password is being updated
      * @param newPassword the new password to be hashed and saved
+     * @return {@code true} if the password was updated, {@code false} if it was too short, or couldn't be hashed
+     * because the hashing pool was too busy
      */
     public boolean updatePassword(User user, String newPassword) {
         if (newPassword == null || newPassword.length() < 8) {
             return false;
         }
         log.info("updatePassword: Updating password for user id#{}", user.getuserID());
-        user.setHashedPassword(passwordEncoder.encode(newPassword));
+        final String hashedPassword;
+        try {
+            hashedPassword = passwordEncoder.encode(newPassword);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            log.warn("updatePassword: Couldn't hash password for user id#{}, try again later | {}", user.getuserID(), e.getMessage());
+            return false;
+        }
+        user.setHashedPassword(hashedPassword);
         userRepository.save(user); // Save the user with updated password to the database
+        userSummaryService.evict(user.getuserID());
         log.info("updatePassword: Password updated for user id#{}", user.getuserID());
         return true;
     }
@@ -267,6 +330,19 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByIdWithPlaylists(userId);
     }
 
+    /**
+     * Gets a user object by user id, without loading their playlists.
+     *
+     * @param userId ID to search by
+     * @return The user object found, {@code null} if no object found
+     */
+    public User findById(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return userRepository.findById(userId).orElse(null);
+    }
+
     /**
      * Gets user object from inputted username. All usernames are unique, so
      * there should only be 1 username found
@@ -275,7 +351,7 @@ public class UserServiceImpl implements UserService {
      * @return User object found, {@code null} if nothing found, or too many were found.
      */
     public User findByUsername(String username) {
-        final List<User> user = userRepository.findByUsernameIgnoreCase(username);
+        final List<User> user = userRepository.findByUsernameNormalized(User.normalize(username));
         if (user.size() != 1) {
             return null;
         }
@@ -283,20 +359,28 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Deletes a user object from the database by email
+     * Deletes a user object from the database by email, along with their playlists. They're deleted
+     * with set-based deletes in chunks of short transactions, not in one transaction, see {@link AccountDeleter}.
      *
      * @param email Email to delete by
-     * @return {@code true} if user was removed from database, {@code false} if not
+     * @return {@code true} if user was removed from database, or queued to be, {@code false} if not
      */
-    @Transactional // ensures that a transaction is available when the method executes
     public boolean deleteByEmail(String email) {
         try {
             //Check if user was found in repository
-            if (userRepository.findByEmailIgnoreCase(email).isEmpty()) {
+            final List<User> usersFound = userRepository.findByEmailNormalized(User.normalize(email));
+            if (usersFound.isEmpty()) {
                 log.info("deleteByEmail: No user found with email {}", email);
                 return false; // No user to delete
             }
-            userRepository.deleteByEmail(email);
+            boolean deleted = false;
+            for (User user : usersFound) {
+                deleted |= accountDeleter.delete(user.getuserID());
+            }
+            if (!deleted) {
+                log.info("deleteByEmail: User with email {} was already deleted", email);
+                return false;
+            }
             log.info("deleteByEmail: {} deleted from initMusic", email);
             return true;
         } catch (Exception e) {
@@ -310,6 +394,7 @@ public class UserServiceImpl implements UserService {
      */
     public void clearRepo() {
         userRepository.deleteAll();
+        userSummaryService.evictAll();
         log.info("clearRepo: All users have been cleared from the repository");
     }
 }
@@ -0,0 +1,54 @@
+package edu.carroll.initMusic.service.userManagement;
+
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.User;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read only summary of a user and their playlists. This holds only what the playlist and search
+ * pages render, so it can be cached in memory between requests instead of loading the user and their
+ * playlists from the database on every page view.
+ *
+ * @param userID    User's id
+ * @param username  User's username
+ * @param playlists Summaries of the user's playlists, ordered by playlist id (creation order)
+ * @see UserSummaryService
+ */
+public record UserSummary(Long userID, String username, List<PlaylistSummary> playlists) {
+
+    /**
+     * Creates a summary from the given user. The user's playlists need to be loaded already.
+     *
+     * @param user User to summarise
+     * @return Summary of the given user
+     */
+    public static UserSummary from(User user) {
+        final List<PlaylistSummary> playlists = user.getPlaylists().stream()
+                .map(PlaylistSummary::from)
+                .sorted(Comparator.comparing(PlaylistSummary::playlistID))
+                .toList();
+        return new UserSummary(user.getuserID(), user.getUsername(), playlists);
+    }
+
+    /**
+     * Read only summary of a single playlist
+     *
+     * @param playlistID    Playlist's id
+     * @param playlistName  Playlist's name
+     * @param numberOfSongs Number of songs in the playlist
+     */
+    public record PlaylistSummary(Long playlistID, String playlistName, int numberOfSongs) {
+
+        /**
+         * Creates a summary from the given playlist
+         *
+         * @param playlist Playlist to summarise
+         * @return Summary of the given playlist
+         */
+        public static PlaylistSummary from(Playlist playlist) {
+            return new PlaylistSummary(playlist.getPlaylistID(), playlist.getPlaylistName(), playlist.getNumberOfSongs());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package edu.carroll.initMusic.service.userManagement;
+
+/**
+ * Defines methods for getting cached, read only summaries of users. Any service that changes
+ * a user or their playlists needs to evict that user's summary so the next page view reloads it.
+ *
+ * @see UserSummary
+ */
+public interface UserSummaryService {
+
+    /**
+     * Gets the summary for the user with the given id, loading it from the database
+     * if it isn't cached yet.
+     *
+     * @param userID ID of user to get summary for
+     * @return The user's summary, null if user wasn't found
+     */
+    UserSummary getUserSummary(Long userID);
+
+    /**
+     * Removes the summary of the given user from the cache, if there is one
+     *
+     * @param userID ID of user to evict
+     */
+    void evict(Long userID);
+
+    /**
+     * Removes every summary from the cache
+     */
+    void evictAll();
+}
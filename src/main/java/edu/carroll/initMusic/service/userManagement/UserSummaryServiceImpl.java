@@ -0,0 +1,136 @@
+package edu.carroll.initMusic.service.userManagement;
+
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps an in memory, least recently used cache of user summaries so pages like
+ * the playlist and search page don't need to load the user and their playlists on every request.
+ *
+ * <p>
+ * Summaries are loaded read-only, since they're only ever copied out of the entities.
+ * Every eviction bumps a generation counter. A summary is only cached if no eviction happened while
+ * it was being loaded, so a write that happens during a load can't leave a stale summary behind.
+ * A user evicted in a transaction is evicted again once it commits, since a load that starts before
+ * then still reads what was there before the transaction, and the first eviction can't stop it being cached.
+ * </p>
+ *
+ * @see UserSummary
+ */
+@Service
+public class UserSummaryServiceImpl implements UserSummaryService {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(UserSummaryServiceImpl.class);
+
+    /** User repository */
+    private final UserRepository userRepository;
+
+    /** Cached summaries by user id, in access order so the least recently used summary is removed first */
+    private final Map<Long, UserSummary> summaries;
+
+    /** Incremented on every eviction */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Injects dependencies
+     *
+     * @param userRepository User repository needed
+     * @param maxEntries     Maximum number of summaries to keep in memory
+     */
+    public UserSummaryServiceImpl(UserRepository userRepository,
+                                  @Value("${initmusic.user-summary.max-entries:500}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.summaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserSummary> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the summary for the user with the given id, loading it from the database
+     * if it isn't cached yet.
+     *
+     * @param userID ID of user to get summary for
+     * @return The user's summary, null if user wasn't found
+     */
+    public UserSummary getUserSummary(Long userID) {
+        if (userID == null) {
+            return null;
+        }
+        synchronized (summaries) {
+            final UserSummary cached = summaries.get(userID);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final long loadGeneration = generation.get();
+        final User user = userRepository.findByIdWithPlaylistsReadOnly(userID);
+        if (user == null) {
+            log.warn("getUserSummary: User id#{} not found", userID);
+            return null;
+        }
+        final UserSummary summary = UserSummary.from(user);
+
+        synchronized (summaries) {
+            if (generation.get() == loadGeneration) {
+                summaries.put(userID, summary);
+            }
+        }
+        log.info("getUserSummary: Loaded summary for user id#{} with {} playlists", userID, summary.playlists().size());
+        return summary;
+    }
+
+    /**
+     * Removes the summary of the given user from the cache, if there is one. If a transaction is running,
+     * it's removed again once the transaction commits.
+     *
+     * @param userID ID of user to evict
+     */
+    public void evict(Long userID) {
+        evictNow(userID);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userID);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the summary of the given user from the cache right away
+     *
+     * @param userID ID of user to evict
+     */
+    private void evictNow(Long userID) {
+        synchronized (summaries) {
+            generation.incrementAndGet();
+            summaries.remove(userID);
+        }
+    }
+
+    /**
+     * Removes every summary from the cache
+     */
+    public void evictAll() {
+        synchronized (summaries) {
+            generation.incrementAndGet();
+            summaries.clear();
+        }
+    }
+}
@@ -7,13 +7,15 @@ import edu.carroll.initMusic.web.form.securityManagement.NewPasswordForm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Controller for handling password changes for users who are already logged in.
  * This controller manages the flow for users to change their passwords securely.
@@ -25,7 +27,7 @@ public class ChangePasswordAlreadyLoggedInController {
     /** Logger object used for logging actions within this controller. */
     private static final Logger log = LoggerFactory.getLogger(ChangePasswordAlreadyLoggedInController.class);
     /** BCrypt password encoder used for hashing passwords. */
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
     /** Service for user-related operations such as updating passwords. */
     private final UserService userService;
 
@@ -35,7 +37,7 @@ public class ChangePasswordAlreadyLoggedInController {
      * @param userService     the service that handles user operations
      * @param passwordEncoder the password encoder for hashing passwords
      */
-    public ChangePasswordAlreadyLoggedInController(UserService userService, BCryptPasswordEncoder passwordEncoder) {
+    public ChangePasswordAlreadyLoggedInController(UserService userService, PasswordEncoder passwordEncoder) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
     }
@@ -66,16 +68,29 @@ public class ChangePasswordAlreadyLoggedInController {
         if (authentication.getPrincipal() != null) {
             //Retrieve the current user
             final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            final User currentUser = userDetails.getUser();
+            final User currentUser = userService.findById(userDetails.getUserID());
+            if (currentUser == null) {
+                log.error("handleSecuritySubmission: User id#{} not found", userDetails.getUserID());
+                return "redirect:/login"; // Redirect to login, user wasn't found
+            }
 
             String storedHashedPassword = currentUser.getHashedPassword(); // Retrieves the hashed password from the user
 
-            // Check if the old password matches the stored hashed password
-            if (passwordEncoder.matches(passwordForm.getOldPassword(), storedHashedPassword)) {
+            // Check if the old password matches the stored hashed password, the encoder can be too busy to check it
+            final boolean oldPasswordMatches;
+            try {
+                oldPasswordMatches = passwordEncoder.matches(passwordForm.getOldPassword(), storedHashedPassword);
+            } catch (RejectedExecutionException | IllegalStateException e) {
+                log.warn("handleSecuritySubmission: Couldn't check old password for User id#{} | {}", currentUser.getuserID(), e.getMessage());
+                model.addAttribute("error", "Your password couldn't be checked right now, please try again.");
+                return "changePasswordLoggedIn"; // Reload the form with an error message
+            }
+            if (oldPasswordMatches) {
                 final boolean passwordUpdated = userService.updatePassword(currentUser, passwordForm.getNewPassword());
                 if (!passwordUpdated) {
                     log.warn("handleSecuritySubmission: Password update failed for User id#{}", currentUser.getuserID());
-                    model.addAttribute("errorMessage", "Password update failed");
+                    model.addAttribute("error", "Password update failed, please try again.");
+                    return "changePasswordLoggedIn"; // Reload the form with an error message
                 }
                 log.info("handleSecuritySubmission: Password updated User id#{}",currentUser.getuserID());
                 return "passwordChangedLoggedIn"; // Redirect to the password changed confirmation page
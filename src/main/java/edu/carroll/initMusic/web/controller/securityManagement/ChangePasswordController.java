@@ -74,7 +74,9 @@ public class ChangePasswordController {
             log.info("handleSecuritySubmission: Password changed for {}", currentUser.getUsername());
             final boolean passwordUpdated = userService.updatePassword(currentUser, passwordForm.getNewPassword());
             if (!passwordUpdated) {
-                model.addAttribute("errorMessage", "Password update failed");
+                log.warn("handleSecuritySubmission: Password update failed for {}", currentUser.getUsername());
+                model.addAttribute("errorMessage", "Password update failed, please try again.");
+                return "changePassword"; // Reload the form with an error message
             }
             return "passwordChanged";  // Redirect to the password changed confirmation page
         } else {
@@ -4,10 +4,12 @@ import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.userManagement.UserService;
 import edu.carroll.initMusic.web.form.securityManagement.CheckUserEmailForm;
 import jakarta.servlet.http.HttpSession;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -56,12 +58,20 @@ public class ChangePasswordEmailController {
      * it redirects the user to the security questions page. Otherwise, it shows an error.
      *
      * @param emailForm the form containing the email to check.
+     * @param bindingResult the result of validating the email form.
      * @param model     the model used to pass data back to the view.
      * @param session   the HTTP session used to store the current user data.
      * @return the view to display next, either the security questions page or the email input page with an error.
      */
     @PostMapping("/changePasswordEmail")
-    public String handleEmailSubmission(@ModelAttribute CheckUserEmailForm emailForm, Model model, HttpSession session) {
+    public String handleEmailSubmission(@Valid @ModelAttribute CheckUserEmailForm emailForm, BindingResult bindingResult,
+                                        Model model, HttpSession session) {
+        //Email isn't valid, so it can't be in the database
+        if (bindingResult.hasErrors()) {
+            log.warn("handleEmailSubmission: Invalid email submitted: {}", emailForm.getEmail());
+            model.addAttribute("errorMessage", bindingResult.getAllErrors().getFirst().getDefaultMessage());
+            return "changePasswordEmail";  // Reload the form with an error message
+        }
         User currentUser = userService.findByEmail(emailForm.getEmail()); // Method to find user by email
         if (currentUser != null) {
             // Check if the user has security questions set
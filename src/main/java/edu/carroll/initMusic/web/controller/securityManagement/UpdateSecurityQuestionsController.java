@@ -48,7 +48,11 @@ public class UpdateSecurityQuestionsController {
         if (authentication.getPrincipal() != null) {
             //Retrieve the current user
             final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            final User currentUser = userDetails.getUser();
+            final User currentUser = userService.findById(userDetails.getUserID());
+            if (currentUser == null) {
+                model.addAttribute("errorMessage", "No user found in authentication principal");
+                return "updateSecurityQuestions";
+            }
 
             final boolean securityQuestionsUpdated = userService.updateUserSecurityQuestions
                     (currentUser, securityForm.getQuestion1(), securityForm.getAnswer1(), securityForm.getQuestion2(), securityForm.getAnswer2());
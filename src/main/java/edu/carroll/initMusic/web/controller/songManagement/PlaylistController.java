@@ -5,6 +5,8 @@ import edu.carroll.initMusic.config.CustomUserDetails;
 import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.songManagement.PlaylistService;
 import edu.carroll.initMusic.service.userManagement.UserService;
+import edu.carroll.initMusic.service.userManagement.UserSummary;
+import edu.carroll.initMusic.service.userManagement.UserSummaryService;
 import edu.carroll.initMusic.web.form.songManagement.DeletePlaylistForm;
 import edu.carroll.initMusic.web.form.songManagement.NewPlaylistForm;
 import edu.carroll.initMusic.web.form.songManagement.RenamePlaylistForm;
@@ -40,14 +42,20 @@ public class PlaylistController {
     /** Playlist service for operations involving playlist objects */
     private final PlaylistService playlistService;
 
+    /** User summary service for getting the current user's cached playlists */
+    private final UserSummaryService userSummaryService;
+
     /**
      * Default constructor
      *
-     * @param userService Injected userService
+     * @param userService        Injected userService
+     * @param playlistService    Injected playlistService
+     * @param userSummaryService Injected userSummaryService
      */
-    public PlaylistController(UserService userService, PlaylistService playlistService) {
+    public PlaylistController(UserService userService, PlaylistService playlistService, UserSummaryService userSummaryService) {
         this.userService = userService;
         this.playlistService = playlistService;
+        this.userSummaryService = userSummaryService;
     }
 
     /**
@@ -61,9 +69,9 @@ public class PlaylistController {
     public String showPlaylistPage(Model model, Authentication authentication) {
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userService.findByIdWithPlaylists(userDetails.getUser().getuserID());
+        final UserSummary user = userSummaryService.getUserSummary(userDetails.getUserID());
 
-        log.info("showPlaylistPage: {} went to playlist page", user.getuserID());
+        log.info("showPlaylistPage: {} went to playlist page", user.userID());
 
         model.addAttribute("currentUser", user);
         model.addAttribute("NewPlaylistForm", new NewPlaylistForm());
@@ -95,7 +103,7 @@ public class PlaylistController {
 
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userService.findByIdWithPlaylists(userDetails.getUser().getuserID());
+        final User user = userService.findByIdWithPlaylists(userDetails.getUserID());
 
         //If there are any binding errors, log errors and return back to playlists page
 
@@ -169,7 +177,7 @@ public class PlaylistController {
 
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userService.findByIdWithPlaylists(userDetails.getUser().getuserID());
+        final User user = userService.findByIdWithPlaylists(userDetails.getUserID());
         final String newPlaylistName = renamePlaylistForm.getNewPlaylistName();
         final Long playlistID = renamePlaylistForm.getPlaylistID();
         final String oldPlaylistName = playlistService.getPlaylist(playlistID).getPlaylistName();
@@ -215,7 +223,7 @@ public class PlaylistController {
 
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userService.findByIdWithPlaylists(userDetails.getUser().getuserID());
+        final User user = userService.findByIdWithPlaylists(userDetails.getUserID());
         final Long playlistID = deletePlaylistForm.getPlaylistID();
         final String playlistName = deletePlaylistForm.getPlaylistName();
 
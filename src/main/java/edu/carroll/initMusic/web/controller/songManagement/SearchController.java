@@ -4,10 +4,11 @@ import edu.carroll.initMusic.MethodOutcome;
 import edu.carroll.initMusic.config.CustomUserDetails;
 import edu.carroll.initMusic.jpa.model.Playlist;
 import edu.carroll.initMusic.jpa.model.Song;
-import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongResult;
 import edu.carroll.initMusic.service.songManagement.SongService;
-import edu.carroll.initMusic.service.userManagement.UserService;
+import edu.carroll.initMusic.service.userManagement.UserSummary;
+import edu.carroll.initMusic.service.userManagement.UserSummaryService;
 import edu.carroll.initMusic.web.form.songManagement.NewPlaylistForm;
 import edu.carroll.initMusic.web.form.songManagement.NewSongForm;
 import jakarta.servlet.http.HttpSession;
@@ -16,7 +17,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
@@ -45,8 +45,8 @@ public class SearchController {
     /** Song service for operations with songs and caches */
     private final SongService songService;
 
-    /** User service for operations with user objects */
-    private final UserService userService;
+    /** User summary service for getting the current user's cached playlists */
+    private final UserSummaryService userSummaryService;
 
     /** Playlist service for operations with playlist objects */
     private final PlaylistService playlistService;
@@ -54,12 +54,13 @@ public class SearchController {
     /**
      * Constructor
      *
-     * @param songService Injected song service
-     * @param userService Injected user service
+     * @param songService        Injected song service
+     * @param userSummaryService Injected user summary service
+     * @param playlistService    Injected playlist service
      */
-    public SearchController(SongService songService, UserService userService, PlaylistService playlistService) {
+    public SearchController(SongService songService, UserSummaryService userSummaryService, PlaylistService playlistService) {
         this.songService = songService;
-        this.userService = userService;
+        this.userSummaryService = userSummaryService;
         this.playlistService = playlistService;
     }
 
@@ -100,16 +101,15 @@ public class SearchController {
     public String showSearchPage(Model model, Authentication authentication, HttpSession session) {
         //Retrieve the current user from the session
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userDetails.getUser();
 
-        //Fetch user with playlists
-        final User fullUser = userService.findByIdWithPlaylists(user.getuserID());
+        //Get the (cached) summary of the user and their playlists
+        final UserSummary user = userSummaryService.getUserSummary(userDetails.getUserID());
 
-        log.info("showSearchPage: {} went to search page", fullUser.getuserID());
+        log.info("showSearchPage: {} went to search page", user.userID());
 
         //Add the user and their playlists to the model
-        model.addAttribute("currentUser", fullUser);
-        model.addAttribute("playlists", fullUser.getPlaylists());
+        model.addAttribute("currentUser", user);
+        model.addAttribute("playlists", user.playlists());
 
         /*
           Result is stored in the httpSession so its available after adding song to a playlist.
@@ -139,7 +139,8 @@ public class SearchController {
 
     /**
      * Performs the search for all songs related to the query param, and displays them
-     * on the page. Sets up the model so the user can add songs to a playlist if they wish
+     * on the page. Sets up the model so the user can add songs to a playlist if they wish.
+     * Not transactional, so no database connection is held while songs are searched for externally.
      *
      * @param songSearch     Song name to search for
      * @param artistSearch   Artist name to search for
@@ -148,12 +149,11 @@ public class SearchController {
      * @return Updated search page
      */
     @PostMapping("/search")
-    @Transactional
     public String search(@RequestParam(value = "songSearch") String songSearch,
                          @RequestParam(value = "artistSearch") String artistSearch, Model model, Authentication authentication, HttpSession session) {
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userService.findByIdWithPlaylists(userDetails.getUser().getuserID());
+        final UserSummary user = userSummaryService.getUserSummary(userDetails.getUserID());
 
         //Put the query into a format suitable for logging and displaying back to user
         String query = "";
@@ -165,7 +165,7 @@ public class SearchController {
             query = artistSearch;
         }
 
-        log.info("search: {} searched for songs with query '{}'", user.getuserID(), query);
+        log.info("search: {} searched for songs with query '{}'", user.userID(), query);
 
         //If either query isn't valid according to our criteria
         if (!songService.isValidQuery(songSearch) && !songService.isValidQuery(artistSearch)) {
@@ -174,14 +174,21 @@ public class SearchController {
             model.addAttribute("NewPlaylistForm", new NewPlaylistForm());
             model.addAttribute("searchError", "Song and Artist name both must be between " + MIN_QUERY_LENGTH + " and " + MAX_QUERY_LENGTH + " characters long, and" +
                     " there must be a song or artist name present.");
-            log.error("search: User id#{} searched using an invalid query", user.getUsername());
+            log.error("search: User id#{} searched using an invalid query", user.username());
             return "search"; // Return to the search page with error message
         }
 
-        final Set<Song> results = songService.searchForSongs(songSearch, artistSearch);
+        final Set<SongResult> results = songService.searchForSongs(songSearch, artistSearch);
+
+        //If the search failed
+        if (results == null) {
+            model.addAttribute("NewPlaylistForm", new NewPlaylistForm());
+            model.addAttribute("searchError", String.format("Couldn't search for '%s' right now, try again later", query));
+            return "search";
+        }
 
         //If no songs found
-        if (results == null || results.isEmpty()) {
+        if (results.isEmpty()) {
             //For whatever reason, when this if statement is triggered, the model is missing the
             //new playlist form, so we have to add it again here
             model.addAttribute("NewPlaylistForm", new NewPlaylistForm());
@@ -194,7 +201,7 @@ public class SearchController {
         model.addAttribute("results", results);
         model.addAttribute("query", query);
         model.addAttribute("currentUser", user);
-        model.addAttribute("playlists", user.getPlaylists());
+        model.addAttribute("playlists", user.playlists());
         model.addAttribute("newSongForm", new NewSongForm());
         model.addAttribute("NewPlaylistForm", new NewPlaylistForm());
 
@@ -250,7 +257,7 @@ public class SearchController {
         //If there are results in the httpsession, add them back to search page so they get displayed again
         if (session.getAttribute("results") instanceof Set<?>) {
             //Add results and query to flash attributes so they can be redisplayed again
-            final Set<Song> results = (Set<Song>) session.getAttribute("results");
+            final Set<SongResult> results = (Set<SongResult>) session.getAttribute("results");
             final String query = (String) session.getAttribute("query");
             attrs.addFlashAttribute("results", results);
             attrs.addFlashAttribute("query", query);
@@ -3,7 +3,6 @@ package edu.carroll.initMusic.web.controller.songManagement;
 import edu.carroll.initMusic.MethodOutcome;
 import edu.carroll.initMusic.config.CustomUserDetails;
 import edu.carroll.initMusic.jpa.model.Playlist;
-import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.songManagement.PlaylistService;
 import edu.carroll.initMusic.service.userManagement.UserService;
 import edu.carroll.initMusic.web.form.songManagement.DeleteSongFromPlaylistForm;
@@ -59,14 +58,13 @@ public class ViewPlaylistController {
     public String getViewPlaylistPage(@PathVariable("playlistID") Long playlistID, Model model, Authentication authentication) {
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userDetails.getUser();
-        log.info("getViewPlaylistPage: User id#{} went to view playlist id#{}", user.getuserID(), playlistID);
+        log.info("getViewPlaylistPage: User id#{} went to view playlist id#{}", userDetails.getUserID(), playlistID);
 
-        final Playlist playlist = playlistService.getPlaylist(playlistID);
+        final Playlist playlist = playlistService.getPlaylistWithSongs(playlistID);
 
         if (playlist == null) {
             model.addAttribute("error", "Playlist not found");
-            log.warn("getViewPlaylistPage: Playlist not found when user id#{} tried to view playlist id#{}", user.getuserID(), playlistID);
+            log.warn("getViewPlaylistPage: Playlist not found when user id#{} tried to view playlist id#{}", userDetails.getUserID(), playlistID);
             return "viewPlaylist";
         }
         model.addAttribute("playlist", playlist);
@@ -95,13 +93,12 @@ public class ViewPlaylistController {
 
         //Retrieve the current user
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userDetails.getUser();
 
         final Long playlistID = deleteSongFromPlaylistForm.getPlaylistID();
         final Long songID = deleteSongFromPlaylistForm.getSongID();
         final String songName = deleteSongFromPlaylistForm.getSongName();
         final String playlistName = deleteSongFromPlaylistForm.getPlaylistName();
-        log.info("User id#{} wants to delete song from playlist id#{}", user.getuserID(), playlistID);
+        log.info("User id#{} wants to delete song from playlist id#{}", userDetails.getUserID(), playlistID);
 
         //If there are any binding errors, log errors and return back to viewPlaylist page
         if (bindingResult.hasErrors()) {
@@ -1,7 +1,6 @@
 package edu.carroll.initMusic.web.controller.userManagement;
 
 import edu.carroll.initMusic.config.CustomUserDetails;
-import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.userManagement.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,11 +48,10 @@ public class ProfileController {
         // Get the logged-in user from the SecurityContext
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
 
-        final User currentUser = userDetails.getUser();
-        String username = currentUser.getUsername();
-        String email = currentUser.getEmail();
+        String username = userDetails.getUsername();
+        String email = userDetails.getEmail();
 
-        LocalDateTime accountCreation = currentUser.getAccountCreationDate();
+        LocalDateTime accountCreation = userDetails.getAccountCreationDate();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         String formattedDate = accountCreation.format(formatter);
         model.addAttribute("accountCreation", formattedDate);
@@ -76,11 +74,10 @@ public class ProfileController {
     public String deleteUser(Authentication authentication, RedirectAttributes redirectAttributes) {
         // Retrieve the logged-in user's details from the authentication object
         final CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-        final User user = userDetails.getUser();
 
         // If the user is authenticated, attempt to delete the account
-        if (user != null) {
-            String email = user.getEmail(); // Get the logged-in user's email
+        if (userDetails != null) {
+            String email = userDetails.getEmail(); // Get the logged-in user's email
             boolean isDeleted = userService.deleteByEmail(email);
             if (isDeleted) {
                 log.info("User with {} is deleted from initMusic", email);
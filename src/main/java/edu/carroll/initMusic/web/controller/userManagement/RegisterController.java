@@ -5,10 +5,12 @@ import edu.carroll.initMusic.jpa.model.User;
 import edu.carroll.initMusic.service.userManagement.UserService;
 import edu.carroll.initMusic.web.form.userManagement.RegistrationForm;
 import jakarta.servlet.http.HttpSession;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -56,40 +58,50 @@ public class RegisterController {
      * in the session.
      *
      * @param registrationForm the registration form submitted by the user.
+     * @param bindingResult    the result of validating the registration form.
      * @param model            the model to be used in the view.
      * @return the name of the view or a redirect URL based on the registration result.
      */
     @PostMapping("/register")
-    public String registerUser(@ModelAttribute RegistrationForm registrationForm, Model model, HttpSession session) {
+    public String registerUser(@Valid @ModelAttribute RegistrationForm registrationForm, BindingResult bindingResult,
+                               Model model, HttpSession session) {
         final String username = registrationForm.getUsername();
         final String email = registrationForm.getEmail();
 
         log.info("registerUser: Attempting to register user with username: {} and email: {}", username, email);
 
-        final MethodOutcome emailUnique = userService.uniqueEmail(email);
-        final MethodOutcome usernameUnique = userService.uniqueUserName(username);
+        //Email isn't valid, no need to check the database
+        if (bindingResult.getFieldError("email") != null) {
+            log.warn("registerUser: Invalid email {}, {}", email, bindingResult.getFieldError("email").getDefaultMessage());
+            model.addAttribute("errorMessage", bindingResult.getFieldError("email").getDefaultMessage());
+            model.addAttribute("registrationForm", new RegistrationForm());
+            return "register";
+        }
+
+        //Validates and checks both the email and username in one query
+        final MethodOutcome registrationChecked = userService.checkRegistration(username, email);
 
         // Check if the email already exists
-        if (emailUnique.equals(MethodOutcome.EMAIL_ALREADY_EXISTS)) {
+        if (registrationChecked.equals(MethodOutcome.EMAIL_ALREADY_EXISTS)) {
             log.warn("registerUser: Email already exists {}", email);
             // Redirect to a new page for users with existing emails
             return "emailTaken"; // Redirect to email taken page
         }
-        //UniqueEmail failed for some other reason
-        if(emailUnique.failed()){
-            log.warn("registerUser: Error checking for unique email {}, {}", email,emailUnique.getMessage());
-            model.addAttribute("errorMessage", emailUnique.getMessage());
+        //Email failed for some other reason
+        if (isEmailOutcome(registrationChecked)) {
+            log.warn("registerUser: Error checking for unique email {}, {}", email, registrationChecked.getMessage());
+            model.addAttribute("errorMessage", registrationChecked.getMessage());
             model.addAttribute("registrationForm", new RegistrationForm());
             return "register";
         }
         // Check if the username is already taken
-        if (usernameUnique.failed()) {
-            log.warn("registerUser: Error checking for unique username {}, {}", username,usernameUnique.getMessage());
+        if (registrationChecked.failed()) {
+            log.warn("registerUser: Error checking for unique username {}, {}", username, registrationChecked.getMessage());
             // Set an error message
-            if (usernameUnique.equals(MethodOutcome.USER_ALREADY_EXISTS)) {
+            if (registrationChecked.equals(MethodOutcome.USER_ALREADY_EXISTS)) {
                 model.addAttribute("errorMessage", "Username is taken. Please try a new one.");
             } else {
-                model.addAttribute("errorMessage", usernameUnique.getMessage());
+                model.addAttribute("errorMessage", registrationChecked.getMessage());
             }
             // Return to the registration form with the error message
             model.addAttribute("registrationForm", registrationForm); // Preserve the submitted data
@@ -104,7 +116,28 @@ public class RegisterController {
 
         // Save the user
         final User currentUser = userService.saveUser(username, password, email, firstName, lastName);
+        if (currentUser == null) {
+            //Everything was checked above, so the password couldn't be hashed right now
+            log.warn("registerUser: User {} couldn't be saved", username);
+            model.addAttribute("errorMessage", "Your account couldn't be created right now, please try again.");
+            model.addAttribute("registrationForm", registrationForm);
+            return "register";
+        }
         session.setAttribute("currentUser", currentUser);
         return "redirect:/securityQuestions"; // Redirect to security questions page
     }
+
+    /**
+     * Returns if the given outcome is a problem with the email
+     *
+     * @param outcome Outcome to check
+     * @return {@code true} if outcome is about the email, {@code false} otherwise
+     */
+    private static boolean isEmailOutcome(MethodOutcome outcome) {
+        return switch (outcome) {
+            case EMAIL_INVALID_FORMAT, EMAIL_ALREADY_EXISTS, EMAIL_TOO_LONG,
+                 EMAIL_LOCAL_PART_TOO_LONG, EMAIL_DOMAIN_LABEL_TOO_LONG -> true;
+            default -> false;
+        };
+    }
 }
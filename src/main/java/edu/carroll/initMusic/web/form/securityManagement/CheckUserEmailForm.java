@@ -1,10 +1,13 @@
 package edu.carroll.initMusic.web.form.securityManagement;
 
+import edu.carroll.initMusic.web.form.validation.ValidEmail;
+
 /**
  * This form is used to help handle checking for a valid email
  */
 public class CheckUserEmailForm {
     /** User's email */
+    @ValidEmail
     private String email;
 
     /**
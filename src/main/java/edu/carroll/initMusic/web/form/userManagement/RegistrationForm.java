@@ -1,5 +1,7 @@
 package edu.carroll.initMusic.web.form.userManagement;
 
+import edu.carroll.initMusic.web.form.validation.ValidEmail;
+
 /**
  * A form object for handling user registration data.
  * This class encapsulates the user's registration information, including
@@ -11,6 +13,7 @@ public class RegistrationForm {
     private String username;
 
     /** User's email */
+    @ValidEmail
     private String email;
 
     /** User's password */
@@ -0,0 +1,42 @@
+package edu.carroll.initMusic.web.form.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a form field as an email that has to be in a valid format and within the RFC length limits.
+ * A null email is not valid. The message of the violation describes what is wrong with the email.
+ *
+ * @see ValidEmailValidator
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ValidEmailValidator.class)
+public @interface ValidEmail {
+
+    /**
+     * Message used when the email is invalid, replaced by a more specific one when possible
+     *
+     * @return Message
+     */
+    String message() default "Email address is not a valid email address!";
+
+    /**
+     * Validation groups
+     *
+     * @return Groups
+     */
+    Class<?>[] groups() default {};
+
+    /**
+     * Payload of constraint
+     *
+     * @return Payload
+     */
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,44 @@
+package edu.carroll.initMusic.web.form.validation;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.service.userManagement.EmailValidator;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Checks fields marked with {@link ValidEmail} using the same {@link EmailValidator} the user service uses,
+ * so a form and the service can never disagree on what a valid email is.
+ */
+public class ValidEmailValidator implements ConstraintValidator<ValidEmail, String> {
+
+    /** Validator that does the actual checking */
+    private final EmailValidator emailValidator;
+
+    /**
+     * Injects dependencies
+     *
+     * @param emailValidator Email validator needed
+     */
+    public ValidEmailValidator(EmailValidator emailValidator) {
+        this.emailValidator = emailValidator;
+    }
+
+    /**
+     * Checks if the given email is valid, and if not, replaces the default message with
+     * the message of the problem found.
+     *
+     * @param email   Email to check
+     * @param context Context of the validation
+     * @return {@code true} if the email is valid, {@code false} otherwise
+     */
+    @Override
+    public boolean isValid(String email, ConstraintValidatorContext context) {
+        final MethodOutcome emailValid = emailValidator.validate(email);
+        if (emailValid.failed()) {
+            context.disableDefaultConstraintViolation();
+            context.buildConstraintViolationWithTemplate(emailValid.getMessage()).addConstraintViolation();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Opens the preview of a song in a small popup window in the middle of the screen.
+ * The url of the preview page is taken from the link's data-url attribute.
+ * @param link Preview link that was clicked
+ * @returns {boolean} false, so the link itself isn't followed
+ */
+function openPreview(link) {
+    const width = 300, height = 200;
+    const left = (window.innerWidth - width) / 2, top = (window.innerHeight - height) / 2 + 50;
+    window.open(link.getAttribute('data-url'), 'popupWindow',
+        'width=' + width + ',height=' + height + ',left=' + left + ',top=' + top);
+    return false;
+}
@@ -0,0 +1,68 @@
+package edu.carroll.initMusic.config;
+
+import edu.carroll.initMusic.service.userManagement.CustomUserDetailsService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Tests that only admins can use the actuator endpoints
+ */
+@SpringBootTest(properties = "initmusic.security.admin-usernames=adminUser")
+@AutoConfigureMockMvc
+public class ActuatorSecurityTests {
+
+    /** Used to make requests */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** Used to save the users */
+    @Autowired
+    private UserService userService;
+
+    /** Used to load the users like logging in does */
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    /**
+     * Saves an admin and a user who isn't one
+     */
+    @BeforeEach
+    void setUp() {
+        userService.clearRepo();
+        assertNotNull(userService.saveUser("adminUser", "password", "admin@email.com", "first", "last"), "Admin should've been saved");
+        assertNotNull(userService.saveUser("normalUser", "password", "normal@email.com", "first", "last"), "User should've been saved");
+    }
+
+    /**
+     * Gets the health endpoint as the given user
+     *
+     * @param username Username of user
+     * @return Status of the response
+     * @throws Exception If the request fails
+     */
+    private int getHealth(String username) throws Exception {
+        final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
+        return mockMvc.perform(get("/actuator/health").with(user(userDetails))).andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    public void configuredAdminIsAdmin() {
+        assertTrue(((CustomUserDetails) userDetailsService.loadUserByUsername("ADMINUSER")).admin(), "Configured username should be an admin whatever its case");
+        assertFalse(((CustomUserDetails) userDetailsService.loadUserByUsername("normalUser")).admin(), "Other users shouldn't be admins");
+    }
+
+    @Test
+    public void onlyAdminsCanUseActuator() throws Exception {
+        assertEquals(200, getHealth("adminUser"), "Admin should be able to use the actuator");
+        assertEquals(403, getHealth("normalUser"), "Users who aren't admins shouldn't be able to use the actuator");
+    }
+}
@@ -0,0 +1,150 @@
+package edu.carroll.initMusic.config;
+
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Tests that logging in, registering or changing a password while the password hashing pool is saturated
+ * fails with an error the user can act on, instead of erroring
+ */
+@SpringBootTest(properties = {
+        "initmusic.security.hashing.pool-size=1",
+        "initmusic.security.hashing.queue-capacity=1",
+        "initmusic.security.hashing.timeout-ms=1"})
+@AutoConfigureMockMvc
+public class PasswordHashingLoginTests {
+
+    /** Cost of the stored hash, high enough that checking it keeps the only hashing thread busy for a while */
+    private static final int STORED_STRENGTH = 13;
+
+    /** Number of logins tried at once, more than the pool and its queue can take */
+    private static final int LOGINS = 4;
+
+    /** Used to log in */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** Used to clear users */
+    @Autowired
+    private UserService userService;
+
+    /** Used to save the user with a slow hash, without hashing it on the pool */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** Registry the encoder publishes its rejections to */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** User whose stored hash is slow to check */
+    private User slowUser;
+
+    /**
+     * Saves a user whose stored hash is slow to check
+     */
+    @BeforeEach
+    void setUp() {
+        userService.clearRepo();
+        slowUser = userRepository.save(new User("slowUser", new BCryptPasswordEncoder(STORED_STRENGTH).encode("password"),
+                "first", "last", "slow@email.com", "question1", "question2", "answer1", "answer2"));
+    }
+
+    /**
+     * Logs in as the slow user
+     *
+     * @return Result of the login
+     * @throws Exception If the request fails
+     */
+    private MvcResult login() throws Exception {
+        return mockMvc.perform(post("/login")
+                .param("username", "slowUser")
+                .param("password", "password")
+                .with(csrf())).andReturn();
+    }
+
+    /**
+     * Fills the only hashing thread and its queue with the slow user's logins
+     *
+     * @throws Exception If a request fails
+     */
+    private void saturatePool() throws Exception {
+        login();
+        login();
+    }
+
+    @Test
+    public void loginWhilePoolIsSaturatedFails() throws Exception {
+        final double rejectedBefore = meterRegistry.get("initmusic.password.hashing.rejected").counter().count();
+
+        //The first check times out but keeps the thread, the second waits in the queue, the rest are rejected
+        for (int i = 0; i < LOGINS; i++) {
+            final MvcResult result = login();
+
+            assertEquals(302, result.getResponse().getStatus(), "Login that couldn't check the password should redirect");
+            assertEquals("/login?error", result.getResponse().getRedirectedUrl(), "Login that couldn't check the password should fail");
+        }
+
+        assertTrue(meterRegistry.get("initmusic.password.hashing.rejected").counter().count() > rejectedBefore,
+                "Logins past the pool and its queue should've been rejected");
+    }
+
+    @Test
+    public void registrationWhilePoolIsSaturatedFails() throws Exception {
+        saturatePool();
+        final MvcResult result = mockMvc.perform(post("/register")
+                .param("username", "newUser")
+                .param("email", "new@email.com")
+                .param("password", "password")
+                .param("confirmPassword", "password")
+                .param("firstName", "first")
+                .param("lastName", "last")
+                .with(csrf())).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus(), "Registration that couldn't hash the password shouldn't error");
+        assertEquals("register", result.getModelAndView().getViewName(), "User should be sent back to the registration form");
+        assertNotNull(result.getModelAndView().getModel().get("errorMessage"), "User should be told to try again");
+        assertNull(userService.findByEmail("new@email.com"), "User shouldn't have been saved");
+    }
+
+    @Test
+    public void forgottenPasswordChangeWhilePoolIsSaturatedFails() throws Exception {
+        saturatePool();
+        final MvcResult result = mockMvc.perform(post("/changePassword")
+                .sessionAttr("currentUser", slowUser)
+                .param("newPassword", "newPassword")
+                .with(csrf())).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus(), "Password change that couldn't hash the password shouldn't error");
+        assertEquals("changePassword", result.getModelAndView().getViewName(), "User should be sent back to the form");
+        assertNotNull(result.getModelAndView().getModel().get("errorMessage"), "User should be told to try again");
+    }
+
+    @Test
+    public void passwordChangeWhilePoolIsSaturatedFails() throws Exception {
+        saturatePool();
+        final MvcResult result = mockMvc.perform(post("/changePasswordLoggedIn")
+                .with(user(CustomUserDetails.from(slowUser)))
+                .param("oldPassword", "password")
+                .param("newPassword", "newPassword")
+                .with(csrf())).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus(), "Password change that couldn't check the password shouldn't error");
+        assertEquals("changePasswordLoggedIn", result.getModelAndView().getViewName(), "User should be sent back to the form");
+        assertNotNull(result.getModelAndView().getModel().get("error"), "User should be told to try again");
+    }
+}
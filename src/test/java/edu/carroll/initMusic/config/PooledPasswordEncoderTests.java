@@ -0,0 +1,79 @@
+package edu.carroll.initMusic.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the PooledPasswordEncoder class
+ */
+public class PooledPasswordEncoderTests {
+
+    /** Cost factor the encoder is configured with */
+    private static final int STRENGTH = 5;
+
+    /** Registry the encoder publishes metrics to */
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Encoder we are testing */
+    private PooledPasswordEncoder encoder;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        encoder = new PooledPasswordEncoder(STRENGTH, 2, 4, 5000, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        encoder.destroy();
+    }
+
+    @Test
+    public void encodeThenMatches() {
+        final String hash = encoder.encode("password");
+
+        assertTrue(hash.startsWith("$2a$05$"), "Hash should be made with the configured strength");
+        assertTrue(encoder.matches("password", hash), "Password should match its own hash");
+        assertFalse(encoder.matches("wrongPassword", hash), "Wrong password should not match the hash");
+    }
+
+    @Test
+    public void matchesHashMadeWithDifferentStrength() {
+        final String hash = new BCryptPasswordEncoder(4).encode("password");
+
+        assertTrue(encoder.matches("password", hash), "Password should match a hash made with a different cost");
+    }
+
+    @Test
+    public void upgradeEncodingWhenStrengthDiffers() {
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")), "Hash with a lower cost should be upgraded");
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")), "Hash with a higher cost should be upgraded");
+    }
+
+    @Test
+    public void upgradeEncodingWhenStrengthSame() {
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password")), "Hash with the configured cost should not be upgraded");
+    }
+
+    @Test
+    public void upgradeEncodingInvalidHash() {
+        assertFalse(encoder.upgradeEncoding(null), "Null hash should not be upgraded");
+        assertFalse(encoder.upgradeEncoding(""), "Empty hash should not be upgraded");
+        assertFalse(encoder.upgradeEncoding("notAHash"), "Non BCrypt hash should not be upgraded");
+    }
+
+    @Test
+    public void metricsAreRegistered() {
+        encoder.encode("password");
+
+        assertNotNull(meterRegistry.find("initmusic.password.hashing.queue.depth").gauge(), "Queue depth gauge should be registered");
+        assertNotNull(meterRegistry.find("initmusic.password.hashing.active").gauge(), "Active threads gauge should be registered");
+        assertEquals(1, meterRegistry.find("initmusic.password.hashing.duration").timer().count(), "Timer should have recorded one hash");
+        assertEquals(0, meterRegistry.find("initmusic.password.hashing.rejected").counter().count(), "No hashes should have been rejected");
+    }
+}
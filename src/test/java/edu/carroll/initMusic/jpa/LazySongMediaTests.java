@@ -0,0 +1,129 @@
+package edu.carroll.initMusic.jpa;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongMetadataCache;
+import edu.carroll.initMusic.service.songManagement.SongResult;
+import edu.carroll.initMusic.service.songManagement.SongServiceImpl;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a song's cover art and preview links are only loaded where songs are shown.
+ * Not transactional, so songs are detached once returned like they would be in a request,
+ * and reading a link that wasn't loaded would fail.
+ */
+@SpringBootTest
+public class LazySongMediaTests {
+
+    /** Cover art link of the saved song */
+    private static final String IMG = "https://e-cdns-images.dzcdn.net/images/cover/1/250x250.jpg";
+
+    /** Preview link of the saved song */
+    private static final String PREVIEW = "https://cdns-preview-1.dzcdn.net/stream/1.mp3";
+
+    /** Service class for managing playlist-related operations */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Service class for managing user-related operations */
+    @Autowired
+    private UserService userService;
+
+    /** Service class for handling song-related operations */
+    @Autowired
+    private SongServiceImpl songService;
+
+    /** Cache search results are resolved through */
+    @Autowired
+    private SongMetadataCache songMetadataCache;
+
+    /** Factory whose cache is emptied, so songs are loaded from the database */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** ID of the playlist the song is in */
+    private Long playlistID;
+
+    @BeforeEach
+    void setUp() {
+        playlistService.clearRepo();
+        songService.clearRepo();
+        userService.clearRepo();
+        songMetadataCache.clear();
+
+        final User user = userService.saveUser("mediaUser", "password", "media@email.com", "first", "last");
+        playlistService.createPlaylist("Media Playlist", userService.findByIdWithPlaylists(user.getuserID()));
+        playlistID = userService.findByIdWithPlaylists(user.getuserID()).getPlaylist("Media Playlist").getPlaylistID();
+        final Song song = new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L);
+        song.setSongImg(IMG);
+        song.setSongPreview(PREVIEW);
+        assertEquals(MethodOutcome.SUCCESS, playlistService.addSongToPlaylist(playlistService.getPlaylist(playlistID), song),
+                "Song should be added to playlist");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void songLookupDoesNotLoadMedia() {
+        final Song found = songService.findSong(new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L));
+
+        assertNotNull(found, "Saved song should be found");
+        assertFalse(Hibernate.isPropertyInitialized(found, "songImg"), "Cover art shouldn't be loaded to find a song");
+        assertFalse(Hibernate.isPropertyInitialized(found, "songPreview"), "Preview shouldn't be loaded to find a song");
+        assertTrue(found.toString().contains("songImg='<not loaded>'"), "Logging the song shouldn't load its media");
+    }
+
+    @Test
+    void comparingSongsDoesNotLoadMedia() {
+        final Song found = songService.findSong(new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L));
+        final Set<Song> songs = new HashSet<>(Set.of(found));
+
+        assertTrue(songs.contains(new Song(1L, "Renamed", 4, "Artist", 2021L, "Album", 0L)), "Songs with the same Deezer ID should be the same song");
+        assertTrue(songs.remove(found), "Found song should be removed from the set");
+        assertFalse(Hibernate.isPropertyInitialized(found, "songImg"), "Cover art shouldn't be loaded to compare songs");
+        assertFalse(Hibernate.isPropertyInitialized(found, "songPreview"), "Preview shouldn't be loaded to compare songs");
+    }
+
+    @Test
+    void viewedPlaylistHasMedia() {
+        final Playlist playlist = playlistService.getPlaylistWithSongs(playlistID);
+
+        assertEquals(1, playlist.getSongs().size(), "Playlist's song should be loaded");
+        final Song song = playlist.getSongs().iterator().next();
+        assertEquals(IMG, song.getSongImg(), "Shown song's cover art should be loaded");
+        assertEquals(PREVIEW, song.getSongPreview(), "Shown song's preview should be loaded");
+    }
+
+    @Test
+    void viewedPlaylistHasMediaWhenCached() {
+        playlistService.getPlaylistWithSongs(playlistID);
+        songService.findSong(new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L));
+
+        final Song song = playlistService.getPlaylistWithSongs(playlistID).getSongs().iterator().next();
+        assertEquals(IMG, song.getSongImg(), "Cached song's cover art should be loaded to be shown");
+        assertEquals(PREVIEW, song.getSongPreview(), "Cached song's preview should be loaded to be shown");
+    }
+
+    @Test
+    void resolvedSearchResultsHaveMedia() {
+        final List<SongResult> resolved = songMetadataCache.resolve(new long[]{1L});
+
+        assertEquals(1, resolved.size(), "Saved song should be resolved");
+        assertEquals(IMG, resolved.getFirst().getSongImg(), "Search result's cover art should be loaded");
+        assertEquals(PREVIEW, resolved.getFirst().getSongPreview(), "Search result's preview should be loaded");
+    }
+}
@@ -0,0 +1,109 @@
+package edu.carroll.initMusic.jpa;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongServiceImpl;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that songs and playlists loaded by key are answered by the second-level cache
+ * once loaded, and that adding or removing songs invalidates it. Not transactional, so
+ * every call has its own persistence context like it would in a request.
+ */
+@SpringBootTest
+public class SecondLevelCacheTests {
+
+    /** Role of the songs collection on Playlist */
+    private static final String PLAYLIST_SONGS_ROLE = Playlist.class.getName() + ".songs";
+
+    /** Service class for managing playlist-related operations */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Service class for managing user-related operations */
+    @Autowired
+    private UserService userService;
+
+    /** Service class for handling song-related operations */
+    @Autowired
+    private SongServiceImpl songService;
+
+    /** Factory whose cache and statistics are checked */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** Hibernate's statistics, cleared before each measured call */
+    private Statistics statistics;
+
+    /** ID of the playlist the songs are added to */
+    private Long playlistID;
+
+    @BeforeEach
+    void setUp() {
+        playlistService.clearRepo();
+        songService.clearRepo();
+        userService.clearRepo();
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        final User user = userService.saveUser("cacheUser", "password", "cache@email.com", "first", "last");
+        playlistService.createPlaylist("Cached Playlist", userService.findByIdWithPlaylists(user.getuserID()));
+        playlistID = userService.findByIdWithPlaylists(user.getuserID()).getPlaylist("Cached Playlist").getPlaylistID();
+        assertEquals(MethodOutcome.SUCCESS, playlistService.addSongToPlaylist(playlistService.getPlaylist(playlistID),
+                new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L)), "Song should be added to playlist");
+    }
+
+    @Test
+    void repeatedPlaylistLoadIsCached() {
+        playlistService.getPlaylistWithSongs(playlistID);
+        statistics.clear();
+
+        final Playlist playlist = playlistService.getPlaylistWithSongs(playlistID);
+
+        assertEquals(1, playlist.getSongs().size(), "Playlist's songs should be loaded");
+        assertEquals(0, statistics.getEntityStatistics(Playlist.class.getName()).getFetchCount(), "Playlist should come from the cache");
+        assertEquals(0, statistics.getEntityStatistics(Song.class.getName()).getFetchCount(), "Songs should come from the cache");
+        assertEquals(0, statistics.getCollectionStatistics(PLAYLIST_SONGS_ROLE).getFetchCount(), "Playlist's songs should come from the cache");
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0, "Cache should have been hit");
+    }
+
+    @Test
+    void repeatedSongLookupIsCached() {
+        final Song search = new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L);
+        assertNotNull(songService.findSong(search), "Saved song should be found");
+        statistics.clear();
+
+        assertNotNull(songService.findSong(search), "Saved song should be found again");
+        assertEquals(0, statistics.getPrepareStatementCount(), "Song found before should be found without the database");
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0, "Song should have been found in the cache by its indexed id");
+    }
+
+    @Test
+    void addingAndRemovingSongsInvalidatesPlaylist() {
+        assertEquals(1, playlistService.getPlaylistWithSongs(playlistID).getSongs().size(), "Playlist should have its first song");
+
+        final Song second = new Song(2L, "Second Title", 4, "Artist", 2021L, "Album", 0L);
+        assertEquals(MethodOutcome.SUCCESS, playlistService.addSongToPlaylist(playlistService.getPlaylist(playlistID), second),
+                "Second song should be added");
+        final Playlist added = playlistService.getPlaylistWithSongs(playlistID);
+        assertEquals(2, added.getSongs().size(), "Cached songs should include the added song");
+        assertEquals(2, added.getNumberOfSongs(), "Cached playlist should have the new song count");
+
+        assertEquals(MethodOutcome.SUCCESS, playlistService.removeSongFromPlaylist(playlistID, second.getDeezerID()), "Second song should be removed");
+        final Playlist removed = playlistService.getPlaylistWithSongs(playlistID);
+        assertEquals(1, removed.getSongs().size(), "Cached songs shouldn't include the removed song");
+        assertEquals(1, removed.getNumberOfSongs(), "Cached playlist should have the new song count");
+    }
+}
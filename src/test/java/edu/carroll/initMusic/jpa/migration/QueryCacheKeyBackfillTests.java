@@ -0,0 +1,90 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryCacheKeyBackfill migration on a database that still has the old join table
+ */
+@SpringBootTest
+public class QueryCacheKeyBackfillTests {
+
+    /** Migration being tested */
+    @Autowired
+    private QueryCacheKeyBackfill queryCacheKeyBackfill;
+
+    /** Repository caches are saved in */
+    @Autowired
+    private QueryCacheRepository queryCacheRepository;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to clear songs after each test */
+    @Autowired
+    private SongService songService;
+
+    /** Used to make the old join table, which isn't mapped anymore */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Makes the join table the way the first release of the schema had it, with its foreign keys
+     */
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        jdbcTemplate.execute("CREATE TABLE query_cache_song (query_cacheid BIGINT NOT NULL, song_id BIGINT NOT NULL, " +
+                "PRIMARY KEY (query_cacheid, song_id), " +
+                "FOREIGN KEY (query_cacheid) REFERENCES query_cache (query_cacheid), " +
+                "FOREIGN KEY (song_id) REFERENCES song (id))");
+    }
+
+    /**
+     * Drops the join table, then deletes the caches and songs
+     */
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS query_cache_song");
+        queryCacheRepository.deleteAll();
+        songService.clearRepo();
+    }
+
+    @Test
+    public void cacheThatCantBeRekeyedIsDeletedWithItsJoinRows() {
+        final Song song = new Song(1L, "song1", 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        songRepository.save(song);
+        final long songID = songRepository.findIdentitiesByDeezerIDIn(List.of(1L)).getFirst().getSongID();
+
+        final QueryCache cache = new QueryCache();
+        cache.setQuery("not a legacy query");
+        final long cacheID = queryCacheRepository.save(cache).getQueryCacheID();
+        jdbcTemplate.update("INSERT INTO query_cache_song (query_cacheid, song_id) VALUES (?, ?)", cacheID, songID);
+
+        queryCacheKeyBackfill.migrate();
+
+        assertFalse(queryCacheRepository.existsById(cacheID), "Cache that can't be rekeyed should've been deleted");
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM query_cache_song", Integer.class),
+                "Its join rows should've been deleted first");
+    }
+}
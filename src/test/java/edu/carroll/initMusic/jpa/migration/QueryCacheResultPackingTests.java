@@ -0,0 +1,150 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.jpa.repo.SongIdentity;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.QueryKey;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryCacheResultPacking migration, starting from the join table every cache's results used to be in
+ */
+@SpringBootTest
+public class QueryCacheResultPackingTests {
+
+    /** Migration being tested */
+    @Autowired
+    private QueryCacheResultPacking queryCacheResultPacking;
+
+    /** Repository caches are saved in */
+    @Autowired
+    private QueryCacheRepository queryCacheRepository;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to clear songs after each test */
+    @Autowired
+    private SongService songService;
+
+    /** Used to make the old join table, which isn't mapped anymore */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Makes the join table the way the first release of the schema had it, without a result_order column
+     */
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        jdbcTemplate.execute("CREATE TABLE query_cache_song (query_cacheid BIGINT NOT NULL, song_id BIGINT NOT NULL, " +
+                "PRIMARY KEY (query_cacheid, song_id), " +
+                "FOREIGN KEY (query_cacheid) REFERENCES query_cache (query_cacheid), " +
+                "FOREIGN KEY (song_id) REFERENCES song (id))");
+    }
+
+    /**
+     * Drops the join table, then deletes the caches and songs
+     */
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS query_cache_song");
+        queryCacheRepository.deleteAll();
+        songService.clearRepo();
+    }
+
+    /**
+     * Saves a song with the given deezerID
+     *
+     * @param deezerID Deezer ID of song
+     * @return Song's id
+     */
+    private long saveSong(long deezerID) {
+        final Song song = new Song(deezerID, "song" + deezerID, 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        songRepository.save(song);
+        final SongIdentity saved = songRepository.findIdentitiesByDeezerIDIn(List.of(deezerID)).getFirst();
+        return saved.getSongID();
+    }
+
+    /**
+     * Saves a cache the way they were saved before results were packed
+     *
+     * @param songName Song name searched for
+     * @return Cache's id
+     */
+    private long saveLegacyCache(String songName) {
+        final QueryKey queryKey = QueryKey.of(songName, "");
+        final QueryCache cache = new QueryCache();
+        cache.setQuery(queryKey.canonical());
+        cache.setQueryHash(queryKey.hash());
+        return queryCacheRepository.save(cache).getQueryCacheID();
+    }
+
+    /**
+     * Counts the rows left in the join table
+     *
+     * @return Number of join rows
+     */
+    private int joinRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM query_cache_song", Integer.class);
+    }
+
+    @Test
+    public void unorderedResultsAreDroppedWithoutResultOrderColumn() {
+        final long songID = saveSong(1L);
+        final long cacheID = saveLegacyCache("unordered");
+        jdbcTemplate.update("INSERT INTO query_cache_song (query_cacheid, song_id) VALUES (?, ?)", cacheID, songID);
+
+        queryCacheResultPacking.migrate();
+
+        final QueryCache cache = queryCacheRepository.findById(cacheID).orElseThrow();
+        assertTrue(cache.hasPackedResults(), "Cache should have packed results");
+        assertEquals(0, cache.getResultCount(), "Unordered results should've been dropped");
+        assertEquals(0, joinRows(), "Join rows should've been deleted");
+    }
+
+    @Test
+    public void orderedResultsArePackedInOrder() {
+        jdbcTemplate.execute("ALTER TABLE query_cache_song ADD COLUMN result_order INT");
+        final long firstID = saveSong(1L);
+        final long secondID = saveSong(2L);
+        final long cacheID = saveLegacyCache("ordered");
+        jdbcTemplate.update("INSERT INTO query_cache_song (query_cacheid, song_id, result_order) VALUES (?, ?, 1)", cacheID, firstID);
+        jdbcTemplate.update("INSERT INTO query_cache_song (query_cacheid, song_id, result_order) VALUES (?, ?, 0)", cacheID, secondID);
+
+        queryCacheResultPacking.migrate();
+
+        final QueryCache cache = queryCacheRepository.findById(cacheID).orElseThrow();
+        assertArrayEquals(new long[]{2L, 1L}, cache.getResultIds(), "Results should be packed in their ranked order");
+        assertEquals(0, joinRows(), "Join rows should've been deleted");
+    }
+
+    @Test
+    public void cachesArePackedWithoutJoinTable() {
+        jdbcTemplate.execute("DROP TABLE query_cache_song");
+        final long cacheID = saveLegacyCache("nojointable");
+
+        queryCacheResultPacking.migrate();
+
+        assertEquals(0, queryCacheRepository.findById(cacheID).orElseThrow().getResultCount(), "Cache should be packed without results");
+    }
+}
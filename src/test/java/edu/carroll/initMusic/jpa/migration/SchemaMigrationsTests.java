@@ -0,0 +1,40 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the SchemaMigrations class runs every migration, in order
+ */
+@SpringBootTest
+public class SchemaMigrationsTests {
+
+    /** Migrations as they're given to SchemaMigrations */
+    @Autowired
+    private List<SchemaMigration> migrations;
+
+    @Test
+    public void migrationsAreInOrder() {
+        final List<Class<?>> order = new ArrayList<>();
+        for (SchemaMigration migration : migrations) {
+            order.add(migration.getClass());
+        }
+        assertEquals(List.of(UserNormalizationBackfill.class, SongCatalogMigration.class,
+                        QueryCacheResultPacking.class, QueryCacheKeyBackfill.class), order,
+                "Migrations should run in the order each one depends on");
+    }
+
+    @Test
+    public void migrationsRunInGivenOrder() {
+        final List<String> ran = new ArrayList<>();
+        new SchemaMigrations(List.of(() -> ran.add("first"), () -> ran.add("second"))).afterSingletonsInstantiated();
+
+        assertEquals(List.of("first", "second"), ran, "Every migration should run, in the order given");
+    }
+}
@@ -0,0 +1,100 @@
+package edu.carroll.initMusic.jpa.migration;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SongCatalogMigration migration on a song table that still has the old name columns
+ */
+@SpringBootTest
+public class SongCatalogMigrationTests {
+
+    /** Migration being tested */
+    @Autowired
+    private SongCatalogMigration songCatalogMigration;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to clear songs, artists and albums after each test */
+    @Autowired
+    private SongService songService;
+
+    /** Factory whose second-level cache is emptied after each test */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** Used to make the old columns, which aren't mapped anymore */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Saves a song, then puts its album's name only in the old column, like before the album table was filled
+     */
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        final Song song = new Song(1L, "song1", 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        songRepository.save(song);
+
+        jdbcTemplate.execute("ALTER TABLE song ADD COLUMN album_name VARCHAR(255)");
+        jdbcTemplate.update("UPDATE song SET album_name = 'old album'");
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            jdbcTemplate.update("DELETE FROM album");
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    /**
+     * Drops the old columns, then deletes the songs, artists and albums
+     */
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("ALTER TABLE song DROP COLUMN IF EXISTS artist_name");
+        jdbcTemplate.execute("ALTER TABLE song DROP COLUMN IF EXISTS album_name");
+        songService.clearRepo();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void columnLeftByEarlierRunIsMovedAndDropped() {
+        //The artist column was already moved and dropped by a run that stopped before the album column
+        songCatalogMigration.migrate();
+
+        assertEquals("old album", jdbcTemplate.queryForObject("SELECT name FROM album WHERE deezer_id = 1", String.class),
+                "Album name should've been moved out of the song table");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM artist", Integer.class),
+                "Artist that was already moved shouldn't be moved again");
+        assertFalse(SchemaProbe.hasColumns(jdbcTemplate, "song", "album_name"), "Old album column should've been dropped");
+    }
+
+    @Test
+    public void runningAgainDoesNothing() {
+        songCatalogMigration.migrate();
+        songCatalogMigration.migrate();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM album", Integer.class),
+                "Album shouldn't be moved twice");
+    }
+}
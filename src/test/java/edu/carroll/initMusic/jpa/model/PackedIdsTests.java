@@ -0,0 +1,62 @@
+package edu.carroll.initMusic.jpa.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the PackedIds class
+ */
+public class PackedIdsTests {
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, PackedIds.encode(new long[0]).length, "No ids should pack to no bytes");
+        assertEquals(0, PackedIds.decode(null).length, "Null bytes should unpack to no ids");
+        assertEquals(0, PackedIds.decode(new byte[0]).length, "No bytes should unpack to no ids");
+        assertEquals(0, PackedIds.count(null), "Null bytes should have no ids");
+    }
+
+    @Test
+    public void testRoundTripKeepsOrder() {
+        final long[] ids = {3135556L, 0L, 127L, 128L, 16384L, 2_147_483_648L, Long.MAX_VALUE, -1L};
+
+        final byte[] packed = PackedIds.encode(ids);
+
+        assertArrayEquals(ids, PackedIds.decode(packed), "Ids should unpack in the same order they were packed");
+        assertEquals(ids.length, PackedIds.count(packed), "Count should match the number of ids packed");
+    }
+
+    @Test
+    public void testDeezerIdsAreSmallerThanLongs() {
+        final long[] ids = new long[25];
+        final Random random = new Random(34);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong(1, 4_000_000_000L);
+        }
+
+        assertTrue(PackedIds.encode(ids).length <= ids.length * 5, "Deezer ids should take at most 5 bytes each");
+    }
+
+    @Test
+    public void testRandomRoundTrips() {
+        final Random random = new Random(1_000_000);
+        for (int i = 0; i < 1000; i++) {
+            final long[] ids = new long[random.nextInt(50)];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = random.nextLong() >>> random.nextInt(64);
+            }
+            assertArrayEquals(ids, PackedIds.decode(PackedIds.encode(ids)), "Random ids should round trip");
+        }
+    }
+
+    @Test
+    public void testTruncatedBytes() {
+        final byte[] packed = PackedIds.encode(new long[]{300L});
+        final byte[] truncated = {packed[0]};
+
+        assertThrows(IllegalArgumentException.class, () -> PackedIds.decode(truncated), "Bytes that end in the middle of an id should be rejected");
+    }
+}
@@ -4,8 +4,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,18 +31,42 @@ public class QueryCacheTests {
     }
 
     @Test
-    public void testAddResults() {
-        // Add songs to the results
-        Set<Song> results = new HashSet<>();
-        results.add(song1);
-        results.add(song2);
-
-        queryCache.setResults(results);
-
-        // Verify the results are added
-        assertEquals(2, queryCache.getResults().size(), "The results set should contain two songs.");
-        assertTrue(queryCache.getResults().contains(song1), "The results set should contain song1.");
-        assertTrue(queryCache.getResults().contains(song2), "The results set should contain song2.");
+    public void testResultIds() {
+        // No results saved yet
+        assertEquals(0, queryCache.getResultIds().length, "A cache without results should return no ids.");
+        assertFalse(queryCache.hasPackedResults(), "A new cache shouldn't have packed results yet.");
+
+        queryCache.setResultIds(new long[]{song2.getDeezerID(), song1.getDeezerID()});
+
+        // Verify the ids are kept in the order they were given
+        assertArrayEquals(new long[]{2L, 1L}, queryCache.getResultIds(), "The result ids should be in the order they were set.");
+        assertEquals(2, queryCache.getResultCount(), "The cache should have two results.");
+        assertTrue(queryCache.hasPackedResults(), "The cache should have packed results once they're set.");
+    }
+
+    @Test
+    public void testScores() {
+        // No scores saved yet
+        assertEquals(0, queryCache.getScores().length, "A cache without scores should return no scores.");
+
+        queryCache.setScores(new float[]{0.0f, 0.25f, 0.5f});
+
+        // Verify the scores are unpacked in the same order
+        assertArrayEquals(new float[]{0.0f, 0.25f, 0.5f}, queryCache.getScores(), "The scores should match those that were set.");
+    }
+
+    @Test
+    public void testChurn() {
+        // Same songs, even in a different order, haven't changed
+        assertEquals(0.0, QueryCache.churn(new long[]{1L, 2L, 3L}, new long[]{3L, 1L, 2L}), "Same songs in a different order should have no churn.");
+        assertEquals(0.0, QueryCache.churn(new long[0], new long[0]), "Two empty results should have no churn.");
+
+        // One song replaced out of four in either: two of the four are in only one of them
+        assertEquals(0.5, QueryCache.churn(new long[]{1L, 2L, 3L}, new long[]{1L, 2L, 4L}), "Replacing one of three songs should change half of them.");
+
+        // Nothing in common
+        assertEquals(1.0, QueryCache.churn(new long[]{1L, 2L}, new long[]{3L}), "Results with no songs in common should have full churn.");
+        assertEquals(1.0, QueryCache.churn(new long[]{1L}, new long[0]), "Losing every song should have full churn.");
     }
 
     @Test
@@ -65,6 +87,19 @@ public class QueryCacheTests {
         assertTrue(queryCache.isExpired(), "The cache should be expired after 8 days.");
     }
 
+    @Test
+    public void testIsExpired_OwnTtl() {
+        queryCache.setTtlMinutes(60);
+
+        // Within its own time to live
+        queryCache.setLastUpdated(LocalDateTime.now().minusMinutes(30));
+        assertFalse(queryCache.isExpired(), "The cache should not be expired before its time to live has passed.");
+
+        // Past its own time to live, even though it's much less than a week
+        queryCache.setLastUpdated(LocalDateTime.now().minusMinutes(90));
+        assertTrue(queryCache.isExpired(), "The cache should be expired once its time to live has passed.");
+    }
+
     @Test
     public void testGetQueryCacheID() {
         // Set a QueryCacheID
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 /**
  * Tests the basic methods in the song class
@@ -70,6 +71,11 @@ public class SongTests {
 
         assertEquals(song1, song2, "Songs should be equal");
         assertEquals(song1.hashCode(), song2.hashCode(), "Songs hashcode should be equal");
+
+        final Song renamed = new Song(12345L, "Renamed Song", 200, "Test Artist", 54321L, "Test Album", 98765L);
+        assertEquals(song1, renamed, "Songs with the same Deezer ID should be equal");
+        assertNotEquals(song1, new Song(12346L, "Test Song", 180, "Test Artist", 54321L, "Test Album", 98765L),
+                "Songs with different Deezer IDs should be different");
     }
 
     @Test
@@ -80,12 +86,4 @@ public class SongTests {
         assertEquals(expectedString, song.toString(), "Song string should equal expected string");
     }
 
-    @Test
-    public void testQueryCachesManagement() {
-        final Song song = new Song();
-
-        song.addQueryCache(new QueryCache());
-        assertEquals(1, song.getQueryCaches().size(), "Song should have one cache");
-    }
-
 }
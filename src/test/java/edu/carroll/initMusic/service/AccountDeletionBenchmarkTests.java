@@ -0,0 +1,201 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.userManagement.AccountDeleter;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures deleting a user with 1,000 playlists of 10 songs each, with the set-based deletes of the
+ * {@link AccountDeleter}, against loading the user and cascading the delete to each playlist like
+ * accounts used to be deleted. Run with {@code ./gradlew benchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class AccountDeletionBenchmarkTests {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(AccountDeletionBenchmarkTests.class);
+
+    /** Number of playlists the user has */
+    private static final int PLAYLISTS = 1_000;
+
+    /** Number of songs in each playlist */
+    private static final int SONGS_PER_PLAYLIST = 10;
+
+    /** Number of different songs the playlists are made of */
+    private static final int SONGS = 100;
+
+    /** Email of the user deleted */
+    private static final String EMAIL = "delete@email.com";
+
+    /** Deleter being measured */
+    @Autowired
+    private AccountDeleter accountDeleter;
+
+    /** Used to save and clear users */
+    @Autowired
+    private UserService userService;
+
+    /** Used to delete the user like accounts used to be deleted */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** Used to clear playlists */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Used to clear songs */
+    @Autowired
+    private SongService songService;
+
+    /** Used to save and count playlists */
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    /** Used to save the songs */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save the songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to save playlists with managed songs, and to delete like accounts used to be deleted */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Factory whose statistics count statements */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setUp() {
+        clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        clear();
+    }
+
+    /**
+     * Deletes every playlist, song and user, and empties the caches
+     */
+    private void clear() {
+        playlistService.clearRepo();
+        songService.clearRepo();
+        userService.clearRepo();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * Saves the user with their playlists, and the songs in them if they aren't saved yet
+     *
+     * @return ID of the user
+     */
+    private Long saveUserWithPlaylists() {
+        final User user = userService.saveUser("deleteUser", "password", EMAIL, "first", "last");
+        assertNotNull(user, "User should've been saved before deleting them");
+        if (songRepository.count() == 0) {
+            final List<Song> songs = new ArrayList<>(SONGS);
+            for (int s = 1; s <= SONGS; s++) {
+                songs.add(new Song((long) s, "Song " + s, 180, "Artist " + s, s, "Album " + s, s));
+            }
+            catalogCache.saveArtistsAndAlbums(songs);
+            songRepository.saveAll(songs);
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            final List<Song> songs = songRepository.findAll();
+            final List<Playlist> playlists = new ArrayList<>(PLAYLISTS);
+            for (int p = 0; p < PLAYLISTS; p++) {
+                final Playlist playlist = new Playlist(user, "Playlist " + p);
+                for (int s = 0; s < SONGS_PER_PLAYLIST; s++) {
+                    playlist.addSong(songs.get((p + s * 7) % SONGS));
+                }
+                playlists.add(playlist);
+            }
+            playlistRepository.saveAll(playlists);
+        });
+        entityManagerFactory.getCache().evictAll();
+        return user.getuserID();
+    }
+
+    /**
+     * What deleting the user cost
+     *
+     * @param millis     Time taken, in milliseconds
+     * @param statements Number of statements run
+     */
+    private record Cost(double millis, long statements) {
+    }
+
+    /**
+     * Runs and measures the given delete
+     *
+     * @param delete Delete to measure
+     * @return What it cost
+     */
+    private Cost measure(Runnable delete) {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        final long start = System.nanoTime();
+        delete.run();
+        final double millis = (System.nanoTime() - start) / 1_000_000.0;
+        return new Cost(millis, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Checks nothing of the user is left, except the songs
+     */
+    private void assertDeleted() {
+        assertNull(userService.findByEmail(EMAIL), "User should've been deleted");
+        assertEquals(0, playlistRepository.count(), "User's playlists should've been deleted");
+        assertEquals(SONGS, songRepository.count(), "Songs in the playlists shouldn't have been deleted");
+    }
+
+    @Test
+    public void deleteUserWithManyPlaylists() {
+        saveUserWithPlaylists();
+        final Cost cascade = measure(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> userRepository.deleteByEmailNormalized(User.normalize(EMAIL))));
+        assertDeleted();
+
+        final Long userID = saveUserWithPlaylists();
+        final Cost bulk = measure(() -> assertTrue(accountDeleter.deleteNow(userID), "User should've been deleted"));
+        assertDeleted();
+
+        log.info("deleteUserWithManyPlaylists: User with {} playlists of {} songs", PLAYLISTS, SONGS_PER_PLAYLIST);
+        log.info("deleteUserWithManyPlaylists: Cascade: {} ms, {} statements", String.format("%.1f", cascade.millis()), cascade.statements());
+        log.info("deleteUserWithManyPlaylists: Set-based: {} ms, {} statements", String.format("%.1f", bulk.millis()), bulk.statements());
+
+        assertTrue(cascade.statements() >= 2L * PLAYLISTS, "Cascading should delete each playlist and its songs on their own");
+        assertTrue(bulk.statements() * 10 < cascade.statements(), "Set-based deletes should run far fewer statements");
+    }
+}
@@ -0,0 +1,116 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Album;
+import edu.carroll.initMusic.jpa.model.Artist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.AlbumRepository;
+import edu.carroll.initMusic.jpa.repo.ArtistRepository;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.SongMetadataCache;
+import edu.carroll.initMusic.service.songManagement.SongResult;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the CatalogCache class
+ */
+@SpringBootTest
+public class CatalogCacheTests {
+
+    /** Cache being tested */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to resolve saved songs like cached searches do */
+    @Autowired
+    private SongMetadataCache songMetadataCache;
+
+    /** Used to clear songs, artists and albums before each test */
+    @Autowired
+    private SongService songService;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Repository artists are saved in */
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    /** Repository albums are saved in */
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    /**
+     * Clears the repositories before each test
+     */
+    @BeforeEach
+    void setUp() {
+        songService.clearRepo();
+    }
+
+    @Test
+    public void sameArtistAndAlbumAreShared() {
+        final Artist artist = catalogCache.artist(1L, "Artist");
+        final Album album = catalogCache.album(2L, "Album");
+
+        assertSame(artist, catalogCache.artist(1L, "Artist"), "Same artist should be shared");
+        assertSame(album, catalogCache.album(2L, "Album"), "Same album should be shared");
+        assertSame(artist, catalogCache.intern(new Artist(1L, "Artist")), "Loaded artist should be swapped for the shared one");
+        assertNotSame(artist, catalogCache.artist(3L, "Artist"), "Different artists with the same name shouldn't be shared");
+    }
+
+    @Test
+    public void renamedArtistIsSharedFromThenOn() {
+        final Artist artist = catalogCache.artist(1L, "Artist");
+        final Artist renamed = catalogCache.artist(1L, "Renamed Artist");
+
+        assertNotSame(artist, renamed, "Renamed artist should be a new artist");
+        assertEquals("Renamed Artist", renamed.getName(), "New artist should have the new name");
+        assertSame(renamed, catalogCache.artist(1L, "Renamed Artist"), "Renamed artist should be shared from then on");
+    }
+
+    @Test
+    public void songsShareSavedArtistAndAlbum() {
+        final Song first = new Song(1L, "First", 180, catalogCache.artist(10L, "Artist"), catalogCache.album(20L, "Album"));
+        final Song second = new Song(2L, "Second", 200, catalogCache.artist(10L, "Artist"), catalogCache.album(21L, "Other Album"));
+
+        catalogCache.saveArtistsAndAlbums(List.of(first, second));
+        songRepository.saveAll(List.of(first, second));
+
+        assertEquals(1, artistRepository.count(), "Artist of both songs should only be saved once");
+        assertEquals(2, albumRepository.count(), "Each album should be saved once");
+        assertEquals(2, songRepository.count(), "Both songs should be saved");
+
+        //Saving another song by the same artist doesn't save it again
+        final Song third = new Song(3L, "Third", 150, new Artist(10L, "Artist"), new Album(20L, "Album"));
+        catalogCache.saveArtistsAndAlbums(List.of(third));
+        songRepository.save(third);
+        assertEquals(1, artistRepository.count(), "Saved artist shouldn't be saved again");
+        assertEquals(2, albumRepository.count(), "Saved album shouldn't be saved again");
+    }
+
+    @Test
+    public void resolvedSongsShareArtist() {
+        final Song first = new Song(1L, "First", 180, "Artist", 10L, "Album", 20L);
+        final Song second = new Song(2L, "Second", 200, "Artist", 10L, "Album", 20L);
+        catalogCache.saveArtistsAndAlbums(List.of(first, second));
+        songRepository.saveAll(List.of(first, second));
+        songMetadataCache.clear();
+
+        final List<SongResult> resolved = songMetadataCache.resolve(new long[]{1L, 2L});
+
+        assertEquals(2, resolved.size(), "Both songs should be resolved");
+        assertEquals("Artist", resolved.get(0).getArtistName(), "Artist should be loaded with the song");
+        assertSame(resolved.get(0).getArtist(), resolved.get(1).getArtist(), "Songs by the same artist should share it");
+        assertSame(resolved.get(0).getAlbum(), resolved.get(1).getAlbum(), "Songs in the same album should share it");
+    }
+}
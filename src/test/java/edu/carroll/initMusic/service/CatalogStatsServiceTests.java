@@ -0,0 +1,111 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.*;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the CatalogStatsService class
+ */
+@SpringBootTest
+public class CatalogStatsServiceTests {
+
+    /** Service being tested */
+    @Autowired
+    private CatalogStatsService catalogStatsService;
+
+    /** Used to save and clear songs */
+    @Autowired
+    private SongService songService;
+
+    /** Used to save and clear users */
+    @Autowired
+    private UserService userService;
+
+    /** Used to clear playlists */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Factory whose statistics count statements */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Clears the repositories and counts the empty tables before each test
+     */
+    @BeforeEach
+    void setUp() {
+        playlistService.clearRepo();
+        songService.clearRepo();
+        userService.clearRepo();
+        catalogStatsService.refresh();
+    }
+
+    /**
+     * Saves songs with the given deezerIDs, all by one artist on one album
+     *
+     * @param deezerIDs Deezer IDs of songs
+     */
+    private void saveSongs(long... deezerIDs) {
+        for (long deezerID : deezerIDs) {
+            final Song song = new Song(deezerID, "song" + deezerID, 3, "artist", 1L, "album", 1L);
+            catalogCache.saveArtistsAndAlbums(List.of(song));
+            songRepository.save(song);
+        }
+    }
+
+    @Test
+    public void committedRowsAreCountedWithoutQuerying() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final User user = userService.saveUser("statsUser", "password", "stats@email.com", "first", "last");
+        assertNotNull(user, "User should've been saved");
+        saveSongs(1L, 2L, 3L);
+
+        statistics.clear();
+        assertEquals(1, catalogStatsService.getRows(CatalogTable.USER), "Saved user should be counted");
+        assertEquals(3, catalogStatsService.getRows(CatalogTable.SONG), "Saved songs should be counted");
+        assertEquals(1, catalogStatsService.getRows(CatalogTable.ARTIST), "Songs' artist should be counted once");
+        assertEquals(3, catalogStatsService.getStats().tables().get(CatalogTable.SONG).rows(), "Stats should count saved songs");
+        assertEquals(0, statistics.getPrepareStatementCount(), "Counted tables shouldn't be queried again");
+
+        assertTrue(userService.deleteByEmail("stats@email.com"), "User should've been deleted");
+        assertEquals(0, catalogStatsService.getRows(CatalogTable.USER), "User deleted by a single query shouldn't be counted");
+        catalogStatsService.refresh();
+        assertEquals(0, catalogStatsService.getRows(CatalogTable.USER), "Deleted user shouldn't be counted once tables are counted again");
+    }
+
+    @Test
+    public void growthIsBetweenLastTwoCounts() {
+        saveSongs(1L, 2L);
+        catalogStatsService.refresh();
+        saveSongs(3L, 4L, 5L);
+        catalogStatsService.refresh();
+
+        final CatalogStats.TableStats songs = catalogStatsService.getStats().tables().get(CatalogTable.SONG);
+        assertEquals(5, songs.counted(), "Every saved song should've been counted");
+        assertEquals(5, songs.rows(), "No songs were saved since the last count");
+        assertEquals(3, songs.growth(), "Songs saved between the last two counts should be the growth");
+        assertEquals(5, songService.getRepoSize(), "Repository size should be counted by the database");
+    }
+}
@@ -0,0 +1,156 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.service.userManagement.EmailValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the EmailValidator class. Besides a few fixed examples, it checks that the validator returns exactly
+ * what the old regex plus split checks returned, for a large number of randomly generated emails.
+ * The random generator is seeded so a failure can always be reproduced.
+ */
+public class EmailValidatorTests {
+
+    /** Number of random emails to check for each generator */
+    private static final int RANDOM_EMAILS = 20_000;
+
+    /** Regex used before the validator existed */
+    private static final Pattern OLD_PATTERN = Pattern.compile("^[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+
+    /** Characters random emails are made from, weighted towards ones that matter to the format */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789" +
+            "....----@@@!#$%&'*+/=?^_`{|}~ \t\"(),:;<>[\\]\u00e9";
+
+    /** Validator we are testing */
+    private final EmailValidator emailValidator = new EmailValidator();
+
+    /**
+     * The checks uniqueEmail used to do before the database lookup, kept here to compare against
+     *
+     * @param email Email to check
+     * @return Outcome the old checks returned
+     */
+    private static MethodOutcome oldValidate(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        if (!OLD_PATTERN.matcher(email).matches()) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        if (email.length() > 254) {
+            return MethodOutcome.EMAIL_TOO_LONG;
+        }
+        final String[] parts = email.split("@");
+        if (parts.length != 2) {
+            return MethodOutcome.EMAIL_INVALID_FORMAT;
+        }
+        if (parts[0].length() > 64) {
+            return MethodOutcome.EMAIL_LOCAL_PART_TOO_LONG;
+        }
+        for (String label : parts[1].split("\\.")) {
+            if (label.length() > 63) {
+                return MethodOutcome.EMAIL_DOMAIN_LABEL_TOO_LONG;
+            }
+        }
+        return MethodOutcome.SUCCESS;
+    }
+
+    /**
+     * Creates a random string of the given length from the given characters
+     *
+     * @param random Random to use
+     * @param chars  Characters to choose from
+     * @param length Length of string
+     * @return Random string
+     */
+    private static String randomString(Random random, String chars, int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates a random email that is shaped like a real one (local@label.label.tld), with random lengths
+     * around each limit and the occasional character that isn't allowed.
+     *
+     * @param random Random to use
+     * @return Random email
+     */
+    private static String randomShapedEmail(Random random) {
+        final String localChars = "abcXYZ019!#$%&'*+/=?^_`{|}~.-";
+        final String domainChars = "abcXYZ019-";
+        final StringBuilder email = new StringBuilder();
+        email.append(randomString(random, localChars, random.nextInt(70)));
+        email.append('@');
+        final int labels = random.nextInt(4);
+        for (int i = 0; i < labels; i++) {
+            email.append(randomString(random, domainChars, random.nextInt(70))).append('.');
+        }
+        email.append(randomString(random, "abcXYZ", random.nextInt(4)));
+        //Sometimes make it very long, or put a character that isn't allowed somewhere
+        if (random.nextInt(10) == 0) {
+            email.insert(0, randomString(random, localChars, 200));
+        }
+        if (random.nextInt(10) == 0) {
+            email.insert(random.nextInt(email.length() + 1), randomString(random, ALPHABET, 1));
+        }
+        return email.toString();
+    }
+
+    @Test
+    public void validEmails() {
+        assertEquals(MethodOutcome.SUCCESS, emailValidator.validate("email@email.com"), "Simple email should be valid");
+        assertEquals(MethodOutcome.SUCCESS, emailValidator.validate("first.last+tag@sub.domain.org"), "Email with dots, plus and subdomain should be valid");
+        assertEquals(MethodOutcome.SUCCESS, emailValidator.validate("a!#$%&'*+/=?^_`{|}~-@b-c.de"), "Email with every allowed special character should be valid");
+        assertEquals(MethodOutcome.SUCCESS, emailValidator.validate("a@b..com"), "Empty domain label was allowed by the old checks");
+    }
+
+    @Test
+    public void invalidFormatEmails() {
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate(null), "Null email should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate(""), "Empty email should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("   "), "Blank email should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("email.com"), "Email without @ should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("@email.com"), "Email without local part should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@@email.com"), "Email with two @ should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@email"), "Email without top level domain should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@email.c"), "Email with one letter top level domain should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@email.c0m"), "Email with digit in top level domain should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@.com"), "Email with nothing before the last dot should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a b@email.com"), "Email with space should be invalid");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, emailValidator.validate("a@em_ail.com"), "Email with underscore in domain should be invalid");
+    }
+
+    @Test
+    public void tooLongEmails() {
+        assertEquals(MethodOutcome.EMAIL_TOO_LONG, emailValidator.validate("a".repeat(64) + "@" + ("b".repeat(60) + ".").repeat(3) + "c".repeat(10)), "Email over 254 characters should be too long");
+        assertEquals(MethodOutcome.EMAIL_LOCAL_PART_TOO_LONG, emailValidator.validate("a".repeat(65) + "@email.com"), "Local part over 64 characters should be too long");
+        assertEquals(MethodOutcome.EMAIL_DOMAIN_LABEL_TOO_LONG, emailValidator.validate("a@" + "b".repeat(64) + ".com"), "Domain label over 63 characters should be too long");
+        assertEquals(MethodOutcome.SUCCESS, emailValidator.validate("a".repeat(64) + "@" + "b".repeat(63) + ".com"), "Email right at the limits should be valid");
+    }
+
+    @Test
+    public void matchesOldChecksForRandomStrings() {
+        final Random random = new Random(29);
+        for (int i = 0; i < RANDOM_EMAILS; i++) {
+            final String email = randomString(random, ALPHABET, random.nextInt(30));
+            assertEquals(oldValidate(email), emailValidator.validate(email), "Validator should match old checks for '" + email + "'");
+        }
+    }
+
+    @Test
+    public void matchesOldChecksForRandomShapedEmails() {
+        final Random random = new Random(254);
+        for (int i = 0; i < RANDOM_EMAILS; i++) {
+            final String email = randomShapedEmail(random);
+            assertEquals(oldValidate(email), emailValidator.validate(email), "Validator should match old checks for '" + email + "'");
+        }
+    }
+}
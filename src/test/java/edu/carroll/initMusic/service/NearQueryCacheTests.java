@@ -0,0 +1,92 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.service.songManagement.NearQueryCache;
+import edu.carroll.initMusic.service.songManagement.QueryKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the NearQueryCache class
+ */
+public class NearQueryCacheTests {
+
+    /** Registry the cache publishes its timer to */
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Cache we are testing */
+    private NearQueryCache nearQueryCache;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nearQueryCache = new NearQueryCache(2, 4, meterRegistry);
+    }
+
+    @Test
+    public void findsSearchWithTypo() {
+        final QueryKey cached = QueryKey.of("Bohemian Rhapsody", "Queen");
+        nearQueryCache.add(cached);
+        nearQueryCache.add(QueryKey.of("Under Pressure", "Queen"));
+
+        assertEquals(cached, nearQueryCache.findNear(QueryKey.of("Bohemian Rapsody", "Queen")), "Search one edit away should be found");
+        assertEquals(cached, nearQueryCache.findNear(QueryKey.of("bohemain rhapsody", "QUEEN")), "Search two edits away should be found");
+        assertNull(nearQueryCache.findNear(QueryKey.of("Bohemain Rapsody", "Quen")), "Search more edits away than allowed shouldn't be found");
+        assertNull(nearQueryCache.findNear(cached), "Search shouldn't find itself");
+        assertEquals(4, meterRegistry.find(NearQueryCache.LOOKUP_METRIC_NAME).timer().count(), "Every lookup with edits allowed should be timed");
+    }
+
+    @Test
+    public void findsClosestSearch() {
+        final QueryKey closest = QueryKey.of("Stairway to Heaven", "");
+        nearQueryCache.add(QueryKey.of("Stairway to Heavn", ""));
+        nearQueryCache.add(closest);
+
+        assertEquals(closest, nearQueryCache.findNear(QueryKey.of("Stairway to Heaven!", "")), "Closest search should be found");
+    }
+
+    @Test
+    public void allowedDistanceGrowsWithLength() {
+        assertEquals(0, nearQueryCache.allowedDistance(QueryKey.of("Hello", "")), "Short searches shouldn't allow any edits");
+        assertEquals(1, nearQueryCache.allowedDistance(QueryKey.of("Yesterday", "")), "Longer searches should allow an edit");
+        assertEquals(2, nearQueryCache.allowedDistance(QueryKey.of("Bohemian Rhapsody", "Queen")), "Long searches should allow two edits");
+        assertEquals(2, nearQueryCache.allowedDistance(QueryKey.of("a".repeat(40), "b".repeat(40))), "Edits allowed shouldn't go past the maximum");
+
+        nearQueryCache.add(QueryKey.of("Hello", ""));
+        assertNull(nearQueryCache.findNear(QueryKey.of("Hallo", "")), "Short search shouldn't be answered by another one edit away");
+    }
+
+    @Test
+    public void onlyFindsSameShape() {
+        nearQueryCache.add(QueryKey.of("", "Fleetwood Mac"));
+
+        assertNull(nearQueryCache.findNear(QueryKey.of("Fleetwood Mac", "")), "Artist search shouldn't answer a song search");
+        assertNotNull(nearQueryCache.findNear(QueryKey.of("", "Fleetwod Mac")), "Artist search should answer an artist search");
+    }
+
+    @Test
+    public void oldestGenerationDropped() {
+        final QueryKey oldest = QueryKey.of("Hotel California", "");
+        final QueryKey readded = QueryKey.of("Smells Like Teen Spirit", "");
+        nearQueryCache.add(oldest);
+        nearQueryCache.add(readded);
+        //Generations hold two searches each, so this starts a second one
+        nearQueryCache.add(QueryKey.of("Purple Haze", ""));
+        nearQueryCache.add(readded);
+        //And this starts a third, dropping the first
+        nearQueryCache.add(QueryKey.of("Sweet Child O Mine", ""));
+
+        assertNull(nearQueryCache.findNear(QueryKey.of("Hotel Califronia", "")), "Search in the dropped generation shouldn't be found");
+        assertEquals(readded, nearQueryCache.findNear(QueryKey.of("Smells Like Teen Sprit", "")), "Search added again should be kept");
+    }
+
+    @Test
+    public void clearRemovesEverySearch() {
+        nearQueryCache.add(QueryKey.of("Hotel California", ""));
+        nearQueryCache.clear();
+
+        assertNull(nearQueryCache.findNear(QueryKey.of("Hotel Califronia", "")), "Cleared search shouldn't be found");
+    }
+}
@@ -0,0 +1,72 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.service.songManagement.NegativeQueryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the NegativeQueryCache class
+ */
+public class NegativeQueryCacheTests {
+
+    /** Minutes a negative cache lives for */
+    private static final long TTL_MINUTES = 10;
+
+    /** Maximum number of negative caches kept */
+    private static final int MAX_ENTRIES = 2;
+
+    /** Cache we are testing */
+    private NegativeQueryCache negativeQueryCache;
+
+    @BeforeEach
+    public void setUp() {
+        negativeQueryCache = new NegativeQueryCache(TTL_MINUTES, MAX_ENTRIES);
+    }
+
+    @Test
+    public void containsAfterPut() {
+        negativeQueryCache.put("hash", LocalDateTime.now());
+
+        assertTrue(negativeQueryCache.contains("hash"), "Search should be cached right after it's put");
+        assertFalse(negativeQueryCache.contains("otherHash"), "Search that was never put shouldn't be cached");
+    }
+
+    @Test
+    public void expiredEntryNotContained() {
+        negativeQueryCache.put("hash", LocalDateTime.now().minusMinutes(TTL_MINUTES + 1));
+
+        assertFalse(negativeQueryCache.contains("hash"), "Search stored longer ago than the ttl shouldn't be cached");
+    }
+
+    @Test
+    public void evictRemovesEntry() {
+        negativeQueryCache.put("hash", LocalDateTime.now());
+        negativeQueryCache.evict("hash");
+
+        assertFalse(negativeQueryCache.contains("hash"), "Evicted search shouldn't be cached");
+    }
+
+    @Test
+    public void leastRecentlyUsedRemovedWhenFull() {
+        negativeQueryCache.put("first", LocalDateTime.now());
+        negativeQueryCache.put("second", LocalDateTime.now());
+        //Use the first one so the second is the least recently used
+        assertTrue(negativeQueryCache.contains("first"), "First search should be cached");
+        negativeQueryCache.put("third", LocalDateTime.now());
+
+        assertTrue(negativeQueryCache.contains("first"), "Recently used search should still be cached");
+        assertFalse(negativeQueryCache.contains("second"), "Least recently used search should be removed");
+        assertTrue(negativeQueryCache.contains("third"), "Newest search should be cached");
+    }
+
+    @Test
+    public void isExpiredUsesTtl() {
+        assertFalse(negativeQueryCache.isExpired(LocalDateTime.now().minusMinutes(TTL_MINUTES - 1)), "Search stored within the ttl shouldn't be expired");
+        assertTrue(negativeQueryCache.isExpired(LocalDateTime.now().minusMinutes(TTL_MINUTES + 1)), "Search stored longer ago than the ttl should be expired");
+        assertTrue(negativeQueryCache.isExpired(null), "Search with no stored time should be expired");
+    }
+}
@@ -0,0 +1,117 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks how many entities PlaylistService loads when adding a song that is already
+ * in a lot of playlists, using Hibernate's statistics.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PlaylistServiceLoadTests {
+
+    /** Number of playlists the song is already in */
+    private static final int PLAYLISTS_WITH_SONG = 10_000;
+
+    /** Role of the inverse playlists collection on Song */
+    private static final String SONG_PLAYLISTS_ROLE = Song.class.getName() + ".playlists";
+
+    /** Service class for managing playlist-related operations */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Service class for managing user-related operations */
+    @Autowired
+    private UserService userService;
+
+    /** Service class for handling song-related operations */
+    @Autowired
+    private SongService songService;
+
+    /** Repository used to set up playlists directly */
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    /** Repository used to set up songs directly */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save the song's artist and album before the song */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Entity manager, used to clear the persistence context between setup and the call being measured */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Clears the repositories before each test
+     */
+    @BeforeEach
+    void setUp() {
+        songService.clearRepo();
+        playlistService.clearRepo();
+        userService.clearRepo();
+    }
+
+    /**
+     * Adding a song that is in 10k playlists to one more should only write the join row,
+     * without loading the song's other playlists.
+     */
+    @Transactional
+    @Test
+    void addSongInManyPlaylistsDoesNotLoadThem() {
+        final User user = userService.saveUser("username", "password", "email@example.com", "firstName", "lastName");
+        final Song newSong = new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L);
+        catalogCache.saveArtistsAndAlbums(List.of(newSong));
+        final Song song = songRepository.save(newSong);
+
+        final List<Playlist> playlists = new ArrayList<>(PLAYLISTS_WITH_SONG);
+        for (int i = 0; i < PLAYLISTS_WITH_SONG; i++) {
+            final Playlist playlist = new Playlist(user, "Playlist " + i);
+            playlist.addSong(song);
+            playlists.add(playlist);
+        }
+        playlistRepository.saveAll(playlists);
+        final Long targetID = playlistRepository.save(new Playlist(user, "Target")).getPlaylistID();
+        entityManager.flush();
+        entityManager.clear();
+
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final Playlist target = playlistService.getPlaylist(targetID);
+        final MethodOutcome outcome = playlistService.addSongToPlaylist(target, new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L));
+        entityManager.flush();
+
+        assertEquals(MethodOutcome.SUCCESS, outcome, "Song should be added to the playlist");
+        assertEquals(0, statistics.getCollectionStatistics(SONG_PLAYLISTS_ROLE).getFetchCount(), "Song's playlists should not be loaded");
+        assertTrue(statistics.getEntityLoadCount() <= 3, "Only the playlist, its author and the song should be loaded, but " + statistics.getEntityLoadCount() + " entities were");
+
+        entityManager.clear();
+        assertTrue(playlistService.getPlaylist(targetID).containsSong(song), "Join row should have been written");
+        assertEquals(1, songRepository.count(), "Song should not have been saved again");
+    }
+}
@@ -347,6 +347,24 @@ public class PlaylistServiceTests {
         assertEquals(testPlaylist2, getPlaylist2, "Should successfully retrieve the second playlist.");
     }
 
+    /**
+     * Tests that a playlist retrieved with its songs can be used after its session is closed,
+     * so not in a transaction.
+     */
+    @Test
+    void testGetPlaylistWithSongsOutsideTransaction() {
+        testUser = userService.findByIdWithPlaylists(userService.findByUsername("username").getuserID());
+        playlistService.createPlaylist("Test Playlist", testUser);
+        final Long playlistID = testUser.getPlaylist("Test Playlist").getPlaylistID();
+        final Song testSong = new Song(1L, "Song Title", 3, "Artist", 2021L, "Album", 0L);
+        assertEquals(MethodOutcome.SUCCESS, playlistService.addSongToPlaylist(playlistService.getPlaylist(playlistID), testSong), "Song should be added to playlist");
+
+        final Playlist playlist = playlistService.getPlaylistWithSongs(playlistID);
+        assertNotNull(playlist, "Should retrieve the playlist");
+        assertEquals(1, playlist.getSongs().size(), "Playlist's songs should be loaded with it");
+        assertNull(playlistService.getPlaylistWithSongs(playlistID + 1), "Should return null for a playlist that doesn't exist");
+    }
+
 
     // Crappy Paths for getPlaylist
 
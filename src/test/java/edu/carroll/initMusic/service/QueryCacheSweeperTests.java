@@ -0,0 +1,203 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.NegativeQueryCache;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.QueryCacheSweeper;
+import edu.carroll.initMusic.service.songManagement.QueryCacheTtlPolicy;
+import edu.carroll.initMusic.service.songManagement.SongIdIndex;
+import edu.carroll.initMusic.service.songManagement.SongMetadataCache;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryCacheSweeper class
+ */
+@SpringBootTest
+@Transactional
+public class QueryCacheSweeperTests {
+
+    /** Most rows the sweeper deletes in one batch, small so batching is tested */
+    private static final int BATCH_SIZE = 2;
+
+    /** Repository caches are saved in */
+    @Autowired
+    private QueryCacheRepository queryCacheRepository;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Repository playlists are saved in */
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    /** Used to know the longest time to live */
+    @Autowired
+    private QueryCacheTtlPolicy queryCacheTtlPolicy;
+
+    /** Used to know how long negative caches live */
+    @Autowired
+    private NegativeQueryCache negativeQueryCache;
+
+    /** Cache deleted songs are removed from */
+    @Autowired
+    private SongMetadataCache songMetadataCache;
+
+    /** Index deleted songs are removed from */
+    @Autowired
+    private SongIdIndex songIdIndex;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Told how many caches and songs the sweeper deletes */
+    @Autowired
+    private CatalogStatsService catalogStatsService;
+
+    /** Used to clear songs before each test */
+    @Autowired
+    private SongService songService;
+
+    /** Used to clear playlists before each test */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Used to create and clear users */
+    @Autowired
+    private UserService userService;
+
+    /** Registry the sweeper publishes metrics to */
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        songService.clearRepo();
+        playlistService.clearRepo();
+        userService.clearRepo();
+        queryCacheRepository.deleteAll();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Creates a sweeper that uses the test's repositories, small batches and no pause
+     *
+     * @param maxBatches Most batches of each kind in one sweep
+     * @return Sweeper to test
+     */
+    private QueryCacheSweeper sweeper(int maxBatches) {
+        return new QueryCacheSweeper(queryCacheRepository, songRepository, queryCacheTtlPolicy, negativeQueryCache,
+                songMetadataCache, songIdIndex, catalogStatsService, meterRegistry, true, BATCH_SIZE, maxBatches, 0);
+    }
+
+    /**
+     * Saves a cache that was last updated at the given time
+     *
+     * @param hash        Hash of its query
+     * @param negative    If it's a negative cache
+     * @param lastUpdated When it was last updated
+     * @return Saved cache
+     */
+    private QueryCache saveCache(String hash, boolean negative, LocalDateTime lastUpdated) {
+        final QueryCache cache = new QueryCache();
+        cache.setQuery("song:" + hash);
+        cache.setQueryHash(hash);
+        cache.setNegative(negative);
+        cache.setResultIds(new long[0]);
+        queryCacheRepository.save(cache);
+        //Saving a new cache sets its last updated time to now, so set it afterwards
+        cache.setLastUpdated(lastUpdated);
+        return queryCacheRepository.save(cache);
+    }
+
+    /**
+     * Saves a song that was last cached at the given time
+     *
+     * @param deezerID   Deezer ID of song
+     * @param lastCached When it was last cached, null if never
+     * @return Saved song
+     */
+    private Song saveSong(long deezerID, LocalDateTime lastCached) {
+        final Song song = new Song(deezerID, "song" + deezerID, 3, "artist", 1L, "album", 1L);
+        song.setLastCached(lastCached);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        return songRepository.save(song);
+    }
+
+    @Test
+    public void sweepDeletesOnlyExpiredCaches() {
+        final LocalDateTime now = LocalDateTime.now();
+        final LocalDateTime longExpired = now.minus(queryCacheTtlPolicy.getMaxTtl()).minusDays(1);
+        saveCache("old", false, longExpired);
+        saveCache("oldNegative", true, now.minus(negativeQueryCache.getTtl()).minusMinutes(1));
+        final QueryCache fresh = saveCache("fresh", false, now.minusDays(1));
+        final QueryCache freshNegative = saveCache("freshNegative", true, now);
+
+        assertEquals(2, sweeper(10).sweepExpiredCaches(now), "Both expired caches should be deleted");
+
+        final List<QueryCache> remaining = queryCacheRepository.findAll();
+        assertEquals(2, remaining.size(), "Only the fresh caches should be left");
+        assertTrue(remaining.contains(fresh), "Fresh cache should be kept");
+        assertTrue(remaining.contains(freshNegative), "Fresh negative cache should be kept");
+        assertEquals(2, meterRegistry.find(QueryCacheSweeper.METRIC_NAME).tag("table", "query_cache").counter().count(), "Deleted caches should be counted");
+    }
+
+    @Test
+    public void sweepDeletesInBoundedBatches() {
+        final LocalDateTime now = LocalDateTime.now();
+        final LocalDateTime longExpired = now.minus(queryCacheTtlPolicy.getMaxTtl()).minusDays(1);
+        for (int i = 0; i < 5; i++) {
+            saveCache("old" + i, false, longExpired);
+        }
+
+        //Two batches of two, the last one is left for the next sweep
+        assertEquals(4, sweeper(2).sweepExpiredCaches(now), "Sweep should stop after its last batch");
+        assertEquals(1, queryCacheRepository.count(), "One expired cache should be left for the next sweep");
+
+        assertEquals(1, sweeper(2).sweepExpiredCaches(now), "Next sweep should delete the rest");
+        assertEquals(0, queryCacheRepository.count(), "No caches should be left");
+    }
+
+    @Test
+    public void sweepDeletesOnlyOrphanedSongs() {
+        final LocalDateTime now = LocalDateTime.now();
+        final LocalDateTime longAgo = now.minus(queryCacheTtlPolicy.getMaxTtl()).minusDays(2);
+        final User user = userService.saveUser("username", "password", "email@example.com", "firstName", "lastName");
+
+        final Song inPlaylist = saveSong(1L, longAgo);
+        final Playlist playlist = new Playlist(user, "Playlist");
+        playlist.addSong(inPlaylist);
+        playlistRepository.save(playlist);
+        final Song recentlyCached = saveSong(2L, now.minusDays(1));
+        saveSong(3L, longAgo);
+        saveSong(4L, null);
+        saveSong(5L, null);
+
+        assertEquals(3, sweeper(10).sweepOrphanedSongs(now), "Songs in no playlist and not recently cached should be deleted");
+
+        final List<Song> remaining = songRepository.findAll();
+        assertEquals(2, remaining.size(), "Only songs still in use should be left");
+        assertTrue(remaining.contains(inPlaylist), "Song in a playlist should be kept");
+        assertTrue(remaining.contains(recentlyCached), "Recently cached song should be kept");
+        assertEquals(3, meterRegistry.find(QueryCacheSweeper.METRIC_NAME).tag("table", "song").counter().count(), "Deleted songs should be counted");
+    }
+}
@@ -0,0 +1,76 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.service.songManagement.QueryCacheTtlPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryCacheTtlPolicy class
+ */
+public class QueryCacheTtlPolicyTests {
+
+    /** Shortest time to live, in minutes */
+    private static final long MIN_MINUTES = 60;
+
+    /** Longest time to live, in minutes */
+    private static final long MAX_MINUTES = 10_000;
+
+    /** Time to live of a new cache, in minutes */
+    private static final long INITIAL_MINUTES = 1_000;
+
+    /** Policy we are testing */
+    private QueryCacheTtlPolicy policy;
+
+    @BeforeEach
+    public void setUp() {
+        policy = new QueryCacheTtlPolicy(MIN_MINUTES, MAX_MINUTES, INITIAL_MINUTES, 2);
+    }
+
+    @Test
+    public void initialTtl() {
+        assertEquals(Duration.ofMinutes(INITIAL_MINUTES), policy.getInitialTtl(), "New caches should get the initial time to live");
+    }
+
+    @Test
+    public void stableRefreshGrowsTtl() {
+        final Duration initial = policy.getInitialTtl();
+
+        assertEquals(initial.multipliedBy(2), policy.nextTtl(initial, 0.0, 0), "Refresh with the same songs should double the time to live");
+        assertEquals(initial.multipliedBy(2), policy.nextTtl(initial, 0.0, 1000), "Hits shouldn't shorten the time to live of a stable cache");
+        assertEquals(Duration.ofMinutes(MAX_MINUTES), policy.nextTtl(Duration.ofMinutes(MAX_MINUTES - 1), 0.0, 0), "Time to live shouldn't grow past the maximum");
+    }
+
+    @Test
+    public void volatileRefreshShrinksTtl() {
+        final Duration initial = policy.getInitialTtl();
+
+        assertEquals(Duration.ofMinutes(500), policy.nextTtl(initial, 0.5, 0), "Refresh that changed half the songs should halve the time to live");
+        assertEquals(Duration.ofMinutes(250), policy.nextTtl(initial, 1.0, 0), "Refresh can shrink the time to live by at most a quarter");
+        assertTrue(policy.nextTtl(initial, 0.5, 99).compareTo(policy.nextTtl(initial, 0.5, 0)) < 0, "Popular volatile caches should expire sooner");
+        assertEquals(Duration.ofMinutes(MIN_MINUTES), policy.nextTtl(Duration.ofMinutes(MIN_MINUTES), 1.0, 1000), "Time to live shouldn't shrink past the minimum");
+    }
+
+    @Test
+    public void hitsCountedUntilTaken() {
+        policy.recordHit("hash");
+        policy.recordHit("hash");
+
+        assertEquals(2, policy.takeHits("hash"), "Both hits should be counted");
+        assertEquals(0, policy.takeHits("hash"), "Hits should start again from zero once taken");
+        assertEquals(0, policy.takeHits("otherHash"), "Query that was never hit should have no hits");
+    }
+
+    @Test
+    public void leastRecentlyUsedHitsRemoved() {
+        policy.recordHit("first");
+        policy.recordHit("second");
+        policy.recordHit("third");
+
+        assertEquals(0, policy.takeHits("first"), "Least recently used query should be removed once there are too many");
+        assertEquals(1, policy.takeHits("third"), "Most recent query should still be counted");
+    }
+}
@@ -0,0 +1,233 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.service.songManagement.QueryCacheWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryCacheWriter class
+ */
+public class QueryCacheWriterTests {
+
+    /** Long enough that batches never flush on their own during a test */
+    private static final long NEVER_MILLIS = 60_000;
+
+    /** Registry the writer publishes metrics to */
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Counts the transactions writes run in */
+    private CountingTransactionManager transactionManager;
+
+    /** Writer we are testing, destroyed after each test */
+    private QueryCacheWriter queryCacheWriter;
+
+    /** What each write ran, in order */
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionManager = new CountingTransactionManager();
+        written.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queryCacheWriter != null) {
+            queryCacheWriter.destroy();
+        }
+    }
+
+    /**
+     * Creates the writer being tested
+     *
+     * @param enabled       If writes are queued
+     * @param capacity      Most writes that can wait
+     * @param batchSize     Most writes in a batch
+     * @param flushInterval Longest a write waits for a batch, in milliseconds
+     */
+    private void createWriter(boolean enabled, int capacity, int batchSize, long flushInterval) {
+        queryCacheWriter = new QueryCacheWriter(transactionManager, meterRegistry, enabled, capacity, batchSize, flushInterval, 5000);
+    }
+
+    /**
+     * Gets the count of writes with the given outcome
+     *
+     * @param outcome Outcome tag
+     * @return Count
+     */
+    private double count(String outcome) {
+        return meterRegistry.find(QueryCacheWriter.METRIC_PREFIX).tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    public void writeForWaitingSearchReplacesIt() {
+        createWriter(true, 10, 50, NEVER_MILLIS);
+        queryCacheWriter.submit("a", () -> written.add("a1"));
+        queryCacheWriter.submit("b", () -> written.add("b"));
+        queryCacheWriter.submit("a", () -> written.add("a2"));
+
+        assertEquals(2, queryCacheWriter.getQueueDepth(), "Second write for the same search shouldn't be queued on its own");
+        queryCacheWriter.flush();
+
+        assertEquals(List.of("a2", "b"), written, "Newest write should run, in the first write's place");
+        assertEquals(0, queryCacheWriter.getQueueDepth(), "Nothing should be waiting after a flush");
+        assertEquals(1, transactionManager.commits.get(), "Batch should be written in one transaction");
+        assertEquals(2, count("queued"), "Both searches should be counted as queued");
+        assertEquals(1, count("coalesced"), "Replaced write should be counted");
+        assertEquals(2, count("written"), "Both writes should be counted as written");
+    }
+
+    @Test
+    public void fullBatchIsWrittenInBackground() throws InterruptedException {
+        createWriter(true, 10, 3, NEVER_MILLIS);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queryCacheWriter.submit("search" + i, () -> {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    threads.add(Thread.currentThread().getName());
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Full batch should be written without waiting for the interval");
+        assertEquals(List.of("query-cache-writer", "query-cache-writer", "query-cache-writer"), threads,
+                "Writes should run on the writer's thread, in a transaction");
+        assertEquals(1, transactionManager.begins.get(), "Batch should be written in one transaction");
+    }
+
+    @Test
+    public void partialBatchIsWrittenAfterInterval() throws InterruptedException {
+        createWriter(true, 10, 50, 20);
+        final CountDownLatch done = new CountDownLatch(1);
+        queryCacheWriter.submit("search", done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Lone write should be written once the interval is up");
+    }
+
+    @Test
+    public void fullQueueRunsWriteOnCaller() {
+        createWriter(true, 2, 50, NEVER_MILLIS);
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        queryCacheWriter.submit("a", () -> written.add("a"));
+        queryCacheWriter.submit("b", () -> written.add("b"));
+        queryCacheWriter.submit("c", () -> threads.add(Thread.currentThread().getName()));
+
+        assertEquals(List.of(Thread.currentThread().getName()), threads, "Write past the capacity should run on the caller's thread");
+        assertEquals(2, queryCacheWriter.getQueueDepth(), "Queue shouldn't grow past its capacity");
+        assertEquals(1, count("caller_runs"), "Write run by the caller should be counted");
+    }
+
+    @Test
+    public void failedWriteDoesNotLoseBatch() {
+        createWriter(true, 10, 50, NEVER_MILLIS);
+        final AtomicInteger attempts = new AtomicInteger();
+        queryCacheWriter.submit("a", () -> written.add("a"));
+        queryCacheWriter.submit("bad", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Write failed");
+        });
+        queryCacheWriter.submit("c", () -> written.add("c"));
+        queryCacheWriter.flush();
+
+        assertEquals(2, attempts.get(), "Failed write should be retried on its own");
+        assertEquals(List.of("a", "a", "c"), written, "Other writes should be retried on their own after the batch is rolled back");
+        assertEquals(2, transactionManager.rollbacks.get(), "Batch and failed retry should be rolled back");
+        assertEquals(2, count("written"), "Only the writes that were saved should be counted as written");
+        assertEquals(1, count("failed"), "Failed write should be counted");
+    }
+
+    @Test
+    public void rolledBackBatchDoesNotRunAfterCommit() {
+        createWriter(true, 10, 50, NEVER_MILLIS);
+        queryCacheWriter.submit("a", () -> TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                written.add("a");
+            }
+        }));
+        queryCacheWriter.submit("bad", () -> {
+            throw new IllegalStateException("Write failed");
+        });
+        queryCacheWriter.flush();
+
+        assertEquals(List.of("a"), written, "Only the committed retry should run what waits for the commit");
+    }
+
+    @Test
+    public void shutdownWritesEverythingWaiting() {
+        createWriter(true, 100, 50, NEVER_MILLIS);
+        for (int i = 0; i < 20; i++) {
+            final String search = "search" + i;
+            queryCacheWriter.submit(search, () -> written.add(search));
+        }
+        queryCacheWriter.destroy();
+
+        assertEquals(20, written.size(), "Every waiting write should be written on shutdown");
+        assertEquals(0, queryCacheWriter.getQueueDepth(), "Nothing should be waiting after shutdown");
+
+        queryCacheWriter.submit("late", () -> written.add("late"));
+        assertEquals("late", written.getLast(), "Write after shutdown should run on the caller's thread");
+    }
+
+    @Test
+    public void disabledWriterRunsOnCaller() {
+        createWriter(false, 10, 50, NEVER_MILLIS);
+        queryCacheWriter.submit("a", () -> written.add(Thread.currentThread().getName()));
+
+        assertEquals(List.of(Thread.currentThread().getName()), written, "Write should run right away on the caller's thread");
+        assertEquals(0, count("queued"), "Nothing should be queued");
+    }
+
+    /**
+     * Transaction manager that only counts transactions, so no database is needed
+     */
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        /** Number of transactions started */
+        private final AtomicInteger begins = new AtomicInteger();
+
+        /** Number of transactions committed */
+        private final AtomicInteger commits = new AtomicInteger();
+
+        /** Number of transactions rolled back */
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            begins.incrementAndGet();
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits.incrementAndGet();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
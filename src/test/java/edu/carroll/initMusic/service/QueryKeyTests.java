@@ -0,0 +1,81 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.service.songManagement.QueryKey;
+import edu.carroll.initMusic.service.songManagement.QueryShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the QueryKey class
+ */
+public class QueryKeyTests {
+
+    @Test
+    public void ofBothNamesEmpty() {
+        assertNull(QueryKey.of("", ""), "Key should be null when both names are empty");
+        assertNull(QueryKey.of(null, null), "Key should be null when both names are null");
+        assertNull(QueryKey.of("   ", "\t"), "Key should be null when both names are blank");
+    }
+
+    @Test
+    public void ofShapes() {
+        assertEquals(QueryShape.SONG, QueryKey.of("song", "").shape(), "Only a song name should be a song query");
+        assertEquals(QueryShape.ARTIST, QueryKey.of(null, "artist").shape(), "Only an artist name should be an artist query");
+        assertEquals(QueryShape.SONG_AND_ARTIST, QueryKey.of("song", "artist").shape(), "Both names should be a combined query");
+    }
+
+    @Test
+    public void ofCanonicalForm() {
+        assertEquals("song:my song", QueryKey.of("  My   Song ", "").canonical(), "Song name should be trimmed, collapsed and lower cased");
+        assertEquals("artist:the band", QueryKey.of("", "The\u00a0Band").canonical(), "Non breaking space should become a normal space");
+        assertEquals("song:my song\tartist:the band", QueryKey.of("My Song", "The Band").canonical(), "Combined query should have both names");
+        assertEquals("song:fi", QueryKey.of("\ufb01", "").canonical(), "Compatibility characters should be normalized");
+    }
+
+    @Test
+    public void namesAndBroaderKeys() {
+        final QueryKey key = QueryKey.of("My Song", "The Band");
+
+        assertEquals("my song", key.songName(), "Song name should come back normalized");
+        assertEquals("the band", key.artistName(), "Artist name should come back normalized");
+        assertEquals(List.of(QueryKey.of("My Song", ""), QueryKey.of("", "The Band")), key.broaderKeys(), "Combined search should be covered by the song and artist searches");
+        assertTrue(QueryKey.of("My Song", "").broaderKeys().isEmpty(), "Song search shouldn't have broader searches");
+        assertEquals("", QueryKey.of("My Song", "").artistName(), "Song search should have no artist name");
+        assertEquals("", QueryKey.of("", "The Band").songName(), "Artist search should have no song name");
+    }
+
+    @Test
+    public void ofSameSearchSameHash() {
+        final QueryKey key = QueryKey.of("My Song", "The Band");
+        final QueryKey otherKey = QueryKey.of("  my SONG", "the   band  ");
+
+        assertEquals(key, otherKey, "Searches that only differ by case and whitespace should have the same key");
+        assertEquals(QueryKey.HASH_LENGTH, key.hash().length(), "Hash should always be 64 characters");
+    }
+
+    @Test
+    public void ofLongSearchFixedHashLength() {
+        final QueryKey key = QueryKey.of("a".repeat(40), "b".repeat(40));
+
+        assertEquals(QueryKey.HASH_LENGTH, key.hash().length(), "Hash of a long combined search should still be 64 characters");
+    }
+
+    @Test
+    public void ofDifferentSearchesDifferentHash() {
+        assertNotEquals(QueryKey.of("name", "").hash(), QueryKey.of("", "name").hash(), "Song and artist with the same name should have different hashes");
+        assertNotEquals(QueryKey.of("x artist:y", "").hash(), QueryKey.of("x", "y").hash(), "Song name that looks like a combined query should have a different hash");
+        assertNotEquals(QueryKey.of("song", "artist").hash(), QueryKey.of("song", "artists").hash(), "Different artists should have different hashes");
+    }
+
+    @Test
+    public void fromLegacyQueries() {
+        assertEquals(QueryKey.of("my song", "the band"), QueryKey.fromLegacy("song:my song+artist:the band"), "Old combined query should parse");
+        assertEquals(QueryKey.of("My Song", ""), QueryKey.fromLegacy("Song:My Song"), "Old song query should parse");
+        assertEquals(QueryKey.of("", "the band"), QueryKey.fromLegacy("artist:the band"), "Old artist query should parse");
+        assertNull(QueryKey.fromLegacy("something else"), "Query not in the old format shouldn't parse");
+        assertNull(QueryKey.fromLegacy(null), "Null query shouldn't parse");
+    }
+}
@@ -0,0 +1,188 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.repo.SongIdentity;
+import edu.carroll.initMusic.jpa.repo.SongRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.SongIdIndex;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SongIdIndex class
+ */
+@SpringBootTest
+public class SongIdIndexTests {
+
+    /** Index being tested */
+    @Autowired
+    private SongIdIndex songIdIndex;
+
+    /** Used to clear songs before each test */
+    @Autowired
+    private SongService songService;
+
+    /** Repository songs are saved in */
+    @Autowired
+    private SongRepository songRepository;
+
+    /** Used to save songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to save a song in a transaction that's rolled back */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Factory whose statistics count statements */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Id and deezerID of a song, like the repository finds them
+     *
+     * @param getSongID   Song's id
+     * @param getDeezerID Song's deezerID
+     */
+    private record Identity(Long getSongID, Long getDeezerID) implements SongIdentity {
+    }
+
+    /**
+     * Clears the songs, and the index with them, before each test
+     */
+    @BeforeEach
+    void setUp() {
+        songService.clearRepo();
+    }
+
+    /**
+     * Saves a song with the given deezerID
+     *
+     * @param deezerID Deezer ID of song
+     * @return Saved song
+     */
+    private Song saveSong(long deezerID) {
+        final Song song = new Song(deezerID, "song" + deezerID, 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        return songRepository.save(song);
+    }
+
+    /**
+     * Gets the id the song with the given deezerID was saved with
+     *
+     * @param deezerID Deezer ID of song
+     * @return Song's id
+     */
+    private long savedID(long deezerID) {
+        return songRepository.findIdentitiesByDeezerIDIn(List.of(deezerID)).getFirst().getSongID();
+    }
+
+    @Test
+    public void savedSongIsIndexedAndDeletedSongIsRemoved() {
+        final Song song = saveSong(5L);
+        assertEquals(savedID(5L), songIdIndex.songID(5L), "Saved song's id should be in the index");
+
+        songRepository.delete(song);
+        assertEquals(SongIdIndex.MISSING, songIdIndex.songID(5L), "Deleted song should be removed from the index");
+    }
+
+    @Test
+    public void rolledBackSongIsRemoved() {
+        final Song song = new Song(6L, "song6", 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            songRepository.save(song);
+            assertNotEquals(SongIdIndex.MISSING, songIdIndex.songID(6L), "Song should be known in its own transaction");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(SongIdIndex.MISSING, songIdIndex.songID(6L), "Song that was rolled back shouldn't be in the index");
+        assertNull(songService.findSong(song), "Song that was rolled back shouldn't be found");
+    }
+
+    @Test
+    public void uncommittedSongIsOnlyKnownInItsTransaction() {
+        final Song song = new Song(10L, "song10", 3, "artist", 1L, "album", 1L);
+        catalogCache.saveArtistsAndAlbums(List.of(song));
+        final long[] seenElsewhere = new long[1];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            songRepository.saveAndFlush(song);
+            assertNotEquals(SongIdIndex.MISSING, songIdIndex.songID(10L), "Song should be known in its own transaction");
+            final Thread other = new Thread(() -> seenElsewhere[0] = songIdIndex.songID(10L));
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(SongIdIndex.MISSING, seenElsewhere[0], "Uncommitted song shouldn't be known outside its transaction");
+        assertEquals(savedID(10L), songIdIndex.songID(10L), "Committed song should be in the index");
+    }
+
+    @Test
+    public void loadFindsSavedSongs() {
+        saveSong(7L);
+        saveSong(8L);
+        songIdIndex.clear();
+
+        songIdIndex.load();
+
+        assertTrue(songIdIndex.isComplete(), "Every song should fit in the index");
+        assertEquals(savedID(7L), songIdIndex.songID(7L), "Loaded song's id should be in the index");
+        assertEquals(savedID(8L), songIdIndex.songID(8L), "Loaded song's id should be in the index");
+    }
+
+    @Test
+    public void unsavedSongIsNotLookedFor() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertNull(songService.findSong(new Song(9L, "song9", 3, "artist", 1L, "album", 1L)), "Unsaved song shouldn't be found");
+        assertEquals(0, statistics.getPrepareStatementCount(), "Song not in a complete index shouldn't be looked for");
+    }
+
+    @Test
+    public void keepsTrackOfManySongs() {
+        final Random random = new Random(48);
+        final Map<Long, Long> expected = new HashMap<>();
+        final List<SongIdentity> songs = new ArrayList<>();
+        for (long songID = 1; songID <= 100_000; songID++) {
+            final long deezerID = random.nextInt(1_000_000);
+            expected.put(deezerID, songID);
+            songs.add(new Identity(songID, deezerID));
+        }
+        songIdIndex.putAll(songs);
+
+        //Remove every other song, so keys are shifted back over the gaps
+        final List<Long> removed = new ArrayList<>();
+        for (Long deezerID : expected.keySet()) {
+            if (deezerID % 2 == 0) {
+                removed.add(deezerID);
+            }
+        }
+        songIdIndex.removeAll(removed);
+        removed.forEach(expected::remove);
+
+        assertEquals(expected.size(), songIdIndex.size(), "Only songs that weren't removed should be left");
+        for (Map.Entry<Long, Long> song : expected.entrySet()) {
+            assertEquals(song.getValue().longValue(), songIdIndex.songID(song.getKey()), "Song left should keep its id");
+        }
+        for (Long deezerID : removed) {
+            assertEquals(SongIdIndex.MISSING, songIdIndex.songID(deezerID), "Removed song shouldn't be in the index");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.service.songManagement.SongResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SongResult class
+ */
+public class SongResultTests {
+
+    /**
+     * Creates a result with the given deezerID and name
+     *
+     * @param deezerID Deezer ID of song
+     * @param songName Name of song
+     * @return New result
+     */
+    private static SongResult result(long deezerID, String songName) {
+        return new SongResult(deezerID, songName, 187, "Artist", 2L, "Album", 3L, "img", "preview");
+    }
+
+    @Test
+    public void sameDeezerIDIsSameSong() {
+        final SongResult result = result(1L, "Song");
+        final SongResult renamed = result(1L, "Renamed Song");
+
+        assertEquals(result, renamed, "Results with the same deezerID should be the same song");
+        assertEquals(result.hashCode(), renamed.hashCode(), "Results with the same deezerID should have the same hash");
+        assertNotEquals(result, result(2L, "Song"), "Results with different deezerIDs should be different songs");
+    }
+
+    @Test
+    public void setKeepsFirstResultForSong() {
+        final Set<SongResult> results = new LinkedHashSet<>();
+        results.add(result(1L, "First"));
+        results.add(result(2L, "Second"));
+        results.add(result(1L, "First Again"));
+
+        assertEquals(List.of("First", "Second"), results.stream().map(SongResult::getSongName).toList(),
+                "Song found twice should only be kept once, where it was first found");
+    }
+
+    @Test
+    public void toSongCopiesEveryField() {
+        final Song song = result(1L, "Song").toSong();
+
+        assertEquals(1L, song.getDeezerID(), "DeezerID should be copied");
+        assertEquals("Song", song.getSongName(), "Song name should be copied");
+        assertEquals(187, song.getLength(), "Length should be copied");
+        assertEquals("Artist", song.getArtistName(), "Artist name should be copied");
+        assertEquals(2L, song.getArtistDeezerID(), "Artist deezerID should be copied");
+        assertEquals("Album", song.getAlbumName(), "Album name should be copied");
+        assertEquals(3L, song.getAlbumDeezerID(), "Album deezerID should be copied");
+        assertEquals("img", song.getSongImg(), "Cover art should be copied");
+        assertEquals("preview", song.getSongPreview(), "Preview should be copied");
+    }
+
+    @Test
+    public void fromSongRoundTrips() {
+        final SongResult result = result(1L, "Song");
+        final SongResult copy = SongResult.from(result.toSong());
+
+        assertEquals(result, copy, "Copy should be the same song");
+        assertEquals(result.getSongName(), copy.getSongName(), "Copy should have the same name");
+        assertEquals(result.getSongPreview(), copy.getSongPreview(), "Copy should have the same preview");
+        assertEquals("3:07", copy.getFormattedLength(), "Length should be formatted as minutes and seconds");
+    }
+}
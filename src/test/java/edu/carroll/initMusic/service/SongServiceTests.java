@@ -1,8 +1,22 @@
 package edu.carroll.initMusic.service;
 
-import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.QueryCache;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.service.songManagement.NearQueryCache;
+import edu.carroll.initMusic.service.songManagement.NegativeQueryCache;
+import edu.carroll.initMusic.service.songManagement.QueryCacheMetrics;
+import edu.carroll.initMusic.service.songManagement.QueryCacheWriter;
+import edu.carroll.initMusic.service.songManagement.QueryKey;
+import edu.carroll.initMusic.service.songManagement.QueryShape;
+import edu.carroll.initMusic.service.songManagement.ScoredSong;
+import edu.carroll.initMusic.service.songManagement.SongResult;
 import edu.carroll.initMusic.service.songManagement.SongSearchService;
+import edu.carroll.initMusic.service.songManagement.SongMetadataCache;
 import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.songManagement.SongServiceImpl;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,9 +24,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
@@ -35,7 +54,7 @@ class SongServiceTests {
     /**
      * Set of songs to return when needed
      */
-    private static final Set<Song> songs = new HashSet<>();
+    private static final Set<SongResult> songs = new HashSet<>();
     /**
      * Service we are testing
      */
@@ -46,24 +65,67 @@ class SongServiceTests {
      */
     @MockBean
     private SongSearchService searchService;
+    /**
+     * Used to check cache hits and misses are counted
+     */
+    @Autowired
+    private QueryCacheMetrics queryCacheMetrics;
+    /**
+     * Used to check searches with no results are remembered in memory
+     */
+    @Autowired
+    private NegativeQueryCache negativeQueryCache;
+    /**
+     * Used to look at and expire saved caches
+     */
+    @Autowired
+    private QueryCacheRepository queryCacheRepository;
+    /**
+     * Used to check refresh churn is recorded
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+    /**
+     * Used to create caches through a writer
+     */
+    @Autowired
+    private SongServiceImpl songServiceImpl;
+    /**
+     * Used to check searches that were cached are found by their typos
+     */
+    @Autowired
+    private NearQueryCache nearQueryCache;
+    /**
+     * Used to check songs that were saved are kept in memory
+     */
+    @Autowired
+    private SongMetadataCache songMetadataCache;
+    /**
+     * Transaction manager a writer runs batches with
+     */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Finds the saved cache for the given search and makes it expired, so the next search refreshes it
+     *
+     * @param songName   Name of song searched for
+     * @param artistName Name of artist searched for
+     * @return Expired cache
+     */
+    private QueryCache expireCache(String songName, String artistName) {
+        final QueryCache cache = queryCacheRepository.findByQueryHash(QueryKey.of(songName, artistName).hash()).getFirst();
+        cache.setLastUpdated(LocalDateTime.now().minusDays(8));
+        return queryCacheRepository.save(cache);
+    }
 
     @BeforeEach
     public void setUp() {
         final Random r = new Random();
         songs.clear();
         for (int i = 1; i <= 5; i++) {
-            final Song song = new Song();
-            song.setSongName("song".repeat(i));
-            song.setArtistName("artist".repeat(i));
-            song.setAlbumName("album".repeat(i));
-            song.setArtistDeezerID((long) i * i);
-            song.setAlbumDeezerID((long) i * i);
-            song.setDeezerID(r.nextLong(1, Long.MAX_VALUE));
-            song.setLength(0);
-            song.setSongPreview("");
-            song.setSongImg("");
-
-            songs.add(song);
+            songs.add(new SongResult(r.nextLong(1, Long.MAX_VALUE), "song".repeat(i), 0, "artist".repeat(i),
+                    (long) i * i, "album".repeat(i), (long) i * i, "", ""));
         }
     }
 
@@ -75,7 +137,7 @@ class SongServiceTests {
         final String artistName = "";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertTrue(result.isEmpty(), "Search for songs should return a empty set when both queries are empty!");
 
         //SearchService should never get called, bc 2 empty strings will cause the searchForSongs method to return early
@@ -88,7 +150,7 @@ class SongServiceTests {
         final String artistName = null;
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertTrue(result.isEmpty(), "Search for songs should return a empty set when both queries are null!");
 
         //SearchService should never get called, bc 2 null strings will cause the searchForSongs method to return early
@@ -101,7 +163,7 @@ class SongServiceTests {
         final String artistName = "12";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertTrue(result.isEmpty(), "Search for songs should return a empty set when both queries are too short!");
 
         //SearchService should never get called, bc 2 strings that are too short will cause the searchForSongs method to return early
@@ -114,7 +176,7 @@ class SongServiceTests {
         final String artistName = "a".repeat(51);
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertTrue(result.isEmpty(), "Search for songs should return a empty set when both queries are too long!");
 
         //SearchService should never get called, bc 2 strings that are too long will cause the searchForSongs method to return early
@@ -127,7 +189,7 @@ class SongServiceTests {
         final String artistName = "artist";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertFalse(result.isEmpty(), "Search for songs should return a set of songs when both queries are valid!");
         //Since there is no cache, external search should be called once
         verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
@@ -141,7 +203,7 @@ class SongServiceTests {
         final String artistName = "artistName";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
 
-        Set<Song> result = songService.searchForSongs(songName, artistName);
+        Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertEquals(result, songs, "Songs should match those mocked in externalSearchForSongs!");
 
         //Now if we call searchForSongs again, externalSearch should never be called bc there is now a cache
@@ -158,7 +220,7 @@ class SongServiceTests {
         final String artistName = "";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertFalse(result.isEmpty(), "Search for songs should return a set of songs when only song name is valid!");
         verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
         assertTrue(result.containsAll(songs), "Songs found should match those mocked in externalSearchForSongs!");
@@ -170,7 +232,7 @@ class SongServiceTests {
         final String artistName = "newArtistName";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertFalse(result.isEmpty(), "Search for songs should return a set of songs when only artist name is valid!");
         verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
         assertTrue(result.containsAll(songs), "Songs found should match those mocked in externalSearchForSongs!");
@@ -182,7 +244,7 @@ class SongServiceTests {
         final String artistName = "favArtist";
         when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
 
-        final Set<Song> result = songService.searchForSongs(songName, artistName);
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
         assertFalse(result.isEmpty(), "Search for songs should return a set of songs when both queries are valid!");
         //Since there is no cache, external search should be called once
         verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
@@ -195,7 +257,7 @@ class SongServiceTests {
         final String artistNameTwo = "2ndfavArtist";
         when(searchService.externalSearchForSongs(songNameTwo, artistNameTwo)).thenReturn(songs);
 
-        final Set<Song> resultTwo = songService.searchForSongs(songNameTwo, artistNameTwo);
+        final Set<SongResult> resultTwo = songService.searchForSongs(songNameTwo, artistNameTwo);
         assertFalse(resultTwo.isEmpty(), "Search for songs should return a set of songs when both queries are valid!");
         //Since there is no cache, external search should be called once
         verify(searchService, times(1)).externalSearchForSongs(songNameTwo, artistNameTwo);
@@ -203,6 +265,304 @@ class SongServiceTests {
         assertTrue(resultTwo.containsAll(songs), "Songs found should match those mocked in externalSearchForSongs!");
     }
 
+    @Test
+    public void testSearchForSongsLongCombinedQueryCacheFound() {
+        final String songName = "s".repeat(40);
+        final String artistName = "a".repeat(40);
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+
+        Set<SongResult> result = songService.searchForSongs(songName, artistName);
+        assertEquals(result, songs, "Songs should match those mocked in externalSearchForSongs!");
+
+        //Combined query is much longer than a single name, but should still be cached
+        result = songService.searchForSongs(songName, artistName);
+        assertEquals(result, songs, "Songs should match those saved in cache!");
+
+        verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
+    }
+
+    @Test
+    public void testSearchForSongsDifferentCaseAndSpacingCacheFound() {
+        final String songName = "Cool  Song";
+        final String artistName = "Cool Artist";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+
+        songService.searchForSongs(songName, artistName);
+
+        //Same search with different case and spacing should use the same cache
+        final Set<SongResult> result = songService.searchForSongs(" cool song ", "COOL   artist");
+        assertEquals(result, songs, "Songs should match those saved in cache!");
+
+        verify(searchService, times(1)).externalSearchForSongs(anyString(), anyString());
+    }
+
+    @Test
+    public void testSearchForSongsCacheHitKeepsRankedOrder() {
+        final String songName = "song";
+        final String artistName = "";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+
+        final List<SongResult> ranked = new ArrayList<>(songService.searchForSongs(songName, artistName));
+        assertEquals("song", ranked.getFirst().getSongName(), "Closest song name should be ranked first!");
+
+        //Cache hit should come back in the same order it was ranked in
+        final List<SongResult> cached = new ArrayList<>(songService.searchForSongs(songName, artistName));
+        assertEquals(ranked, cached, "Cached songs should be in the same order they were ranked in!");
+
+        verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
+    }
+
+    @Test
+    public void testSearchForSongsCountsHitsAndMissesByShape() {
+        final String songName = "countedSong";
+        final String artistName = "countedArtist";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+
+        final QueryCacheMetrics.ShapeReport before = queryCacheMetrics.report().get(QueryShape.SONG_AND_ARTIST);
+        songService.searchForSongs(songName, artistName);
+        songService.searchForSongs(songName, artistName);
+        final QueryCacheMetrics.ShapeReport after = queryCacheMetrics.report().get(QueryShape.SONG_AND_ARTIST);
+
+        assertEquals(before.misses() + 1, after.misses(), "First search should be counted as a miss");
+        assertEquals(before.hits() + 1, after.hits(), "Second search should be counted as a hit");
+    }
+
+    @Test
+    public void testSearchForSongsNoResultsNegativelyCached() {
+        final String songName = "qwzxqwzx";
+        final String artistName = "";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
+
+        final QueryCacheMetrics.ShapeReport before = queryCacheMetrics.report().get(QueryShape.SONG);
+        Set<SongResult> result = songService.searchForSongs(songName, artistName);
+        assertTrue(result.isEmpty(), "Search with no results should return a empty set!");
+
+        //Repeating the search should be answered by the negative cache
+        result = songService.searchForSongs(songName, artistName);
+        assertTrue(result.isEmpty(), "Negatively cached search should return a empty set!");
+        final QueryCacheMetrics.ShapeReport after = queryCacheMetrics.report().get(QueryShape.SONG);
+
+        verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
+        assertEquals(before.negativeHits() + 1, after.negativeHits(), "Second search should be counted as a negative hit");
+    }
+
+    @Test
+    public void testSearchForSongsNoResultsNegativelyCachedInDatabase() {
+        final String songName = "";
+        final String artistName = "zzxxqqvv";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(new HashSet<>());
+
+        songService.searchForSongs(songName, artistName);
+
+        //Even after the in memory cache is cleared, the negative cache in the database should be used
+        negativeQueryCache.clear();
+        final Set<SongResult> result = songService.searchForSongs(songName, artistName);
+        assertTrue(result.isEmpty(), "Negatively cached search should return a empty set!");
+
+        verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
+    }
+
+    @Test
+    public void testSearchForSongsFailedSearchNotNegativelyCached() {
+        final String songName = "deezerIsDown";
+        final String artistName = "";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(null);
+
+        assertNull(songService.searchForSongs(songName, artistName), "Failed search should return null!");
+
+        final String queryHash = QueryKey.of(songName, artistName).hash();
+        assertFalse(negativeQueryCache.contains(queryHash), "Failed search shouldn't be negatively cached in memory!");
+        assertTrue(queryCacheRepository.findByQueryHash(queryHash).isEmpty(), "Failed search shouldn't be cached in the database!");
+
+        //Once the search works again, it should be searched externally instead of answered by a cache
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+        assertEquals(songs.size(), songService.searchForSongs(songName, artistName).size(), "Search should find songs once it works again!");
+        verify(searchService, times(2)).externalSearchForSongs(songName, artistName);
+    }
+
+    @Test
+    public void testSearchForSongsFailedRefreshKeepsExpiredCache() {
+        final String songName = "refreshFails";
+        final String artistName = "";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs, (Set<SongResult>) null);
+
+        songService.searchForSongs(songName, artistName);
+        expireCache(songName, artistName);
+        assertNull(songService.searchForSongs(songName, artistName), "Failed refresh should return null!");
+
+        final QueryCache cache = queryCacheRepository.findByQueryHash(QueryKey.of(songName, artistName).hash()).getFirst();
+        assertFalse(cache.isNegative(), "Failed refresh shouldn't make the cache negative!");
+        assertEquals(songs.size(), cache.getResultCount(), "Failed refresh shouldn't replace the cache's songs!");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCreateCacheInRolledBackBatchLeavesNothingInMemory() {
+        final QueryCacheWriter writer = new QueryCacheWriter(transactionManager, new SimpleMeterRegistry(), true, 10, 50, 60_000, 5000);
+        final QueryKey savedKey = QueryKey.of("saved negative search", "");
+        final QueryKey failedKey = QueryKey.of("failed negative search", "");
+        final QueryKey failedSongsKey = QueryKey.of("failed songs search", "");
+        final List<ScoredSong> rankedSongs = new ArrayList<>();
+        for (SongResult song : songs) {
+            rankedSongs.add(new ScoredSong(song, 0));
+        }
+        try {
+            writer.submit(savedKey.hash(), () -> songServiceImpl.createCache(savedKey, List.of()));
+            writer.submit(failedKey.hash(), () -> {
+                songServiceImpl.createCache(failedKey, List.of());
+                throw new IllegalStateException("Write failed");
+            });
+            writer.submit(failedSongsKey.hash(), () -> {
+                songServiceImpl.createCache(failedSongsKey, rankedSongs);
+                throw new IllegalStateException("Write failed");
+            });
+            writer.flush();
+
+            assertTrue(negativeQueryCache.contains(savedKey.hash()), "Write saved on its own should be in memory once it's committed!");
+            assertFalse(negativeQueryCache.contains(failedKey.hash()), "Rolled back negative cache shouldn't be in memory!");
+            assertNull(nearQueryCache.findNear(QueryKey.of("failed songs serch", "")), "Rolled back cache shouldn't be found by a typo!");
+            final long[] deezerIDs = songs.stream().mapToLong(SongResult::getDeezerID).toArray();
+            assertTrue(songMetadataCache.resolve(deezerIDs).isEmpty(), "Rolled back songs shouldn't be in memory!");
+        } finally {
+            writer.destroy();
+            queryCacheRepository.deleteAll(queryCacheRepository.findByQueryHash(savedKey.hash()));
+            negativeQueryCache.clear();
+        }
+    }
+
+    @Test
+    public void testSearchForSongsRefreshWithSameResultsHasNoChurn() {
+        final String songName = "stableSong";
+        final String artistName = "";
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+
+        final List<SongResult> ranked = new ArrayList<>(songService.searchForSongs(songName, artistName));
+        final QueryCache cache = expireCache(songName, artistName);
+        final long ttlBefore = cache.getTtlMinutes();
+        final DistributionSummary churn = meterRegistry.find(QueryCacheMetrics.CHURN_METRIC_NAME).tag("shape", QueryShape.SONG.name()).summary();
+        final long refreshesBefore = churn.count();
+        final double churnBefore = churn.totalAmount();
+
+        //Expired cache is searched for again, and Deezer returns the same songs
+        final List<SongResult> refreshed = new ArrayList<>(songService.searchForSongs(songName, artistName));
+
+        verify(searchService, times(2)).externalSearchForSongs(songName, artistName);
+        assertEquals(ranked, refreshed, "Refreshed songs should be the same as before!");
+        assertFalse(cache.isExpired(), "Refreshed cache should no longer be expired!");
+        assertEquals(0.0, cache.getLastChurn(), "Refresh with the same songs should have no churn!");
+        assertEquals(refreshesBefore + 1, churn.count(), "Refresh should be recorded");
+        assertEquals(churnBefore, churn.totalAmount(), "Refresh with the same songs should add no churn");
+        assertTrue(cache.getTtlMinutes() > ttlBefore, "Refresh with the same songs should make the cache last longer");
+    }
+
+    @Test
+    public void testSearchForSongsRefreshWithNewResultsRecordsChurn() {
+        final String songName = "";
+        final String artistName = "volatileArtist";
+        final Set<SongResult> changedSongs = new HashSet<>(songs);
+        final SongResult replaced = changedSongs.iterator().next();
+        changedSongs.remove(replaced);
+        final SongResult newSong = new SongResult(replaced.getDeezerID() + 1, "newSong", 0, "newArtist", 99L, "newAlbum", 99L, "", "");
+        changedSongs.add(newSong);
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs, changedSongs);
+
+        songService.searchForSongs(songName, artistName);
+        final QueryCache cache = expireCache(songName, artistName);
+        final long ttlBefore = cache.getTtlMinutes();
+        final Set<SongResult> refreshed = songService.searchForSongs(songName, artistName);
+
+        //One of five songs replaced, so two of the six songs are in only one of the results
+        assertTrue(refreshed.contains(newSong), "Refreshed songs should include the new song!");
+        assertEquals(2.0 / 6.0, cache.getLastChurn(), 1e-9, "Refresh should record how much the songs changed!");
+        assertEquals(5, cache.getResultCount(), "Refreshed cache should have the new results!");
+        assertTrue(cache.getTtlMinutes() < ttlBefore, "Refresh with different songs should make the cache expire sooner!");
+    }
+
+    @Test
+    public void testSearchForSongsCombinedAnsweredBySongCache() {
+        final String songName = "song";
+        when(searchService.externalSearchForSongs(songName, "")).thenReturn(songs);
+        songService.searchForSongs(songName, "");
+
+        //Every song's artist name contains "artist", so the song search covers this one
+        final QueryCacheMetrics.ShapeReport before = queryCacheMetrics.report().get(QueryShape.SONG_AND_ARTIST);
+        final Set<SongResult> result = songService.searchForSongs(songName, "Artist");
+        final QueryCacheMetrics.ShapeReport after = queryCacheMetrics.report().get(QueryShape.SONG_AND_ARTIST);
+
+        verify(searchService, never()).externalSearchForSongs(songName, "Artist");
+        assertEquals(songs.size(), result.size(), "Every cached song should match the artist!");
+        assertEquals("song", result.iterator().next().getSongName(), "Closest song name should still be ranked first!");
+        assertEquals(before.subsumedHits() + 1, after.subsumedHits(), "Search should be counted as a subsumed hit");
+        assertEquals(before.misses(), after.misses(), "Search shouldn't be counted as a miss");
+    }
+
+    @Test
+    public void testSearchForSongsCombinedAnsweredByArtistCache() {
+        final String artistName = "artist";
+        when(searchService.externalSearchForSongs("", artistName)).thenReturn(songs);
+        songService.searchForSongs("", artistName);
+
+        //Songs named "songsong" and longer contain it, four of the five
+        final Set<SongResult> result = songService.searchForSongs("songsong", artistName);
+
+        verify(searchService, never()).externalSearchForSongs("songsong", artistName);
+        assertEquals(4, result.size(), "Only songs with a matching name should be returned!");
+        assertEquals("songsong", result.iterator().next().getSongName(), "Songs should be ranked by song name!");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testSearchForSongsTypoAnsweredByNearCache() {
+        final String songName = "Bohemian Rhapsody";
+        final String typo = "Bohemian Rapsody";
+        when(searchService.externalSearchForSongs(songName, "")).thenReturn(songs);
+        //The cache is only found by its typos once it's committed, so this test commits and cleans up after itself
+        try {
+            songService.searchForSongs(songName, "");
+
+            final QueryCacheMetrics.ShapeReport before = queryCacheMetrics.report().get(QueryShape.SONG);
+            final Set<SongResult> result = songService.searchForSongs(typo, "");
+            final QueryCacheMetrics.ShapeReport after = queryCacheMetrics.report().get(QueryShape.SONG);
+
+            verify(searchService, never()).externalSearchForSongs(typo, "");
+            assertTrue(result.containsAll(songs), "Search with a typo should get the cached songs!");
+            assertEquals(before.nearHits() + 1, after.nearHits(), "Search should be counted as a near hit");
+            assertEquals(before.misses(), after.misses(), "Search shouldn't be counted as a miss");
+        } finally {
+            queryCacheRepository.deleteAll();
+            songServiceImpl.clearRepo();
+            nearQueryCache.clear();
+        }
+    }
+
+    @Test
+    public void testSearchForSongsShortTypoSearchesExternally() {
+        final String songName = "Hello";
+        final String otherSong = "Hallo";
+        when(searchService.externalSearchForSongs(songName, "")).thenReturn(songs);
+        when(searchService.externalSearchForSongs(otherSong, "")).thenReturn(songs);
+        songService.searchForSongs(songName, "");
+
+        //Names this short could be different songs, so no edits are allowed
+        songService.searchForSongs(otherSong, "");
+
+        verify(searchService, times(1)).externalSearchForSongs(otherSong, "");
+    }
+
+    @Test
+    public void testSearchForSongsCombinedTooFewFilteredSearchesExternally() {
+        final String songName = "song";
+        final String artistName = "artistartistartistartist";
+        when(searchService.externalSearchForSongs(songName, "")).thenReturn(songs);
+        when(searchService.externalSearchForSongs(songName, artistName)).thenReturn(songs);
+        songService.searchForSongs(songName, "");
+
+        //Only two cached songs match the artist, too few to trust the song search's cache
+        songService.searchForSongs(songName, artistName);
+
+        verify(searchService, times(1)).externalSearchForSongs(songName, artistName);
+    }
+
 
     //Testing isValidQuery
 
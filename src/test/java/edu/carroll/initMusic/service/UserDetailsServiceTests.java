@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,11 +38,11 @@ public class UserDetailsServiceTests {
 
         final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
 
-        assertEquals(savedUser, userDetails.getUser(), "User object stored in CustomUserDetails should match the object returned from saveUser");
+        assertEquals(savedUser.getuserID(), userDetails.getUserID(), "User id stored in CustomUserDetails should match the object returned from saveUser");
         assertEquals(savedUser.getUsername(), userDetails.getUsername(), "User should be found since user is in database!");
         assertEquals(savedUser.getHashedPassword(), userDetails.getPassword(), "Users hashed password should be stored in customUserDetails!");
         assertEquals(userDetails.getAuthorities().size(), 0, "User should have no authorities in CustomUserDetails object!");
-        assertEquals(savedUser, userDetails.getUser(), "Returned user object should match the saved user object");
+        assertEquals(savedUser.getEmail(), userDetails.getEmail(), "Email stored in CustomUserDetails should match the saved user object");
         assertTrue(userDetails.isAccountNonExpired(), "User's account should not be expired!");
         assertTrue(userDetails.isAccountNonLocked(), "User's account should not be locked!");
         assertTrue(userDetails.isCredentialsNonExpired(), "User's credentials should not be expired!");
@@ -56,11 +57,11 @@ public class UserDetailsServiceTests {
 
         final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
 
-        assertEquals(savedUser, userDetails.getUser(), "User object stored in CustomUserDetails should match the object returned from saveUser");
+        assertEquals(savedUser.getuserID(), userDetails.getUserID(), "User id stored in CustomUserDetails should match the object returned from saveUser");
         assertEquals(savedUser.getUsername(), userDetails.getUsername(), "User should be found since user is in database!");
         assertEquals(savedUser.getHashedPassword(), userDetails.getPassword(), "Users hashed password should be stored in customUserDetails!");
         assertEquals(userDetails.getAuthorities().size(), 0, "User should have no authorities in CustomUserDetails object!");
-        assertEquals(savedUser, userDetails.getUser(), "Returned user object should match the saved user object");
+        assertEquals(savedUser.getEmail(), userDetails.getEmail(), "Email stored in CustomUserDetails should match the saved user object");
         assertTrue(userDetails.isAccountNonExpired(), "User's account should not be expired!");
         assertTrue(userDetails.isAccountNonLocked(), "User's account should not be locked!");
         assertTrue(userDetails.isCredentialsNonExpired(), "User's credentials should not be expired!");
@@ -122,11 +123,11 @@ public class UserDetailsServiceTests {
 
         final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
 
-        assertEquals(savedUser, userDetails.getUser(), "User object stored in CustomUserDetails should match the object returned from saveUser");
+        assertEquals(savedUser.getuserID(), userDetails.getUserID(), "User id stored in CustomUserDetails should match the object returned from saveUser");
         assertEquals(savedUser.getUsername(), userDetails.getUsername(), "User should be found since user is in database!");
         assertEquals(savedUser.getHashedPassword(), userDetails.getPassword(), "Users hashed password should be stored in customUserDetails!");
         assertEquals(userDetails.getAuthorities().size(), 0, "User should have no authorities in CustomUserDetails object!");
-        assertEquals(savedUser, userDetails.getUser(), "Returned user object should match the saved user object");
+        assertEquals(savedUser.getEmail(), userDetails.getEmail(), "Email stored in CustomUserDetails should match the saved user object");
         assertTrue(userDetails.isAccountNonExpired(), "User's account should not be expired!");
         assertTrue(userDetails.isAccountNonLocked(), "User's account should not be locked!");
         assertTrue(userDetails.isCredentialsNonExpired(), "User's credentials should not be expired!");
@@ -146,11 +147,11 @@ public class UserDetailsServiceTests {
         //Search for the first saved user, should return its info
         final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
 
-        assertEquals(savedUser, userDetails.getUser(), "User object stored in CustomUserDetails should match the object returned from saveUser");
+        assertEquals(savedUser.getuserID(), userDetails.getUserID(), "User id stored in CustomUserDetails should match the object returned from saveUser");
         assertEquals(savedUser.getUsername(), userDetails.getUsername(), "User should be found since user is in database!");
         assertEquals(savedUser.getHashedPassword(), userDetails.getPassword(), "Users hashed password should be stored in customUserDetails!");
         assertEquals(userDetails.getAuthorities().size(), 0, "User should have no authorities in CustomUserDetails object!");
-        assertEquals(savedUser, userDetails.getUser(), "Returned user object should match the saved user object");
+        assertEquals(savedUser.getEmail(), userDetails.getEmail(), "Email stored in CustomUserDetails should match the saved user object");
         assertTrue(userDetails.isAccountNonExpired(), "User's account should not be expired!");
         assertTrue(userDetails.isAccountNonLocked(), "User's account should not be locked!");
         assertTrue(userDetails.isCredentialsNonExpired(), "User's credentials should not be expired!");
@@ -159,14 +160,29 @@ public class UserDetailsServiceTests {
         //Search for the second saved user, should return its info
         final CustomUserDetails userDetailsTwo = (CustomUserDetails) userDetailsService.loadUserByUsername(usernameTwo);
 
-        assertEquals(savedUserTwo, userDetailsTwo.getUser(), "User object stored in CustomUserDetails should match the object returned from saveUser");
+        assertEquals(savedUserTwo.getuserID(), userDetailsTwo.getUserID(), "User id stored in CustomUserDetails should match the object returned from saveUser");
         assertEquals(savedUserTwo.getUsername(), userDetailsTwo.getUsername(), "User should be found since user is in database!");
         assertEquals(savedUserTwo.getHashedPassword(), userDetailsTwo.getPassword(), "Users hashed password should be stored in customUserDetails!");
         assertEquals(userDetailsTwo.getAuthorities().size(), 0, "User should have no authorities in CustomUserDetails object!");
-        assertEquals(savedUserTwo, userDetailsTwo.getUser(), "Returned user object should match the saved user object");
+        assertEquals(savedUserTwo.getEmail(), userDetailsTwo.getEmail(), "Email stored in CustomUserDetails should match the saved user object");
         assertTrue(userDetailsTwo.isAccountNonExpired(), "User's account should not be expired!");
         assertTrue(userDetailsTwo.isAccountNonLocked(), "User's account should not be locked!");
         assertTrue(userDetailsTwo.isCredentialsNonExpired(), "User's credentials should not be expired!");
         assertTrue(userDetailsTwo.isEnabled(), "User's enabled should be enabled!");
     }
+
+    @Test
+    public void updatePasswordStoresRehashedPassword() {
+        final String username = "usernameRehash";
+        final User savedUser = userService.saveUser(username, "password", "emailRehash@email.com", "first", "last");
+        assertNotNull(savedUser, "User should've been saved in database when testing updatePasswordStoresRehashedPassword");
+
+        final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
+        final String rehashedPassword = new BCryptPasswordEncoder(5).encode("password");
+
+        final CustomUserDetails updatedDetails = (CustomUserDetails) userDetailsService.updatePassword(userDetails, rehashedPassword);
+
+        assertEquals(rehashedPassword, updatedDetails.getPassword(), "Returned user details should have the rehashed password");
+        assertEquals(rehashedPassword, userService.findByUsername(username).getHashedPassword(), "Rehashed password should be saved in the database");
+    }
 }
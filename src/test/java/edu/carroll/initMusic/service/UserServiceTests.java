@@ -1,11 +1,19 @@
 package edu.carroll.initMusic.service;
 
 import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
 import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongService;
 import edu.carroll.initMusic.service.userManagement.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +38,18 @@ public class UserServiceTests {
     @Autowired
     private UserService userService;
 
+    /** Used to give users playlists before deleting them */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Used to find users' playlists */
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    /** Used to check songs are kept when their playlists are deleted */
+    @Autowired
+    private SongService songService;
+
     /*
      * First testing invalid usernames
      */
@@ -942,4 +962,77 @@ public class UserServiceTests {
         assertTrue(userService.deleteByEmail(email), "First deletion should return true.");
         assertFalse(userService.deleteByEmail(email), "Second deletion should return false.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteUserWithPlaylistsShouldDeleteThemButKeepSongs() {
+        final String email = "playlists@example.com";
+        final User savedUser = userService.saveUser("playlistuser", "password123", email, "Playlist", "User");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        final Song song = new Song(987654L, "Kept Song", 180, "Artist", 1L, "Album", 2L);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(MethodOutcome.SUCCESS, playlistService.createPlaylist("Playlist " + i, savedUser), "Playlist should be created.");
+        }
+        final List<Long> playlistIDs = playlistRepository.findIdsByAuthor(savedUser.getuserID(), PageRequest.of(0, 10));
+        assertEquals(3, playlistIDs.size(), "User should have their playlists.");
+        for (Long playlistID : playlistIDs) {
+            final Playlist playlist = playlistRepository.findById(playlistID).orElseThrow();
+            assertEquals(MethodOutcome.SUCCESS, playlistService.addSongToPlaylist(playlist, song), "Song should be added to the playlist.");
+        }
+
+        assertTrue(userService.deleteByEmail(email), "Deleting a user with playlists should return true.");
+        assertNull(userService.findByEmail(email), "User should be deleted.");
+        assertTrue(playlistRepository.findAllById(playlistIDs).isEmpty(), "User's playlists should be deleted with them.");
+        assertNotNull(songService.findSong(song), "Songs in the user's playlists should be kept.");
+    }
+
+    @Test
+    void checkRegistrationAvailable() {
+        assertEquals(MethodOutcome.SUCCESS, userService.checkRegistration("checkRegUser1", "checkReg1@email.com"), "Username and email should both be available");
+    }
+
+    @Test
+    void checkRegistrationEmailTakenDifferentCase() {
+        final User savedUser = userService.saveUser("checkRegUser2", "password123", "checkReg2@email.com", "First", "Last");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        assertEquals(MethodOutcome.EMAIL_ALREADY_EXISTS, userService.checkRegistration("checkRegOther2", "CHECKREG2@email.com"), "Email should be taken regardless of case");
+        assertEquals(MethodOutcome.EMAIL_ALREADY_EXISTS, userService.uniqueEmail("CheckReg2@Email.com"), "Email should be taken regardless of case");
+    }
+
+    @Test
+    void checkRegistrationUsernameTakenDifferentCase() {
+        final User savedUser = userService.saveUser("checkRegUser3", "password123", "checkReg3@email.com", "First", "Last");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        assertEquals(MethodOutcome.USER_ALREADY_EXISTS, userService.checkRegistration("CHECKREGUSER3", "checkRegOther3@email.com"), "Username should be taken regardless of case");
+        assertEquals(MethodOutcome.USER_ALREADY_EXISTS, userService.uniqueUserName("checkreguser3"), "Username should be taken regardless of case");
+    }
+
+    @Test
+    void checkRegistrationBothTakenReturnsEmailTaken() {
+        final User savedUser = userService.saveUser("checkRegUser4", "password123", "checkReg4@email.com", "First", "Last");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        assertEquals(MethodOutcome.EMAIL_ALREADY_EXISTS, userService.checkRegistration("checkRegUser4", "checkReg4@email.com"), "Taken email should be reported before taken username");
+    }
+
+    @Test
+    void checkRegistrationInvalidUsernameTakenEmailReturnsEmailTaken() {
+        final User savedUser = userService.saveUser("checkRegUser5", "password123", "checkReg5@email.com", "First", "Last");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        assertEquals(MethodOutcome.EMAIL_ALREADY_EXISTS, userService.checkRegistration("abc", "checkReg5@email.com"), "Taken email should be reported before an invalid username");
+        assertEquals(MethodOutcome.USER_TOO_SHORT, userService.checkRegistration("abc", "checkRegOther5@email.com"), "Invalid username should be reported when email is available");
+    }
+
+    @Test
+    void checkRegistrationInvalidEmail() {
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, userService.checkRegistration("checkRegUser6", "notAnEmail"), "Invalid email should be reported");
+        assertEquals(MethodOutcome.EMAIL_INVALID_FORMAT, userService.checkRegistration("abc", "notAnEmail"), "Invalid email should be reported before invalid username");
+    }
+
+    @Test
+    void saveUserStoresNormalizedUsernameAndEmail() {
+        final User savedUser = userService.saveUser("NormalizedUser", "password123", "Normalized@Email.com", "First", "Last");
+        assertNotNull(savedUser, "User should be saved successfully.");
+        assertEquals("normalizeduser", savedUser.getUsernameNormalized(), "Normalized username should be lower case");
+        assertEquals("normalized@email.com", savedUser.getEmailNormalized(), "Normalized email should be lower case");
+        assertEquals("NormalizedUser", savedUser.getUsername(), "Username should keep its original case");
+    }
+}
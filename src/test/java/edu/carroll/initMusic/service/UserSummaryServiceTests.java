@@ -0,0 +1,159 @@
+package edu.carroll.initMusic.service;
+
+import edu.carroll.initMusic.MethodOutcome;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import edu.carroll.initMusic.service.userManagement.UserSummary;
+import edu.carroll.initMusic.service.userManagement.UserSummaryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the UserSummaryService class, making sure summaries are cached
+ * and evicted whenever a user's playlists change.
+ */
+@SpringBootTest
+public class UserSummaryServiceTests {
+
+    /** Class we are testing */
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    /** Used to add/delete user objects in database when needed */
+    @Autowired
+    private UserService userService;
+
+    /** Used to change the user's playlists */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Used to evict in a transaction */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** User saved before each test */
+    private User savedUser;
+
+    /**
+     * Clears the repositories and saves a new user before each test
+     */
+    @BeforeEach
+    void setUp() {
+        playlistService.clearRepo();
+        userService.clearRepo();
+        savedUser = userService.saveUser("summaryUser", "password", "summary@email.com", "first", "last");
+        assertNotNull(savedUser, "User should've been saved in database before each test");
+    }
+
+    @Test
+    public void getUserSummaryNoPlaylists() {
+        final UserSummary summary = userSummaryService.getUserSummary(savedUser.getuserID());
+
+        assertNotNull(summary, "Summary should be returned for a user in the database");
+        assertEquals(savedUser.getuserID(), summary.userID(), "Summary should have the user's id");
+        assertEquals(savedUser.getUsername(), summary.username(), "Summary should have the user's username");
+        assertTrue(summary.playlists().isEmpty(), "Summary should have no playlists since user hasn't made any");
+    }
+
+    @Test
+    public void getUserSummaryReturnsCachedSummary() {
+        final UserSummary summary = userSummaryService.getUserSummary(savedUser.getuserID());
+        final UserSummary summaryAgain = userSummaryService.getUserSummary(savedUser.getuserID());
+
+        assertSame(summary, summaryAgain, "Second lookup should return the cached summary");
+    }
+
+    @Test
+    public void summaryLoadedBeforeCommitIsEvictedAfterIt() {
+        final Long userID = savedUser.getuserID();
+        final UserSummary[] loadedBeforeCommit = new UserSummary[1];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userSummaryService.evict(userID);
+            //Loaded on another thread, so it reads what's committed, like a page view while the write runs
+            loadedBeforeCommit[0] = CompletableFuture.supplyAsync(() -> userSummaryService.getUserSummary(userID)).join();
+            assertSame(loadedBeforeCommit[0], userSummaryService.getUserSummary(userID), "Summary loaded before commit should've been cached");
+        });
+
+        assertNotSame(loadedBeforeCommit[0], userSummaryService.getUserSummary(userID), "Summary loaded before commit should be evicted after it");
+    }
+
+    @Test
+    public void getUserSummaryUserNotFound() {
+        assertNull(userSummaryService.getUserSummary(-1L), "Summary should be null for a user that doesn't exist");
+        assertNull(userSummaryService.getUserSummary(null), "Summary should be null for a null id");
+    }
+
+    @Test
+    public void getUserSummaryAfterCreatingPlaylist() {
+        final UserSummary before = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertTrue(before.playlists().isEmpty(), "Summary should have no playlists before one is created");
+
+        final User user = userService.findByIdWithPlaylists(savedUser.getuserID());
+        assertEquals(MethodOutcome.SUCCESS, playlistService.createPlaylist("Summary Playlist", user), "Playlist should be created");
+
+        final UserSummary after = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertEquals(1, after.playlists().size(), "Summary should be reloaded with the new playlist");
+        assertEquals("Summary Playlist", after.playlists().getFirst().playlistName(), "Summary should have the new playlist's name");
+        assertEquals(0, after.playlists().getFirst().numberOfSongs(), "New playlist should have no songs");
+    }
+
+    @Test
+    public void getUserSummaryAfterRenamingPlaylist() {
+        User user = userService.findByIdWithPlaylists(savedUser.getuserID());
+        assertEquals(MethodOutcome.SUCCESS, playlistService.createPlaylist("Old Name", user), "Playlist should be created");
+
+        final UserSummary before = userSummaryService.getUserSummary(savedUser.getuserID());
+        final Long playlistID = before.playlists().getFirst().playlistID();
+
+        user = userService.findByIdWithPlaylists(savedUser.getuserID());
+        assertEquals(MethodOutcome.SUCCESS, playlistService.renamePlaylist("New Name", playlistID, user), "Playlist should be renamed");
+
+        final UserSummary after = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertEquals("New Name", after.playlists().getFirst().playlistName(), "Summary should have the playlist's new name");
+    }
+
+    @Test
+    public void getUserSummaryAfterDeletingPlaylist() {
+        User user = userService.findByIdWithPlaylists(savedUser.getuserID());
+        assertEquals(MethodOutcome.SUCCESS, playlistService.createPlaylist("Delete Me", user), "Playlist should be created");
+
+        final UserSummary before = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertEquals(1, before.playlists().size(), "Summary should have the created playlist");
+
+        user = userService.findByIdWithPlaylists(savedUser.getuserID());
+        final Long playlistID = before.playlists().getFirst().playlistID();
+        assertEquals(MethodOutcome.SUCCESS, playlistService.deletePlaylist("Delete Me", playlistID, user), "Playlist should be deleted");
+
+        final UserSummary after = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertTrue(after.playlists().isEmpty(), "Summary should no longer have the deleted playlist");
+    }
+
+    @Test
+    public void getUserSummaryAfterDeletingUser() {
+        assertNotNull(userSummaryService.getUserSummary(savedUser.getuserID()), "Summary should be found before user is deleted");
+
+        assertTrue(userService.deleteByEmail(savedUser.getEmail()), "User should be deleted");
+
+        assertNull(userSummaryService.getUserSummary(savedUser.getuserID()), "Summary should be null once the user is deleted");
+    }
+
+    @Test
+    public void evictAllRemovesCachedSummaries() {
+        final UserSummary summary = userSummaryService.getUserSummary(savedUser.getuserID());
+
+        userSummaryService.evictAll();
+
+        final UserSummary summaryAgain = userSummaryService.getUserSummary(savedUser.getuserID());
+        assertNotSame(summary, summaryAgain, "Summary should be reloaded after evicting all summaries");
+        assertEquals(summary, summaryAgain, "Reloaded summary should have the same information");
+    }
+}
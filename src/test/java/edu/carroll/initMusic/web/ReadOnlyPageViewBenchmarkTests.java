@@ -0,0 +1,248 @@
+package edu.carroll.initMusic.web;
+
+import edu.carroll.initMusic.config.CustomUserDetails;
+import edu.carroll.initMusic.jpa.model.Playlist;
+import edu.carroll.initMusic.jpa.model.Song;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.PlaylistRepository;
+import edu.carroll.initMusic.jpa.repo.UserRepository;
+import edu.carroll.initMusic.service.songManagement.CatalogCache;
+import edu.carroll.initMusic.service.songManagement.PlaylistService;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import edu.carroll.initMusic.service.userManagement.UserSummaryService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Measures the heap allocated and CPU time used per view of the playlists, search and view playlist pages,
+ * for a user with 100 playlists of 500 songs each. The same loads are also measured in a normal read-write
+ * transaction, like they ran before, for comparison. Read-only views should never flush, so nothing is dirty
+ * checked. Run with {@code ./gradlew benchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReadOnlyPageViewBenchmarkTests {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(ReadOnlyPageViewBenchmarkTests.class);
+
+    /** Number of playlists the user has */
+    private static final int PLAYLISTS = 100;
+
+    /** Number of songs in each playlist */
+    private static final int SONGS_PER_PLAYLIST = 500;
+
+    /** Views to do before measuring */
+    private static final int WARMUP_VIEWS = 20;
+
+    /** Views to measure */
+    private static final int MEASURED_VIEWS = 100;
+
+    /** Used to make requests */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** Used to save the user */
+    @Autowired
+    private UserService userService;
+
+    /** Summaries are evicted before each view, so every view loads the user */
+    @Autowired
+    private UserSummaryService userSummaryService;
+
+    /** Used to clear playlists */
+    @Autowired
+    private PlaylistService playlistService;
+
+    /** Used to clear songs */
+    @Autowired
+    private SongService songService;
+
+    /** Used to save playlists and their songs */
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    /** Used to save the songs' artists and albums before the songs */
+    @Autowired
+    private CatalogCache catalogCache;
+
+    /** Used to load the user the way pages used to */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** Used to load playlists the way pages used to */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Factory whose statistics count flushes */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** Reads this thread's allocated bytes and CPU time */
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** User the pages are viewed by */
+    private CustomUserDetails userDetails;
+
+    /** IDs of the user's playlists */
+    private final List<Long> playlistIDs = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        clear();
+        final User user = userService.saveUser("viewUser", "password", "view@email.com", "first", "last");
+        assertNotNull(user, "User should've been saved before viewing pages");
+        userDetails = CustomUserDetails.from(user);
+
+        playlistIDs.clear();
+        for (int p = 0; p < PLAYLISTS; p++) {
+            final Playlist playlist = new Playlist(user, "Playlist " + p);
+            for (int s = 0; s < SONGS_PER_PLAYLIST; s++) {
+                final long deezerID = (long) p * SONGS_PER_PLAYLIST + s + 1;
+                playlist.addSong(new Song(deezerID, "Song " + deezerID, 180, "Artist " + s, s, "Album " + s, s));
+            }
+            //Songs are saved with the playlist, after their artists and albums
+            catalogCache.saveArtistsAndAlbums(playlist.getSongs());
+            playlistIDs.add(playlistRepository.save(playlist).getPlaylistID());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        clear();
+    }
+
+    /**
+     * Deletes every playlist, song and user, and empties the caches
+     */
+    private void clear() {
+        playlistService.clearRepo();
+        songService.clearRepo();
+        userService.clearRepo();
+        userSummaryService.evictAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * A single page view, or load of what a page shows
+     */
+    private interface View {
+        /**
+         * Does the view
+         *
+         * @param i Number of the view
+         * @throws Exception If the view fails
+         */
+        void run(int i) throws Exception;
+    }
+
+    /**
+     * What a single view cost on average
+     *
+     * @param allocatedKb Heap allocated, in KB
+     * @param cpuMicros   CPU time used, in microseconds
+     * @param flushes     Number of flushes over all views
+     */
+    private record Cost(double allocatedKb, double cpuMicros, long flushes) {
+    }
+
+    /**
+     * Warms up, then measures, the given view on this thread
+     *
+     * @param view View to measure
+     * @return Average cost of the view
+     * @throws Exception If a view fails
+     */
+    private Cost measure(View view) throws Exception {
+        for (int i = 0; i < WARMUP_VIEWS; i++) {
+            view.run(i);
+        }
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        final long startBytes = threads.getCurrentThreadAllocatedBytes();
+        final long startCpu = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_VIEWS; i++) {
+            view.run(i);
+        }
+        final double allocatedKb = (threads.getCurrentThreadAllocatedBytes() - startBytes) / 1024.0 / MEASURED_VIEWS;
+        final double cpuMicros = (threads.getCurrentThreadCpuTime() - startCpu) / 1000.0 / MEASURED_VIEWS;
+        return new Cost(allocatedKb, cpuMicros, statistics.getFlushCount());
+    }
+
+    /**
+     * Gets a page as the user, with their summary evicted first so it's loaded again
+     *
+     * @param url Page to get
+     * @throws Exception If the request fails
+     */
+    private void view(String url) throws Exception {
+        userSummaryService.evictAll();
+        final int status = mockMvc.perform(get(url).with(user(userDetails))).andReturn().getResponse().getStatus();
+        assertEquals(200, status, url + " should be shown");
+    }
+
+    /**
+     * Logs the cost of a view
+     *
+     * @param name Name of the view
+     * @param cost Its cost
+     */
+    private void report(String name, Cost cost) {
+        log.info("viewPagesReadOnly: {}: {} KB allocated and {} us of CPU per view, {} flushes over {} views",
+                name, String.format("%.1f", cost.allocatedKb()), String.format("%.1f", cost.cpuMicros()), cost.flushes(), MEASURED_VIEWS);
+    }
+
+    @Test
+    public void viewPagesReadOnly() throws Exception {
+        final Long userID = userDetails.getUserID();
+        final TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        final Cost playlistsPage = measure(i -> view("/playlists"));
+        final Cost searchPage = measure(i -> view("/search"));
+        final Cost viewPlaylistPage = measure(i -> view("/viewPlaylist/" + playlistIDs.get(i % PLAYLISTS)));
+        final Cost readOnlyPlaylist = measure(i -> playlistService.getPlaylistWithSongs(playlistIDs.get(i % PLAYLISTS)));
+        final Cost readWritePlaylist = measure(i -> readWrite.executeWithoutResult(status -> {
+            final Playlist playlist = playlistRepository.findById(playlistIDs.get(i % PLAYLISTS)).orElseThrow();
+            Hibernate.initialize(playlist.getSongs());
+        }));
+        final Cost readOnlyUser = measure(i -> userRepository.findByIdWithPlaylistsReadOnly(userID));
+        final Cost readWriteUser = measure(i -> readWrite.executeWithoutResult(status -> userRepository.findByIdWithPlaylists(userID)));
+
+        log.info("viewPagesReadOnly: User with {} playlists of {} songs", PLAYLISTS, SONGS_PER_PLAYLIST);
+        report("GET /playlists", playlistsPage);
+        report("GET /search", searchPage);
+        report("GET /viewPlaylist", viewPlaylistPage);
+        report("Playlist with songs, read-only", readOnlyPlaylist);
+        report("Playlist with songs, read-write", readWritePlaylist);
+        report("User with playlists, read-only", readOnlyUser);
+        report("User with playlists, read-write", readWriteUser);
+
+        assertEquals(0, playlistsPage.flushes() + searchPage.flushes() + viewPlaylistPage.flushes(), "Page views shouldn't flush");
+        assertEquals(0, readOnlyPlaylist.flushes() + readOnlyUser.flushes(), "Read-only loads shouldn't flush");
+        assertTrue(readWritePlaylist.flushes() > 0 && readWriteUser.flushes() > 0, "Read-write loads should flush, so they're dirty checked");
+    }
+}
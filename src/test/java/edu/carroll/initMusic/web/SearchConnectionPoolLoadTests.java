@@ -0,0 +1,218 @@
+package edu.carroll.initMusic.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import edu.carroll.initMusic.config.CustomUserDetails;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.jpa.repo.QueryCacheRepository;
+import edu.carroll.initMusic.service.songManagement.SongResult;
+import edu.carroll.initMusic.service.songManagement.SongSearchService;
+import edu.carroll.initMusic.service.songManagement.SongService;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs many searches at once against a slow external search, with more searches than pooled connections,
+ * and reports how many connections were in use. No connection should be held while the external search runs,
+ * otherwise a few slow responses would use up the pool. Run with {@code ./gradlew benchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=" + SearchConnectionPoolLoadTests.POOL_SIZE)
+@AutoConfigureMockMvc
+public class SearchConnectionPoolLoadTests {
+
+    /** Number of connections in the pool */
+    static final int POOL_SIZE = 4;
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SearchConnectionPoolLoadTests.class);
+
+    /** Number of searches running at once, several times the pool size */
+    private static final int CONCURRENT_SEARCHES = 24;
+
+    /** How long the external search takes to answer */
+    private static final long EXTERNAL_SEARCH_MILLIS = 300;
+
+    /** How often pool occupancy is sampled */
+    private static final long SAMPLE_MILLIS = 5;
+
+    /** Used to make requests */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** Pool whose occupancy is reported */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Factory whose entity managers would be bound to a thread holding a session */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** Used to save the user that searches */
+    @Autowired
+    private UserService userService;
+
+    /** Used to clear saved songs */
+    @Autowired
+    private SongService songService;
+
+    /** Used to clear saved caches */
+    @Autowired
+    private QueryCacheRepository queryCacheRepository;
+
+    /** Slow stand in for the Deezer search */
+    @MockBean
+    private SongSearchService songSearchService;
+
+    /** User the searches are made by */
+    private CustomUserDetails userDetails;
+
+    /** External searches that ran in a transaction or open session, so could have held a connection */
+    private final AtomicInteger externalSearchesHoldingConnection = new AtomicInteger();
+
+    /** Used to give every returned song its own deezerID */
+    private final AtomicLong nextDeezerID = new AtomicLong(1);
+
+    @BeforeEach
+    public void setUp() {
+        songService.clearRepo();
+        queryCacheRepository.deleteAll();
+        userService.clearRepo();
+        final User savedUser = userService.saveUser("loadUser", "password", "load@email.com", "first", "last");
+        assertNotNull(savedUser, "User should've been saved before searching");
+        userDetails = CustomUserDetails.from(savedUser);
+
+        when(songSearchService.externalSearchForSongs(anyString(), anyString())).thenAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    || TransactionSynchronizationManager.hasResource(entityManagerFactory)
+                    || TransactionSynchronizationManager.hasResource(dataSource)) {
+                externalSearchesHoldingConnection.incrementAndGet();
+            }
+            Thread.sleep(EXTERNAL_SEARCH_MILLIS);
+            final Set<SongResult> songs = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                final long deezerID = nextDeezerID.getAndIncrement();
+                songs.add(new SongResult(deezerID, "Song " + deezerID, 100, "Artist", 1L, "Album", 1L, null, null));
+            }
+            return songs;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        songService.clearRepo();
+        queryCacheRepository.deleteAll();
+        userService.clearRepo();
+    }
+
+    /**
+     * Gets the connection pool's live numbers
+     *
+     * @return Pool bean
+     */
+    private HikariPoolMXBean pool() {
+        return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+    }
+
+    /**
+     * Makes a single search
+     *
+     * @param songName Song name to search for
+     * @return Response status
+     * @throws Exception If the request fails
+     */
+    private int search(String songName) throws Exception {
+        return mockMvc.perform(post("/search")
+                        .with(user(userDetails))
+                        .with(csrf())
+                        .param("songSearch", songName)
+                        .param("artistSearch", ""))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    public void slowExternalSearchesHoldNoConnections() throws Exception {
+        final HikariPoolMXBean pool = pool();
+        //The first request renders the page for the first time, so it isn't measured
+        assertEquals(200, search("Warm up song"), "Warm up search should succeed");
+
+        final ExecutorService searches = Executors.newFixedThreadPool(CONCURRENT_SEARCHES);
+        final ExecutorService sampler = Executors.newSingleThreadExecutor();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final AtomicInteger maxWaiting = new AtomicInteger();
+        final AtomicLong activeTotal = new AtomicLong();
+        final AtomicLong sampleCount = new AtomicLong();
+
+        final long start = System.nanoTime();
+        final List<Future<Integer>> statuses = new ArrayList<>();
+        try {
+            sampler.submit(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    final int active = pool.getActiveConnections();
+                    maxActive.accumulateAndGet(active, Math::max);
+                    maxWaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                    activeTotal.addAndGet(active);
+                    sampleCount.incrementAndGet();
+                    try {
+                        Thread.sleep(SAMPLE_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            for (int i = 0; i < CONCURRENT_SEARCHES; i++) {
+                final String songName = "Load test song " + i;
+                statuses.add(searches.submit(() -> search(songName)));
+            }
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get(30, TimeUnit.SECONDS), "Every search should succeed");
+            }
+        } finally {
+            searches.shutdownNow();
+            sampler.shutdownNow();
+        }
+        final double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        final double meanActive = sampleCount.get() == 0 ? 0 : (double) activeTotal.get() / sampleCount.get();
+
+        log.info("slowExternalSearchesHoldNoConnections: {} searches with a {} ms external search on a pool of {} took {} ms",
+                CONCURRENT_SEARCHES, EXTERNAL_SEARCH_MILLIS, POOL_SIZE, String.format("%.1f", elapsedMillis));
+        log.info("slowExternalSearchesHoldNoConnections: Pool occupancy: max active {} of {}, mean active {}, max threads waiting {}",
+                maxActive.get(), POOL_SIZE, String.format("%.2f", meanActive), maxWaiting.get());
+
+        assertEquals(0, externalSearchesHoldingConnection.get(), "No external search should run in a transaction or open session");
+        //With connections held across the external search, the searches would run at most POOL_SIZE at a time
+        assertTrue(elapsedMillis < (double) CONCURRENT_SEARCHES / POOL_SIZE * EXTERNAL_SEARCH_MILLIS,
+                "Searches shouldn't be limited by the pool size, but took " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,108 @@
+package edu.carroll.initMusic.web;
+
+import edu.carroll.initMusic.config.CustomUserDetails;
+import edu.carroll.initMusic.jpa.model.User;
+import edu.carroll.initMusic.service.songManagement.SongResult;
+import edu.carroll.initMusic.service.userManagement.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Measures how long the search page takes to render with 200 results, using the production
+ * template settings (template caching on). Run with {@code ./gradlew benchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.thymeleaf.cache=true")
+@AutoConfigureMockMvc
+public class SearchPageRenderBenchmarkTests {
+
+    /** Logger object used for logging */
+    private static final Logger log = LoggerFactory.getLogger(SearchPageRenderBenchmarkTests.class);
+
+    /** Number of results on the page */
+    private static final int ROWS = 200;
+
+    /** Renders to do before measuring */
+    private static final int WARMUP_RENDERS = 50;
+
+    /** Renders to measure */
+    private static final int MEASURED_RENDERS = 200;
+
+    /** Used to make requests */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** Used to save the user that requests the page */
+    @Autowired
+    private UserService userService;
+
+    /** User the page is rendered for */
+    private CustomUserDetails userDetails;
+
+    /** Results shown on the page */
+    private final Set<SongResult> results = new LinkedHashSet<>();
+
+    @BeforeEach
+    public void setUp() {
+        userService.clearRepo();
+        final User savedUser = userService.saveUser("renderUser", "password", "render@email.com", "first", "last");
+        assertNotNull(savedUser, "User should've been saved before rendering");
+        userDetails = CustomUserDetails.from(savedUser);
+
+        results.clear();
+        for (int i = 1; i <= ROWS; i++) {
+            results.add(new SongResult(i, "Song number " + i, 100 + i, "Artist " + i, i, "Album " + i, i,
+                    "https://example.com/cover/" + i + ".jpg", "https://example.com/preview/" + i + ".mp3"));
+        }
+    }
+
+    /**
+     * Renders the search page once
+     *
+     * @return Rendered page
+     * @throws Exception If the request fails
+     */
+    private String render() throws Exception {
+        final MockHttpServletResponse response = mockMvc.perform(get("/search")
+                        .with(user(userDetails))
+                        .sessionAttr("results", results)
+                        .sessionAttr("query", "Song number"))
+                .andReturn().getResponse();
+        assertEquals(200, response.getStatus(), "Search page should render");
+        return response.getContentAsString();
+    }
+
+    @Test
+    public void renderSearchPageWith200Results() throws Exception {
+        final String page = render();
+        assertEquals(ROWS, page.split("class=\"preview-link\"", -1).length - 1, "Every result should have a preview link");
+        assertTrue(page.contains("data-url=\"/preview/200\""), "Preview links should point at the preview page");
+
+        for (int i = 0; i < WARMUP_RENDERS; i++) {
+            render();
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RENDERS; i++) {
+            render();
+        }
+        final double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / MEASURED_RENDERS;
+        log.info("renderSearchPageWith200Results: Average render time for {} rows over {} renders: {} ms",
+                ROWS, MEASURED_RENDERS, String.format("%.3f", averageMillis));
+    }
+}